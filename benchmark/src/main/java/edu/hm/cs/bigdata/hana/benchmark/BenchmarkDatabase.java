@@ -0,0 +1,110 @@
+package edu.hm.cs.bigdata.hana.benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout;
+
+/**
+ * 
+ * Embedded H2 database standing in for SAP HANA. Every instance is a separate in-memory
+ * database which lives until close is called. The table 'BIG_DATA' is created by the 
+ * BigDataDAO itself, HANA functions used by the DAO are registered as aliases.
+ * 
+ * With the system property 'bigdata.jdbc.url' (and 'bigdata.jdbc.user', 'bigdata.jdbc.password')
+ * the benchmarks run against that database instead, e.g. HANA with its driver on the class path.
+ * Its table 'BIG_DATA' is dropped and created again for every instance.
+ *
+ */
+public class BenchmarkDatabase {
+	/** Seed of all generated data, so every run works on the same rows */
+	public static final long SEED = 20180101L;
+	
+	/** System property with the JDBC URL of a database to use instead of H2 */
+	public static final String URL_PROPERTY = "bigdata.jdbc.url";
+	
+	private static final AtomicInteger DATABASE_NUMBER = new AtomicInteger();
+	
+	private final DataSource dataSource;
+	//keeps the in-memory database alive between the connections of the DAO
+	private final Connection keepAlive;
+	private final BigDataDAO bigDataDAO;
+	
+	/**
+	 * 
+	 * @throws SQLException
+	 */
+	public BenchmarkDatabase() throws SQLException {
+		this(new TableLayout());
+	}
+	
+	/**
+	 * 
+	 * @param layout of the table 'BIG_DATA'
+	 * @throws SQLException
+	 */
+	public BenchmarkDatabase(TableLayout layout) throws SQLException {
+		String url = System.getProperty(URL_PROPERTY);
+		if (url != null) {
+			dataSource = new DriverManagerDataSource(url, System.getProperty("bigdata.jdbc.user"), 
+					System.getProperty("bigdata.jdbc.password"));
+			keepAlive = dataSource.getConnection();
+			bigDataDAO = new BigDataDAO(dataSource, layout);
+			bigDataDAO.recreateTable(layout);
+			return;
+		}
+		JdbcDataSource h2 = new JdbcDataSource();
+		h2.setURL("jdbc:h2:mem:bigdata" + DATABASE_NUMBER.incrementAndGet() + "");
+		dataSource = h2;
+		keepAlive = dataSource.getConnection();
+		Statement statement = keepAlive.createStatement();
+		try {
+			statement.execute("CREATE ALIAS TO_DOUBLE FOR \"" + BenchmarkDatabase.class.getName() + ".toDouble\"");
+		} finally {
+			statement.close();
+		}
+		bigDataDAO = new BigDataDAO(dataSource, layout);
+	}
+	
+	/**
+	 * 
+	 * @param value
+	 * @return value as double, implementation of the HANA function TO_DOUBLE
+	 */
+	public static double toDouble(int value) {
+		return value;
+	}
+	
+	/**
+	 * 
+	 * @return the data source of the in-memory database
+	 */
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+	
+	/**
+	 * 
+	 * @return the DAO working on the in-memory database
+	 */
+	public BigDataDAO getBigDataDAO() {
+		return bigDataDAO;
+	}
+	
+	/**
+	 * 
+	 * @throws SQLException
+	 * 
+	 * Drop the in-memory database
+	 */
+	public void close() throws SQLException {
+		keepAlive.close();
+	}
+}
@@ -0,0 +1,84 @@
+package edu.hm.cs.bigdata.hana.benchmark;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * 
+ * Data source which opens a new connection through the DriverManager for every call,
+ * used to run the benchmarks against a real database instead of the embedded H2.
+ *
+ */
+public class DriverManagerDataSource implements DataSource {
+	private final String url;
+	private final String user;
+	private final String password;
+	private int loginTimeout;
+	private PrintWriter logWriter;
+	
+	/**
+	 * 
+	 * @param url the JDBC URL, the driver must be on the class path
+	 * @param user
+	 * @param password
+	 */
+	public DriverManagerDataSource(String url, String user, String password) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		return getConnection(user, password);
+	}
+	
+	@Override
+	public Connection getConnection(String username, String pwd) throws SQLException {
+		return username == null ? DriverManager.getConnection(url) : DriverManager.getConnection(url, username, pwd);
+	}
+	
+	@Override
+	public PrintWriter getLogWriter() {
+		return logWriter;
+	}
+	
+	@Override
+	public void setLogWriter(PrintWriter out) {
+		this.logWriter = out;
+	}
+	
+	@Override
+	public void setLoginTimeout(int seconds) {
+		this.loginTimeout = seconds;
+	}
+	
+	@Override
+	public int getLoginTimeout() {
+		return loginTimeout;
+	}
+	
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+	
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface);
+	}
+	
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+}
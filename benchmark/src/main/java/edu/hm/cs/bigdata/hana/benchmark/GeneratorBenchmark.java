@@ -0,0 +1,60 @@
+package edu.hm.cs.bigdata.hana.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.hm.cs.bigdata.hana.persistence.BigData;
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
+import edu.hm.cs.bigdata.hana.util.Util;
+
+/**
+ * 
+ * Benchmarks of the random data generation without a database
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GeneratorBenchmark {
+	
+	@Param({"1000", "10000"})
+	private int amountDataset;
+	
+	/**
+	 * 
+	 * @return the list created by Util.createData
+	 */
+	@Benchmark
+	public Object createData() {
+		return new Util(BenchmarkDatabase.SEED).createData(amountDataset);
+	}
+	
+	/**
+	 * 
+	 * @param blackhole
+	 * 
+	 * Iterate the streaming generator without keeping the rows
+	 */
+	@Benchmark
+	public void createDataStream(Blackhole blackhole) {
+		BigDataGenerator generator = new BigDataGenerator(BenchmarkDatabase.SEED, 1, amountDataset);
+		while (generator.hasNext()) {
+			BigData bg = generator.next();
+			blackhole.consume(bg);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package edu.hm.cs.bigdata.hana.benchmark;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout.PartitionColumn;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout.Partitioning;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout.Storage;
+
+/**
+ * 
+ * Benchmarks of the analyses and of a chunk of inserts for several layouts of the table 'BIG_DATA'.
+ * H2 only creates the index of a layout, the store and the partitions need HANA, see the
+ * system property 'bigdata.jdbc.url' of the BenchmarkDatabase.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LayoutBenchmark {
+	//partitions of the partitioned layouts
+	private static final int PARTITIONS = 4;
+	
+	@Param({"100000"})
+	private int amountDataset;
+	
+	@Param({"plain", "row", "column", "column-index", "hash-id", "range-id", "hash-created_at", "range-created_at"})
+	private String layout;
+	
+	private BenchmarkDatabase database;
+	private BigDataDAO bigDataDAO;
+	private int nextId;
+	
+	/**
+	 * 
+	 * @throws SQLException
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		database = new BenchmarkDatabase(parseLayout(layout, amountDataset));
+		bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataSequential(amountDataset, BenchmarkDatabase.SEED);
+		nextId = amountDataset + 1;
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 * @param rows
+	 * @return the layout of the name, ranges of ID are split so the rows fill all partitions
+	 */
+	static TableLayout parseLayout(String name, int rows) {
+		int idRangeSize = Math.max(1, (rows + PARTITIONS - 1) / PARTITIONS);
+		if (name.equals("plain")) {
+			return new TableLayout();
+		} else if (name.equals("row") || name.equals("column")) {
+			return new TableLayout(Storage.valueOf(name.toUpperCase()), Partitioning.NONE, PartitionColumn.ID, 1, 
+					idRangeSize, false);
+		} else if (name.equals("column-index")) {
+			return new TableLayout(Storage.COLUMN, Partitioning.NONE, PartitionColumn.ID, 1, idRangeSize, true);
+		}
+		int separator = name.indexOf('-');
+		return new TableLayout(Storage.COLUMN, Partitioning.valueOf(name.substring(0, separator).toUpperCase()),
+				PartitionColumn.valueOf(name.substring(separator + 1).toUpperCase()), PARTITIONS, idRangeSize, false);
+	}
+	
+	/**
+	 * 
+	 * @throws SQLException
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		database.close();
+	}
+	
+	@Benchmark
+	public Object analyzeAll() throws SQLException {
+		return bigDataDAO.analyzeAll();
+	}
+	
+	@Benchmark
+	public Object analyzeCreatedAt() throws SQLException {
+		return bigDataDAO.analyzeCreatedAt();
+	}
+	
+	@Benchmark
+	public int analyzeNumber() throws SQLException {
+		return bigDataDAO.analyzeNumber();
+	}
+	
+	@Benchmark
+	public Object selectPage() throws SQLException {
+		return bigDataDAO.selectPage(amountDataset / 2, 100);
+	}
+	
+	/**
+	 * 
+	 * @return the rows inserted
+	 * @throws SQLException
+	 * 
+	 * Insert 1000 new rows after the rows of the trial, the table grows during the trial
+	 */
+	@Benchmark
+	public long insertChunk() throws SQLException {
+		long rows = bigDataDAO.insertBigDataRange(nextId, 1000, BenchmarkDatabase.SEED).getRows();
+		nextId += 1000;
+		return rows;
+	}
+}
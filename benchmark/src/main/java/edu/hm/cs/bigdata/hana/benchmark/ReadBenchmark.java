@@ -0,0 +1,170 @@
+package edu.hm.cs.bigdata.hana.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.hm.cs.bigdata.hana.export.BigDataExporter;
+import edu.hm.cs.bigdata.hana.export.ExportFormat;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+
+/**
+ * 
+ * Benchmarks of selectAllData, the export and the analyses on a table filled once per trial.
+ * The export is written to a stream which discards the bytes. A second DAO on the same table
+ * answers from its columnar snapshot, loaded on first use and kept while the table is unchanged.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReadBenchmark {
+	
+	@Param({"10000", "100000"})
+	private int amountDataset;
+	
+	private BenchmarkDatabase database;
+	private BigDataDAO bigDataDAO;
+	private BigDataDAO snapshotDAO;
+	private final OutputStream discard = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+	
+	/**
+	 * 
+	 * @throws SQLException
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		database = new BenchmarkDatabase();
+		bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataSequential(amountDataset, BenchmarkDatabase.SEED);
+		snapshotDAO = new BigDataDAO(database.getDataSource());
+		snapshotDAO.setColumnarSnapshotEnabled(true);
+	}
+	
+	/**
+	 * 
+	 * @throws SQLException
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		database.close();
+	}
+	
+	@Benchmark
+	public Object selectAllData() throws SQLException {
+		return bigDataDAO.selectAllData();
+	}
+	
+	@Benchmark
+	public long exportCsv() throws SQLException, IOException {
+		return BigDataExporter.export(bigDataDAO, discard, ExportFormat.CSV, false);
+	}
+	
+	@Benchmark
+	public long exportNdjson() throws SQLException, IOException {
+		return BigDataExporter.export(bigDataDAO, discard, ExportFormat.NDJSON, false);
+	}
+	
+	@Benchmark
+	public long exportBinary() throws SQLException, IOException {
+		return BigDataExporter.export(bigDataDAO, discard, ExportFormat.BINARY, false);
+	}
+	
+	@Benchmark
+	public long exportCsvGzip() throws SQLException, IOException {
+		return BigDataExporter.export(bigDataDAO, discard, ExportFormat.CSV, true);
+	}
+	
+	@Benchmark
+	public int getAmountDataset() throws SQLException {
+		return bigDataDAO.getAmountDataset();
+	}
+	
+	@Benchmark
+	public int analyzeUsername() throws SQLException {
+		return bigDataDAO.analyzeUsername();
+	}
+	
+	@Benchmark
+	public Object analyzeCreatedAt() throws SQLException {
+		return bigDataDAO.analyzeCreatedAt();
+	}
+	
+	@Benchmark
+	public int analyzeText() throws SQLException {
+		return bigDataDAO.analyzeText();
+	}
+	
+	@Benchmark
+	public int analyzeNumber() throws SQLException {
+		return bigDataDAO.analyzeNumber();
+	}
+	
+	@Benchmark
+	public Object analyzeAll() throws SQLException {
+		return bigDataDAO.analyzeAll();
+	}
+	
+	@Benchmark
+	public Object analyzeAllFromSnapshot() throws SQLException {
+		return snapshotDAO.analyzeAll();
+	}
+	
+	/**
+	 * 
+	 * @return a new columnar snapshot, the cost of the first read after a write
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public Object loadColumnarSnapshot() throws SQLException {
+		snapshotDAO.setColumnarSnapshotEnabled(false);
+		snapshotDAO.setColumnarSnapshotEnabled(true);
+		return snapshotDAO.getColumnarSnapshot();
+	}
+	
+	@Benchmark
+	public Object analyzeApproximatelyFull() throws SQLException {
+		return bigDataDAO.analyzeApproximately(100);
+	}
+	
+	@Benchmark
+	public Object analyzeApproximatelyTenPercent() throws SQLException {
+		return bigDataDAO.analyzeApproximately(10);
+	}
+	
+	@Benchmark
+	public Object analyzeTextHistogram() throws SQLException {
+		return bigDataDAO.analyzeTextHistogram(false, false);
+	}
+	
+	@Benchmark
+	public Object analyzeTextHistogramWithWords() throws SQLException {
+		return bigDataDAO.analyzeTextHistogram(true, true);
+	}
+}
@@ -0,0 +1,148 @@
+package edu.hm.cs.bigdata.hana.benchmark;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.UpdateStrategy;
+
+/**
+ * 
+ * Benchmarks of insertBigData and updateBigData at several JDBC batch sizes, the updates
+ * with every update strategy. 
+ * Every invocation writes 'amountDataset' rows, so the score divided by it is the time per row.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(2)
+public class WriteBenchmark {
+	
+	/**
+	 * 
+	 * Database with a DAO configured for the batch size of the trial
+	 *
+	 */
+	@State(Scope.Thread)
+	public abstract static class DatabaseState {
+		@Param({"10000"})
+		protected int amountDataset;
+		
+		@Param({"1", "100", "1000"})
+		protected int batchSize;
+		
+		protected BenchmarkDatabase database;
+		protected BigDataDAO bigDataDAO;
+		
+		/**
+		 * 
+		 * @throws SQLException
+		 */
+		@Setup(Level.Trial)
+		public void setUpDatabase() throws SQLException {
+			database = new BenchmarkDatabase();
+			bigDataDAO = database.getBigDataDAO();
+			bigDataDAO.setBatchSize(batchSize);
+			bigDataDAO.setCommitInterval(Math.max(batchSize, BigDataDAO.DEFAULT_COMMIT_INTERVAL));
+		}
+		
+		/**
+		 * 
+		 * @throws SQLException
+		 */
+		@TearDown(Level.Trial)
+		public void tearDownDatabase() throws SQLException {
+			database.close();
+		}
+	}
+	
+	/**
+	 * 
+	 * Empty table before every insert
+	 *
+	 */
+	public static class EmptyTable extends DatabaseState {
+		
+		/**
+		 * 
+		 * @throws SQLException
+		 */
+		@Setup(Level.Invocation)
+		public void clearTable() throws SQLException {
+			bigDataDAO.clearTable();
+		}
+	}
+	
+	/**
+	 * 
+	 * Table filled once with the rows which are updated, updates do not change the number of rows
+	 *
+	 */
+	public static class FilledTable extends DatabaseState {
+		
+		/**
+		 * 
+		 * @throws SQLException
+		 */
+		@Setup(Level.Trial)
+		public void fillTable() throws SQLException {
+			bigDataDAO.insertBigDataSequential(amountDataset, BenchmarkDatabase.SEED);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param state
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public void insertBigData(EmptyTable state) throws SQLException {
+		state.bigDataDAO.insertBigDataSequential(state.amountDataset, BenchmarkDatabase.SEED);
+	}
+	
+	/**
+	 * 
+	 * @param state
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public void updateBigData(FilledTable state) throws SQLException {
+		state.bigDataDAO.updateBigData(state.amountDataset);
+	}
+	
+	/**
+	 * 
+	 * @param state
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public void updateBigDataBatched(FilledTable state) throws SQLException {
+		state.bigDataDAO.updateBigDataRange(1, state.amountDataset, BenchmarkDatabase.SEED, UpdateStrategy.BATCHED);
+	}
+	
+	/**
+	 * 
+	 * @param state
+	 * @throws SQLException
+	 */
+	@Benchmark
+	public void updateBigDataStaged(FilledTable state) throws SQLException {
+		state.bigDataDAO.updateBigDataRange(1, state.amountDataset, BenchmarkDatabase.SEED, UpdateStrategy.STAGED);
+	}
+}
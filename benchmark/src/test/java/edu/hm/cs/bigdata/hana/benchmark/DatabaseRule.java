@@ -0,0 +1,134 @@
+package edu.hm.cs.bigdata.hana.benchmark;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.rules.ExternalResource;
+
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout;
+
+/**
+ *
+ * A new in-memory BenchmarkDatabase for every test, closed after it, with helpers to run SQL
+ * next to the DAO.
+ *
+ */
+public class DatabaseRule extends ExternalResource {
+	private final TableLayout layout;
+	private BenchmarkDatabase database;
+
+	public DatabaseRule() {
+		this(new TableLayout());
+	}
+
+	/**
+	 *
+	 * @param layout of the table 'BIG_DATA'
+	 */
+	public DatabaseRule(TableLayout layout) {
+		this.layout = layout;
+	}
+
+	@Override
+	protected void before() throws SQLException {
+		database = new BenchmarkDatabase(layout);
+	}
+
+	@Override
+	protected void after() {
+		try {
+			database.close();
+		} catch (SQLException e) {
+			throw new IllegalStateException("The database could not be closed", e);
+		}
+	}
+
+	/**
+	 *
+	 * @return the database of the current test
+	 */
+	public BenchmarkDatabase getDatabase() {
+		return database;
+	}
+
+	/**
+	 *
+	 * @return the DAO working on the database of the current test
+	 */
+	public BigDataDAO getBigDataDAO() {
+		return database.getBigDataDAO();
+	}
+
+	/**
+	 *
+	 * @return the data source of the database of the current test
+	 */
+	public DataSource getDataSource() {
+		return database.getDataSource();
+	}
+
+	/**
+	 *
+	 * @param sql a statement without result, e.g. a write which does not go through the DAO
+	 * @throws SQLException
+	 */
+	public void execute(String sql) throws SQLException {
+		Connection connection = getDataSource().getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute(sql);
+			statement.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param sqlQuery
+	 * @return the number in the first column of the first row of the result
+	 * @throws SQLException
+	 */
+	public long queryLong(String sqlQuery) throws SQLException {
+		Connection connection = getDataSource().getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			ResultSet rs = statement.executeQuery(sqlQuery);
+			rs.next();
+			long value = rs.getLong(1);
+			statement.close();
+			return value;
+		} finally {
+			connection.close();
+		}
+	}
+
+	/**
+	 *
+	 * @return every row of the table 'BIG_DATA' as text, ordered by ID, NULL and empty texts differ
+	 * @throws SQLException
+	 */
+	public List<String> readRows() throws SQLException {
+		List<String> rows = new ArrayList<String>();
+		Connection connection = getDataSource().getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			ResultSet rs = statement.executeQuery("SELECT ID, USER_NAME, CREATED_AT, TEXT, NUMBER FROM BIG_DATA ORDER BY ID");
+			while (rs.next()) {
+				rows.add(rs.getInt(1) + "|" + rs.getString(2) + "|" + rs.getDate(3) + "|" + rs.getString(4) + "|"
+						+ rs.getInt(5));
+			}
+			statement.close();
+		} finally {
+			connection.close();
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,200 @@
+package edu.hm.cs.bigdata.hana.ingest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+import edu.hm.cs.bigdata.hana.export.BigDataExporter;
+import edu.hm.cs.bigdata.hana.export.ExportFormat;
+import edu.hm.cs.bigdata.hana.persistence.BigData;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+
+/**
+ *
+ * A file written by the BigDataExporter and read by the BigDataImporter must restore every row,
+ * also texts with separators, quotes, line breaks, non-ASCII characters, empty texts and NULL.
+ * The chunks are small, so rows are split across many chunks and parser threads. Rows which cannot
+ * be parsed or are rejected by the database are skipped and reported, a failed writer stops the import.
+ *
+ */
+public class ExportImportRoundTripTest {
+	private static final int ROWS = 3000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public DatabaseRule source = new DatabaseRule();
+	@Rule
+	public DatabaseRule target = new DatabaseRule();
+
+	@Before
+	public void setUp() throws SQLException {
+		source.getBigDataDAO().insertBigDataRange(1, ROWS, BenchmarkDatabase.SEED);
+		source.getBigDataDAO().insertBigData(Arrays.asList(
+				row(ROWS + 1, "comma, \"quote\"", Date.valueOf("2018-02-28"), "line\r\nbreak,\n\"", -1),
+				row(ROWS + 2, "", Date.valueOf("1970-01-01"), "", Integer.MIN_VALUE),
+				row(ROWS + 3, null, null, null, Integer.MAX_VALUE),
+				row(ROWS + 4, "ümläut €", Date.valueOf("1969-12-31"), "😀 ß", 0)).iterator());
+	}
+
+	@Test
+	public void csvRoundTrip() throws Exception {
+		roundTrip(ExportFormat.CSV);
+	}
+
+	@Test
+	public void binaryRoundTrip() throws Exception {
+		roundTrip(ExportFormat.BINARY);
+	}
+
+	@Test
+	public void badCsvRowsAreSkipped() throws Exception {
+		File file = folder.newFile("bad.csv");
+		write(file, "ID,USER_NAME,CREATED_AT,TEXT,NUMBER\r\n"
+				+ "1,a,2018-01-01,t,1\r\n"
+				+ "x,b,2018-01-01,t,2\r\n"
+				+ "3,c,2018-01-01,t\r\n"
+				+ "4,d,2018-13-01,t,4\r\n"
+				+ "5,\"e\"x,2018-01-01,t,5\r\n"
+				+ "6,f,,t,6\r\n");
+		ImportResult result = importer().importFile(file, ExportFormat.CSV, null);
+		assertEquals(6, result.getRowsRead());
+		assertEquals(2, result.getRowsWritten());
+		assertEquals(4, result.getBadRowCount());
+		List<Long> badRowNumbers = new ArrayList<Long>();
+		for (BadRow badRow : result.getBadRows()) {
+			badRowNumbers.add(badRow.getRowNumber());
+		}
+		assertEquals(Arrays.asList(2L, 3L, 4L, 5L), badRowNumbers);
+		assertEquals(Arrays.asList("1|a|2018-01-01|t|1", "6|f|null|t|6"), target.readRows());
+	}
+
+	@Test
+	public void rowsRejectedByTheDatabaseAreSkipped() throws Exception {
+		target.getBigDataDAO().insertBigData(Arrays.asList(row(2, "old", null, "old", 0), 
+				row(4, "old", null, "old", 0)).iterator());
+		File file = folder.newFile("duplicates.csv");
+		StringBuilder content = new StringBuilder();
+		for (int id = 1; id <= 250; id++) {
+			content.append(id).append(",u,2018-01-01,t,").append(id).append("\r\n");
+		}
+		write(file, content.toString());
+		ImportResult result = importer().importFile(file, ExportFormat.CSV, null);
+		assertEquals(250, result.getRowsRead());
+		assertEquals(248, result.getRowsWritten());
+		assertEquals(2, result.getBadRowCount());
+		assertEquals(2, result.getBadRows().get(0).getRowNumber());
+		assertEquals(4, result.getBadRows().get(1).getRowNumber());
+		assertEquals(250, target.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+		assertEquals(2, target.queryLong("SELECT COUNT(*) FROM BIG_DATA WHERE USER_NAME = 'old'"));
+	}
+
+	@Test
+	public void strayQuoteOnlySkipsItsRow() throws Exception {
+		File file = folder.newFile("quote.csv");
+		StringBuilder content = new StringBuilder("1,a,2018-01-01,t,1\r\n2,\"b,2018-01-01,t,2\r\n");
+		for (int id = 3; id <= 300; id++) {
+			content.append(id == 150 ? "x" : id).append(",u,2018-01-01,t,").append(id).append("\r\n");
+		}
+		write(file, content.toString());
+		ImportResult result = importer().importFile(file, ExportFormat.CSV, null);
+		assertEquals(300, result.getRowsRead());
+		assertEquals(298, result.getRowsWritten());
+		List<Long> badRowNumbers = new ArrayList<Long>();
+		for (BadRow badRow : result.getBadRows()) {
+			badRowNumbers.add(badRow.getRowNumber());
+		}
+		Collections.sort(badRowNumbers);
+		assertEquals(Arrays.asList(2L, 150L), badRowNumbers);
+	}
+
+	@Test(timeout = 30000)
+	public void failingWriterStopsTheParsers() throws Exception {
+		File file = folder.newFile("many.csv");
+		StringBuilder content = new StringBuilder();
+		for (int id = 1; id <= 5000; id++) {
+			content.append(id).append(",u,2018-01-01,t,").append(id).append("\r\n");
+		}
+		write(file, content.toString());
+		BigDataImporter importer = new BigDataImporter(new BigDataDAO(target.getDataSource()) {
+			@Override
+			public int insertBigData(Iterator<BigData> dataset) {
+				throw new IllegalStateException("writer failed");
+			}
+		});
+		importer.setChunkSize(4096);
+		importer.setWriterThreads(1);
+		importer.setBatchRows(10);
+		try {
+			importer.importFile(file, ExportFormat.CSV, null);
+			fail("The import ignored the failed writer");
+		} catch (IllegalStateException e) {
+			assertEquals("writer failed", e.getMessage());
+		}
+	}
+
+	private void roundTrip(ExportFormat format) throws Exception {
+		File file = folder.newFile("export." + format.getFileExtension());
+		OutputStream out = new FileOutputStream(file);
+		try {
+			assertEquals(ROWS + 4, BigDataExporter.export(source.getBigDataDAO(), out, format, false));
+		} finally {
+			out.close();
+		}
+		ImportResult result = importer().importFile(file, format, null);
+		assertEquals(0, result.getBadRowCount());
+		assertEquals(ROWS + 4, result.getRowsWritten());
+		assertEquals(source.readRows(), target.readRows());
+	}
+
+	/**
+	 *
+	 * @return an importer with chunks of a few rows and several threads
+	 */
+	private BigDataImporter importer() {
+		BigDataImporter importer = new BigDataImporter(target.getBigDataDAO());
+		importer.setChunkSize(4096);
+		importer.setParserThreads(3);
+		importer.setWriterThreads(2);
+		importer.setBatchRows(100);
+		return importer;
+	}
+
+	private static BigData row(int id, String userName, Date createdAt, String text, int number) {
+		BigData bg = new BigData();
+		bg.setId(id);
+		bg.setUserName(userName);
+		bg.setCreatedAt(createdAt);
+		bg.setText(text);
+		bg.setNumber(number);
+		return bg;
+	}
+
+	private static void write(File file, String content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+}
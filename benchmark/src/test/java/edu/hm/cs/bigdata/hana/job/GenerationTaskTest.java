@@ -0,0 +1,107 @@
+package edu.hm.cs.bigdata.hana.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.GenerationCheckpoint;
+import edu.hm.cs.bigdata.hana.persistence.UpdateStrategy;
+
+/**
+ *
+ * An interrupted generation must continue after its last committed ID, also if rows were
+ * committed after the last checkpoint, and end with exactly the rows of an uninterrupted one.
+ *
+ */
+public class GenerationTaskTest {
+	//not a multiple of the chunk size, so the last chunk is shorter
+	private static final int ROWS = 4 * GenerationTask.CHUNK_SIZE + 1234;
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+	@Rule
+	public DatabaseRule uninterrupted = new DatabaseRule();
+
+	@Test
+	public void resumedGenerationHasNoGapsOrDuplicates() throws Exception {
+		BigDataDAO bigDataDAO = database.getBigDataDAO();
+		GenerationTask task = new GenerationTask(bigDataDAO, ROWS, BenchmarkDatabase.SEED, UpdateStrategy.BATCHED);
+		try {
+			task.run(cancelledAfter(2 * GenerationTask.CHUNK_SIZE));
+			fail("The cancelled generation finished");
+		} catch (InterruptedException e) {
+			//expected
+		}
+		GenerationCheckpoint checkpoint = bigDataDAO.readCheckpoint(BenchmarkDatabase.SEED);
+		assertEquals(2 * GenerationTask.CHUNK_SIZE, checkpoint.getLastId());
+		assertEquals(BenchmarkDatabase.SEED, GenerationTask.resumableSeed(bigDataDAO));
+		//rows of a chunk which was committed before its checkpoint could be written
+		bigDataDAO.insertBigDataRange(checkpoint.getLastId() + 1, 3000, BenchmarkDatabase.SEED);
+
+		Job resumed = new Job(2, "generate", ROWS);
+		String result = task.run(resumed);
+		assertTrue(result, result.endsWith("after ID " + (checkpoint.getLastId() + 3000)));
+		assertEquals(ROWS, resumed.getRowsDone());
+		assertEquals(ROWS, database.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+		assertEquals(ROWS, database.queryLong("SELECT COUNT(DISTINCT ID) FROM BIG_DATA"));
+		assertEquals(1, database.queryLong("SELECT MIN(ID) FROM BIG_DATA"));
+		assertEquals(ROWS, database.queryLong("SELECT MAX(ID) FROM BIG_DATA"));
+		assertTrue(bigDataDAO.readCheckpoint(BenchmarkDatabase.SEED).isComplete());
+
+		uninterrupted.getBigDataDAO().insertBigDataSequential(ROWS, BenchmarkDatabase.SEED);
+		assertEquals(uninterrupted.readRows(), database.readRows());
+	}
+
+	@Test
+	public void generationEndsAtTheLargestId() throws Exception {
+		BigDataDAO bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.saveCheckpoint(BenchmarkDatabase.SEED, Integer.MAX_VALUE, Integer.MAX_VALUE - 5);
+		Job job = new Job(1, "generate", Integer.MAX_VALUE);
+		new GenerationTask(bigDataDAO, Integer.MAX_VALUE, BenchmarkDatabase.SEED, UpdateStrategy.BATCHED).run(job);
+		assertEquals(5, database.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+		assertEquals(Integer.MAX_VALUE, database.queryLong("SELECT MAX(ID) FROM BIG_DATA"));
+		assertEquals(Integer.MAX_VALUE, job.getRowsDone());
+		assertTrue(bigDataDAO.readCheckpoint(BenchmarkDatabase.SEED).isComplete());
+	}
+
+	@Test
+	public void existingRowsAreUpdated() throws Exception {
+		BigDataDAO bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataRange(1, 500, BenchmarkDatabase.SEED);
+		String result = new GenerationTask(bigDataDAO, 500, BenchmarkDatabase.SEED + 1, UpdateStrategy.STAGED)
+				.run(new Job(1, "generate", 500));
+		assertEquals("updated 500 rows with seed " + (BenchmarkDatabase.SEED + 1), result);
+		uninterrupted.getBigDataDAO().insertBigDataSequential(500, BenchmarkDatabase.SEED + 1);
+		assertEquals(uninterrupted.readRows(), database.readRows());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeAmountIsRejected() throws SQLException {
+		new GenerationTask(database.getBigDataDAO(), -1, BenchmarkDatabase.SEED, UpdateStrategy.BATCHED);
+	}
+
+	/**
+	 *
+	 * @param rows
+	 * @return a job which is cancelled as soon as the rows are reported
+	 */
+	private static Job cancelledAfter(final long rows) {
+		return new Job(1, "generate", ROWS) {
+			@Override
+			public void addRowsDone(long newRows) {
+				super.addRowsDone(newRows);
+				if (getRowsDone() >= rows) {
+					cancel();
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,122 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+
+import org.junit.Test;
+
+/**
+ *
+ * The sizer must climb to the batch size with the highest throughput of a simulated database
+ * from either end of its range, and halve the size after slow batches and failures.
+ *
+ */
+public class AdaptiveBatchSizerTest {
+	//simulated time of a batch: a round trip, the rows and a penalty growing with the square of the size
+	private static final double ROUND_TRIP_NANOS = 5000000;
+	private static final double NANOS_PER_ROW = 1000;
+	private static final double NANOS_PER_SQUARED_ROW = 1.25;
+	//the throughput is highest at sqrt(ROUND_TRIP_NANOS / NANOS_PER_SQUARED_ROW)
+	private static final int BEST_BATCH_SIZE = 2000;
+
+	@Test
+	public void climbsFromTheSmallestSize() {
+		assertConverges(new AdaptiveBatchSizer(50, 10000, 50, 10, 60000));
+	}
+
+	@Test
+	public void climbsFromTheLargestSize() {
+		assertConverges(new AdaptiveBatchSizer(50, 10000, 10000, 10, 60000));
+	}
+
+	@Test
+	public void staysNearTheLargestSizeIfLargerIsAlwaysFaster() {
+		AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(50, 10000, 1000, 10, 60000);
+		for (int i = 0; i < 600; i++) {
+			int batchSize = sizer.getBatchSize();
+			if (i >= 300) {
+				assertTrue("Batch size " + batchSize + " left the largest sizes", batchSize >= 8000);
+			}
+			sizer.recordBatch(batchSize, (long) (ROUND_TRIP_NANOS + NANOS_PER_ROW * batchSize));
+		}
+	}
+
+	@Test
+	public void slowBatchesHalveTheSize() {
+		AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(50, 10000, 8000, 10, 10);
+		for (int i = 0; i < 3; i++) {
+			sizer.recordBatch(sizer.getBatchSize(), 20000000);
+		}
+		assertEquals(4000, sizer.getBatchSize());
+		assertEquals(40000, sizer.getCommitInterval());
+		assertEquals(1, sizer.getDecreases());
+	}
+
+	@Test
+	public void shortBatchesAreIgnored() {
+		AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(50, 10000, 1000, 10, 10);
+		for (int i = 0; i < 30; i++) {
+			sizer.recordBatch(400, 20000000);
+		}
+		assertEquals(1000, sizer.getBatchSize());
+		assertEquals(0, sizer.getRowsPerSecond(), 0);
+	}
+
+	@Test
+	public void failuresHalveTheSizeDownToTheMinimum() {
+		AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(50, 10000, 1000, 10, 1000);
+		sizer.recordFailure(new SQLTransactionRollbackException("deadlock"));
+		assertEquals(500, sizer.getBatchSize());
+		sizer.recordFailure(new SQLException("duplicate key", "23505"));
+		assertEquals(250, sizer.getBatchSize());
+		for (int i = 0; i < 10; i++) {
+			sizer.recordFailure(new SQLException("failed"));
+		}
+		assertEquals(50, sizer.getBatchSize());
+		assertEquals(1, sizer.getLockConflicts());
+		assertEquals(12, sizer.getDecreases());
+	}
+
+	@Test
+	public void recognizesLockConflicts() {
+		assertTrue(AdaptiveBatchSizer.isLockConflict(new SQLException("serialization failure", "40001")));
+		assertTrue(AdaptiveBatchSizer.isLockConflict(new SQLException("lock wait timeout", "HY000", 131)));
+		assertTrue(AdaptiveBatchSizer.isLockConflict(new SQLException("batch failed",
+				new SQLException("deadlock", "HY000", 133))));
+		assertFalse(AdaptiveBatchSizer.isLockConflict(new SQLException("duplicate key", "23505")));
+		assertFalse(AdaptiveBatchSizer.isLockConflict(new SQLException("failed")));
+	}
+
+	/**
+	 *
+	 * @param sizer
+	 *
+	 * Feed the sizer with the simulated times, after the climb the throughput must stay close
+	 * to the best one
+	 */
+	private static void assertConverges(AdaptiveBatchSizer sizer) {
+		for (int i = 0; i < 300; i++) {
+			sizer.recordBatch(sizer.getBatchSize(), nanos(sizer.getBatchSize()));
+		}
+		long rows = 0;
+		long nanos = 0;
+		for (int i = 0; i < 300; i++) {
+			int batchSize = sizer.getBatchSize();
+			assertTrue("Batch size " + batchSize + " far from " + BEST_BATCH_SIZE,
+					batchSize >= BEST_BATCH_SIZE / 2 && batchSize <= BEST_BATCH_SIZE * 2);
+			rows += batchSize;
+			nanos += nanos(batchSize);
+			sizer.recordBatch(batchSize, nanos(batchSize));
+		}
+		double best = BEST_BATCH_SIZE / (double) nanos(BEST_BATCH_SIZE);
+		assertTrue("Throughput " + rows / (double) nanos + " far below " + best, rows / (double) nanos >= 0.9 * best);
+	}
+
+	private static long nanos(int batchSize) {
+		return (long) (ROUND_TRIP_NANOS + NANOS_PER_ROW * batchSize + NANOS_PER_SQUARED_ROW * batchSize * batchSize);
+	}
+}
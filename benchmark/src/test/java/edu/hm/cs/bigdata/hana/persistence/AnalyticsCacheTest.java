@@ -0,0 +1,99 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.sql.SQLException;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * A result must be served from the cache until the data version changes or it expires, the oldest
+ * result must make room for a new one, and every write through the DAO must invalidate the analyses.
+ *
+ */
+public class AnalyticsCacheTest {
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	@Test
+	public void resultIsCachedPerVersion() throws SQLException {
+		AnalyticsCache cache = new AnalyticsCache();
+		CountingLoader loader = new CountingLoader();
+		assertEquals(1, cache.get("count", 1, loader).intValue());
+		assertEquals(1, cache.get("count", 1, loader).intValue());
+		assertEquals(2, cache.get("count", 2, loader).intValue());
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+		assertEquals(1.0 / 3, cache.getHitRatio(), 1e-9);
+
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+		assertEquals(3, cache.get("count", 2, loader).intValue());
+	}
+
+	@Test
+	public void expiredResultIsLoadedAgain() throws Exception {
+		AnalyticsCache cache = new AnalyticsCache(1, AnalyticsCache.DEFAULT_MAX_ENTRIES);
+		CountingLoader loader = new CountingLoader();
+		cache.get("count", 1, loader);
+		Thread.sleep(5);
+		assertEquals(2, cache.get("count", 1, loader).intValue());
+		assertEquals(0, cache.getHits());
+	}
+
+	@Test
+	public void oldestResultIsEvicted() throws Exception {
+		AnalyticsCache cache = new AnalyticsCache(0, 2);
+		CountingLoader loader = new CountingLoader();
+		cache.get("first", 1, loader);
+		//nanoTime may not advance between two calls
+		Thread.sleep(1);
+		cache.get("second", 1, loader);
+		cache.get("third", 1, loader);
+		assertEquals(2, cache.size());
+		assertEquals(3, cache.get("third", 1, loader).intValue());
+		assertEquals(2, cache.get("second", 1, loader).intValue());
+		assertEquals(4, cache.get("first", 1, loader).intValue());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void cacheNeedsAnEntry() {
+		new AnalyticsCache(0, 0);
+	}
+
+	@Test
+	public void writesThroughTheDaoInvalidateTheAnalyses() throws SQLException {
+		BigDataDAO bigDataDAO = database.getBigDataDAO();
+		AnalyticsCache cache = new AnalyticsCache();
+		bigDataDAO.setAnalyticsCache(cache);
+		bigDataDAO.insertBigDataRange(1, 100, BenchmarkDatabase.SEED);
+		assertEquals(100, bigDataDAO.getAmountDataset());
+		AnalyticsReport report = bigDataDAO.analyzeAll();
+		assertEquals(100, bigDataDAO.getAmountDataset());
+		assertSame(report, bigDataDAO.analyzeAll());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, bigDataDAO.getMetrics().operation("getAmountDataset").getExecute().getCount());
+
+		bigDataDAO.insertBigDataRange(101, 10, BenchmarkDatabase.SEED);
+		assertEquals(110, bigDataDAO.getAmountDataset());
+		assertEquals(110, bigDataDAO.analyzeAll().getRowCount());
+		bigDataDAO.clearTable();
+		assertEquals(0, bigDataDAO.getAmountDataset());
+		assertEquals(2, cache.getHits());
+	}
+
+	private static class CountingLoader implements AnalyticsCache.Loader<Integer> {
+		private int loads;
+
+		@Override
+		public Integer load() {
+			return ++loads;
+		}
+	}
+}
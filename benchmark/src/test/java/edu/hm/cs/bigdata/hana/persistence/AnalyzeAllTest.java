@@ -0,0 +1,69 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.SQLException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * analyzeAll must return the results of getAmountDataset and the separate analyze methods
+ * and average NUMBER like AVG over the values which are not null.
+ *
+ */
+public class AnalyzeAllTest {
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private BigDataDAO bigDataDAO;
+
+	@Before
+	public void setUp() {
+		bigDataDAO = database.getBigDataDAO();
+	}
+
+	@Test
+	public void analyzeAllEqualsSeparateAnalyses() throws SQLException {
+		bigDataDAO.insertBigDataRange(1, 5000, BenchmarkDatabase.SEED);
+		AnalyticsReport report = bigDataDAO.analyzeAll();
+		assertEquals(bigDataDAO.getAmountDataset(), report.getRowCount());
+		assertEquals(bigDataDAO.analyzeCreatedAt(), report.getMostCommonCreatedAt());
+		assertEquals(bigDataDAO.analyzeText(), report.getLetterECount());
+		//the separate methods return the averages as int
+		assertEquals(bigDataDAO.analyzeUsername(), report.getAverageUserNameLength(), 1);
+		assertEquals(bigDataDAO.analyzeNumber(), report.getAverageNumber(), 1);
+	}
+
+	@Test
+	public void analyzeAllOfAnEmptyTable() throws SQLException {
+		AnalyticsReport report = bigDataDAO.analyzeAll();
+		assertEquals(0, report.getRowCount());
+		assertNull(report.getMostCommonCreatedAt());
+		assertEquals(0, report.getLetterECount());
+		assertEquals(0, report.getAverageNumber(), 0);
+	}
+
+	@Test
+	public void averageNumberSkipsNulls() throws SQLException {
+		database.execute("INSERT INTO BIG_DATA (ID, USER_NAME, CREATED_AT, TEXT, NUMBER) VALUES "
+				+ "(1, 'a', DATE '2018-01-01', 'e', 10), (2, 'b', DATE '2018-01-01', 'e', 20), "
+				+ "(3, 'c', DATE '2018-01-02', 'e', NULL)");
+		assertEquals(15, bigDataDAO.analyzeAll().getAverageNumber(), 0);
+
+		bigDataDAO.setColumnarSnapshotEnabled(true);
+		ColumnarSnapshot snapshot = bigDataDAO.getColumnarSnapshot();
+		assertEquals(15, snapshot.getAverageNumber(), 0);
+		assertEquals(0, snapshot.countNumberBetween(0, 0));
+
+		bigDataDAO.enableIncrementalAnalytics();
+		assertEquals(15, bigDataDAO.getIncrementalAnalytics().getAverageNumber(), 0);
+		assertEquals(3, bigDataDAO.analyzeAll().getRowCount());
+	}
+}
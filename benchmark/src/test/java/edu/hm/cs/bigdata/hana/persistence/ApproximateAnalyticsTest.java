@@ -0,0 +1,161 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+import edu.hm.cs.bigdata.hana.sketch.Estimate;
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
+
+/**
+ *
+ * The 95% bounds of the approximate analyses must contain the exact values in about 95% of
+ * the samples. Without sampling the averages are exact.
+ *
+ */
+public class ApproximateAnalyticsTest {
+	private static final int ROWS = 50000;
+	private static final int TRIALS = 100;
+	//95% bounds, 88 of 100 is three standard deviations below the expected 95
+	private static final int MIN_COVERED = 88;
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private static List<BigData> rows;
+	private static double averageUserNameLength;
+	private static long letterECount;
+	private static double averageNumber;
+	private static Map<Date, Integer> createdAtCounts;
+	private static int distinctUserNames;
+
+	@BeforeClass
+	public static void generateRows() {
+		rows = new ArrayList<BigData>(ROWS);
+		BigDataGenerator generator = new BigDataGenerator(BenchmarkDatabase.SEED, 1, ROWS);
+		long userNameLength = 0;
+		double numberSum = 0;
+		createdAtCounts = new HashMap<Date, Integer>();
+		Set<String> userNames = new HashSet<String>();
+		while (generator.hasNext()) {
+			BigData bg = generator.next();
+			rows.add(bg);
+			userNameLength += bg.getUserName().length();
+			letterECount += letterE(bg.getText());
+			numberSum += bg.getNumber();
+			Integer count = createdAtCounts.get(bg.getCreatedAt());
+			createdAtCounts.put(bg.getCreatedAt(), count == null ? 1 : count + 1);
+			userNames.add(bg.getUserName());
+		}
+		averageUserNameLength = (double) userNameLength / ROWS;
+		averageNumber = numberSum / ROWS;
+		distinctUserNames = userNames.size();
+	}
+
+	@Test
+	public void boundsOfATenPercentSampleContainTheExactValues() {
+		int coveredUserNameLength = 0;
+		int coveredLetterECount = 0;
+		int coveredNumber = 0;
+		int coveredMostCommonCount = 0;
+		int coveredDistinctUserNames = 0;
+		int coveredDistinctCreatedAt = 0;
+		for (int trial = 0; trial < TRIALS; trial++) {
+			Random random = new Random(trial);
+			ApproximateAnalytics analytics = new ApproximateAnalytics(0.1);
+			for (BigData bg : rows) {
+				if (random.nextDouble() < 0.1) {
+					analytics.add(bg.getUserName(), bg.getCreatedAt(), letterE(bg.getText()), bg.getNumber());
+				}
+			}
+			ApproximateReport report = analytics.toReport(ROWS);
+			coveredUserNameLength += contains(report.getAverageUserNameLength(), averageUserNameLength) ? 1 : 0;
+			coveredLetterECount += contains(report.getLetterECount(), letterECount) ? 1 : 0;
+			coveredNumber += contains(report.getAverageNumber(), averageNumber) ? 1 : 0;
+			Integer mostCommonCount = createdAtCounts.get(new Date(report.getMostCommonCreatedAt().getTime()));
+			coveredMostCommonCount += contains(report.getMostCommonCreatedAtCount(), mostCommonCount) ? 1 : 0;
+			coveredDistinctUserNames += contains(report.getDistinctUserNames(), distinctUserNames) ? 1 : 0;
+			coveredDistinctCreatedAt += contains(report.getDistinctCreatedAt(), createdAtCounts.size()) ? 1 : 0;
+		}
+		assertCovered("average user name length", coveredUserNameLength);
+		assertCovered("letter e count", coveredLetterECount);
+		assertCovered("average number", coveredNumber);
+		assertCovered("count of the most common date", coveredMostCommonCount);
+		assertCovered("distinct user names", coveredDistinctUserNames);
+		assertCovered("distinct dates", coveredDistinctCreatedAt);
+	}
+
+	@Test
+	public void averagesOfAllRowsAreExact() {
+		ApproximateAnalytics analytics = new ApproximateAnalytics(1);
+		for (BigData bg : rows) {
+			analytics.add(bg.getUserName(), bg.getCreatedAt(), letterE(bg.getText()), bg.getNumber());
+		}
+		ApproximateReport report = analytics.toReport(ROWS);
+		assertEquals(ROWS, report.getSampledRows());
+		assertTrue(report.getAverageUserNameLength().isExact());
+		assertEquals(averageUserNameLength, report.getAverageUserNameLength().getValue(), 1e-9);
+		assertEquals(letterECount, report.getLetterECount().getValue(), 1e-3);
+		assertEquals(averageNumber, report.getAverageNumber().getValue(), 1e-3);
+	}
+
+	@Test
+	public void analyzeApproximatelyOfAllRowsEqualsAnalyzeAll() throws SQLException {
+		BigDataDAO bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataRange(1, 10000, BenchmarkDatabase.SEED);
+		AnalyticsReport exact = bigDataDAO.analyzeAll();
+		ApproximateReport report = bigDataDAO.analyzeApproximately(100);
+		assertEquals(exact.getRowCount(), report.getRowCount());
+		assertEquals(exact.getAverageUserNameLength(), report.getAverageUserNameLength().getValue(), 1e-9);
+		assertEquals(exact.getLetterECount(), report.getLetterECount().getValue(), 1e-3);
+		assertEquals(exact.getAverageNumber(), report.getAverageNumber().getValue(), 1e-3);
+	}
+
+	@Test
+	public void rowCountIsEstimatedFromTheSample() throws SQLException {
+		BigDataDAO bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataRange(1, 10000, BenchmarkDatabase.SEED);
+		ApproximateReport report = bigDataDAO.analyzeApproximately(50);
+		//the standard deviation of the estimate is 100 rows
+		assertEquals(10000, report.getRowCount(), 1000);
+		assertEquals(Math.round(report.getSampledRows() / 0.5), report.getRowCount());
+
+		bigDataDAO.enableIncrementalAnalytics();
+		bigDataDAO.insertBigDataRange(10001, 10, BenchmarkDatabase.SEED);
+		assertEquals(10010, bigDataDAO.analyzeApproximately(50).getRowCount());
+	}
+
+	private static long letterE(String text) {
+		long count = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == 'e') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean contains(Estimate estimate, double exact) {
+		return estimate.getLower() <= exact && exact <= estimate.getUpper();
+	}
+
+	private static void assertCovered(String analysis, int covered) {
+		assertTrue("Bounds of the " + analysis + " contained the exact value in " + covered + " of " + TRIALS
+				+ " samples", covered >= MIN_COVERED);
+	}
+}
@@ -0,0 +1,81 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * Rows are written in JDBC batches of 'batchSize' rows and committed every 'commitInterval'
+ * rows. A failed batch reports its ID range and the committed rows and rolls back only the
+ * rows since the last commit.
+ *
+ */
+public class BatchedWriteTest {
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private BigDataDAO bigDataDAO;
+
+	@Before
+	public void setUp() {
+		bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.setBatchSize(50);
+		bigDataDAO.setCommitInterval(100);
+	}
+
+	@Test
+	public void insertsAppendAfterTheHighestId() throws SQLException {
+		bigDataDAO.insertBigData(230);
+		bigDataDAO.insertBigData(20);
+		assertEquals(250, database.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+		assertEquals(1, database.queryLong("SELECT MIN(ID) FROM BIG_DATA"));
+		assertEquals(250, database.queryLong("SELECT MAX(ID) FROM BIG_DATA"));
+		//batches of 50, 50, 50, 50 and 30 rows with commits after 100, 200 and 230 rows, then 1 batch and commit
+		assertEquals(10, bigDataDAO.getMetrics().operation("insertBigData").getExecute().getCount());
+		assertEquals(250, bigDataDAO.getMetrics().operation("insertBigData").getRows());
+	}
+
+	@Test
+	public void updatesKeepTheRows() throws SQLException {
+		bigDataDAO.insertBigDataRange(1, 120, BenchmarkDatabase.SEED);
+		List<String> before = database.readRows();
+		assertEquals(120, bigDataDAO.updateBigDataRange(1, 120, BenchmarkDatabase.SEED + 1).getRows());
+		List<String> after = database.readRows();
+		assertEquals(120, after.size());
+		for (int i = 0; i < after.size(); i++) {
+			String id = (i + 1) + "|";
+			assertTrue(before.get(i).startsWith(id) && after.get(i).startsWith(id));
+		}
+		assertFalse(before.equals(after));
+	}
+
+	@Test
+	public void failedBatchReportsItsRangeAndRollsBackToTheLastCommit() throws SQLException {
+		//a row in the third batch already exists
+		bigDataDAO.insertBigDataRange(130, 1, BenchmarkDatabase.SEED);
+		try {
+			bigDataDAO.insertBigDataRange(1, 300, BenchmarkDatabase.SEED);
+			fail("The duplicate ID was inserted");
+		} catch (BatchWriteException e) {
+			assertEquals(2, e.getBatchNumber());
+			assertEquals(101, e.getFirstId());
+			assertEquals(150, e.getLastId());
+			assertEquals(100, e.getCommittedRows());
+		}
+		//the two committed batches and the row which existed before
+		assertEquals(101, database.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+		assertEquals(100, database.queryLong("SELECT COUNT(*) FROM BIG_DATA WHERE ID <= 100"));
+	}
+}
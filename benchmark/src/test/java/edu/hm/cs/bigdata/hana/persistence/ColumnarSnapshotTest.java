@@ -0,0 +1,119 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * analyzeAll and the filtered queries of the columnar snapshot must return the results of the
+ * database, also for null values which AVG skips and null dates which GROUP BY counts as one group.
+ *
+ */
+public class ColumnarSnapshotTest {
+	private static final int ROWS = 5000;
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private BigDataDAO snapshotDAO;
+
+	@Before
+	public void setUp() throws SQLException {
+		database.getBigDataDAO().insertBigDataRange(1, ROWS, BenchmarkDatabase.SEED);
+		database.execute("UPDATE BIG_DATA SET USER_NAME = NULL WHERE MOD(ID, 7) = 0");
+		//created after the update, so the snapshot is loaded from the updated table
+		snapshotDAO = new BigDataDAO(database.getDataSource());
+		snapshotDAO.setColumnarSnapshotEnabled(true);
+	}
+
+	@Test
+	public void analyzeAllFromSnapshotEqualsDatabase() throws SQLException {
+		AnalyticsReport exact = database.getBigDataDAO().analyzeAll();
+		AnalyticsReport snapshot = snapshotDAO.analyzeAll();
+		assertEquals(ROWS, snapshot.getRowCount());
+		assertEquals(exact.getRowCount(), snapshot.getRowCount());
+		assertEquals(exact.getAverageUserNameLength(), snapshot.getAverageUserNameLength(), 1e-9);
+		assertEquals(exact.getLetterECount(), snapshot.getLetterECount());
+		assertEquals(exact.getAverageNumber(), snapshot.getAverageNumber(), 1e-9);
+		assertEquals(exact.getMostCommonCreatedAt(), snapshot.getMostCommonCreatedAt());
+	}
+
+	@Test
+	public void nullValuesStayNull() throws SQLException {
+		ColumnarSnapshot snapshot = snapshotDAO.getColumnarSnapshot();
+		assertEquals(ROWS, snapshot.size());
+		assertNull(snapshot.getRow(6).getUserName());
+		assertEquals(database.getBigDataDAO().selectPage(0, 1).get(0).getUserName(), snapshot.getRow(0).getUserName());
+	}
+
+	@Test
+	public void nullDatesAreOneGroup() throws SQLException {
+		//a third of the rows, more than any single date
+		database.execute("UPDATE BIG_DATA SET CREATED_AT = NULL WHERE MOD(ID, 3) = 0");
+		assertNull(database.getBigDataDAO().analyzeAll().getMostCommonCreatedAt());
+		ColumnarSnapshot snapshot = snapshotDAO.getColumnarSnapshot();
+		assertNull(snapshot.getMostCommonCreatedAt());
+		assertEquals(ROWS / 3, snapshot.selectIdsCreatedAt(null).length);
+	}
+
+	@Test
+	public void filteredQueriesEqualDatabase() throws SQLException {
+		ColumnarSnapshot snapshot = snapshotDAO.getColumnarSnapshot();
+		int max = Integer.MAX_VALUE / 3;
+		assertEquals(database.queryLong("SELECT COUNT(*) FROM BIG_DATA WHERE NUMBER BETWEEN 0 AND " + max),
+				snapshot.countNumberBetween(0, max));
+		assertEquals(0, snapshot.countNumberBetween(-10, -1));
+
+		Date date = snapshot.getMostCommonCreatedAt();
+		List<Integer> expected = new ArrayList<Integer>();
+		Connection connection = database.getDataSource().getConnection();
+		try {
+			PreparedStatement statement = connection.prepareStatement(
+					"SELECT ID FROM BIG_DATA WHERE CREATED_AT = ? ORDER BY ID");
+			statement.setDate(1, date);
+			ResultSet rs = statement.executeQuery();
+			while (rs.next()) {
+				expected.add(rs.getInt(1));
+			}
+			statement.close();
+		} finally {
+			connection.close();
+		}
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int id : snapshot.selectIdsCreatedAt(date)) {
+			ids.add(id);
+		}
+		assertTrue(expected.size() > 1);
+		assertEquals(expected, ids);
+	}
+
+	@Test
+	public void columnBeyondTheLargestArrayIsRejected() {
+		assertEquals(1536, ColumnarSnapshot.newCapacity(1024, 1025, "TEXT"));
+		//growth stops at the largest array instead of overflowing
+		assertEquals(Integer.MAX_VALUE - 8, ColumnarSnapshot.newCapacity(1500000000, 1500000001L, "TEXT"));
+		try {
+			ColumnarSnapshot.newCapacity(Integer.MAX_VALUE - 8, Integer.MAX_VALUE, "TEXT");
+			fail("An array beyond the largest size was allowed");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("TEXT"));
+		}
+	}
+}
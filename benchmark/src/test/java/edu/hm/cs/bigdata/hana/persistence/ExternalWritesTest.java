@@ -0,0 +1,154 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
+
+/**
+ *
+ * A write through the DAO must start one data version and not be detected as external write,
+ * a write by another application must start one version and refresh the incremental analytics.
+ * Building the incremental analytics waits for running writes, so none of their rows are lost.
+ *
+ */
+public class ExternalWritesTest {
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private BigDataDAO bigDataDAO;
+
+	@Before
+	public void setUp() throws SQLException {
+		bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataRange(1, 1000, BenchmarkDatabase.SEED);
+	}
+
+	@Test
+	public void localWritesAreNotExternal() throws SQLException {
+		assertFalse(bigDataDAO.detectExternalWrites());
+		long version = bigDataDAO.getDataVersion();
+		bigDataDAO.insertBigDataRange(1001, 500, BenchmarkDatabase.SEED);
+		bigDataDAO.updateBigDataRange(1, 200, 1, UpdateStrategy.STAGED);
+		assertEquals(version + 2, bigDataDAO.getDataVersion());
+		assertFalse(bigDataDAO.detectExternalWrites());
+		assertEquals(version + 2, bigDataDAO.getDataVersion());
+	}
+
+	@Test
+	public void externalWritesRefreshTheIncrementalAnalytics() throws SQLException {
+		bigDataDAO.enableIncrementalAnalytics();
+		assertFalse(bigDataDAO.detectExternalWrites());
+		long version = bigDataDAO.getDataVersion();
+		database.execute("INSERT INTO BIG_DATA (ID, USER_NAME, CREATED_AT, TEXT, NUMBER) "
+				+ "VALUES (5000, 'external', DATE '2018-01-01', 'eee', 3)");
+		assertTrue(bigDataDAO.detectExternalWrites());
+		assertEquals(version + 1, bigDataDAO.getDataVersion());
+		assertEquals(1001, bigDataDAO.getIncrementalAnalytics().getRowCount());
+		assertEquals(1001, bigDataDAO.analyzeAll().getRowCount());
+		assertFalse(bigDataDAO.detectExternalWrites());
+		assertEquals(version + 1, bigDataDAO.getDataVersion());
+	}
+
+	@Test
+	public void clearedTableIsNotExternal() throws SQLException {
+		assertFalse(bigDataDAO.detectExternalWrites());
+		bigDataDAO.clearTable();
+		bigDataDAO.insertBigData(10);
+		assertFalse(bigDataDAO.detectExternalWrites());
+	}
+
+	@Test
+	public void failedWriteCountsAsExternal() throws SQLException {
+		assertFalse(bigDataDAO.detectExternalWrites());
+		try {
+			bigDataDAO.insertBigDataRange(900, 200, BenchmarkDatabase.SEED);
+			fail("The duplicate IDs were inserted");
+		} catch (BatchWriteException e) {
+			//expected
+		}
+		assertTrue(bigDataDAO.detectExternalWrites());
+		assertFalse(bigDataDAO.detectExternalWrites());
+	}
+
+	@Test
+	public void rebuildWaitsForRunningWrites() throws Exception {
+		bigDataDAO.enableIncrementalAnalytics();
+		bigDataDAO.setCommitInterval(10000);
+		final CountDownLatch halfWritten = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Iterator<BigData> rows = new BigDataGenerator(BenchmarkDatabase.SEED, 1001, 1000);
+		final Exception[] failure = new Exception[2];
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					bigDataDAO.insertBigData(new Iterator<BigData>() {
+						private int count;
+
+						@Override
+						public boolean hasNext() {
+							return rows.hasNext();
+						}
+
+						@Override
+						public BigData next() {
+							if (++count == 500) {
+								halfWritten.countDown();
+								try {
+									release.await();
+								} catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+								}
+							}
+							return rows.next();
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					});
+				} catch (Exception e) {
+					failure[0] = e;
+				}
+			}
+		};
+		Thread rebuild = new Thread() {
+			@Override
+			public void run() {
+				try {
+					bigDataDAO.enableIncrementalAnalytics();
+				} catch (Exception e) {
+					failure[1] = e;
+				}
+			}
+		};
+		writer.start();
+		halfWritten.await();
+		rebuild.start();
+		rebuild.join(200);
+		assertTrue("The rebuild did not wait for the write", rebuild.isAlive());
+		release.countDown();
+		writer.join();
+		rebuild.join();
+		assertNull(failure[0]);
+		assertNull(failure[1]);
+		assertEquals(2000, bigDataDAO.getIncrementalAnalytics().getRowCount());
+		assertEquals(database.queryLong("SELECT SUM(LENGTH(TEXT) - LENGTH(REPLACE(TEXT, 'e', ''))) FROM BIG_DATA"),
+				bigDataDAO.getIncrementalAnalytics().getLetterECount());
+	}
+}
@@ -0,0 +1,113 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * Concurrent updates of the same IDs must leave the incrementally maintained analyses
+ * equal to the analyses computed by the database.
+ *
+ */
+public class IncrementalAnalyticsConcurrencyTest {
+	private static final int ROWS = 2000;
+	private static final int THREADS = 8;
+	private static final int UPDATES_PER_THREAD = 40;
+	//all updates hit the first IDs, so the transactions overlap
+	private static final int HOT_IDS = 50;
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private BigDataDAO bigDataDAO;
+
+	@Before
+	public void setUp() throws SQLException {
+		bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataRange(1, ROWS, BenchmarkDatabase.SEED);
+		bigDataDAO.enableIncrementalAnalytics();
+	}
+
+	@Test
+	public void concurrentUpdatesOfTheSameIdsKeepTheAnalyticsExact() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				final Random random = new Random(t);
+				results.add(executor.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() {
+						int updates = 0;
+						for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+							try {
+								bigDataDAO.updateBigDataRange(1 + random.nextInt(HOT_IDS / 2), 1 + random.nextInt(HOT_IDS / 2),
+										random.nextLong());
+								updates++;
+							} catch (SQLException e) {
+								//a lock timeout rolls the update back together with its delta
+							}
+						}
+						return updates;
+					}
+				}));
+			}
+			int updates = 0;
+			for (Future<Integer> result : results) {
+				updates += result.get();
+			}
+			assertTrue("No update succeeded", updates > 0);
+		} finally {
+			executor.shutdown();
+		}
+
+		AnalyticsReport incremental = bigDataDAO.getIncrementalAnalytics().toReport();
+		bigDataDAO.disableIncrementalAnalytics();
+		AnalyticsReport exact = bigDataDAO.analyzeAll();
+		assertEquals(exact.getRowCount(), incremental.getRowCount());
+		assertEquals(exact.getAverageUserNameLength(), incremental.getAverageUserNameLength(), 1e-9);
+		assertEquals(exact.getLetterECount(), incremental.getLetterECount());
+		assertEquals(exact.getAverageNumber(), incremental.getAverageNumber(), 1e-9);
+		//dates with the same count may be reported in a different order, their counts must match
+		assertEquals(countCreatedAt(exact.getMostCommonCreatedAt()), countCreatedAt(incremental.getMostCommonCreatedAt()));
+	}
+
+	/**
+	 *
+	 * @param createdAt
+	 * @return the number of rows with the date
+	 * @throws SQLException
+	 */
+	private long countCreatedAt(Date createdAt) throws SQLException {
+		Connection connection = database.getDataSource().getConnection();
+		try {
+			PreparedStatement pstmt = connection.prepareStatement("SELECT COUNT(*) FROM BIG_DATA WHERE CREATED_AT = ?");
+			pstmt.setDate(1, createdAt);
+			ResultSet rs = pstmt.executeQuery();
+			rs.next();
+			return rs.getLong(1);
+		} finally {
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * The most common date must follow every change of the histogram, also when the count of the
+ * most common date goes down, and must match a naive count of the rows.
+ *
+ */
+public class IncrementalAnalyticsTest {
+	private static final Date FIRST = Date.valueOf("2018-01-01");
+	private static final Date SECOND = Date.valueOf("2018-01-02");
+	private static final Date THIRD = Date.valueOf("2018-01-03");
+
+	@Test
+	public void readAfterUpdatingTheMostCommonDate() {
+		IncrementalAnalytics analytics = new IncrementalAnalytics();
+		BigData first = row(1, FIRST);
+		analytics.add(first);
+		analytics.add(row(2, FIRST));
+		analytics.add(row(3, FIRST));
+		analytics.add(row(4, SECOND));
+		analytics.add(row(5, SECOND));
+		assertEquals(FIRST, analytics.getMostCommonCreatedAt());
+
+		analytics.update(first, row(1, SECOND));
+		assertEquals(SECOND, analytics.getMostCommonCreatedAt());
+		analytics.update(row(2, FIRST), row(2, THIRD));
+		analytics.update(row(3, FIRST), row(3, THIRD));
+		analytics.add(row(6, THIRD));
+		analytics.add(row(7, THIRD));
+		assertEquals(THIRD, analytics.getMostCommonCreatedAt());
+		assertEquals(7, analytics.getRowCount());
+	}
+
+	@Test
+	public void rowsWithoutDateAreOneGroup() {
+		IncrementalAnalytics analytics = new IncrementalAnalytics();
+		analytics.add(row(1, null));
+		analytics.add(row(2, null));
+		analytics.add(row(3, FIRST));
+		assertNull(analytics.getMostCommonCreatedAt());
+		analytics.remove(row(1, null));
+		analytics.add(row(4, FIRST));
+		assertEquals(FIRST, analytics.getMostCommonCreatedAt());
+	}
+
+	@Test
+	public void removingAllRowsLeavesNoDate() {
+		IncrementalAnalytics analytics = new IncrementalAnalytics();
+		analytics.add(row(1, FIRST));
+		analytics.remove(row(1, FIRST));
+		assertNull(analytics.getMostCommonCreatedAt());
+		analytics.add(row(1, SECOND));
+		analytics.reset();
+		assertNull(analytics.getMostCommonCreatedAt());
+		assertEquals(0, analytics.getRowCount());
+	}
+
+	@Test
+	public void mergedDeltasMatchANaiveCount() {
+		Random random = new Random(7);
+		IncrementalAnalytics analytics = new IncrementalAnalytics();
+		List<BigData> rows = new ArrayList<BigData>();
+		//more dates than the initial capacity of the histogram
+		for (int id = 0; id < 3000; id++) {
+			BigData bg = row(id, randomDate(random));
+			rows.add(bg);
+			analytics.add(bg);
+		}
+		for (int transaction = 0; transaction < 200; transaction++) {
+			IncrementalAnalytics delta = new IncrementalAnalytics();
+			for (int i = 0; i < 20; i++) {
+				int index = random.nextInt(rows.size());
+				BigData newRow = row(index, randomDate(random));
+				delta.update(rows.get(index), newRow);
+				rows.set(index, newRow);
+			}
+			analytics.merge(delta);
+
+			Map<Date, Integer> counts = new HashMap<Date, Integer>();
+			int highest = 0;
+			for (BigData bg : rows) {
+				Integer count = counts.get(bg.getCreatedAt());
+				count = count == null ? 1 : count + 1;
+				counts.put(bg.getCreatedAt(), count);
+				highest = Math.max(highest, count);
+			}
+			assertEquals(highest, counts.get(analytics.getMostCommonCreatedAt()).intValue());
+		}
+		assertEquals(rows.size(), analytics.getRowCount());
+	}
+
+	private static Date randomDate(Random random) {
+		return new Date(FIRST.getTime() + random.nextInt(200) * 86400000L);
+	}
+
+	private static BigData row(int id, Date createdAt) {
+		BigData bg = new BigData();
+		bg.setId(id);
+		bg.setUserName("user");
+		bg.setCreatedAt(createdAt);
+		bg.setText("text");
+		bg.setNumber(id);
+		return bg;
+	}
+}
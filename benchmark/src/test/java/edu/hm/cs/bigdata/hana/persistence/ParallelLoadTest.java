@@ -0,0 +1,46 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * A parallel load must write exactly the rows of a sequential load with the same seed.
+ *
+ */
+public class ParallelLoadTest {
+	//not a multiple of the partition size, so the last range is shorter
+	private static final int ROWS = 12345;
+
+	@Rule
+	public DatabaseRule sequential = new DatabaseRule();
+	@Rule
+	public DatabaseRule parallel = new DatabaseRule();
+
+	@Test
+	public void parallelLoadEqualsSequentialLoad() throws SQLException {
+		LoadResult sequentialLoad = sequential.getBigDataDAO().insertBigDataSequential(ROWS, BenchmarkDatabase.SEED);
+		LoadResult parallelLoad = parallel.getBigDataDAO().insertBigDataParallel(ROWS, 4, BenchmarkDatabase.SEED);
+		assertEquals(ROWS, sequentialLoad.getRows());
+		assertEquals(ROWS, parallelLoad.getRows());
+		List<String> expected = sequential.readRows();
+		assertEquals(ROWS, expected.size());
+		assertEquals(expected, parallel.readRows());
+	}
+
+	@Test
+	public void loadsWithDifferentSeedsDiffer() throws SQLException {
+		sequential.getBigDataDAO().insertBigDataRange(1, 100, BenchmarkDatabase.SEED);
+		parallel.getBigDataDAO().insertBigDataParallel(100, 2, BenchmarkDatabase.SEED + 1);
+		assertFalse(sequential.readRows().equals(parallel.readRows()));
+	}
+}
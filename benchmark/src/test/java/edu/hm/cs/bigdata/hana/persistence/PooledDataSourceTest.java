@@ -0,0 +1,170 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * A returned connection is handed out again in its initial state, queries and DML hit the
+ * statement cache, connections which are not returned are reported and a borrower waits
+ * at most the borrow timeout.
+ *
+ */
+public class PooledDataSourceTest {
+	private static final String COUNT_QUERY = "SELECT COUNT(*) FROM BIG_DATA";
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private PooledDataSource pool;
+
+	@Before
+	public void setUp() {
+		pool = new PooledDataSource(database.getDataSource(), 2);
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+	}
+
+	@Test
+	public void returnedConnectionIsReusedWithoutItsTransaction() throws SQLException {
+		Connection connection = pool.getConnection();
+		connection.setAutoCommit(false);
+		execute(connection, "INSERT INTO BIG_DATA (ID, USER_NAME, CREATED_AT, TEXT, NUMBER) "
+				+ "VALUES (1, 'user', DATE '2018-01-01', 'text', 1)");
+		assertEquals(1, pool.getBorrowedCount());
+		connection.close();
+		connection.close();
+		assertEquals(0, pool.getBorrowedCount());
+		assertEquals(1, pool.getIdleCount());
+		try {
+			connection.createStatement();
+			fail("A returned handle was used");
+		} catch (SQLException e) {
+			//expected
+		}
+
+		Connection again = pool.getConnection();
+		try {
+			assertTrue(again.getAutoCommit());
+			assertEquals(1, pool.getCreatedCount());
+		} finally {
+			again.close();
+		}
+		assertEquals(0, database.queryLong(COUNT_QUERY));
+	}
+
+	@Test
+	public void queriesHitTheStatementCache() throws SQLException {
+		for (int i = 0; i < 3; i++) {
+			Connection connection = pool.getConnection();
+			try {
+				PreparedStatement statement = connection.prepareStatement(COUNT_QUERY);
+				statement.executeQuery().close();
+				statement.close();
+			} finally {
+				connection.close();
+			}
+		}
+		assertEquals(1, pool.getStatementCacheMisses());
+		assertEquals(2, pool.getStatementCacheHits());
+	}
+
+	@Test
+	public void ddlAndTemporaryTablesAreNotCached() throws SQLException {
+		for (int i = 0; i < 2; i++) {
+			Connection connection = pool.getConnection();
+			try {
+				connection.prepareStatement("CREATE LOCAL TEMPORARY TABLE \"#STAGE\" (ID INTEGER)").execute();
+				connection.prepareStatement("INSERT INTO \"#STAGE\" VALUES (1)").execute();
+				connection.prepareStatement("DROP TABLE \"#STAGE\"").execute();
+			} finally {
+				connection.close();
+			}
+		}
+		assertEquals(0, pool.getStatementCacheHits());
+		assertEquals(6, pool.getStatementCacheMisses());
+		assertFalse(PooledConnection.isCacheable("CREATE TABLE T (ID INTEGER)"));
+		assertTrue(PooledConnection.isCacheable("  select * from BIG_DATA"));
+		assertTrue(PooledConnection.isCacheable("MERGE INTO BIG_DATA USING S ON 1 = 1"));
+	}
+
+	@Test
+	public void unclosedStatementsAreClosedOnReturn() throws SQLException {
+		Connection connection = pool.getConnection();
+		Statement plain = connection.createStatement();
+		plain.executeQuery(COUNT_QUERY);
+		PreparedStatement uncached = connection.prepareStatement("CREATE TABLE UNUSED (ID INTEGER)");
+		PreparedStatement cached = connection.prepareStatement(COUNT_QUERY);
+		connection.close();
+		assertTrue(plain.isClosed());
+		assertTrue(uncached.isClosed());
+		assertTrue(cached.isClosed());
+		//a statement of the cache which was not closed is not handed out again
+		Connection again = pool.getConnection();
+		try {
+			again.prepareStatement(COUNT_QUERY).close();
+		} finally {
+			again.close();
+		}
+		assertEquals(0, pool.getStatementCacheHits());
+	}
+
+	@Test
+	public void borrowedConnectionIsReportedOnceAsLeak() throws Exception {
+		pool.setLeakThresholdMillis(1);
+		pool.setRecordBorrowStacks(true);
+		Connection connection = pool.getConnection();
+		Thread.sleep(20);
+		assertEquals(1, pool.checkLeaks());
+		assertEquals(1, pool.checkLeaks());
+		assertEquals(1, pool.getLeakCount());
+		connection.close();
+		assertEquals(0, pool.checkLeaks());
+	}
+
+	@Test
+	public void exhaustedPoolTimesOut() throws SQLException {
+		pool.setBorrowTimeoutMillis(50);
+		Connection first = pool.getConnection();
+		Connection second = pool.getConnection();
+		long start = System.nanoTime();
+		try {
+			pool.getConnection();
+			fail("A third connection was handed out");
+		} catch (SQLException e) {
+			assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+		}
+		assertEquals(1, pool.getBorrowTimeouts());
+		first.close();
+		pool.getConnection().close();
+		second.close();
+		assertEquals(2, pool.getCreatedCount());
+	}
+
+	private static void execute(Connection connection, String sql) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute(sql);
+		} finally {
+			statement.close();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+/**
+ *
+ * Statements which only differ in their values, comments, whitespace and case must share one
+ * fingerprint, statements of a different shape must not.
+ *
+ */
+public class SqlFingerprintTest {
+
+	@Test
+	public void literalsBecomeMarkers() {
+		assertEquals("SELECT * FROM BIG_DATA WHERE ID = ? AND USER_NAME = ?",
+				SqlFingerprint.normalize("select * from BIG_DATA where ID = 42 and USER_NAME = 'it''s me'"));
+		assertEquals("SELECT AVG(TO_DOUBLE(NUMBER)) * ? FROM BIG_DATA WHERE NUMBER > -?",
+				SqlFingerprint.normalize("SELECT AVG(TO_DOUBLE(NUMBER)) * 1.5 FROM BIG_DATA WHERE NUMBER > -3"));
+	}
+
+	@Test
+	public void commentsAndWhitespaceAreRemoved() {
+		assertEquals("SELECT COUNT(*) FROM BIG_DATA", SqlFingerprint.normalize(
+				"-- how many\n  SELECT /* all rows */ COUNT(*)\n\tFROM   BIG_DATA  "));
+	}
+
+	@Test
+	public void namesWithDigitsAndQuotedIdentifiersAreKept() {
+		assertEquals("SELECT T1.ID, COL_2 FROM \"#big_data_stage\" T1 LIMIT ?",
+				SqlFingerprint.normalize("SELECT t1.ID, col_2 FROM \"#big_data_stage\" t1 LIMIT 10"));
+	}
+
+	@Test
+	public void parameterListsAreCollapsed() {
+		String expected = "SELECT * FROM BIG_DATA WHERE ID IN (?...)";
+		assertEquals(expected, SqlFingerprint.normalize("SELECT * FROM BIG_DATA WHERE ID IN (1, 2, 3)"));
+		assertEquals(expected, SqlFingerprint.normalize("SELECT * FROM BIG_DATA WHERE ID IN (?,?)"));
+		assertEquals(expected, SqlFingerprint.normalize("SELECT * FROM BIG_DATA WHERE ID IN ( 1 , 2 , 3 , 4 )"));
+		assertEquals("INSERT INTO BIG_DATA (ID, USER_NAME, CREATED_AT, TEXT, NUMBER) VALUES (?...)",
+				SqlFingerprint.normalize("INSERT INTO BIG_DATA (ID, USER_NAME, CREATED_AT, TEXT, NUMBER) "
+						+ "VALUES (7, 'a', '2018-01-01', 'b', 9)"));
+	}
+
+	@Test
+	public void differentShapesDiffer() {
+		assertNotEquals(SqlFingerprint.normalize("SELECT * FROM BIG_DATA WHERE ID = 1"),
+				SqlFingerprint.normalize("SELECT * FROM BIG_DATA WHERE NUMBER = 1"));
+		assertNotEquals(SqlFingerprint.normalize("SELECT ID FROM T1"), SqlFingerprint.normalize("SELECT ID FROM T2"));
+	}
+
+	@Test
+	public void cachedFingerprintEqualsNormalized() {
+		for (int i = 0; i < 3000; i++) {
+			String sql = "UPDATE BIG_DATA SET NUMBER = " + i + " WHERE ID = " + i;
+			assertEquals("UPDATE BIG_DATA SET NUMBER = ? WHERE ID = ?", SqlFingerprint.of(sql));
+		}
+		assertEquals(SqlFingerprint.normalize("select 1"), SqlFingerprint.of("select 1"));
+	}
+}
@@ -0,0 +1,93 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * Staged updates reuse the connections of a pool, so a stage table left on a connection and a
+ * failed update must not break the next staged update on the same connection.
+ *
+ */
+public class StagedUpdateTest {
+	private static final int ROWS = 1000;
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	//a single connection, so every update runs on the session of the one before
+	private PooledDataSource pool;
+	private BigDataDAO bigDataDAO;
+
+	@Before
+	public void setUp() throws SQLException {
+		database.getBigDataDAO().insertBigDataRange(1, ROWS, BenchmarkDatabase.SEED);
+		pool = new PooledDataSource(database.getDataSource(), 1);
+		bigDataDAO = new BigDataDAO(pool);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		pool.close();
+	}
+
+	@Test
+	public void leftoverStageTableIsReplaced() throws SQLException {
+		execute("CREATE LOCAL TEMPORARY TABLE \"#BIG_DATA_STAGE\" (ID INTEGER)");
+		assertEquals(ROWS, bigDataDAO.updateBigDataRange(1, ROWS, 1, UpdateStrategy.STAGED).getRows());
+		assertEquals(ROWS, bigDataDAO.updateBigDataRange(1, ROWS, 2, UpdateStrategy.STAGED).getRows());
+		assertEquals(ROWS, count("SELECT COUNT(*) FROM BIG_DATA"));
+	}
+
+	@Test
+	public void failedUpdateDoesNotBreakTheNextOne() throws SQLException {
+		long numberSum = count("SELECT SUM(NUMBER) FROM BIG_DATA");
+		//every generated number violates the constraint, so the MERGE fails
+		execute("ALTER TABLE BIG_DATA ADD CONSTRAINT NEGATIVE_NUMBER CHECK (NUMBER < 0) NOCHECK");
+		try {
+			bigDataDAO.updateBigDataRange(1, ROWS, 1, UpdateStrategy.STAGED);
+			fail("The update violating the constraint was committed");
+		} catch (SQLException e) {
+			//expected
+		}
+		assertEquals(numberSum, count("SELECT SUM(NUMBER) FROM BIG_DATA"));
+		execute("ALTER TABLE BIG_DATA DROP CONSTRAINT NEGATIVE_NUMBER");
+		assertEquals(ROWS, bigDataDAO.updateBigDataRange(1, ROWS, 1, UpdateStrategy.STAGED).getRows());
+	}
+
+	private void execute(String sql) throws SQLException {
+		Connection connection = pool.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			statement.execute(sql);
+			statement.close();
+		} finally {
+			connection.close();
+		}
+	}
+
+	private long count(String sqlQuery) throws SQLException {
+		Connection connection = pool.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			ResultSet rs = statement.executeQuery(sqlQuery);
+			rs.next();
+			return rs.getLong(1);
+		} finally {
+			connection.close();
+		}
+	}
+}
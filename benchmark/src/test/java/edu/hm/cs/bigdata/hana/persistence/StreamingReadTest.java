@@ -0,0 +1,120 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * Pages, walks and streamed scans must read the same rows as selectAllData, every row once,
+ * and stop as soon as the handler asks for it.
+ *
+ */
+public class StreamingReadTest {
+	private static final int ROWS = 250;
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private BigDataDAO bigDataDAO;
+
+	@Before
+	public void setUp() throws SQLException {
+		bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataRange(1, ROWS, BenchmarkDatabase.SEED);
+	}
+
+	@Test
+	public void pagesFollowTheLastId() throws SQLException {
+		List<String> rows = new ArrayList<String>();
+		int afterId = 0;
+		List<BigData> page;
+		do {
+			page = bigDataDAO.selectPage(afterId, 100);
+			for (BigData bg : page) {
+				rows.add(toText(bg));
+				afterId = bg.getId();
+			}
+		} while (page.size() == 100);
+		assertEquals(50, page.size());
+		assertEquals(database.readRows(), rows);
+		assertEquals(0, bigDataDAO.selectPage(ROWS, 100).size());
+	}
+
+	@Test
+	public void walkReadsEveryRowOncePageByPage() throws SQLException {
+		RowCollector collector = new RowCollector(Integer.MAX_VALUE);
+		assertEquals(ROWS, bigDataDAO.walkAllData(100, collector));
+		assertEquals(database.readRows(), collector.rows);
+		assertEquals(3, bigDataDAO.getMetrics().operation("selectPage").getExecute().getCount());
+	}
+
+	@Test
+	public void walkStopsWithTheHandler() throws SQLException {
+		RowCollector collector = new RowCollector(120);
+		assertEquals(120, bigDataDAO.walkAllData(100, collector));
+		assertEquals(database.readRows().subList(0, 120), collector.rows);
+		assertEquals(2, bigDataDAO.getMetrics().operation("selectPage").getExecute().getCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void walkNeedsAPageSize() throws SQLException {
+		bigDataDAO.walkAllData(0, new RowCollector(1));
+	}
+
+	@Test
+	public void streamedScansReadAllRows() throws Exception {
+		bigDataDAO.setFetchSize(7);
+		List<String> expected = new ArrayList<String>();
+		for (BigData bg : bigDataDAO.selectAllData()) {
+			expected.add(toText(bg));
+		}
+
+		RowCollector collector = new RowCollector(Integer.MAX_VALUE);
+		assertEquals(ROWS, bigDataDAO.selectAllData(collector));
+		assertEquals(expected, collector.rows);
+
+		final List<String> columns = new ArrayList<String>();
+		assertEquals(ROWS, bigDataDAO.selectAllRows(new BigDataRowHandler() {
+			@Override
+			public boolean handle(int id, String userName, Date createdAt, String text, int number) throws IOException {
+				columns.add(id + "|" + userName + "|" + createdAt + "|" + text + "|" + number);
+				return true;
+			}
+		}));
+		assertEquals(expected, columns);
+
+		assertEquals(10, bigDataDAO.selectAllData(new RowCollector(10)));
+	}
+
+	private static String toText(BigData bg) {
+		return bg.getId() + "|" + bg.getUserName() + "|" + bg.getCreatedAt() + "|" + bg.getText() + "|"
+				+ bg.getNumber();
+	}
+
+	private static class RowCollector implements BigDataHandler {
+		private final int limit;
+		private final List<String> rows = new ArrayList<String>();
+
+		RowCollector(int limit) {
+			this.limit = limit;
+		}
+
+		@Override
+		public boolean handle(BigData bg) {
+			rows.add(toText(bg));
+			return rows.size() < limit;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout.PartitionColumn;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout.Partitioning;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout.Storage;
+
+/**
+ *
+ * HANA must get the store and the partitions of a layout, H2 only the index, and a table
+ * recreated with another layout must work like the first one.
+ *
+ */
+public class TableLayoutTest {
+	private static final String COLUMNS = "(ID INTEGER PRIMARY KEY, CREATED_AT DATE)";
+	private static final String INDEX = "CREATE INDEX BIG_DATA_CREATED_AT ON BIG_DATA (CREATED_AT)";
+	private static final String INDEX_QUERY = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES "
+			+ "WHERE INDEX_NAME = 'BIG_DATA_CREATED_AT'";
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule(new TableLayout(Storage.DEFAULT, Partitioning.NONE,
+			PartitionColumn.ID, 1, TableLayout.DEFAULT_ID_RANGE_SIZE, true));
+
+	@Test
+	public void hanaCreatesStoreAndPartitions() {
+		assertEquals(Arrays.asList("CREATE TABLE BIG_DATA " + COLUMNS),
+				SqlDialect.HANA.createTable("BIG_DATA", COLUMNS, new TableLayout()));
+		assertEquals(Arrays.asList("CREATE COLUMN TABLE BIG_DATA " + COLUMNS + " PARTITION BY HASH (ID) PARTITIONS 4",
+				INDEX), SqlDialect.HANA.createTable("BIG_DATA", COLUMNS,
+						new TableLayout(Storage.COLUMN, Partitioning.HASH, PartitionColumn.ID, 4, 1, true)));
+		assertEquals(Arrays.asList("CREATE COLUMN TABLE BIG_DATA " + COLUMNS + " PARTITION BY RANGE (ID) "
+				+ "(PARTITION 1 <= VALUES < 101, PARTITION 101 <= VALUES < 201, PARTITION OTHERS)"),
+				SqlDialect.HANA.createTable("BIG_DATA", COLUMNS,
+						new TableLayout(Storage.COLUMN, Partitioning.RANGE, PartitionColumn.ID, 2, 100, false)));
+		//HANA partitions by CREATED_AT only on the second level
+		assertEquals(Arrays.asList("CREATE TABLE BIG_DATA " + COLUMNS + " PARTITION BY HASH (ID) PARTITIONS 1, "
+				+ "RANGE (CREATED_AT) (PARTITION '2900-01-01' <= VALUES < '4900-01-01', "
+				+ "PARTITION '4900-01-01' <= VALUES < '6901-01-01', PARTITION OTHERS)"),
+				SqlDialect.HANA.createTable("BIG_DATA", COLUMNS, new TableLayout(Storage.DEFAULT,
+						Partitioning.RANGE, PartitionColumn.CREATED_AT, 2, 1, false)));
+		assertTrue(SqlDialect.HANA.supports(new TableLayout(Storage.COLUMN, Partitioning.HASH, PartitionColumn.ID, 4, 1,
+				false)));
+	}
+
+	@Test
+	public void h2OnlyCreatesTheIndex() {
+		TableLayout layout = new TableLayout(Storage.COLUMN, Partitioning.HASH, PartitionColumn.ID, 4, 1, true);
+		assertEquals(Arrays.asList("CREATE TABLE BIG_DATA " + COLUMNS, INDEX),
+				SqlDialect.H2.createTable("BIG_DATA", COLUMNS, layout));
+		assertFalse(SqlDialect.H2.supports(layout));
+		assertTrue(SqlDialect.H2.supports(new TableLayout(Storage.DEFAULT, Partitioning.NONE, PartitionColumn.ID, 1, 1,
+				true)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rowTablesAreNotPartitioned() {
+		new TableLayout(Storage.ROW, Partitioning.HASH, PartitionColumn.ID, 4, 1, false);
+	}
+
+	@Test
+	public void recreatedTableHasTheNewLayout() throws SQLException {
+		BigDataDAO bigDataDAO = database.getBigDataDAO();
+		assertEquals(1, database.queryLong(INDEX_QUERY));
+		bigDataDAO.insertBigDataRange(1, 100, BenchmarkDatabase.SEED);
+
+		TableLayout layout = new TableLayout(Storage.COLUMN, Partitioning.RANGE, PartitionColumn.CREATED_AT, 4, 1,
+				false);
+		bigDataDAO.recreateTable(layout);
+		assertEquals(layout, bigDataDAO.getTableLayout());
+		assertEquals(0, database.queryLong(INDEX_QUERY));
+		assertEquals(0, bigDataDAO.getAmountDataset());
+		bigDataDAO.insertBigDataRange(1, 100, BenchmarkDatabase.SEED);
+		assertEquals(100, bigDataDAO.getAmountDataset());
+	}
+}
@@ -0,0 +1,150 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+
+/**
+ *
+ * Executions of statements which only differ in their literals must be counted under one
+ * fingerprint, together with their rows and errors. A query counts until its result is closed and
+ * a slow query is explained once the caller has closed its connection.
+ *
+ */
+public class TracingDataSourceTest {
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private TracingDataSource dataSource;
+
+	@Before
+	public void setUp() throws SQLException {
+		database.getBigDataDAO().insertBigDataRange(1, 100, BenchmarkDatabase.SEED);
+		dataSource = new TracingDataSource(database.getDataSource());
+	}
+
+	@Test
+	public void concatenatedStatementsShareOneTrace() throws SQLException {
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			for (int id = 1; id <= 10; id++) {
+				ResultSet rs = statement.executeQuery("SELECT ID FROM BIG_DATA WHERE ID <= " + id);
+				while (rs.next()) {
+					//read all rows
+				}
+				rs.close();
+			}
+			PreparedStatement pstmt = connection.prepareStatement("UPDATE BIG_DATA SET NUMBER = ? WHERE ID <= ?");
+			pstmt.setInt(1, 7);
+			pstmt.setInt(2, 20);
+			assertEquals(20, pstmt.executeUpdate());
+		} finally {
+			connection.close();
+		}
+		List<StatementTrace> traces = dataSource.getTraces();
+		assertEquals(2, traces.size());
+		StatementTrace select = find(traces, "SELECT ID FROM BIG_DATA WHERE ID <= ?");
+		assertEquals(10, select.getExecutions().getCount());
+		assertEquals(55, select.getRows());
+		StatementTrace update = find(traces, "UPDATE BIG_DATA SET NUMBER = ? WHERE ID <= ?");
+		assertEquals(1, update.getExecutions().getCount());
+		assertEquals(20, update.getRows());
+	}
+
+	@Test
+	public void errorsAreCounted() throws SQLException {
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			for (int i = 0; i < 3; i++) {
+				try {
+					statement.executeUpdate("INSERT INTO BIG_DATA (ID) VALUES (" + (i + 1) + ")");
+					fail("The duplicate ID was inserted");
+				} catch (SQLException e) {
+					//expected
+				}
+			}
+		} finally {
+			connection.close();
+		}
+		StatementTrace insert = find(dataSource.getTraces(), "INSERT INTO BIG_DATA (ID) VALUES (?)");
+		assertEquals(3, insert.getExecutions().getCount());
+		assertEquals(3, insert.getErrors());
+		assertEquals(0, insert.getRows());
+		dataSource.reset();
+		assertEquals(0, insert.getExecutions().getCount());
+		assertEquals(0, insert.getErrors());
+	}
+
+	@Test
+	public void queryTimeLastsUntilTheResultIsClosed() throws Exception {
+		Connection connection = dataSource.getConnection();
+		try {
+			Statement statement = connection.createStatement();
+			ResultSet rs = statement.executeQuery("SELECT ID FROM BIG_DATA");
+			rs.next();
+			Thread.sleep(50);
+			StatementTrace select = find(dataSource.getTraces(), "SELECT ID FROM BIG_DATA");
+			assertEquals(0, select.getExecutions().getCount());
+			rs.close();
+			assertEquals(1, select.getExecutions().getCount());
+			assertTrue(select.getExecutions().getSum() >= TimeUnit.MILLISECONDS.toNanos(50));
+			//a result which is not closed is recorded when the statement is closed
+			statement.executeQuery("SELECT ID FROM BIG_DATA");
+			statement.close();
+			assertEquals(2, select.getExecutions().getCount());
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void slowQueryIsExplainedAfterTheConnectionIsClosed() throws SQLException {
+		dataSource.setSlowQueryMillis(0);
+		dataSource.setCapturePlans(true);
+		Connection connection = dataSource.getConnection();
+		StatementTrace select;
+		try {
+			connection.setAutoCommit(false);
+			Statement statement = connection.createStatement();
+			statement.executeUpdate("DELETE FROM BIG_DATA WHERE ID > 50");
+			ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM BIG_DATA WHERE ID > 10");
+			rs.close();
+			select = find(dataSource.getTraces(), "SELECT COUNT(*) FROM BIG_DATA WHERE ID > ?");
+			assertNull(select.getPlan());
+			connection.rollback();
+		} finally {
+			connection.close();
+		}
+		assertTrue(select.getPlan(), select.getPlan().contains("BIG_DATA"));
+		assertEquals(1, select.getSlowExecutions());
+		assertEquals(100, database.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+	}
+
+	private static StatementTrace find(List<StatementTrace> traces, String fingerprint) {
+		for (StatementTrace trace : traces) {
+			if (trace.getFingerprint().equals(fingerprint)) {
+				return trace;
+			}
+		}
+		fail("No trace of " + fingerprint + " in " + traces);
+		return null;
+	}
+}
@@ -0,0 +1,132 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
+
+/**
+ *
+ * Every row added to the write-behind buffer must be committed exactly once, also when the
+ * ring wraps many times and producers wait for free slots. flush is the durability point and
+ * reports failed batches.
+ *
+ */
+public class WriteBehindBufferTest {
+	private static final int PRODUCERS = 8;
+	private static final int ROWS_PER_PRODUCER = 2000;
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private WriteBehindBuffer buffer;
+
+	@After
+	public void tearDown() throws Exception {
+		if (buffer != null) {
+			buffer.close(10000);
+		}
+	}
+
+	@Test
+	public void rowsOfManyProducersAreCommittedOnce() throws Exception {
+		//a small ring, so it wraps many times and the producers wait while it is full
+		buffer = new WriteBehindBuffer(database.getBigDataDAO(), 64, 16, 5, 2);
+		ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+		List<Future<Void>> results = new ArrayList<Future<Void>>();
+		try {
+			for (int p = 0; p < PRODUCERS; p++) {
+				final int firstId = p * ROWS_PER_PRODUCER + 1;
+				results.add(producers.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws InterruptedException {
+						BigDataGenerator generator = new BigDataGenerator(BenchmarkDatabase.SEED, firstId,
+								ROWS_PER_PRODUCER);
+						while (generator.hasNext()) {
+							buffer.add(generator.next());
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			producers.shutdown();
+		}
+		buffer.flush();
+		int rows = PRODUCERS * ROWS_PER_PRODUCER;
+		assertEquals(rows, buffer.getAddedRows());
+		assertEquals(0, buffer.getPendingRows());
+		assertEquals(rows, buffer.getCommittedRows());
+		assertEquals(0, buffer.getFailedRows());
+		assertTrue("Batches larger than 16 rows: " + buffer, buffer.getBatches() >= rows / 16);
+		assertEquals(rows, database.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+		assertEquals(rows, database.queryLong("SELECT COUNT(DISTINCT ID) FROM BIG_DATA"));
+		assertEquals(rows, database.queryLong("SELECT MAX(ID) FROM BIG_DATA"));
+		assertTrue(buffer.close(10000));
+	}
+
+	@Test
+	public void flushDoesNotWaitForTheLatency() throws Exception {
+		buffer = new WriteBehindBuffer(database.getBigDataDAO(), 1024, 1000, 3600000, 1);
+		BigDataGenerator generator = new BigDataGenerator(BenchmarkDatabase.SEED, 1, 10);
+		while (generator.hasNext()) {
+			buffer.add(generator.next());
+		}
+		long start = System.nanoTime();
+		buffer.flush();
+		assertTrue("flush waited for the latency", System.nanoTime() - start < 10000000000L);
+		assertEquals(10, database.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+		assertEquals(1, buffer.getBatches());
+	}
+
+	@Test
+	public void flushReportsAFailedBatchOnce() throws Exception {
+		buffer = new WriteBehindBuffer(database.getBigDataDAO(), 1024, 1000, 0, 1);
+		BigData row = new BigDataGenerator(BenchmarkDatabase.SEED, 1, 1).next();
+		buffer.add(row);
+		buffer.flush();
+		//the same ID again violates the primary key
+		buffer.add(row);
+		try {
+			buffer.flush();
+			fail("The duplicate row was written");
+		} catch (SQLException e) {
+			//expected
+		}
+		assertEquals(1, buffer.getCommittedRows());
+		assertEquals(1, buffer.getFailedRows());
+		buffer.flush();
+		assertEquals(1, database.queryLong("SELECT COUNT(*) FROM BIG_DATA"));
+	}
+
+	@Test
+	public void closedBufferRejectsRows() throws Exception {
+		buffer = new WriteBehindBuffer(database.getBigDataDAO(), 1024, 1000, 0, 1);
+		assertTrue(buffer.close(10000));
+		try {
+			buffer.add(new BigDataGenerator(BenchmarkDatabase.SEED, 1, 1).next());
+			fail("The closed buffer took a row");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		assertEquals(0, buffer.getAddedRows());
+	}
+}
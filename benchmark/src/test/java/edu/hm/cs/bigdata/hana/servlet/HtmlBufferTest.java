@@ -0,0 +1,73 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.CharArrayWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.sql.Date;
+
+import org.junit.Test;
+
+/**
+ *
+ * User data must be HTML-encoded, also across the end of the buffer, numbers and dates must be
+ * written like their toString and the page buffer of a thread must start empty for every page.
+ *
+ */
+public class HtmlBufferTest {
+
+	@Test
+	public void userDataIsEncoded() {
+		assertEquals("&lt;script&gt;alert(&quot;x&quot; &amp;&amp; &#39;y&#39;)&lt;/script&gt;",
+				render("<script>alert(\"x\" && 'y')</script>"));
+		assertEquals("null", render(null));
+		assertEquals("plain ümläut", render("plain ümläut"));
+	}
+
+	@Test
+	public void encodingCrossesTheEndOfTheBuffer() {
+		StringBuilder text = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			text.append("a<&").append(i);
+			expected.append("a&lt;&amp;").append(i);
+		}
+		CharArrayWriter out = new CharArrayWriter();
+		new HtmlBuffer(new PrintWriter(out), 64).append("<p>").appendEncoded(text).append("</p>").flush();
+		assertEquals("<p>" + expected + "</p>", out.toString());
+	}
+
+	@Test
+	public void numbersAndDatesAreWrittenLikeToString() {
+		CharArrayWriter out = new CharArrayWriter();
+		HtmlBuffer html = new HtmlBuffer(new PrintWriter(out), 64);
+		html.append(0).append(' ').append(-42).append(' ').append(Long.MIN_VALUE).append(' ')
+				.append(Long.MAX_VALUE).append(' ').appendDate(Date.valueOf("0987-03-04")).append(' ')
+				.appendDate(Date.valueOf("2018-12-31")).append(' ').appendDate(null).flush();
+		assertEquals("0 -42 " + Long.MIN_VALUE + " " + Long.MAX_VALUE + " 0987-03-04 2018-12-31 null", out.toString());
+	}
+
+	@Test
+	public void pageBufferIsReusedEmpty() throws Exception {
+		HtmlBuffer first = HtmlBuffer.forPage();
+		first.append("first page");
+		StringWriter out = new StringWriter();
+		first.writeTo(out);
+		assertEquals("first page", out.toString());
+
+		HtmlBuffer second = HtmlBuffer.forPage();
+		assertSame(first, second);
+		second.appendEncoded("<second>");
+		out = new StringWriter();
+		second.writeTo(out);
+		assertEquals("&lt;second&gt;", out.toString());
+	}
+
+	private static String render(String text) {
+		CharArrayWriter out = new CharArrayWriter();
+		new HtmlBuffer(new PrintWriter(out)).appendEncoded(text).flush();
+		return out.toString();
+	}
+}
@@ -0,0 +1,83 @@
+package edu.hm.cs.bigdata.hana.sketch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *
+ * The estimates of the HyperLogLog sketch must stay within three standard errors of the true
+ * number of distinct values, from few values counted linearly to millions.
+ *
+ */
+public class HyperLogLogTest {
+
+	@Test
+	public void estimatesStayWithinThreeStandardErrors() {
+		for (int distinct : new int[] { 10, 100, 1000, 10000, 100000, 1000000 }) {
+			HyperLogLog sketch = new HyperLogLog();
+			for (int i = 0; i < distinct; i++) {
+				sketch.add(HyperLogLog.hash(i));
+			}
+			assertWithinError(sketch, distinct, 3);
+		}
+	}
+
+	@Test
+	public void duplicatesDoNotCount() {
+		HyperLogLog sketch = new HyperLogLog();
+		for (int repeat = 0; repeat < 5; repeat++) {
+			for (int i = 0; i < 20000; i++) {
+				sketch.add(HyperLogLog.hash("user" + i));
+			}
+		}
+		assertWithinError(sketch, 20000, 3);
+	}
+
+	@Test
+	public void lowerPrecisionHasLargerError() {
+		HyperLogLog sketch = new HyperLogLog(6);
+		assertEquals(1.04 / 8, sketch.getStandardError(), 1e-12);
+		for (int i = 0; i < 50000; i++) {
+			sketch.add(HyperLogLog.hash(i));
+		}
+		assertWithinError(sketch, 50000, 3);
+	}
+
+	@Test
+	public void mergeEqualsSketchOfTheUnion() {
+		HyperLogLog first = new HyperLogLog();
+		HyperLogLog second = new HyperLogLog();
+		HyperLogLog union = new HyperLogLog();
+		for (int i = 0; i < 30000; i++) {
+			first.add(HyperLogLog.hash(i));
+			union.add(HyperLogLog.hash(i));
+		}
+		//overlaps the first half with the values 20000 to 29999
+		for (int i = 20000; i < 60000; i++) {
+			second.add(HyperLogLog.hash(i));
+			union.add(HyperLogLog.hash(i));
+		}
+		first.merge(second);
+		assertEquals(union.estimate(), first.estimate());
+		assertWithinError(first, 60000, 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void mergeOfDifferentPrecisionsFails() {
+		new HyperLogLog(10).merge(new HyperLogLog(12));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void precisionOutOfRangeFails() {
+		new HyperLogLog(3);
+	}
+
+	private static void assertWithinError(HyperLogLog sketch, long distinct, double standardErrors) {
+		long estimate = sketch.estimate();
+		double relativeError = Math.abs(estimate - distinct) / (double) distinct;
+		assertTrue("Estimate " + estimate + " of " + distinct + " distinct values",
+				relativeError <= standardErrors * sketch.getStandardError());
+	}
+}
@@ -0,0 +1,69 @@
+package edu.hm.cs.bigdata.hana.sketch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *
+ * Mean and variance must match the two-pass formulas, also far from zero, and the 95%
+ * confidence interval must contain the true mean in about 95% of the samples.
+ *
+ */
+public class RunningStatisticsTest {
+
+	@Test
+	public void meanAndVarianceEqualTwoPassFormulas() {
+		Random random = new Random(3);
+		double[] values = new double[10000];
+		RunningStatistics statistics = new RunningStatistics();
+		for (int i = 0; i < values.length; i++) {
+			//a large offset makes the naive sum of squares lose all digits
+			values[i] = 1e9 + random.nextGaussian() * 10;
+			statistics.add(values[i]);
+		}
+		double sum = 0;
+		for (double value : values) {
+			sum += value;
+		}
+		double mean = sum / values.length;
+		double squares = 0;
+		for (double value : values) {
+			squares += (value - mean) * (value - mean);
+		}
+		assertEquals(values.length, statistics.getCount());
+		//the sum of the two-pass mean rounds to about 1e-6 at 1e9 itself
+		assertEquals(mean, statistics.getMean(), 1e-4);
+		assertEquals(squares / (values.length - 1), statistics.getVariance(), 1e-6);
+	}
+
+	@Test
+	public void fewValuesHaveNoVariance() {
+		RunningStatistics statistics = new RunningStatistics();
+		assertEquals(0, statistics.getConfidenceHalfWidth(1.96), 0);
+		statistics.add(5);
+		assertEquals(5, statistics.getMean(), 0);
+		assertEquals(0, statistics.getVariance(), 0);
+	}
+
+	@Test
+	public void confidenceIntervalCoversTheMean() {
+		Random random = new Random(4);
+		int trials = 1000;
+		int covered = 0;
+		for (int trial = 0; trial < trials; trial++) {
+			RunningStatistics statistics = new RunningStatistics();
+			for (int i = 0; i < 200; i++) {
+				//uniform in [0, 100), the true mean is 50
+				statistics.add(random.nextDouble() * 100);
+			}
+			if (Math.abs(statistics.getMean() - 50) <= statistics.getConfidenceHalfWidth(1.96)) {
+				covered++;
+			}
+		}
+		assertTrue("Covered " + covered + " of " + trials, covered >= 930 && covered <= 970);
+	}
+}
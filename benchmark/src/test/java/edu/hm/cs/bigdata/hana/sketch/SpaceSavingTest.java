@@ -0,0 +1,115 @@
+package edu.hm.cs.bigdata.hana.sketch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.util.ZipfianGenerator;
+
+/**
+ *
+ * Every count of the Space-Saving sketch must be an upper bound of the true frequency and at
+ * most its error above it, and every value more frequent than total / capacity must be kept.
+ *
+ */
+public class SpaceSavingTest {
+	private static final int CAPACITY = 64;
+
+	@Test
+	public void countsBoundTheFrequenciesOfASkewedStream() {
+		SpaceSaving<Long> sketch = new SpaceSaving<Long>(CAPACITY);
+		Map<Long, Long> frequencies = new HashMap<Long, Long>();
+		ZipfianGenerator zipf = new ZipfianGenerator(10000);
+		Random random = new Random(1);
+		for (int i = 0; i < 200000; i++) {
+			long value = zipf.next(random);
+			sketch.add(value);
+			increment(frequencies, value, 1);
+		}
+		assertEquals(200000, sketch.getTotal());
+		assertBounds(sketch, frequencies);
+	}
+
+	@Test
+	public void fewValuesAreCountedExactly() {
+		SpaceSaving<String> sketch = new SpaceSaving<String>(CAPACITY);
+		for (int i = 0; i < 1000; i++) {
+			sketch.add("value" + i % 10);
+		}
+		sketch.add(null, 500);
+		List<SpaceSaving.Counter<String>> top = sketch.top(3);
+		assertEquals(3, top.size());
+		assertEquals(null, top.get(0).getValue());
+		assertEquals(500, top.get(0).getCount());
+		for (SpaceSaving.Counter<String> counter : sketch.top(CAPACITY)) {
+			assertEquals(0, counter.getError());
+		}
+		assertEquals(11, sketch.top(CAPACITY).size());
+	}
+
+	@Test
+	public void mergedCountsBoundTheFrequenciesOfBothStreams() {
+		SpaceSaving<Long> merged = new SpaceSaving<Long>(CAPACITY);
+		Map<Long, Long> frequencies = new HashMap<Long, Long>();
+		ZipfianGenerator zipf = new ZipfianGenerator(5000);
+		for (int part = 0; part < 4; part++) {
+			SpaceSaving<Long> sketch = new SpaceSaving<Long>(CAPACITY);
+			Random random = new Random(part);
+			for (int i = 0; i < 50000; i++) {
+				//the parts see different values as most frequent
+				long value = (zipf.next(random) + part * 7) % 5000;
+				sketch.add(value);
+				increment(frequencies, value, 1);
+			}
+			merged.merge(sketch);
+		}
+		assertEquals(200000, merged.getTotal());
+		assertBounds(merged, frequencies);
+	}
+
+	@Test
+	public void topIsSortedByCount() {
+		SpaceSaving<Integer> sketch = new SpaceSaving<Integer>(4);
+		sketch.add(1, 5);
+		sketch.add(2, 50);
+		sketch.add(3, 20);
+		List<SpaceSaving.Counter<Integer>> top = sketch.top(2);
+		assertEquals(2, top.size());
+		assertEquals(Integer.valueOf(2), top.get(0).getValue());
+		assertEquals(Integer.valueOf(3), top.get(1).getValue());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void weightMustBePositive() {
+		new SpaceSaving<String>(CAPACITY).add("value", 0);
+	}
+
+	private static void assertBounds(SpaceSaving<Long> sketch, Map<Long, Long> frequencies) {
+		Set<Long> kept = new HashSet<Long>();
+		for (SpaceSaving.Counter<Long> counter : sketch.top(CAPACITY)) {
+			long frequency = frequencies.get(counter.getValue());
+			assertTrue(counter + " is below the frequency " + frequency, counter.getCount() >= frequency);
+			assertTrue(counter + " is more than its error above " + frequency,
+					counter.getCount() - counter.getError() <= frequency);
+			kept.add(counter.getValue());
+		}
+		for (Map.Entry<Long, Long> frequency : frequencies.entrySet()) {
+			if (frequency.getValue() > sketch.getTotal() / CAPACITY) {
+				assertTrue("Frequent value " + frequency + " has no counter", kept.contains(frequency.getKey()));
+			}
+		}
+	}
+
+	private static void increment(Map<Long, Long> frequencies, long value, long weight) {
+		Long frequency = frequencies.get(value);
+		frequencies.put(value, frequency == null ? weight : frequency + weight);
+	}
+}
@@ -0,0 +1,270 @@
+package edu.hm.cs.bigdata.hana.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.benchmark.BenchmarkDatabase;
+import edu.hm.cs.bigdata.hana.benchmark.DatabaseRule;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.sketch.SpaceSaving;
+import edu.hm.cs.bigdata.hana.util.ZipfianGenerator;
+
+/**
+ *
+ * The histograms counted in parallel chunks must equal a naive count of the same texts and the
+ * character counts of the database. The streamed pass spans several chunks of 4 MB. Analyzers
+ * on a shared pool leave it running.
+ *
+ */
+public class TextAnalyzerTest {
+	private static final String[] SEPARATORS = { " ", "  ", "\t", "\n", ", ", ". ", " - " };
+	private static final String[] SUFFIXES = { "", "ü", "ß", "😀", "42" };
+
+	@Rule
+	public DatabaseRule database = new DatabaseRule();
+
+	private List<String> texts;
+	private TextAnalyzer analyzer;
+
+	@Before
+	public void setUp() {
+		texts = generateTexts(60000);
+		//more counters than distinct tokens, so the sketches count exactly
+		analyzer = new TextAnalyzer(4, true, true, 1 << 17);
+	}
+
+	@After
+	public void tearDown() {
+		analyzer.shutdown();
+	}
+
+	@Test
+	public void streamedPassEqualsNaiveCount() {
+		TextAnalyzer.Pass pass = analyzer.startPass();
+		for (String text : texts) {
+			pass.add(text);
+		}
+		assertEqualsNaiveCount(pass.finish(), true);
+	}
+
+	@Test
+	public void packedRowsEqualNaiveCount() throws Exception {
+		List<byte[]> encoded = new ArrayList<byte[]>();
+		int length = 0;
+		for (String text : texts) {
+			byte[] bytes = text == null ? new byte[0] : text.getBytes("UTF-8");
+			encoded.add(bytes);
+			length += bytes.length;
+		}
+		byte[] bytes = new byte[length];
+		int[] offsets = new int[texts.size() + 1];
+		for (int row = 0; row < texts.size(); row++) {
+			System.arraycopy(encoded.get(row), 0, bytes, offsets[row], encoded.get(row).length);
+			offsets[row + 1] = offsets[row] + encoded.get(row).length;
+		}
+		assertEqualsNaiveCount(analyzer.analyze(bytes, offsets, texts.size()), true);
+	}
+
+	@Test
+	public void smallSketchesBoundTheFrequencies() {
+		TextAnalyzer small = new TextAnalyzer(4, true, true, 64);
+		try {
+			TextAnalyzer.Pass pass = small.startPass();
+			for (String text : texts) {
+				pass.add(text);
+			}
+			assertEqualsNaiveCount(pass.finish(), false);
+		} finally {
+			small.shutdown();
+		}
+	}
+
+	@Test
+	public void analyzersShareAPoolWhichOutlivesThem() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int i = 0; i < 2; i++) {
+				TextAnalyzer shared = new TextAnalyzer(pool, true, true, 1 << 17);
+				TextAnalyzer.Pass pass = shared.startPass();
+				for (String text : texts) {
+					pass.add(text);
+				}
+				assertEqualsNaiveCount(pass.finish(), true);
+				shared.shutdown();
+				assertFalse(pool.isShutdown());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void characterCountsEqualTheDatabase() throws SQLException {
+		BigDataDAO bigDataDAO = database.getBigDataDAO();
+		bigDataDAO.insertBigDataRange(1, 20000, BenchmarkDatabase.SEED);
+		TextHistogram scanned = bigDataDAO.analyzeTextHistogram(false, false);
+		bigDataDAO.setColumnarSnapshotEnabled(true);
+		TextHistogram fromSnapshot = bigDataDAO.analyzeTextHistogram(false, false);
+		assertEquals(20000, scanned.getRowCount());
+		assertEquals(bigDataDAO.analyzeText(), scanned.getCount('e'));
+		for (char c : new char[] { 'e', 'E', 'z', '7', ' ' }) {
+			long count = countInDatabase(c);
+			assertEquals("Count of '" + c + "'", count, scanned.getCount(c));
+			assertEquals("Count of '" + c + "'", count, fromSnapshot.getCount(c));
+		}
+		assertEquals(scanned.getCounts(), fromSnapshot.getCounts());
+	}
+
+	/**
+	 *
+	 * @param histogram
+	 * @param exactTop true if the sketches have a counter for every token and word
+	 */
+	private void assertEqualsNaiveCount(TextHistogram histogram, boolean exactTop) {
+		SortedMap<Integer, Long> characters = new TreeMap<Integer, Long>();
+		Map<String, Long> tokens = new HashMap<String, Long>();
+		Map<String, Long> words = new HashMap<String, Long>();
+		long characterCount = 0;
+		long tokenCount = 0;
+		long wordCount = 0;
+		for (String text : texts) {
+			if (text == null) {
+				continue;
+			}
+			for (int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+				increment(characters, text.codePointAt(i));
+				characterCount++;
+			}
+			for (String token : split(text, true)) {
+				increment(tokens, token);
+				tokenCount++;
+			}
+			for (String word : split(text, false)) {
+				increment(words, word.toLowerCase(Locale.ROOT));
+				wordCount++;
+			}
+		}
+		assertEquals(texts.size(), histogram.getRowCount());
+		assertEquals(characterCount, histogram.getCharacterCount());
+		assertEquals(characters, histogram.getCounts());
+		assertEquals(tokenCount, histogram.getTokenCount());
+		assertEquals(wordCount, histogram.getWordCount());
+		assertBounds(histogram.getTopTokens(Integer.MAX_VALUE), tokens, exactTop);
+		assertBounds(histogram.getTopWords(Integer.MAX_VALUE), words, exactTop);
+	}
+
+	private static void assertBounds(List<SpaceSaving.Counter<String>> top, Map<String, Long> frequencies,
+			boolean exact) {
+		if (exact) {
+			assertEquals(frequencies.size(), top.size());
+		}
+		for (SpaceSaving.Counter<String> counter : top) {
+			long frequency = frequencies.get(counter.getValue());
+			if (exact) {
+				assertEquals(counter.toString(), frequency, counter.getCount());
+			} else {
+				assertTrue(counter + " is below " + frequency, counter.getCount() >= frequency);
+				assertTrue(counter + " is more than its error above " + frequency,
+						counter.getCount() - counter.getError() <= frequency);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param text
+	 * @param tokens true for the runs of characters which are no white space, false for the runs
+	 * 			of letters and digits
+	 * @return the tokens or words of the text
+	 */
+	private static List<String> split(String text, boolean tokens) {
+		List<String> parts = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i < text.length(); i += Character.charCount(text.codePointAt(i))) {
+			int codePoint = text.codePointAt(i);
+			boolean inside = tokens ? !Character.isWhitespace(codePoint) : Character.isLetterOrDigit(codePoint);
+			if (inside && start < 0) {
+				start = i;
+			} else if (!inside && start >= 0) {
+				parts.add(text.substring(start, i));
+				start = -1;
+			}
+		}
+		if (start >= 0) {
+			parts.add(text.substring(start));
+		}
+		return parts;
+	}
+
+	/**
+	 *
+	 * @param rows
+	 * @return texts of words with Zipf distributed frequencies, mixed case, separators, characters
+	 * 			of two to four UTF-8 bytes, empty texts and NULL
+	 */
+	private static List<String> generateTexts(int rows) {
+		Random random = new Random(7);
+		ZipfianGenerator zipf = new ZipfianGenerator(5000);
+		List<String> texts = new ArrayList<String>(rows);
+		for (int row = 0; row < rows; row++) {
+			if (row % 1000 == 0) {
+				texts.add(row % 2000 == 0 ? null : "");
+				continue;
+			}
+			StringBuilder text = new StringBuilder();
+			int words = 1 + random.nextInt(25);
+			for (int i = 0; i < words; i++) {
+				String word = "w" + zipf.next(random) + SUFFIXES[random.nextInt(SUFFIXES.length)];
+				text.append(random.nextInt(10) == 0 ? word.toUpperCase(Locale.ROOT) : word);
+				text.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+			}
+			texts.add(text.toString());
+		}
+		return texts;
+	}
+
+	private static <K> void increment(Map<K, Long> counts, K key) {
+		Long count = counts.get(key);
+		counts.put(key, count == null ? 1 : count + 1);
+	}
+
+	/**
+	 *
+	 * @param c
+	 * @return the number of the character in the column TEXT counted by the database
+	 * @throws SQLException
+	 */
+	private long countInDatabase(char c) throws SQLException {
+		Connection connection = database.getDataSource().getConnection();
+		try {
+			PreparedStatement pstmt = connection.prepareStatement(
+					"SELECT SUM(LENGTH(TEXT) - LENGTH(REPLACE(TEXT, ?, ''))) FROM BIG_DATA");
+			pstmt.setString(1, String.valueOf(c));
+			ResultSet rs = pstmt.executeQuery();
+			rs.next();
+			return rs.getLong(1);
+		} finally {
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package edu.hm.cs.bigdata.hana.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import edu.hm.cs.bigdata.hana.persistence.BigData;
+
+/**
+ *
+ * A generated row only depends on the seed and its ID, so split and offset generators produce
+ * the rows of a single one. The range ends exactly at its last ID, also at Integer.MAX_VALUE.
+ *
+ */
+public class BigDataGeneratorTest {
+	private static final long SEED = 42;
+
+	@Test
+	public void rangeEndsAtTheLargestId() {
+		BigDataGenerator generator = new BigDataGenerator(SEED, Integer.MAX_VALUE - 1, 2);
+		assertEquals(2, generator.remaining());
+		assertEquals(Integer.MAX_VALUE - 1, generator.next().getId());
+		assertEquals(Integer.MAX_VALUE, generator.next().getId());
+		assertFalse(generator.hasNext());
+		assertEquals(0, generator.remaining());
+		try {
+			generator.next();
+			fail("A row after Integer.MAX_VALUE was generated");
+		} catch (NoSuchElementException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void splitAtTheLargestId() {
+		BigDataGenerator generator = new BigDataGenerator(SEED, Integer.MAX_VALUE - 2, 3);
+		BigDataGenerator upperHalf = generator.split();
+		assertEquals(Integer.MAX_VALUE - 1, upperHalf.next().getId());
+		assertEquals(Integer.MAX_VALUE, upperHalf.next().getId());
+		assertFalse(upperHalf.hasNext());
+		assertEquals(1, generator.remaining());
+		assertNull(generator.split());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rangeBeyondTheLargestIdIsRejected() {
+		new BigDataGenerator(SEED, Integer.MAX_VALUE, 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeAmountIsRejected() {
+		new BigDataGenerator(SEED, 1, -1);
+	}
+
+	@Test
+	public void splitGeneratorsProduceTheRowsOfOne() {
+		List<String> expected = generate(new BigDataGenerator(SEED, 1, 1000));
+		BigDataGenerator lower = new BigDataGenerator(SEED, 1, 1000);
+		BigDataGenerator upper = lower.split();
+		BigDataGenerator upperUpper = upper.split();
+		List<String> rows = generate(lower);
+		rows.addAll(generate(upper));
+		rows.addAll(generate(upperUpper));
+		assertEquals(expected, rows);
+	}
+
+	@Test
+	public void rowsOnlyDependOnSeedAndId() {
+		List<String> all = generate(new BigDataGenerator(SEED, 1, 100));
+		assertEquals(all.subList(49, 100), generate(new BigDataGenerator(SEED, 50, 51)));
+		assertFalse(all.equals(generate(new BigDataGenerator(SEED + 1, 1, 100))));
+	}
+
+	@Test
+	public void valuesStayWithinTheirLimits() {
+		BigDataGenerator generator = new BigDataGenerator(SEED, 1, 5000);
+		while (generator.hasNext()) {
+			BigData bg = generator.next();
+			assertTrue(bg.getUserName().length() < BigDataGenerator.MAX_LENGTH_USER_NAME);
+			assertTrue(bg.getText().length() < BigDataGenerator.MAX_LENGTH_TEXT);
+			assertTrue(bg.getNumber() >= 0);
+			assertTrue(bg.getCreatedAt() != null);
+		}
+	}
+
+	private static List<String> generate(BigDataGenerator generator) {
+		List<String> rows = new ArrayList<String>();
+		while (generator.hasNext()) {
+			BigData bg = generator.next();
+			rows.add(bg.getId() + "|" + bg.getUserName() + "|" + bg.getCreatedAt() + "|" + bg.getText() + "|"
+					+ bg.getNumber());
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,455 @@
+package edu.hm.cs.bigdata.hana.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.zip.GZIPOutputStream;
+
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.BigDataRowHandler;
+
+/**
+ *
+ * Writes the rows of the table 'BIG_DATA' to a stream while they are read. The rows are
+ * encoded directly into one reused byte buffer which is written when it is full, so neither
+ * objects per row nor the heap grow with the number of rows.
+ *
+ * The binary format starts with the magic bytes 'BGD1', followed by the rows. Every row is
+ * its length in bytes without the length itself, the ID, the user name, the date as days since
+ * 1970-01-01, the text and the number. Numbers are big endian 32 bit integers as written by
+ * DataOutputStream.writeInt, texts are their length in UTF-8 bytes followed by the bytes,
+ * missing values are a length of -1 and Integer.MIN_VALUE as date.
+ *
+ */
+public class BigDataExporter implements BigDataRowHandler {
+	/** Default size of the byte buffer */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	/** First bytes of the binary format */
+	public static final byte[] BINARY_MAGIC = { 'B', 'G', 'D', '1' };
+	/** Date of a row without CREATED_AT in the binary format */
+	public static final int NULL_DATE = Integer.MIN_VALUE;
+	private static final byte[] CSV_HEADER = ascii("ID,USER_NAME,CREATED_AT,TEXT,NUMBER\r\n");
+	private static final byte[] HEX = ascii("0123456789abcdef");
+
+	private final OutputStream out;
+	private final ExportFormat format;
+	private byte[] buffer;
+	private int position;
+	private long rows;
+	//dates repeat a lot, the last one is encoded only once
+	private final Calendar calendar = Calendar.getInstance();
+	private long lastDateMillis = Long.MIN_VALUE;
+	private final byte[] lastDateText = new byte[10];
+	private int lastEpochDay;
+
+	/**
+	 *
+	 * @param out
+	 * @param format
+	 */
+	public BigDataExporter(OutputStream out, ExportFormat format) {
+		this(out, format, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 *
+	 * @param out the stream the rows are written to, it is neither flushed nor closed by the exporter
+	 * @param format
+	 * @param bufferSize
+	 */
+	public BigDataExporter(OutputStream out, ExportFormat format, int bufferSize) {
+		if (bufferSize < 64) {
+			throw new IllegalArgumentException("Buffer size must be at least 64 bytes: " + bufferSize);
+		}
+		this.out = out;
+		this.format = format;
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 *
+	 * @param bigDataDAO
+	 * @param out
+	 * @param format
+	 * @param gzip
+	 * @return the number of exported rows
+	 * @throws SQLException
+	 * @throws IOException
+	 *
+	 * Export all rows of the table 'BIG_DATA' to the stream, optionally gzip compressed.
+	 * The stream is not closed.
+	 */
+	public static long export(BigDataDAO bigDataDAO, OutputStream out, ExportFormat format, boolean gzip)
+			throws SQLException, IOException {
+		GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, DEFAULT_BUFFER_SIZE) : null;
+		BigDataExporter exporter = new BigDataExporter(gzip ? gzipOut : out, format);
+		exporter.writeHeader();
+		bigDataDAO.selectAllRows(exporter);
+		exporter.flush();
+		if (gzipOut != null) {
+			gzipOut.finish();
+		}
+		return exporter.getRows();
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 *
+	 * Write what comes before the rows: the header line of CSV and the magic bytes of the binary format
+	 */
+	public void writeHeader() throws IOException {
+		if (format == ExportFormat.CSV) {
+			writeBytes(CSV_HEADER);
+		} else if (format == ExportFormat.BINARY) {
+			writeBytes(BINARY_MAGIC);
+		}
+	}
+
+	@Override
+	public boolean handle(int id, String userName, Date createdAt, String text, int number) throws IOException {
+		if (format == ExportFormat.CSV) {
+			writeCsvRow(id, userName, createdAt, text, number);
+		} else if (format == ExportFormat.NDJSON) {
+			writeJsonRow(id, userName, createdAt, text, number);
+		} else {
+			writeBinaryRow(id, userName, createdAt, text, number);
+		}
+		rows++;
+		return true;
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 *
+	 * Write the buffered bytes and flush the stream
+	 */
+	public void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 *
+	 * @return the number of rows written so far
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	private void writeCsvRow(int id, String userName, Date createdAt, String text, int number) throws IOException {
+		ensureCapacity(64 + maxBytes(userName) * 2 + maxBytes(text) * 2);
+		writeInt(id);
+		buffer[position++] = ',';
+		writeCsvString(userName);
+		buffer[position++] = ',';
+		if (createdAt != null) {
+			writeDate(createdAt);
+		}
+		buffer[position++] = ',';
+		writeCsvString(text);
+		buffer[position++] = ',';
+		writeInt(number);
+		buffer[position++] = '\r';
+		buffer[position++] = '\n';
+	}
+
+	private void writeJsonRow(int id, String userName, Date createdAt, String text, int number) throws IOException {
+		ensureCapacity(128 + maxBytes(userName) * 2 + maxBytes(text) * 2);
+		writeAscii("{\"id\":");
+		writeInt(id);
+		writeAscii(",\"userName\":");
+		writeJsonString(userName);
+		writeAscii(",\"createdAt\":");
+		if (createdAt == null) {
+			writeAscii("null");
+		} else {
+			buffer[position++] = '"';
+			writeDate(createdAt);
+			buffer[position++] = '"';
+		}
+		writeAscii(",\"text\":");
+		writeJsonString(text);
+		writeAscii(",\"number\":");
+		writeInt(number);
+		buffer[position++] = '}';
+		buffer[position++] = '\n';
+	}
+
+	private void writeBinaryRow(int id, String userName, Date createdAt, String text, int number) throws IOException {
+		ensureCapacity(28 + maxBytes(userName) + maxBytes(text));
+		int lengthPosition = position;
+		position += 4;
+		writeBinaryInt(id);
+		writeBinaryString(userName);
+		writeBinaryInt(createdAt == null ? NULL_DATE : epochDay(createdAt));
+		writeBinaryString(text);
+		writeBinaryInt(number);
+		int end = position;
+		position = lengthPosition;
+		writeBinaryInt(end - lengthPosition - 4);
+		position = end;
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return the maximum number of UTF-8 bytes of the value
+	 */
+	private static int maxBytes(String value) {
+		return value == null ? 0 : value.length() * 3;
+	}
+
+	private void writeCsvString(String value) {
+		if (value == null) {
+			return;
+		}
+		//an empty field is NULL, so an empty text is written as ""
+		boolean quote = value.isEmpty();
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quote) {
+			writeUtf8(value);
+			return;
+		}
+		buffer[position++] = '"';
+		int start = 0;
+		for (int i = 0; i < value.length(); i++) {
+			if (value.charAt(i) == '"') {
+				writeUtf8(value, start, i + 1);
+				buffer[position++] = '"';
+				start = i + 1;
+			}
+		}
+		writeUtf8(value, start, value.length());
+		buffer[position++] = '"';
+	}
+
+	private void writeJsonString(String value) {
+		if (value == null) {
+			writeAscii("null");
+			return;
+		}
+		buffer[position++] = '"';
+		int start = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\' || c < 0x20) {
+				writeUtf8(value, start, i);
+				buffer[position++] = '\\';
+				if (c == '"' || c == '\\') {
+					buffer[position++] = (byte) c;
+				} else if (c == '\n') {
+					buffer[position++] = 'n';
+				} else if (c == '\r') {
+					buffer[position++] = 'r';
+				} else if (c == '\t') {
+					buffer[position++] = 't';
+				} else {
+					buffer[position++] = 'u';
+					buffer[position++] = '0';
+					buffer[position++] = '0';
+					buffer[position++] = HEX[c >> 4];
+					buffer[position++] = HEX[c & 0xf];
+				}
+				start = i + 1;
+			}
+		}
+		writeUtf8(value, start, value.length());
+		buffer[position++] = '"';
+	}
+
+	private void writeBinaryString(String value) {
+		if (value == null) {
+			writeBinaryInt(-1);
+			return;
+		}
+		int lengthPosition = position;
+		position += 4;
+		writeUtf8(value);
+		int end = position;
+		position = lengthPosition;
+		writeBinaryInt(end - lengthPosition - 4);
+		position = end;
+	}
+
+	private void writeUtf8(String value) {
+		writeUtf8(value, 0, value.length());
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @param start
+	 * @param end
+	 *
+	 * Encode the characters from start to end - 1 as UTF-8, the buffer must have room for 3 bytes per character
+	 */
+	private void writeUtf8(String value, int start, int end) {
+		byte[] bytes = buffer;
+		int pos = position;
+		for (int i = start; i < end; i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				bytes[pos++] = (byte) c;
+			} else if (c < 0x800) {
+				bytes[pos++] = (byte) (0xc0 | (c >> 6));
+				bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				bytes[pos++] = (byte) (0xf0 | (codePoint >> 18));
+				bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				bytes[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else if (Character.isSurrogate(c)) {
+				//unpaired surrogates are not valid UTF-8
+				bytes[pos++] = '?';
+			} else {
+				bytes[pos++] = (byte) (0xe0 | (c >> 12));
+				bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+		position = pos;
+	}
+
+	private void writeAscii(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			buffer[position++] = (byte) value.charAt(i);
+		}
+	}
+
+	/**
+	 *
+	 * @param value
+	 *
+	 * Write the decimal digits of the value without creating a string
+	 */
+	private void writeInt(int value) {
+		if (value == Integer.MIN_VALUE) {
+			writeAscii("-2147483648");
+			return;
+		}
+		if (value < 0) {
+			buffer[position++] = '-';
+			value = -value;
+		}
+		int digits = 1;
+		for (int rest = value / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		for (int i = position + digits - 1; i >= position; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		position += digits;
+	}
+
+	private void writeBinaryInt(int value) {
+		buffer[position++] = (byte) (value >>> 24);
+		buffer[position++] = (byte) (value >>> 16);
+		buffer[position++] = (byte) (value >>> 8);
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeDate(Date date) {
+		decodeDate(date);
+		System.arraycopy(lastDateText, 0, buffer, position, lastDateText.length);
+		position += lastDateText.length;
+	}
+
+	private int epochDay(Date date) {
+		decodeDate(date);
+		return lastEpochDay;
+	}
+
+	/**
+	 *
+	 * @param date
+	 *
+	 * Compute the text yyyy-MM-dd and the epoch day of the date in the default time zone like Date.toString
+	 */
+	private void decodeDate(Date date) {
+		long millis = date.getTime();
+		if (millis == lastDateMillis) {
+			return;
+		}
+		calendar.setTimeInMillis(millis);
+		int year = calendar.get(Calendar.YEAR);
+		int month = calendar.get(Calendar.MONTH) + 1;
+		int day = calendar.get(Calendar.DAY_OF_MONTH);
+		writeDigits(lastDateText, 0, year, 4);
+		lastDateText[4] = '-';
+		writeDigits(lastDateText, 5, month, 2);
+		lastDateText[7] = '-';
+		writeDigits(lastDateText, 8, day, 2);
+		lastEpochDay = epochDay(year, month, day);
+		lastDateMillis = millis;
+	}
+	
+	/**
+	 * 
+	 * @param year
+	 * @param month 1 to 12
+	 * @param day
+	 * @return the number of days since 1970-01-01 in the proleptic Gregorian calendar
+	 */
+	static int epochDay(int year, int month, int day) {
+		//years start in March, so the leap day is the last day of a year
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static void writeDigits(byte[] target, int offset, int value, int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			target[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	/**
+	 *
+	 * @param bytes
+	 * @throws IOException
+	 *
+	 * Make room for the bytes of the next row, the buffer only grows for rows larger than it
+	 */
+	private void ensureCapacity(int bytes) throws IOException {
+		if (position + bytes > buffer.length) {
+			flushBuffer();
+			if (bytes > buffer.length) {
+				buffer = new byte[bytes];
+			}
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		if (position > 0) {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	private static byte[] ascii(String value) {
+		byte[] bytes = new byte[value.length()];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) value.charAt(i);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,31 @@
+package edu.hm.cs.bigdata.hana.export;
+
+/**
+ * 
+ * Formats the table 'BIG_DATA' can be exported in
+ *
+ */
+public enum ExportFormat {
+	/** Comma separated values with a header line, RFC 4180 quoting and CRLF line ends */
+	CSV("text/csv", "csv"),
+	/** One JSON object per line */
+	NDJSON("application/x-ndjson", "ndjson"),
+	/** Length prefixed binary rows, see BigDataExporter */
+	BINARY("application/octet-stream", "bin");
+	
+	private final String contentType;
+	private final String fileExtension;
+	
+	private ExportFormat(String contentType, String fileExtension) {
+		this.contentType = contentType;
+		this.fileExtension = fileExtension;
+	}
+	
+	public String getContentType() {
+		return contentType;
+	}
+	
+	public String getFileExtension() {
+		return fileExtension;
+	}
+}
@@ -0,0 +1,48 @@
+package edu.hm.cs.bigdata.hana.ingest;
+
+/**
+ * 
+ * Row of an import file which was skipped because it could not be parsed
+ *
+ */
+public class BadRow {
+	private final long rowNumber;
+	private final long offset;
+	private final String reason;
+	private final String excerpt;
+	
+	/**
+	 * 
+	 * @param rowNumber number of the row in the file starting at 1, not counting a header
+	 * @param offset position of the row in the file in bytes
+	 * @param reason
+	 * @param excerpt the beginning of the row
+	 */
+	public BadRow(long rowNumber, long offset, String reason, String excerpt) {
+		this.rowNumber = rowNumber;
+		this.offset = offset;
+		this.reason = reason;
+		this.excerpt = excerpt;
+	}
+	
+	public long getRowNumber() {
+		return rowNumber;
+	}
+	
+	public long getOffset() {
+		return offset;
+	}
+	
+	public String getReason() {
+		return reason;
+	}
+	
+	public String getExcerpt() {
+		return excerpt;
+	}
+	
+	@Override
+	public String toString() {
+		return "row " + rowNumber + " at byte " + offset + ": " + reason + " [" + excerpt + "]";
+	}
+}
@@ -0,0 +1,460 @@
+package edu.hm.cs.bigdata.hana.ingest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.hm.cs.bigdata.hana.export.BigDataExporter;
+import edu.hm.cs.bigdata.hana.export.ExportFormat;
+import edu.hm.cs.bigdata.hana.job.Job;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
+
+/**
+ *
+ * Imports files written by the BigDataExporter as CSV or binary into the table 'BIG_DATA'.
+ * The file is memory mapped instead of read through streams. A planner splits it at row
+ * boundaries into chunks of about 'chunkSize' bytes, parser threads turn the chunks into
+ * batches of rows and writer threads insert the batches, each on its own connection. The
+ * batches wait in a bounded queue, so the memory does not grow when the database is slower
+ * than the parsers. Invalid rows and rows the database rejects are skipped and reported in the result.
+ *
+ */
+public class BigDataImporter {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BigDataImporter.class);
+	/** Default number of bytes per chunk */
+	public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+	/** Default number of rows per batch handed to a writer */
+	public static final int DEFAULT_BATCH_ROWS = 5000;
+	/** Default number of bad rows kept for the result */
+	public static final int DEFAULT_MAX_RECORDED_BAD_ROWS = 1000;
+	//bytes the planner maps at once
+	private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+	//longest CSV row: every character of the texts as 4 bytes of UTF-8 and quoted, i.e. doubled
+	private static final int MAX_CSV_ROW_SIZE = 8 * (BigDataGenerator.MAX_LENGTH_USER_NAME 
+			+ BigDataGenerator.MAX_LENGTH_TEXT) + 64;
+	//bytes of a bad row shown in its excerpt
+	private static final int EXCERPT_LENGTH = 100;
+
+	private final BigDataDAO bigDataDAO;
+	private int parserThreads = Runtime.getRuntime().availableProcessors();
+	private int writerThreads = 4;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private int batchRows = DEFAULT_BATCH_ROWS;
+	private int maxRecordedBadRows = DEFAULT_MAX_RECORDED_BAD_ROWS;
+
+	/**
+	 *
+	 * @param bigDataDAO
+	 */
+	public BigDataImporter(BigDataDAO bigDataDAO) {
+		this.bigDataDAO = bigDataDAO;
+	}
+
+	/**
+	 *
+	 * @param file
+	 * @param format CSV or BINARY
+	 * @param job to report the progress to and to check for cancellation, may be null
+	 * @return the summary of the import
+	 * @throws SQLException if a batch could not be inserted
+	 * @throws IOException if the file can not be read or is no binary export
+	 * @throws InterruptedException if the job was cancelled
+	 *
+	 * Insert the rows of the file. Rows written before a failure or a cancellation stay in the table.
+	 */
+	public ImportResult importFile(File file, ExportFormat format, Job job) throws SQLException, IOException,
+			InterruptedException {
+		if (format != ExportFormat.CSV && format != ExportFormat.BINARY) {
+			throw new IllegalArgumentException("Only CSV and binary files can be imported: " + format);
+		}
+		long start = System.nanoTime();
+		ImportRun run = new ImportRun(bigDataDAO, job, writerThreads * 2, maxRecordedBadRows);
+		ExecutorService parsers = Executors.newFixedThreadPool(parserThreads);
+		ExecutorService writers = Executors.newFixedThreadPool(writerThreads);
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			List<Future<Void>> writing = new ArrayList<Future<Void>>();
+			for (int i = 0; i < writerThreads; i++) {
+				writing.add(writers.submit(run.writer()));
+			}
+			List<Future<Void>> parsing = new ArrayList<Future<Void>>();
+			long rows = format == ExportFormat.BINARY ? planBinary(channel, run, parsers, parsing)
+					: planCsv(channel, run, parsers, parsing);
+			if (job != null) {
+				job.setTotalRows(rows);
+			}
+			LOGGER.info("Importing {} rows of {} in {} chunks", rows, file, parsing.size());
+			await(parsing, run);
+			for (int i = 0; i < writerThreads; i++) {
+				run.end();
+			}
+			await(writing, run);
+			ImportResult result = new ImportResult(channel.size(), run.getRowsRead(), run.getRowsWritten(),
+					run.getBadRowCount(), run.getBadRows(), System.nanoTime() - start);
+			LOGGER.info("Imported {}: {}", file, result);
+			return result;
+		} catch (InterruptedException e) {
+			//the planner also stops when a writer failed
+			throwFailure(run);
+			run.abort(e);
+			throw e;
+		} catch (SQLException e) {
+			run.abort(e);
+			throw e;
+		} catch (IOException e) {
+			run.abort(e);
+			throw e;
+		} catch (RuntimeException e) {
+			run.abort(e);
+			throw e;
+		} finally {
+			parsers.shutdownNow();
+			writers.shutdownNow();
+			input.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param channel
+	 * @param run
+	 * @param parsers
+	 * @param parsing
+	 * @return the number of rows
+	 * @throws IOException
+	 * @throws InterruptedException
+	 *
+	 * Find the ends of the rows, the line breaks outside of quotes, and hand chunks of whole rows to the parsers.
+	 * A row which is longer than any valid row, e.g. after a stray quote, is reported as bad row and ends at
+	 * the next line break, also within quotes, so the scan does not run through the rest of the file.
+	 */
+	private long planCsv(FileChannel channel, ImportRun run, ExecutorService parsers, List<Future<Void>> parsing)
+			throws IOException, InterruptedException {
+		long size = channel.size();
+		long chunkStart = skipCsvHeader(channel);
+		long rowNumber = 1;
+		long chunkRows = 0;
+		long rowStart = chunkStart;
+		boolean quoted = false;
+		//the current row is malformed and ends at the next line break
+		boolean malformed = false;
+		MappedByteBuffer window = null;
+		long windowStart = 0;
+		for (long position = chunkStart; position < size; position++) {
+			if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+				run.checkAborted();
+				windowStart = position;
+				window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+						Math.min(WINDOW_SIZE, size - windowStart));
+			}
+			byte b = window.get((int) (position - windowStart));
+			if (b == '"' && !malformed) {
+				quoted = !quoted;
+			} else if (b == '\n' && !quoted) {
+				long rowEnd = position + 1;
+				if (malformed) {
+					//the bad row is left out of the chunks
+					if (rowStart > chunkStart) {
+						submit(channel, chunkStart, rowStart, rowNumber, ExportFormat.CSV, run, parsers, parsing);
+					}
+					rowNumber += chunkRows;
+					run.addBadRow(new BadRow(rowNumber, rowStart, "no end of row within " + MAX_CSV_ROW_SIZE
+							+ " bytes", excerpt(channel, rowStart)));
+					rowNumber++;
+					chunkRows = 0;
+					chunkStart = rowEnd;
+					malformed = false;
+				} else {
+					chunkRows++;
+					if (rowEnd - chunkStart >= chunkSize) {
+						submit(channel, chunkStart, rowEnd, rowNumber, ExportFormat.CSV, run, parsers, parsing);
+						rowNumber += chunkRows;
+						chunkRows = 0;
+						chunkStart = rowEnd;
+					}
+				}
+				rowStart = rowEnd;
+			} else if (!malformed && position - rowStart >= MAX_CSV_ROW_SIZE) {
+				malformed = true;
+				if (quoted) {
+					//a line break within the open quote ends the bad row, scan the row again
+					quoted = false;
+					position = rowStart - 1;
+				}
+			}
+		}
+		if (malformed) {
+			//the bad row reaches the end of the file
+			if (rowStart > chunkStart) {
+				submit(channel, chunkStart, rowStart, rowNumber, ExportFormat.CSV, run, parsers, parsing);
+			}
+			rowNumber += chunkRows;
+			run.addBadRow(new BadRow(rowNumber, rowStart, "no end of row within " + MAX_CSV_ROW_SIZE + " bytes",
+					excerpt(channel, rowStart)));
+			rowNumber++;
+		} else if (chunkStart < size) {
+			//the last row may end without a line break
+			submit(channel, chunkStart, size, rowNumber, ExportFormat.CSV, run, parsers, parsing);
+			rowNumber += chunkRows + (rowStart < size ? 1 : 0);
+		}
+		return rowNumber - 1;
+	}
+
+	/**
+	 *
+	 * @param channel
+	 * @param start of a row in the file
+	 * @return the beginning of the row
+	 * @throws IOException
+	 */
+	private static String excerpt(FileChannel channel, long start) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(EXCERPT_LENGTH);
+		channel.read(bytes, start);
+		return new String(bytes.array(), 0, bytes.position(), "UTF-8").trim();
+	}
+
+	/**
+	 *
+	 * @param channel
+	 * @return the offset of the first row, after the header line if the file starts with one
+	 * @throws IOException
+	 */
+	private static long skipCsvHeader(FileChannel channel) throws IOException {
+		ByteBuffer head = ByteBuffer.allocate(256);
+		channel.read(head, 0);
+		head.flip();
+		if (head.remaining() < 2 || head.get(0) != 'I' || head.get(1) != 'D') {
+			return 0;
+		}
+		for (int i = 2; i < head.limit(); i++) {
+			if (head.get(i) == '\n') {
+				return i + 1;
+			}
+		}
+		return channel.size() <= head.limit() ? channel.size() : 0;
+	}
+
+	/**
+	 *
+	 * @param channel
+	 * @param run
+	 * @param parsers
+	 * @param parsing
+	 * @return the number of rows
+	 * @throws IOException if the file is no binary export
+	 * @throws InterruptedException
+	 *
+	 * Follow the lengths of the rows and hand chunks of whole rows to the parsers. A row length which
+	 * points behind the end of the file is reported as bad row and the rest of the file is skipped.
+	 */
+	private long planBinary(FileChannel channel, ImportRun run, ExecutorService parsers,
+			List<Future<Void>> parsing) throws IOException, InterruptedException {
+		long size = channel.size();
+		byte[] magic = BigDataExporter.BINARY_MAGIC;
+		ByteBuffer head = ByteBuffer.allocate(magic.length);
+		channel.read(head, 0);
+		for (int i = 0; i < magic.length; i++) {
+			if (head.position() < magic.length || head.get(i) != magic[i]) {
+				throw new IOException("The file is no binary export of BIG_DATA");
+			}
+		}
+		long position = magic.length;
+		long chunkStart = position;
+		long rowNumber = 1;
+		long chunkRows = 0;
+		MappedByteBuffer window = null;
+		long windowStart = 0;
+		while (position < size) {
+			if (window == null || position + 4 > windowStart + window.limit()) {
+				run.checkAborted();
+				windowStart = position;
+				window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+						Math.min(WINDOW_SIZE, size - windowStart));
+			}
+			if (position + 4 > size) {
+				run.addBadRow(new BadRow(rowNumber + chunkRows, position, "truncated row length", ""));
+				break;
+			}
+			int length = window.getInt((int) (position - windowStart));
+			if (length < 0 || position + 4 + length > size) {
+				run.addBadRow(new BadRow(rowNumber + chunkRows, position, "row length " + length
+						+ " exceeds the file, the rest of the file is skipped", ""));
+				break;
+			}
+			position += 4 + length;
+			chunkRows++;
+			if (position - chunkStart >= chunkSize) {
+				submit(channel, chunkStart, position, rowNumber, ExportFormat.BINARY, run, parsers, parsing);
+				rowNumber += chunkRows;
+				chunkRows = 0;
+				chunkStart = position;
+			}
+		}
+		if (position > chunkStart) {
+			submit(channel, chunkStart, position, rowNumber, ExportFormat.BINARY, run, parsers, parsing);
+			rowNumber += chunkRows;
+		}
+		return rowNumber - 1;
+	}
+
+	private void submit(final FileChannel channel, final long start, final long end, final long firstRowNumber,
+			final ExportFormat format, final ImportRun run, ExecutorService parsers, List<Future<Void>> parsing) {
+		parsing.add(parsers.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws IOException, InterruptedException {
+				try {
+					MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+					new ChunkParser(run, chunk, start, firstRowNumber, format, batchRows).parse();
+					return null;
+				} catch (IOException e) {
+					run.abort(e);
+					throw e;
+				} catch (RuntimeException e) {
+					run.abort(e);
+					throw e;
+				}
+			}
+		}));
+	}
+
+	/**
+	 *
+	 * @param futures
+	 * @param run
+	 * @throws SQLException
+	 * @throws IOException
+	 * @throws InterruptedException
+	 *
+	 * Wait for the tasks and throw the first failure of the run
+	 */
+	private static void await(List<Future<Void>> futures, ImportRun run) throws SQLException, IOException,
+			InterruptedException {
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				//the cause was recorded by the task, the first failure is thrown below
+				run.abort(e.getCause() != null ? e.getCause() : e);
+				break;
+			}
+		}
+		throwFailure(run);
+	}
+
+	/**
+	 *
+	 * @param run
+	 * @throws SQLException
+	 * @throws IOException
+	 * @throws InterruptedException
+	 *
+	 * Throw the first failure of the run if there is one
+	 */
+	private static void throwFailure(ImportRun run) throws SQLException, IOException, InterruptedException {
+		Throwable failure = run.getFailure();
+		if (failure instanceof SQLException) {
+			throw (SQLException) failure;
+		} else if (failure instanceof IOException) {
+			throw (IOException) failure;
+		} else if (failure instanceof InterruptedException) {
+			throw (InterruptedException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		} else if (failure != null) {
+			throw new SQLException("Import failed", failure);
+		}
+	}
+
+	public int getParserThreads() {
+		return parserThreads;
+	}
+
+	/**
+	 *
+	 * @param newParserThreads
+	 */
+	public void setParserThreads(int newParserThreads) {
+		if (newParserThreads < 1) {
+			throw new IllegalArgumentException("Parser threads must be at least 1: " + newParserThreads);
+		}
+		this.parserThreads = newParserThreads;
+	}
+
+	public int getWriterThreads() {
+		return writerThreads;
+	}
+
+	/**
+	 *
+	 * @param newWriterThreads number of parallel connections inserting rows
+	 */
+	public void setWriterThreads(int newWriterThreads) {
+		if (newWriterThreads < 1) {
+			throw new IllegalArgumentException("Writer threads must be at least 1: " + newWriterThreads);
+		}
+		this.writerThreads = newWriterThreads;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 *
+	 * @param newChunkSize bytes per chunk, rows are not split, so chunks are slightly larger
+	 */
+	public void setChunkSize(int newChunkSize) {
+		if (newChunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1: " + newChunkSize);
+		}
+		this.chunkSize = newChunkSize;
+	}
+
+	public int getBatchRows() {
+		return batchRows;
+	}
+
+	/**
+	 *
+	 * @param newBatchRows
+	 */
+	public void setBatchRows(int newBatchRows) {
+		if (newBatchRows < 1) {
+			throw new IllegalArgumentException("Batch rows must be at least 1: " + newBatchRows);
+		}
+		this.batchRows = newBatchRows;
+	}
+
+	public int getMaxRecordedBadRows() {
+		return maxRecordedBadRows;
+	}
+
+	/**
+	 *
+	 * @param newMaxRecordedBadRows bad rows beyond this number are only counted
+	 */
+	public void setMaxRecordedBadRows(int newMaxRecordedBadRows) {
+		if (newMaxRecordedBadRows < 0) {
+			throw new IllegalArgumentException("Recorded bad rows must not be negative: " + newMaxRecordedBadRows);
+		}
+		this.maxRecordedBadRows = newMaxRecordedBadRows;
+	}
+}
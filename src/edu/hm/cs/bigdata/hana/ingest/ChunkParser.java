@@ -0,0 +1,430 @@
+package edu.hm.cs.bigdata.hana.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.sql.Date;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import edu.hm.cs.bigdata.hana.export.BigDataExporter;
+import edu.hm.cs.bigdata.hana.export.ExportFormat;
+import edu.hm.cs.bigdata.hana.persistence.BigData;
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
+
+/**
+ *
+ * Parses the rows of one chunk of a mapped file into batches of BigData. The chunk starts and
+ * ends at row boundaries. Numbers and dates are parsed from the bytes, only the texts become
+ * Strings. Invalid rows are reported as bad rows and skipped.
+ *
+ */
+class ChunkParser {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+	//length of a binary row without the bytes of the texts
+	private static final int MIN_BINARY_ROW_LENGTH = 20;
+	//bytes of a bad row shown in its excerpt
+	private static final int EXCERPT_LENGTH = 100;
+
+	private final ImportRun run;
+	private final ByteBuffer buffer;
+	private final long offset;
+	private final ExportFormat format;
+	private final int batchRows;
+	private final Calendar calendar = Calendar.getInstance();
+	private byte[] scratch = new byte[BigDataGenerator.MAX_LENGTH_TEXT * 4];
+	private int scratchLength;
+	private long rowNumber;
+	private ImportBatch batch;
+	private int lastDateKey = -1;
+	private Date lastDate;
+	private int lastEpochDay = BigDataExporter.NULL_DATE;
+	private String lastString;
+
+	/**
+	 *
+	 * @param run
+	 * @param buffer the bytes of the chunk from position 0 to the limit
+	 * @param offset of the chunk in the file
+	 * @param firstRowNumber number of the first row of the chunk in the file, starting at 1
+	 * @param format CSV or BINARY
+	 * @param batchRows
+	 */
+	ChunkParser(ImportRun run, ByteBuffer buffer, long offset, long firstRowNumber, ExportFormat format,
+			int batchRows) {
+		this.run = run;
+		this.buffer = buffer;
+		this.offset = offset;
+		this.rowNumber = firstRowNumber;
+		this.format = format;
+		this.batchRows = batchRows;
+		this.calendar.setLenient(false);
+	}
+
+	/**
+	 *
+	 * @throws InterruptedException if the import was aborted
+	 *
+	 * Parse all rows of the chunk and hand the batches to the run
+	 */
+	void parse() throws InterruptedException {
+		batch = new ImportBatch(batchRows);
+		int position = 0;
+		int limit = buffer.limit();
+		while (position < limit) {
+			position = format == ExportFormat.BINARY ? parseBinaryRow(position) : parseCsvRow(position);
+			if (batch.isFull()) {
+				flush();
+			}
+		}
+		if (batch.size() > 0) {
+			flush();
+		}
+	}
+
+	private void flush() throws InterruptedException {
+		run.checkAborted();
+		run.addRowsRead(batch.size());
+		run.emit(batch);
+		batch = new ImportBatch(batchRows);
+	}
+
+	/**
+	 *
+	 * @param start
+	 * @return the position after the row
+	 */
+	private int parseCsvRow(int start) {
+		int limit = buffer.limit();
+		//the row ends at the first line break outside of quotes
+		boolean quoted = false;
+		int end = start;
+		while (end < limit) {
+			byte b = buffer.get(end);
+			if (b == '"') {
+				quoted = !quoted;
+			} else if (b == '\n' && !quoted) {
+				break;
+			}
+			end++;
+		}
+		int next = end < limit ? end + 1 : end;
+		if (end > start && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		if (end == start) {
+			//blank lines are no rows
+			return next;
+		}
+
+		BigData bg = new BigData();
+		int position = start;
+		for (int field = 0; field < 5; field++) {
+			boolean quotedField = false;
+			scratchLength = 0;
+			if (position < end && buffer.get(position) == '"') {
+				quotedField = true;
+				position++;
+				boolean closed = false;
+				while (position < end) {
+					byte b = buffer.get(position++);
+					if (b != '"') {
+						append(b);
+					} else if (position < end && buffer.get(position) == '"') {
+						append(b);
+						position++;
+					} else {
+						closed = true;
+						break;
+					}
+				}
+				if (!closed) {
+					return badRow(start, next, "unterminated quote in field " + (field + 1));
+				}
+				if (position < end && buffer.get(position) != ',') {
+					return badRow(start, next, "text after the closing quote of field " + (field + 1));
+				}
+			} else {
+				while (position < end && buffer.get(position) != ',') {
+					append(buffer.get(position++));
+				}
+			}
+			String error = setField(bg, field, quotedField);
+			if (error != null) {
+				return badRow(start, next, error);
+			}
+			if (field < 4) {
+				if (position >= end) {
+					return badRow(start, next, "expected 5 fields, found " + (field + 1));
+				}
+				//skip the comma
+				position++;
+			} else if (position < end) {
+				return badRow(start, next, "more than 5 fields");
+			}
+		}
+		batch.add(bg, rowNumber, offset + start);
+		rowNumber++;
+		return next;
+	}
+
+	/**
+	 *
+	 * @param bg
+	 * @param field index of the CSV field
+	 * @param quoted true if the field was quoted, so an empty text is not NULL
+	 * @return the reason if the value in the scratch buffer is invalid, else null
+	 */
+	private String setField(BigData bg, int field, boolean quoted) {
+		switch (field) {
+		case 0:
+			if (!isInt()) {
+				return "ID is no integer";
+			}
+			bg.setId(parseInt());
+			return null;
+		case 1:
+			bg.setUserName(scratchLength == 0 && !quoted ? null : new String(scratch, 0, scratchLength, UTF8));
+			return checkLength("USER_NAME", bg.getUserName(), BigDataGenerator.MAX_LENGTH_USER_NAME);
+		case 2:
+			if (scratchLength == 0) {
+				bg.setCreatedAt(null);
+				return null;
+			}
+			Date date = parseDate();
+			if (date == null) {
+				return "CREATED_AT is no date yyyy-MM-dd";
+			}
+			bg.setCreatedAt(date);
+			return null;
+		case 3:
+			bg.setText(scratchLength == 0 && !quoted ? null : new String(scratch, 0, scratchLength, UTF8));
+			return checkLength("TEXT", bg.getText(), BigDataGenerator.MAX_LENGTH_TEXT);
+		default:
+			if (!isInt()) {
+				return "NUMBER is no integer";
+			}
+			bg.setNumber(parseInt());
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @param start
+	 * @return the position after the row
+	 */
+	private int parseBinaryRow(int start) {
+		int limit = buffer.limit();
+		int length = buffer.getInt(start);
+		//the planner has checked the lengths, so the row ends within the chunk
+		int next = length < 0 ? limit : (int) Math.min(limit, start + 4L + length);
+		if (length < MIN_BINARY_ROW_LENGTH) {
+			return badRow(start, next, "row length " + length + " is too short");
+		}
+		int end = start + 4 + length;
+		int position = start + 4;
+		BigData bg = new BigData();
+		bg.setId(buffer.getInt(position));
+		position += 4;
+
+		position = readBinaryString(position, end);
+		if (position < 0) {
+			return badRow(start, next, "invalid length of USER_NAME");
+		}
+		bg.setUserName(lastString);
+		String error = checkLength("USER_NAME", bg.getUserName(), BigDataGenerator.MAX_LENGTH_USER_NAME);
+		if (error != null) {
+			return badRow(start, next, error);
+		}
+
+		if (position + 4 > end) {
+			return badRow(start, next, "row ends within CREATED_AT");
+		}
+		bg.setCreatedAt(toDate(buffer.getInt(position)));
+		position += 4;
+
+		position = readBinaryString(position, end);
+		if (position < 0) {
+			return badRow(start, next, "invalid length of TEXT");
+		}
+		bg.setText(lastString);
+		error = checkLength("TEXT", bg.getText(), BigDataGenerator.MAX_LENGTH_TEXT);
+		if (error != null) {
+			return badRow(start, next, error);
+		}
+
+		if (position + 4 != end) {
+			return badRow(start, next, "row length " + length + " does not match its values");
+		}
+		bg.setNumber(buffer.getInt(position));
+		batch.add(bg, rowNumber, offset + start);
+		rowNumber++;
+		return next;
+	}
+
+	/**
+	 *
+	 * @param position of the length of the text
+	 * @param end of the row
+	 * @return the position after the text with the text in lastString, -1 if the length is invalid
+	 */
+	private int readBinaryString(int position, int end) {
+		if (position + 4 > end) {
+			return -1;
+		}
+		int length = buffer.getInt(position);
+		position += 4;
+		if (length == -1) {
+			lastString = null;
+			return position;
+		}
+		if (length < 0 || length > end - position) {
+			return -1;
+		}
+		scratchLength = 0;
+		ensureScratch(length);
+		for (int i = 0; i < length; i++) {
+			scratch[i] = buffer.get(position + i);
+		}
+		lastString = new String(scratch, 0, length, UTF8);
+		return position + length;
+	}
+
+	/**
+	 *
+	 * @param start of the row in the chunk
+	 * @param next position after the row
+	 * @param reason
+	 * @return next
+	 */
+	private int badRow(int start, int next, String reason) {
+		int length = Math.min(EXCERPT_LENGTH, next - start);
+		byte[] excerpt = new byte[format == ExportFormat.BINARY ? 0 : length];
+		for (int i = 0; i < excerpt.length; i++) {
+			excerpt[i] = buffer.get(start + i);
+		}
+		run.addBadRow(new BadRow(rowNumber, offset + start, reason, new String(excerpt, UTF8).trim()));
+		rowNumber++;
+		return next;
+	}
+
+	private static String checkLength(String column, String value, int maxLength) {
+		if (value != null && value.length() > maxLength) {
+			return column + " is longer than " + maxLength + " characters";
+		}
+		return null;
+	}
+
+	private void append(byte b) {
+		ensureScratch(scratchLength + 1);
+		scratch[scratchLength++] = b;
+	}
+
+	private void ensureScratch(int length) {
+		if (length > scratch.length) {
+			byte[] larger = new byte[Math.max(length, scratch.length * 2)];
+			System.arraycopy(scratch, 0, larger, 0, scratchLength);
+			scratch = larger;
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the scratch buffer holds a 32 bit integer
+	 */
+	private boolean isInt() {
+		int i = scratchLength > 0 && scratch[0] == '-' ? 1 : 0;
+		if (i == scratchLength || scratchLength - i > 10) {
+			return false;
+		}
+		long value = 0;
+		for (; i < scratchLength; i++) {
+			byte b = scratch[i];
+			if (b < '0' || b > '9') {
+				return false;
+			}
+			value = value * 10 + (b - '0');
+		}
+		return scratch[0] == '-' ? -value >= Integer.MIN_VALUE : value <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 *
+	 * @return the integer of the scratch buffer, checked by isInt
+	 */
+	private int parseInt() {
+		boolean negative = scratch[0] == '-';
+		long value = 0;
+		for (int i = negative ? 1 : 0; i < scratchLength; i++) {
+			value = value * 10 + (scratch[i] - '0');
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 *
+	 * @return the date yyyy-MM-dd of the scratch buffer in the default time zone like Date.valueOf,
+	 * null if it is invalid
+	 */
+	private Date parseDate() {
+		if (scratchLength != 10 || scratch[4] != '-' || scratch[7] != '-') {
+			return null;
+		}
+		int year = digits(0, 4);
+		int month = digits(5, 2);
+		int day = digits(8, 2);
+		if (year < 0 || month < 0 || day < 0) {
+			return null;
+		}
+		int key = year * 10000 + month * 100 + day;
+		if (key != lastDateKey) {
+			calendar.clear();
+			calendar.set(year, month - 1, day);
+			try {
+				lastDate = new Date(calendar.getTimeInMillis());
+			} catch (IllegalArgumentException e) {
+				return null;
+			}
+			lastDateKey = key;
+		}
+		return lastDate;
+	}
+
+	/**
+	 *
+	 * @param from
+	 * @param count
+	 * @return the number of the digits in the scratch buffer, -1 if one is no digit
+	 */
+	private int digits(int from, int count) {
+		int value = 0;
+		for (int i = from; i < from + count; i++) {
+			byte b = scratch[i];
+			if (b < '0' || b > '9') {
+				return -1;
+			}
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+
+	/**
+	 *
+	 * @param epochDay
+	 * @return the date of the day in the default time zone, null for NULL_DATE
+	 */
+	private Date toDate(int epochDay) {
+		if (epochDay == BigDataExporter.NULL_DATE) {
+			return null;
+		}
+		if (epochDay != lastEpochDay) {
+			TimeZone timeZone = TimeZone.getDefault();
+			long utcMillis = epochDay * MILLIS_PER_DAY;
+			lastDate = new Date(utcMillis - timeZone.getOffset(utcMillis - timeZone.getOffset(utcMillis)));
+			lastEpochDay = epochDay;
+			lastDateKey = -1;
+		}
+		return lastDate;
+	}
+}
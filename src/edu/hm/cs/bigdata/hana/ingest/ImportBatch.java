@@ -0,0 +1,62 @@
+package edu.hm.cs.bigdata.hana.ingest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.hm.cs.bigdata.hana.persistence.BigData;
+
+/**
+ *
+ * Parsed rows handed from a parser to a writer together with where they were found in the file,
+ * so a row the database rejects can be reported as bad row.
+ *
+ */
+class ImportBatch {
+	private final List<BigData> rows;
+	private final long[] rowNumbers;
+	private final long[] offsets;
+
+	/**
+	 *
+	 * @param capacity the maximum number of rows
+	 */
+	ImportBatch(int capacity) {
+		this.rows = new ArrayList<BigData>(capacity);
+		this.rowNumbers = new long[capacity];
+		this.offsets = new long[capacity];
+	}
+
+	/**
+	 *
+	 * @param bg
+	 * @param rowNumber number of the row in the file starting at 1
+	 * @param offset position of the row in the file in bytes
+	 */
+	void add(BigData bg, long rowNumber, long offset) {
+		rowNumbers[rows.size()] = rowNumber;
+		offsets[rows.size()] = offset;
+		rows.add(bg);
+	}
+
+	int size() {
+		return rows.size();
+	}
+
+	boolean isFull() {
+		return rows.size() == rowNumbers.length;
+	}
+
+	List<BigData> getRows() {
+		return rows;
+	}
+
+	/**
+	 *
+	 * @param index
+	 * @param reason
+	 * @return the row at the index as bad row
+	 */
+	BadRow toBadRow(int index, String reason) {
+		return new BadRow(rowNumbers[index], offsets[index], reason, "ID " + rows.get(index).getId());
+	}
+}
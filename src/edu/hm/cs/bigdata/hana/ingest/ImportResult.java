@@ -0,0 +1,92 @@
+package edu.hm.cs.bigdata.hana.ingest;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 
+ * Summary of an import into the table 'BIG_DATA': how many rows were read, written
+ * and skipped, the first skipped rows and how long it took
+ *
+ */
+public class ImportResult {
+	private final long bytes;
+	private final long rowsRead;
+	private final long rowsWritten;
+	private final long badRowCount;
+	private final List<BadRow> badRows;
+	private final long elapsedNanos;
+	
+	/**
+	 * 
+	 * @param bytes
+	 * @param rowsRead
+	 * @param rowsWritten
+	 * @param badRowCount
+	 * @param badRows the recorded bad rows, at most 'maxRecordedBadRows' of the importer
+	 * @param elapsedNanos
+	 */
+	public ImportResult(long bytes, long rowsRead, long rowsWritten, long badRowCount, List<BadRow> badRows, 
+			long elapsedNanos) {
+		this.bytes = bytes;
+		this.rowsRead = rowsRead;
+		this.rowsWritten = rowsWritten;
+		this.badRowCount = badRowCount;
+		this.badRows = Collections.unmodifiableList(badRows);
+		this.elapsedNanos = elapsedNanos;
+	}
+	
+	/**
+	 * 
+	 * @return the size of the file in bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+	
+	/**
+	 * 
+	 * @return the number of rows in the file including the bad rows
+	 */
+	public long getRowsRead() {
+		return rowsRead;
+	}
+	
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+	
+	public long getBadRowCount() {
+		return badRowCount;
+	}
+	
+	/**
+	 * 
+	 * @return the first bad rows in no particular order
+	 */
+	public List<BadRow> getBadRows() {
+		return badRows;
+	}
+	
+	/**
+	 * 
+	 * @return the wall clock time of the import in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000L;
+	}
+	
+	/**
+	 * 
+	 * @return the written rows per second
+	 */
+	public double getRowsPerSecond() {
+		return elapsedNanos == 0 ? 0 : rowsWritten * 1000000000.0 / elapsedNanos;
+	}
+	
+	@Override
+	public String toString() {
+		return rowsWritten + " of " + rowsRead + " rows (" + bytes + " bytes) imported in " + getElapsedMillis() 
+				+ " ms (" + Math.round(getRowsPerSecond()) + " rows/s), " + badRowCount + " bad rows";
+	}
+}
@@ -0,0 +1,219 @@
+package edu.hm.cs.bigdata.hana.ingest;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.hm.cs.bigdata.hana.job.Job;
+import edu.hm.cs.bigdata.hana.persistence.BatchWriteException;
+import edu.hm.cs.bigdata.hana.persistence.BigData;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+
+/**
+ *
+ * State of one import shared by the planner, the parsers and the writers. Parsed batches
+ * wait in a bounded queue, so parsers block while the writers are behind. A batch the database
+ * rejects is written again row by row and the rejected rows are reported as bad rows.
+ *
+ */
+class ImportRun {
+	//marks the end of the batches for one writer
+	private static final ImportBatch END = new ImportBatch(0);
+	//how often blocked threads check if the import was aborted
+	private static final long POLL_MILLIS = 100;
+
+	private final BigDataDAO bigDataDAO;
+	private final Job job;
+	private final BlockingQueue<ImportBatch> queue;
+	private final int maxRecordedBadRows;
+	private final AtomicLong rowsRead = new AtomicLong();
+	private final AtomicLong rowsWritten = new AtomicLong();
+	private final AtomicLong badRowCount = new AtomicLong();
+	private final List<BadRow> badRows = new ArrayList<BadRow>();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	/**
+	 *
+	 * @param bigDataDAO
+	 * @param job to report the progress to and to check for cancellation, null if the import is no job
+	 * @param queueCapacity
+	 * @param maxRecordedBadRows
+	 */
+	ImportRun(BigDataDAO bigDataDAO, Job job, int queueCapacity, int maxRecordedBadRows) {
+		this.bigDataDAO = bigDataDAO;
+		this.job = job;
+		this.queue = new ArrayBlockingQueue<ImportBatch>(queueCapacity);
+		this.maxRecordedBadRows = maxRecordedBadRows;
+	}
+
+	/**
+	 *
+	 * @throws InterruptedException if the import failed elsewhere or was cancelled
+	 */
+	void checkAborted() throws InterruptedException {
+		if (failure.get() != null) {
+			throw new InterruptedException("Import was aborted");
+		}
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedException("Import was interrupted");
+		}
+		if (job != null) {
+			job.checkCancelled();
+		}
+	}
+
+	/**
+	 *
+	 * @param e
+	 *
+	 * Stop the import, the first failure is reported. The waiting batches are dropped, so blocked
+	 * parsers get room and see the failure.
+	 */
+	void abort(Throwable e) {
+		failure.compareAndSet(null, e);
+		queue.clear();
+	}
+
+	/**
+	 *
+	 * @return the first failure or null
+	 */
+	Throwable getFailure() {
+		return failure.get();
+	}
+
+	/**
+	 *
+	 * @param batch
+	 * @throws InterruptedException if the import was aborted while waiting for room in the queue
+	 */
+	void emit(ImportBatch batch) throws InterruptedException {
+		while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+			checkAborted();
+		}
+	}
+
+	/**
+	 *
+	 * @throws InterruptedException
+	 *
+	 * Tell one writer that there are no more batches
+	 */
+	void end() throws InterruptedException {
+		emit(END);
+	}
+
+	/**
+	 *
+	 * @param rows
+	 */
+	void addRowsRead(long rows) {
+		rowsRead.addAndGet(rows);
+	}
+
+	/**
+	 *
+	 * @param badRow
+	 */
+	void addBadRow(BadRow badRow) {
+		rowsRead.incrementAndGet();
+		addRejectedRow(badRow);
+	}
+
+	/**
+	 *
+	 * @param badRow a row which was read already and rejected by the database
+	 */
+	private void addRejectedRow(BadRow badRow) {
+		badRowCount.incrementAndGet();
+		synchronized (badRows) {
+			if (badRows.size() < maxRecordedBadRows) {
+				badRows.add(badRow);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return a writer which inserts the batches of the queue on its own connection until the end
+	 */
+	Callable<Void> writer() {
+		return new Callable<Void>() {
+			@Override
+			public Void call() throws SQLException, InterruptedException {
+				try {
+					while (true) {
+						ImportBatch batch = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+						if (batch == END) {
+							return null;
+						} else if (batch == null) {
+							checkAborted();
+						} else {
+							write(batch);
+						}
+					}
+				} catch (Throwable e) {
+					//also a runtime exception or an error must not leave the parsers waiting for room
+					abort(e);
+					throw e;
+				}
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param batch
+	 * @throws SQLException if the database fails for another reason than a rejected row
+	 * @throws InterruptedException if the import was aborted
+	 *
+	 * Insert the rows of the batch. If a JDBC batch fails, the rows committed before it are kept and
+	 * the others are inserted one by one, so only the rows the database rejects, e.g. duplicate IDs, are lost.
+	 */
+	private void write(ImportBatch batch) throws SQLException, InterruptedException {
+		List<BigData> rows = batch.getRows();
+		int written;
+		try {
+			written = bigDataDAO.insertBigData(rows.iterator());
+		} catch (BatchWriteException e) {
+			written = e.getCommittedRows();
+			for (int i = written; i < rows.size(); i++) {
+				checkAborted();
+				try {
+					written += bigDataDAO.insertBigData(Collections.singletonList(rows.get(i)).iterator());
+				} catch (BatchWriteException rejected) {
+					addRejectedRow(batch.toBadRow(i, "rejected by the database: " + rejected.getCause().getMessage()));
+				}
+			}
+		}
+		rowsWritten.addAndGet(written);
+		if (job != null) {
+			job.addRowsDone(written);
+		}
+	}
+
+	long getRowsRead() {
+		return rowsRead.get();
+	}
+
+	long getRowsWritten() {
+		return rowsWritten.get();
+	}
+
+	long getBadRowCount() {
+		return badRowCount.get();
+	}
+
+	List<BadRow> getBadRows() {
+		synchronized (badRows) {
+			return new ArrayList<BadRow>(badRows);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package edu.hm.cs.bigdata.hana.job;
+
+import java.sql.SQLException;
+import java.util.Random;
+
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.GenerationCheckpoint;
+import edu.hm.cs.bigdata.hana.persistence.UpdateStrategy;
+
+/**
+ * 
+ * Generates the rows with the IDs 1 to 'amountDataset': they are inserted into an empty 
+ * table and updated otherwise. The rows are written in chunks, after every chunk the
+ * progress is reported and the job may be cancelled. Chunks which were written stay.
+ * 
+ * Inserts record a checkpoint per seed after every committed chunk. A generation with the seed
+ * of an incomplete checkpoint continues after its last committed ID instead of starting over,
+ * also after a restart of the server; a larger amount extends a complete generation.
+ * 
+ * The column ID is an INTEGER, so a generation has at most Integer.MAX_VALUE rows (about 2.1 billion).
+ *
+ */
+public class GenerationTask implements Job.Task {
+	/** Number of rows written between two progress reports */
+	public static final int CHUNK_SIZE = 10000;
+	
+	private final BigDataDAO bigDataDAO;
+	private final int amountDataset;
+	private final long seed;
+	private final UpdateStrategy strategy;
+	
+	/**
+	 * 
+	 * @param bigDataDAO
+	 * @param amountDataset the rows with the IDs 1 to amountDataset are generated, at most Integer.MAX_VALUE
+	 * @param seed the rows only depend on the seed and the ID
+	 * @param strategy how existing rows are updated
+	 */
+	public GenerationTask(BigDataDAO bigDataDAO, int amountDataset, long seed, UpdateStrategy strategy) {
+		if (amountDataset < 0) {
+			throw new IllegalArgumentException("Amount of data must not be negative: " + amountDataset);
+		}
+		this.bigDataDAO = bigDataDAO;
+		this.amountDataset = amountDataset;
+		this.seed = seed;
+		this.strategy = strategy;
+	}
+	
+	/**
+	 * 
+	 * @param bigDataDAO
+	 * @return the seed of the generation which was interrupted last, a new random seed if all are complete
+	 * @throws SQLException
+	 */
+	public static long resumableSeed(BigDataDAO bigDataDAO) throws SQLException {
+		GenerationCheckpoint checkpoint = bigDataDAO.findIncompleteCheckpoint();
+		return checkpoint == null ? new Random().nextLong() : checkpoint.getSeed();
+	}
+	
+	@Override
+	public String run(Job job) throws Exception {
+		GenerationCheckpoint checkpoint = bigDataDAO.readCheckpoint(seed);
+		boolean resume = checkpoint != null && checkpoint.getLastId() < amountDataset;
+		if (!resume && bigDataDAO.getAmountDataset() > 0) {
+			return update(job);
+		}
+		
+		checkpoint = bigDataDAO.startGeneration(seed, amountDataset);
+		int resumedAfter = checkpoint.getLastId();
+		job.addRowsDone(resumedAfter);
+		long rows = 0;
+		//long, so the last chunk below Integer.MAX_VALUE does not wrap around
+		for (long firstId = resumedAfter + 1L; firstId <= amountDataset; firstId += CHUNK_SIZE) {
+			job.checkCancelled();
+			int chunk = (int) Math.min(CHUNK_SIZE, amountDataset - firstId + 1);
+			rows += bigDataDAO.insertBigDataRange((int) firstId, chunk, seed).getRows();
+			bigDataDAO.saveCheckpoint(seed, amountDataset, (int) (firstId + chunk - 1));
+			job.addRowsDone(chunk);
+		}
+		return "inserted " + rows + " rows with seed " + seed 
+				+ (resumedAfter > 0 ? " after ID " + resumedAfter : "");
+	}
+	
+	/**
+	 * 
+	 * @param job
+	 * @return the result of the job
+	 * @throws Exception
+	 * 
+	 * Overwrite the rows with new values, updates need no checkpoint because they can be repeated
+	 */
+	private String update(Job job) throws Exception {
+		long rows = 0;
+		for (long firstId = 1; firstId <= amountDataset; firstId += CHUNK_SIZE) {
+			job.checkCancelled();
+			int chunk = (int) Math.min(CHUNK_SIZE, amountDataset - firstId + 1);
+			rows += bigDataDAO.updateBigDataRange((int) firstId, chunk, seed, strategy).getRows();
+			job.addRowsDone(chunk);
+		}
+		return "updated " + rows + " rows with seed " + seed;
+	}
+}
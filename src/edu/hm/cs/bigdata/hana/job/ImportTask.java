@@ -0,0 +1,41 @@
+package edu.hm.cs.bigdata.hana.job;
+
+import java.io.File;
+
+import edu.hm.cs.bigdata.hana.export.ExportFormat;
+import edu.hm.cs.bigdata.hana.ingest.BigDataImporter;
+import edu.hm.cs.bigdata.hana.ingest.ImportResult;
+
+/**
+ * 
+ * Imports a CSV or binary export file into the table 'BIG_DATA'. The total number of rows
+ * is known after the file was split into chunks, the progress counts the rows inserted.
+ *
+ */
+public class ImportTask implements Job.Task {
+	private final BigDataImporter importer;
+	private final File file;
+	private final ExportFormat format;
+	
+	/**
+	 * 
+	 * @param importer
+	 * @param file
+	 * @param format CSV or BINARY
+	 */
+	public ImportTask(BigDataImporter importer, File file, ExportFormat format) {
+		this.importer = importer;
+		this.file = file;
+		this.format = format;
+	}
+	
+	@Override
+	public String run(Job job) throws Exception {
+		ImportResult result = importer.importFile(file, format, job);
+		StringBuilder text = new StringBuilder(result.toString());
+		if (!result.getBadRows().isEmpty()) {
+			text.append(" firstBadRow=").append(result.getBadRows().get(0));
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,346 @@
+package edu.hm.cs.bigdata.hana.job;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * Long running work like generating or analyzing data which runs on the executor of the
+ * JobManager instead of a request thread. The task reports the rows it has done, so
+ * clients can poll the progress, and checks between steps if it was cancelled.
+ *
+ */
+public class Job {
+	private static final Logger LOGGER = LoggerFactory.getLogger(Job.class);
+
+	/**
+	 *
+	 * State of a job, a job which is done never changes its status again
+	 *
+	 */
+	public enum Status {
+		QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+		/**
+		 *
+		 * @return true if the job has ended
+		 */
+		public boolean isDone() {
+			return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+		}
+	}
+
+	/**
+	 *
+	 * Work of a job
+	 *
+	 */
+	public interface Task {
+
+		/**
+		 *
+		 * @param job to report the progress to and to check for cancellation
+		 * @return a short description of the result
+		 * @throws Exception
+		 */
+		String run(Job job) throws Exception;
+	}
+
+	private final long id;
+	private final String type;
+	private volatile long totalRows;
+	private final long createdAt = System.currentTimeMillis();
+	private final AtomicLong rowsDone = new AtomicLong();
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<Runnable>();
+	private Status status = Status.QUEUED;
+	private volatile boolean cancelRequested;
+	private volatile long startedAt;
+	private volatile long finishedAt;
+	private volatile String result;
+	private volatile String error;
+	private volatile Future<?> future;
+
+	/**
+	 *
+	 * @param id
+	 * @param type
+	 * @param totalRows the number of rows the job will process, 0 if unknown
+	 */
+	public Job(long id, String type, long totalRows) {
+		this.id = id;
+		this.type = type;
+		this.totalRows = totalRows;
+	}
+
+	/**
+	 *
+	 * @param task
+	 *
+	 * Run the task and record how it ended, called by the executor
+	 */
+	void run(Task task) {
+		synchronized (this) {
+			if (status != Status.QUEUED || cancelRequested) {
+				return;
+			}
+			status = Status.RUNNING;
+			startedAt = System.currentTimeMillis();
+		}
+		try {
+			String taskResult = task.run(this);
+			finish(cancelRequested ? Status.CANCELLED : Status.SUCCEEDED, taskResult, null);
+		} catch (InterruptedException e) {
+			finish(Status.CANCELLED, null, null);
+		} catch (Exception e) {
+			if (!cancelRequested) {
+				LOGGER.error("Job " + id + " failed", e);
+			}
+			finish(cancelRequested ? Status.CANCELLED : Status.FAILED, null, e.toString());
+		}
+	}
+
+	/**
+	 *
+	 * @param newStatus
+	 * @param newResult
+	 * @param newError
+	 */
+	private void finish(Status newStatus, String newResult, String newError) {
+		synchronized (this) {
+			if (status.isDone()) {
+				return;
+			}
+			status = newStatus;
+			result = newResult;
+			error = newError;
+			finishedAt = System.currentTimeMillis();
+		}
+		for (Runnable listener : listeners) {
+			listener.run();
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the job was not done yet
+	 *
+	 * Ask the job to stop. A queued job ends at once, a running job ends when its task checks
+	 * for cancellation next; its thread is interrupted to end blocking waits.
+	 */
+	public boolean cancel() {
+		boolean queued;
+		synchronized (this) {
+			if (status.isDone()) {
+				return false;
+			}
+			cancelRequested = true;
+			queued = status == Status.QUEUED;
+		}
+		Future<?> running = future;
+		if (running != null) {
+			running.cancel(true);
+		}
+		if (queued) {
+			finish(Status.CANCELLED, null, null);
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param listener
+	 *
+	 * Run the listener when the job is done, at once if it is done already
+	 */
+	public void addDoneListener(Runnable listener) {
+		listeners.add(listener);
+		if (getStatus().isDone() && listeners.remove(listener)) {
+			listener.run();
+		}
+	}
+
+	/**
+	 *
+	 * @param listener
+	 *
+	 * Remove a listener which was added and has not run yet
+	 */
+	public void removeDoneListener(Runnable listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 *
+	 * @param rows
+	 *
+	 * Report rows the task has processed
+	 */
+	public void addRowsDone(long rows) {
+		rowsDone.addAndGet(rows);
+	}
+
+	/**
+	 *
+	 * @throws InterruptedException if the job was cancelled
+	 *
+	 * Called by the task between steps to stop when the job was cancelled
+	 */
+	public void checkCancelled() throws InterruptedException {
+		if (cancelRequested || Thread.currentThread().isInterrupted()) {
+			throw new InterruptedException("Job " + id + " was cancelled");
+		}
+	}
+
+	void setFuture(Future<?> newFuture) {
+		this.future = newFuture;
+	}
+
+	/**
+	 *
+	 * @return the ID the job is polled with, unique within its JobManager
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 *
+	 * @return the kind of work, e.g. generate, import or analyze
+	 */
+	public String getType() {
+		return type;
+	}
+
+	/**
+	 *
+	 * @return the current state of the job
+	 */
+	public synchronized Status getStatus() {
+		return status;
+	}
+
+	/**
+	 *
+	 * @return the number of rows the job will process, 0 if unknown
+	 */
+	public long getTotalRows() {
+		return totalRows;
+	}
+
+	/**
+	 *
+	 * @param newTotalRows
+	 *
+	 * Set the number of rows the job will process when the task learns it, e.g. after reading a file
+	 */
+	public void setTotalRows(long newTotalRows) {
+		this.totalRows = newTotalRows;
+	}
+
+	/**
+	 *
+	 * @return the number of rows the task has reported as processed
+	 */
+	public long getRowsDone() {
+		return rowsDone.get();
+	}
+
+	/**
+	 *
+	 * @return the time the job was submitted in ms since the epoch
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	/**
+	 *
+	 * @return the time the task started in ms since the epoch, 0 if it is still queued
+	 */
+	public long getStartedAt() {
+		return startedAt;
+	}
+
+	/**
+	 *
+	 * @return the time the job ended in ms since the epoch, 0 if it is not done
+	 */
+	public long getFinishedAt() {
+		return finishedAt;
+	}
+
+	/**
+	 *
+	 * @return the description of the result of a succeeded job, null otherwise
+	 */
+	public String getResult() {
+		return result;
+	}
+
+	/**
+	 *
+	 * @return the error of a failed job, null otherwise
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 *
+	 * @return the time the task has been running in ms
+	 */
+	public long getElapsedMillis() {
+		long started = startedAt;
+		if (started == 0) {
+			return 0;
+		}
+		long finished = finishedAt;
+		return (finished == 0 ? System.currentTimeMillis() : finished) - started;
+	}
+
+	/**
+	 *
+	 * @return the rows processed per second since the task started
+	 */
+	public double getRowsPerSecond() {
+		long elapsed = getElapsedMillis();
+		return elapsed == 0 ? 0 : getRowsDone() * 1000.0 / elapsed;
+	}
+
+	/**
+	 *
+	 * @return the estimated time in ms until the task is done at the current rate, -1 if unknown
+	 */
+	public long getEtaMillis() {
+		if (getStatus().isDone()) {
+			return 0;
+		}
+		double rate = getRowsPerSecond();
+		if (totalRows == 0 || rate == 0) {
+			return -1;
+		}
+		return Math.round(Math.max(0, totalRows - getRowsDone()) * 1000 / rate);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append("id=").append(id).append(" type=").append(type).append(" status=").append(getStatus())
+				.append(" rows=").append(getRowsDone()).append('/').append(totalRows)
+				.append(" rowsPerSecond=").append(Math.round(getRowsPerSecond()))
+				.append(" etaMillis=").append(getEtaMillis())
+				.append(" elapsedMillis=").append(getElapsedMillis());
+		if (result != null) {
+			text.append(" result=").append(result);
+		}
+		if (error != null) {
+			text.append(" error=").append(error);
+		}
+		return text.toString();
+	}
+}
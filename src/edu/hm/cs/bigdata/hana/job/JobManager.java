@@ -0,0 +1,159 @@
+package edu.hm.cs.bigdata.hana.job;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Runs jobs on its own executor and keeps them for polling. The executor has a fixed number of 
+ * daemon threads, further jobs wait in its queue, so no more jobs than threads compete for 
+ * connections and the table at once. Jobs which are done are forgotten when more than 
+ * 'maxRetainedJobs' of them are kept.
+ *
+ */
+public class JobManager {
+	/** Default number of jobs running at once */
+	public static final int DEFAULT_THREADS = 2;
+	/** Default number of jobs which are done and are still kept for polling */
+	public static final int DEFAULT_MAX_RETAINED_JOBS = 100;
+
+	private final ExecutorService executor;
+	private final int maxRetainedJobs;
+	private final ConcurrentSkipListMap<Long, Job> jobs = new ConcurrentSkipListMap<Long, Job>();
+	private final AtomicLong nextId = new AtomicLong(1);
+
+	/**
+	 * Creates a manager with the default number of threads and retained jobs
+	 */
+	public JobManager() {
+		this(DEFAULT_THREADS, DEFAULT_MAX_RETAINED_JOBS);
+	}
+
+	/**
+	 *
+	 * @param threads number of jobs running at once
+	 * @param maxRetainedJobs
+	 */
+	public JobManager(int threads, int maxRetainedJobs) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed: " + threads);
+		}
+		if (maxRetainedJobs < 0) {
+			throw new IllegalArgumentException("Retained jobs must not be negative: " + maxRetainedJobs);
+		}
+		this.executor = createExecutor(threads);
+		this.maxRetainedJobs = maxRetainedJobs;
+	}
+
+	/**
+	 *
+	 * @param threads
+	 * @return a fixed pool of daemon threads
+	 */
+	private static ExecutorService createExecutor(int threads) {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "bigdata-job-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 *
+	 * @param type
+	 * @param totalRows the number of rows the job will process, 0 if unknown
+	 * @param task
+	 * @return the queued job
+	 */
+	public Job submit(String type, long totalRows, final Job.Task task) {
+		final Job job = new Job(nextId.getAndIncrement(), type, totalRows);
+		jobs.put(job.getId(), job);
+		removeDoneJobs();
+		job.setFuture(executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				job.run(task);
+			}
+		}));
+		return job;
+	}
+
+	/**
+	 *
+	 * @param id
+	 * @return the job or null if it is unknown or was forgotten
+	 */
+	public Job getJob(long id) {
+		return jobs.get(id);
+	}
+
+	/**
+	 *
+	 * @return all kept jobs, the oldest first
+	 */
+	public List<Job> getJobs() {
+		return new ArrayList<Job>(jobs.values());
+	}
+
+	/**
+	 *
+	 * @param id
+	 * @return the job or null if it is unknown
+	 *
+	 * Cancel the job if it is not done yet
+	 */
+	public Job cancel(long id) {
+		Job job = jobs.get(id);
+		if (job != null) {
+			job.cancel();
+		}
+		return job;
+	}
+
+	/**
+	 * Forget the oldest jobs which are done above 'maxRetainedJobs'
+	 */
+	private void removeDoneJobs() {
+		int done = 0;
+		for (Job job : jobs.values()) {
+			if (job.getStatus().isDone()) {
+				done++;
+			}
+		}
+		Iterator<Map.Entry<Long, Job>> it = jobs.entrySet().iterator();
+		while (done > maxRetainedJobs && it.hasNext()) {
+			if (it.next().getValue().getStatus().isDone()) {
+				it.remove();
+				done--;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param timeoutMillis
+	 * @throws InterruptedException
+	 *
+	 * Cancel all jobs and wait until their threads have stopped
+	 */
+	public void shutdown(long timeoutMillis) throws InterruptedException {
+		for (Job job : jobs.values()) {
+			job.cancel();
+		}
+		executor.shutdownNow();
+		executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+}
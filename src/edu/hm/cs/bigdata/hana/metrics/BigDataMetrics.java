@@ -0,0 +1,241 @@
+package edu.hm.cs.bigdata.hana.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import edu.hm.cs.bigdata.hana.util.LatencyHistogram;
+
+/**
+ * 
+ * Registry of all runtime metrics of the application: connection acquisition from the
+ * data source, the stages of every DAO operation and the servlet requests. Recording 
+ * only touches atomic counters, so it can stay enabled under load. The metrics can be 
+ * read as plain text or through JMX. The current batch size and commit interval of the
+ * writes are kept as gauges when they are chosen adaptively.
+ *
+ */
+public class BigDataMetrics implements BigDataMetricsMBean {
+	/** Name under which the metrics are registered at the platform MBean server */
+	public static final String OBJECT_NAME = "edu.hm.cs.bigdata.hana:type=BigDataMetrics";
+	
+	private final LatencyHistogram connectionAcquisition = new LatencyHistogram();
+	private final AtomicLong connectionErrors = new AtomicLong();
+	private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<String, OperationMetrics>();
+	private final ConcurrentMap<String, RequestMetrics> requests = new ConcurrentHashMap<String, RequestMetrics>();
+	private final AtomicLong writeBatchSize = new AtomicLong();
+	private final AtomicLong writeCommitInterval = new AtomicLong();
+	private final AtomicLong writeRowsPerSecond = new AtomicLong();
+	private final AtomicLong writeBatchDecreases = new AtomicLong();
+	private final AtomicLong writeLockConflicts = new AtomicLong();
+	
+	/**
+	 * 
+	 * @param nanos
+	 */
+	public void recordConnectionAcquisition(long nanos) {
+		connectionAcquisition.record(nanos);
+	}
+	
+	/**
+	 * Count a failed connection acquisition
+	 */
+	public void recordConnectionError() {
+		connectionErrors.incrementAndGet();
+	}
+	
+	/**
+	 * 
+	 * @param batchSize
+	 * @param commitInterval
+	 * @param rowsPerSecond throughput of the last measured batches
+	 * @param decreases how often the batch size was reduced so far
+	 * @param lockConflicts how many writes failed on a lock so far
+	 * 
+	 * Set the gauges of the adaptively chosen write batch size
+	 */
+	public void recordWriteBatching(int batchSize, int commitInterval, double rowsPerSecond, long decreases, 
+			long lockConflicts) {
+		writeBatchSize.set(batchSize);
+		writeCommitInterval.set(commitInterval);
+		writeRowsPerSecond.set(Math.round(rowsPerSecond));
+		writeBatchDecreases.set(decreases);
+		writeLockConflicts.set(lockConflicts);
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 * @return the metrics of the DAO operation, created on first use
+	 */
+	public OperationMetrics operation(String name) {
+		OperationMetrics metrics = operations.get(name);
+		if (metrics == null) {
+			OperationMetrics created = new OperationMetrics(name);
+			metrics = operations.putIfAbsent(name, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 * @return the metrics of the request type, created on first use
+	 */
+	public RequestMetrics request(String name) {
+		RequestMetrics metrics = requests.get(name);
+		if (metrics == null) {
+			RequestMetrics created = new RequestMetrics(name);
+			metrics = requests.putIfAbsent(name, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+	
+	/**
+	 * 
+	 * @return the histogram of the time to get a connection from the data source
+	 */
+	public LatencyHistogram getConnectionAcquisition() {
+		return connectionAcquisition;
+	}
+	
+	@Override
+	public long getConnectionCount() {
+		return connectionAcquisition.getCount();
+	}
+	
+	@Override
+	public long getConnectionErrors() {
+		return connectionErrors.get();
+	}
+	
+	@Override
+	public double getConnectionMeanMillis() {
+		return connectionAcquisition.getMean() / 1000000.0;
+	}
+	
+	@Override
+	public double getConnectionP99Millis() {
+		return connectionAcquisition.getValueAtPercentile(99) / 1000000.0;
+	}
+	
+	@Override
+	public long getWriteBatchSize() {
+		return writeBatchSize.get();
+	}
+	
+	@Override
+	public long getWriteCommitInterval() {
+		return writeCommitInterval.get();
+	}
+	
+	@Override
+	public String[] getOperationNames() {
+		return new TreeMap<String, OperationMetrics>(operations).keySet().toArray(new String[0]);
+	}
+	
+	@Override
+	public String[] getRequestNames() {
+		return new TreeMap<String, RequestMetrics>(requests).keySet().toArray(new String[0]);
+	}
+	
+	@Override
+	public String dump() {
+		StringBuilder dump = new StringBuilder();
+		dump.append("connection.acquire ").append(connectionAcquisition.summary()).append(" errors=")
+				.append(connectionErrors.get()).append('\n');
+		if (writeBatchSize.get() > 0) {
+			dump.append("write.batching batchSize=").append(writeBatchSize.get()).append(" commitInterval=")
+					.append(writeCommitInterval.get()).append(" rowsPerSecond=").append(writeRowsPerSecond.get())
+					.append(" decreases=").append(writeBatchDecreases.get()).append(" lockConflicts=")
+					.append(writeLockConflicts.get()).append('\n');
+		}
+		for (Map.Entry<String, OperationMetrics> entry : new TreeMap<String, OperationMetrics>(operations).entrySet()) {
+			OperationMetrics metrics = entry.getValue();
+			String name = "dao." + entry.getKey();
+			appendStage(dump, name + ".prepare", metrics.getPrepare());
+			appendStage(dump, name + ".execute", metrics.getExecute());
+			appendStage(dump, name + ".fetch", metrics.getFetch());
+			dump.append(name).append(" rows=").append(metrics.getRows()).append(" rowsPerSecond=")
+					.append(Math.round(metrics.getRowsPerSecond())).append(" errors=").append(metrics.getErrors())
+					.append('\n');
+		}
+		for (Map.Entry<String, RequestMetrics> entry : new TreeMap<String, RequestMetrics>(requests).entrySet()) {
+			RequestMetrics metrics = entry.getValue();
+			String name = "request." + entry.getKey();
+			appendStage(dump, name + ".total", metrics.getTotal());
+			appendStage(dump, name + ".database", metrics.getDatabase());
+			appendStage(dump, name + ".render", metrics.getRender());
+			dump.append(name).append(" errors=").append(metrics.getErrors()).append('\n');
+		}
+		return dump.toString();
+	}
+	
+	/**
+	 * 
+	 * @param dump
+	 * @param name
+	 * @param histogram
+	 * 
+	 * Append one line for the stage if it recorded anything
+	 */
+	private static void appendStage(StringBuilder dump, String name, LatencyHistogram histogram) {
+		if (histogram.getCount() > 0) {
+			dump.append(name).append(' ').append(histogram.summary()).append('\n');
+		}
+	}
+	
+	@Override
+	public void reset() {
+		connectionAcquisition.reset();
+		connectionErrors.set(0);
+		for (OperationMetrics metrics : operations.values()) {
+			metrics.reset();
+		}
+		for (RequestMetrics metrics : requests.values()) {
+			metrics.reset();
+		}
+	}
+	
+	/**
+	 * 
+	 * @throws JMException
+	 * 
+	 * Register the metrics at the platform MBean server, a former registration is replaced
+	 */
+	public void registerMBean() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+		server.registerMBean(this, name);
+	}
+	
+	/**
+	 * 
+	 * @throws JMException
+	 * 
+	 * Remove the metrics from the platform MBean server
+	 */
+	public void unregisterMBean() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if (server.isRegistered(name)) {
+			server.unregisterMBean(name);
+		}
+	}
+}
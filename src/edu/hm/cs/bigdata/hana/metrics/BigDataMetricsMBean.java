@@ -0,0 +1,68 @@
+package edu.hm.cs.bigdata.hana.metrics;
+
+/**
+ * 
+ * JMX view of the BigDataMetrics. Times are in milliseconds.
+ *
+ */
+public interface BigDataMetricsMBean {
+	
+	/**
+	 * 
+	 * @return the number of connections taken from the data source
+	 */
+	long getConnectionCount();
+	
+	/**
+	 * 
+	 * @return the number of failed attempts to get a connection
+	 */
+	long getConnectionErrors();
+	
+	/**
+	 * 
+	 * @return the mean time to get a connection from the data source
+	 */
+	double getConnectionMeanMillis();
+	
+	/**
+	 * 
+	 * @return the 99th percentile of the time to get a connection
+	 */
+	double getConnectionP99Millis();
+	
+	/**
+	 * 
+	 * @return the current adaptive write batch size or 0 if the batch size is fixed
+	 */
+	long getWriteBatchSize();
+	
+	/**
+	 * 
+	 * @return the current adaptive commit interval or 0 if the commit interval is fixed
+	 */
+	long getWriteCommitInterval();
+	
+	/**
+	 * 
+	 * @return the names of all operations with recorded values
+	 */
+	String[] getOperationNames();
+	
+	/**
+	 * 
+	 * @return the names of all request types with recorded values
+	 */
+	String[] getRequestNames();
+	
+	/**
+	 * 
+	 * @return all metrics as plain text, one stage per line
+	 */
+	String dump();
+	
+	/**
+	 * Remove all recorded values
+	 */
+	void reset();
+}
@@ -0,0 +1,142 @@
+package edu.hm.cs.bigdata.hana.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.hm.cs.bigdata.hana.util.LatencyHistogram;
+
+/**
+ * 
+ * Timings of one DAO operation split into the stages of a JDBC call: preparing the statement,
+ * executing it and fetching the result set (including the time the caller spends per row).
+ * Also counts the rows read or written and the failed calls. All counters are lock free.
+ *
+ */
+public class OperationMetrics {
+	private final String name;
+	private final LatencyHistogram prepare = new LatencyHistogram();
+	private final LatencyHistogram execute = new LatencyHistogram();
+	private final LatencyHistogram fetch = new LatencyHistogram();
+	private final AtomicLong rows = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	
+	/**
+	 * 
+	 * @param name
+	 */
+	public OperationMetrics(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * 
+	 * @param nanos
+	 * 
+	 * Record the time of preparing the statement
+	 */
+	public void recordPrepare(long nanos) {
+		prepare.record(nanos);
+	}
+	
+	/**
+	 * 
+	 * @param nanos
+	 * 
+	 * Record the time of executing the statement
+	 */
+	public void recordExecute(long nanos) {
+		execute.record(nanos);
+	}
+	
+	/**
+	 * 
+	 * @param nanos
+	 * 
+	 * Record the time of reading the result set
+	 */
+	public void recordFetch(long nanos) {
+		fetch.record(nanos);
+	}
+	
+	/**
+	 * 
+	 * @param count the number of rows read or written
+	 */
+	public void addRows(long count) {
+		rows.addAndGet(count);
+	}
+	
+	/**
+	 * Count one failed call
+	 */
+	public void recordError() {
+		errors.incrementAndGet();
+	}
+	
+	/**
+	 * 
+	 * @return the name of the operation
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * 
+	 * @return the latencies of preparing the statement
+	 */
+	public LatencyHistogram getPrepare() {
+		return prepare;
+	}
+	
+	/**
+	 * 
+	 * @return the latencies of executing the statement
+	 */
+	public LatencyHistogram getExecute() {
+		return execute;
+	}
+	
+	/**
+	 * 
+	 * @return the latencies of reading the result set
+	 */
+	public LatencyHistogram getFetch() {
+		return fetch;
+	}
+	
+	/**
+	 * 
+	 * @return the number of rows read or written
+	 */
+	public long getRows() {
+		return rows.get();
+	}
+	
+	/**
+	 * 
+	 * @return the number of failed calls
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+	
+	/**
+	 * 
+	 * @return the rows per second of database time, i.e. execute and fetch time
+	 */
+	public double getRowsPerSecond() {
+		long nanos = execute.getSum() + fetch.getSum();
+		return nanos == 0 ? 0 : rows.get() * 1000000000.0 / nanos;
+	}
+	
+	/**
+	 * Remove all recorded values
+	 */
+	public void reset() {
+		prepare.reset();
+		execute.reset();
+		fetch.reset();
+		rows.set(0);
+		errors.set(0);
+	}
+}
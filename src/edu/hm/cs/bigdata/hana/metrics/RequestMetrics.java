@@ -0,0 +1,94 @@
+package edu.hm.cs.bigdata.hana.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.hm.cs.bigdata.hana.util.LatencyHistogram;
+
+/**
+ * 
+ * Latency of servlet requests split into the time spent in the database and the time
+ * spent rendering the response
+ *
+ */
+public class RequestMetrics {
+	private final String name;
+	private final LatencyHistogram total = new LatencyHistogram();
+	private final LatencyHistogram database = new LatencyHistogram();
+	private final LatencyHistogram render = new LatencyHistogram();
+	private final AtomicLong errors = new AtomicLong();
+	
+	/**
+	 * 
+	 * @param name
+	 */
+	public RequestMetrics(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * 
+	 * @param totalNanos
+	 * @param databaseNanos
+	 * @param failed
+	 * 
+	 * Count one request, all time which is not database time is render time
+	 */
+	public void record(long totalNanos, long databaseNanos, boolean failed) {
+		total.record(totalNanos);
+		database.record(databaseNanos);
+		render.record(totalNanos - databaseNanos);
+		if (failed) {
+			errors.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * 
+	 * @return the name of the request type
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * 
+	 * @return the latencies of the whole requests
+	 */
+	public LatencyHistogram getTotal() {
+		return total;
+	}
+	
+	/**
+	 * 
+	 * @return the time of the requests spent in the database
+	 */
+	public LatencyHistogram getDatabase() {
+		return database;
+	}
+	
+	/**
+	 * 
+	 * @return the time of the requests spent rendering the response
+	 */
+	public LatencyHistogram getRender() {
+		return render;
+	}
+	
+	/**
+	 * 
+	 * @return the number of failed requests
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+	
+	/**
+	 * Remove all recorded values
+	 */
+	public void reset() {
+		total.reset();
+		database.reset();
+		render.reset();
+		errors.set(0);
+	}
+}
@@ -0,0 +1,250 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+
+/**
+ *
+ * Chooses the JDBC batch size and the commit interval of the writes of the BigDataDAO at runtime.
+ * The throughput of every few batches is compared with the best one since the direction last
+ * turned: while it does not drop below it the size keeps moving by a fixed step in the same
+ * direction, otherwise the direction turns (hill climbing). Comparing with the best instead of the
+ * step before also turns on a flat slope, where every single step loses less than the tolerance.
+ * Batches slower than 'maxBatchMillis', failures and lock conflicts halve the size
+ * (multiplicative decrease), after which it climbs again from there. The commit interval follows
+ * the batch size at a fixed number of batches per transaction.
+ *
+ * The sizer is shared by all writers of a DAO and may be called from several threads.
+ *
+ */
+public class AdaptiveBatchSizer {
+	/** Default smallest batch size */
+	public static final int DEFAULT_MIN_BATCH_SIZE = 50;
+	/** Default largest batch size */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 10000;
+	/** Default longest time in ms one batch may take before the size is halved */
+	public static final long DEFAULT_MAX_BATCH_MILLIS = 1000;
+	//batches measured before the size moves, so one slow round trip does not turn the direction
+	private static final int BATCHES_PER_STEP = 3;
+	//a drop of the throughput smaller than this counts as noise
+	private static final double TOLERANCE = 0.05;
+	//the range of batch sizes is crossed in about this many steps
+	private static final int STEPS = 32;
+	//HANA error codes of a lock wait timeout and a deadlock
+	private static final int HANA_LOCK_WAIT_TIMEOUT = 131;
+	private static final int HANA_DEADLOCK = 133;
+
+	private final int minBatchSize;
+	private final int maxBatchSize;
+	private final int batchesPerCommit;
+	private final long maxBatchNanos;
+	private final int step;
+	private int batchSize;
+	private int direction = 1;
+	//highest throughput since the direction last turned, 0 after a decrease
+	private double bestRowsPerSecond;
+	private double rowsPerSecond;
+	private long windowRows;
+	private long windowNanos;
+	private int windowBatches;
+	private long increases;
+	private long decreases;
+	private long lockConflicts;
+
+	/**
+	 *
+	 * Creates a sizer starting at the defaults of the BigDataDAO
+	 */
+	public AdaptiveBatchSizer() {
+		this(DEFAULT_MIN_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE, BigDataDAO.DEFAULT_BATCH_SIZE,
+				BigDataDAO.DEFAULT_COMMIT_INTERVAL / BigDataDAO.DEFAULT_BATCH_SIZE, DEFAULT_MAX_BATCH_MILLIS);
+	}
+
+	/**
+	 *
+	 * @param minBatchSize
+	 * @param maxBatchSize
+	 * @param initialBatchSize
+	 * @param batchesPerCommit the commit interval is batchesPerCommit * batch size
+	 * @param maxBatchMillis longest time one batch may take, larger batches hold locks too long
+	 */
+	public AdaptiveBatchSizer(int minBatchSize, int maxBatchSize, int initialBatchSize, int batchesPerCommit,
+			long maxBatchMillis) {
+		if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+			throw new IllegalArgumentException("Batch sizes must satisfy 1 <= min <= max: " + minBatchSize + ", "
+					+ maxBatchSize);
+		}
+		if (batchesPerCommit < 1) {
+			throw new IllegalArgumentException("At least one batch per commit is needed: " + batchesPerCommit);
+		}
+		if (maxBatchMillis < 1) {
+			throw new IllegalArgumentException("Maximum batch time must be at least 1 ms: " + maxBatchMillis);
+		}
+		this.minBatchSize = minBatchSize;
+		this.maxBatchSize = maxBatchSize;
+		this.batchesPerCommit = batchesPerCommit;
+		this.maxBatchNanos = maxBatchMillis * 1000000L;
+		this.step = Math.max(1, (maxBatchSize - minBatchSize) / STEPS);
+		this.batchSize = clamp(initialBatchSize);
+	}
+
+	private int clamp(long size) {
+		return (int) Math.max(minBatchSize, Math.min(maxBatchSize, size));
+	}
+
+	/**
+	 *
+	 * @param rows
+	 * @param nanos time to execute the batch
+	 *
+	 * Measure one executed batch, the size moves after every BATCHES_PER_STEP batches.
+	 * The short last batch of a write is not representative and ignored.
+	 */
+	public synchronized void recordBatch(int rows, long nanos) {
+		if (rows < batchSize / 2 || nanos <= 0) {
+			return;
+		}
+		windowRows += rows;
+		windowNanos += nanos;
+		if (++windowBatches < BATCHES_PER_STEP) {
+			return;
+		}
+		double measured = windowRows * 1e9 / windowNanos;
+		long nanosPerBatch = windowNanos / windowBatches;
+		windowRows = 0;
+		windowNanos = 0;
+		windowBatches = 0;
+		rowsPerSecond = measured;
+		if (nanosPerBatch > maxBatchNanos) {
+			decrease();
+			return;
+		}
+		if (bestRowsPerSecond > 0 && measured < bestRowsPerSecond * (1 - TOLERANCE)) {
+			//the steps since the best made it worse, go back
+			direction = -direction;
+			bestRowsPerSecond = measured;
+		} else {
+			bestRowsPerSecond = Math.max(bestRowsPerSecond, measured);
+		}
+		int newBatchSize = clamp((long) batchSize + direction * step);
+		if (newBatchSize == batchSize) {
+			//at the end of the range, which may be the best size as well
+			direction = -direction;
+			bestRowsPerSecond = measured;
+			newBatchSize = clamp((long) batchSize + direction * step);
+		}
+		if (newBatchSize > batchSize) {
+			increases++;
+		} else if (newBatchSize < batchSize) {
+			decreases++;
+		}
+		batchSize = newBatchSize;
+	}
+
+	/**
+	 *
+	 * @param e
+	 *
+	 * Halve the batch size after a failed write, lock conflicts are counted separately
+	 */
+	public synchronized void recordFailure(SQLException e) {
+		if (isLockConflict(e)) {
+			lockConflicts++;
+		}
+		decrease();
+	}
+
+	/**
+	 * Halve the batch size and climb again from there with a new baseline
+	 */
+	private void decrease() {
+		batchSize = clamp(batchSize / 2);
+		decreases++;
+		direction = 1;
+		bestRowsPerSecond = 0;
+		windowRows = 0;
+		windowNanos = 0;
+		windowBatches = 0;
+	}
+
+	/**
+	 *
+	 * @param e
+	 * @return true if the exception or one of its causes is a lock wait timeout, a deadlock or a serialization failure
+	 */
+	static boolean isLockConflict(SQLException e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLTransactionRollbackException || cause instanceof SQLTimeoutException) {
+				return true;
+			}
+			if (cause instanceof SQLException) {
+				SQLException sqlException = (SQLException) cause;
+				String state = sqlException.getSQLState();
+				if (state != null && state.startsWith("40") || sqlException.getErrorCode() == HANA_LOCK_WAIT_TIMEOUT
+						|| sqlException.getErrorCode() == HANA_DEADLOCK) {
+					return true;
+				}
+			}
+			if (cause.getCause() == cause) {
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @return the number of rows of the next batch
+	 */
+	public synchronized int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 *
+	 * @return the number of rows written before the transaction is committed
+	 */
+	public synchronized int getCommitInterval() {
+		return batchSize * batchesPerCommit;
+	}
+
+	/**
+	 *
+	 * @return the throughput of the last measured batches
+	 */
+	public synchronized double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	/**
+	 *
+	 * @return the number of times the batch size grew
+	 */
+	public synchronized long getIncreases() {
+		return increases;
+	}
+
+	/**
+	 *
+	 * @return the number of times the batch size shrank, by a step or by halving it
+	 */
+	public synchronized long getDecreases() {
+		return decreases;
+	}
+
+	/**
+	 *
+	 * @return the number of failed writes caused by a lock wait timeout or a deadlock
+	 */
+	public synchronized long getLockConflicts() {
+		return lockConflicts;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "batchSize=" + batchSize + " commitInterval=" + getCommitInterval() + " rowsPerSecond="
+				+ Math.round(rowsPerSecond) + " increases=" + increases + " decreases=" + decreases
+				+ " lockConflicts=" + lockConflicts;
+	}
+}
@@ -0,0 +1,182 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 
+ * Cache for the results of the analyses on the table 'BIG_DATA'. Every result is stored 
+ * together with the data version it was computed for. As long as no write went through
+ * the BigDataDAO the version stays the same and the result is served without touching 
+ * the database. An optional time to live covers writers outside of this application.
+ *
+ */
+public class AnalyticsCache {
+	/** Default maximum number of cached results */
+	public static final int DEFAULT_MAX_ENTRIES = 64;
+	
+	/**
+	 * 
+	 * Computes a result on a cache miss
+	 *
+	 * @param <T> type of the result
+	 */
+	public interface Loader<T> {
+		
+		/**
+		 * 
+		 * @return the computed result
+		 * @throws SQLException
+		 */
+		T load() throws SQLException;
+	}
+	
+	private static final class Entry {
+		private final long version;
+		private final long createdAt;
+		private final Object value;
+		
+		private Entry(long version, long createdAt, Object value) {
+			this.version = version;
+			this.createdAt = createdAt;
+			this.value = value;
+		}
+	}
+	
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	private final long ttlNanos;
+	private final int maxEntries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	
+	/**
+	 * Creates a cache without time to live which is only invalidated by new data versions
+	 */
+	public AnalyticsCache() {
+		this(0, DEFAULT_MAX_ENTRIES);
+	}
+	
+	/**
+	 * 
+	 * @param ttlMillis maximum age of a result in milliseconds, 0 for no limit
+	 * @param maxEntries maximum number of cached results
+	 */
+	public AnalyticsCache(long ttlMillis, int maxEntries) {
+		if (ttlMillis < 0) {
+			throw new IllegalArgumentException("Time to live must not be negative: " + ttlMillis);
+		}
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Cache needs at least one entry: " + maxEntries);
+		}
+		this.ttlNanos = ttlMillis * 1000000L;
+		this.maxEntries = maxEntries;
+	}
+	
+	/**
+	 * 
+	 * @param key
+	 * @param version
+	 * @param loader
+	 * @return the cached result for key and version or the result of the loader which is cached
+	 * @throws SQLException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(String key, long version, Loader<T> loader) throws SQLException {
+		long now = System.nanoTime();
+		Entry entry = entries.get(key);
+		if (entry != null && isValid(entry, version, now)) {
+			hits.incrementAndGet();
+			return (T) entry.value;
+		}
+		
+		misses.incrementAndGet();
+		T value = loader.load();
+		if (!entries.containsKey(key) && entries.size() >= maxEntries) {
+			evict(version, now);
+		}
+		entries.put(key, new Entry(version, now, value));
+		return value;
+	}
+	
+	/**
+	 * 
+	 * @param entry
+	 * @param version
+	 * @param now
+	 * @return true if the entry was computed for the version and is not expired
+	 */
+	private boolean isValid(Entry entry, long version, long now) {
+		return entry.version == version && (ttlNanos == 0 || now - entry.createdAt < ttlNanos);
+	}
+	
+	/**
+	 * 
+	 * @param version
+	 * @param now
+	 * 
+	 * Remove all outdated entries, or the oldest entry if all of them are still valid
+	 */
+	private void evict(long version, long now) {
+		String oldestKey = null;
+		long oldestCreatedAt = Long.MAX_VALUE;
+		boolean removed = false;
+		for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Entry> mapEntry = it.next();
+			Entry entry = mapEntry.getValue();
+			if (!isValid(entry, version, now)) {
+				it.remove();
+				removed = true;
+			} else if (entry.createdAt < oldestCreatedAt) {
+				oldestCreatedAt = entry.createdAt;
+				oldestKey = mapEntry.getKey();
+			}
+		}
+		if (!removed && oldestKey != null) {
+			entries.remove(oldestKey);
+		}
+	}
+	
+	/**
+	 * Remove all cached results
+	 */
+	public void invalidateAll() {
+		entries.clear();
+	}
+	
+	/**
+	 * 
+	 * @return the number of cached results
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * 
+	 * @return the number of requests served from the cache
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * 
+	 * @return the number of requests which had to be computed
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+	
+	/**
+	 * 
+	 * @return the share of requests served from the cache between 0.0 and 1.0
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+}
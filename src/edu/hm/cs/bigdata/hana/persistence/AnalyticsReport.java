@@ -0,0 +1,80 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.Date;
+
+/**
+ * 
+ * Immutable result of all analyses on the table 'BIG_DATA' computed together
+ *
+ */
+public final class AnalyticsReport {
+	private final long rowCount;
+	private final double averageUserNameLength;
+	private final Date mostCommonCreatedAt;
+	private final long letterECount;
+	private final double averageNumber;
+	
+	/**
+	 * 
+	 * @param rowCount
+	 * @param averageUserNameLength
+	 * @param mostCommonCreatedAt
+	 * @param letterECount
+	 * @param averageNumber
+	 */
+	public AnalyticsReport(long rowCount, double averageUserNameLength, Date mostCommonCreatedAt, 
+			long letterECount, double averageNumber) {
+		this.rowCount = rowCount;
+		this.averageUserNameLength = averageUserNameLength;
+		this.mostCommonCreatedAt = mostCommonCreatedAt == null ? null : new Date(mostCommonCreatedAt.getTime());
+		this.letterECount = letterECount;
+		this.averageNumber = averageNumber;
+	}
+
+	/**
+	 * 
+	 * @return the amount of dataset in the table 'BIG_DATA'
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * 
+	 * @return the average length of the values in the column USER_NAME
+	 */
+	public double getAverageUserNameLength() {
+		return averageUserNameLength;
+	}
+
+	/**
+	 * 
+	 * @return the most common date in the column CREATED_AT or null if the table is empty
+	 */
+	public Date getMostCommonCreatedAt() {
+		return mostCommonCreatedAt == null ? null : new Date(mostCommonCreatedAt.getTime());
+	}
+
+	/**
+	 * 
+	 * @return the number of letter 'e' used in the column TEXT
+	 */
+	public long getLetterECount() {
+		return letterECount;
+	}
+
+	/**
+	 * 
+	 * @return the average of the values in column NUMBER
+	 */
+	public double getAverageNumber() {
+		return averageNumber;
+	}
+	
+	@Override
+	public String toString() {
+		return "AnalyticsReport [rowCount=" + rowCount + ", averageUserNameLength=" + averageUserNameLength
+				+ ", mostCommonCreatedAt=" + mostCommonCreatedAt + ", letterECount=" + letterECount 
+				+ ", averageNumber=" + averageNumber + "]";
+	}
+}
@@ -0,0 +1,133 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.Date;
+import java.util.List;
+
+import edu.hm.cs.bigdata.hana.sketch.Estimate;
+import edu.hm.cs.bigdata.hana.sketch.HyperLogLog;
+import edu.hm.cs.bigdata.hana.sketch.RunningStatistics;
+import edu.hm.cs.bigdata.hana.sketch.SpaceSaving;
+
+/**
+ * 
+ * Sketches of the analyses of the table 'BIG_DATA' built from one pass over a random sample
+ * of its rows: Space-Saving counters for the frequency of CREATED_AT, HyperLogLog for the
+ * distinct USER_NAME and CREATED_AT values and running statistics for the averages. The memory
+ * does not grow with the number of rows. Not thread safe, one instance is filled by one scan.
+ *
+ */
+public class ApproximateAnalytics {
+	/** Number of Space-Saving counters for the dates */
+	public static final int DATE_COUNTERS = 256;
+	//quantile of the normal distribution for the 95% bounds
+	private static final double Z = 1.96;
+	
+	private final double sampleFraction;
+	private final SpaceSaving<Long> dates = new SpaceSaving<Long>(DATE_COUNTERS);
+	private final HyperLogLog distinctUserNames = new HyperLogLog();
+	private final HyperLogLog distinctDates = new HyperLogLog();
+	private final RunningStatistics userNameLengths = new RunningStatistics();
+	private final RunningStatistics letterECounts = new RunningStatistics();
+	private final RunningStatistics numbers = new RunningStatistics();
+	
+	/**
+	 * 
+	 * @param sampleFraction the probability of every row to be in the sample, 1 for all rows
+	 */
+	public ApproximateAnalytics(double sampleFraction) {
+		if (!(sampleFraction > 0 && sampleFraction <= 1)) {
+			throw new IllegalArgumentException("Sample fraction must be in (0, 1]: " + sampleFraction);
+		}
+		this.sampleFraction = sampleFraction;
+	}
+	
+	/**
+	 * 
+	 * @param userName
+	 * @param createdAt
+	 * @param letterE the number of letter 'e' in the column TEXT
+	 * @param number
+	 * 
+	 * Add a sampled row
+	 */
+	public void add(String userName, Date createdAt, long letterE, int number) {
+		Long date = createdAt == null ? null : createdAt.getTime();
+		dates.add(date);
+		if (date != null) {
+			distinctDates.add(HyperLogLog.hash(date.longValue()));
+		}
+		if (userName != null) {
+			distinctUserNames.add(HyperLogLog.hash(userName));
+			userNameLengths.add(userName.length());
+		}
+		letterECounts.add(letterE);
+		numbers.add(number);
+	}
+	
+	/**
+	 * 
+	 * @param rowCount the number of rows in the table
+	 * @return the estimates of the sample scaled to the table
+	 */
+	public ApproximateReport toReport(long rowCount) {
+		long sampledRows = dates.getTotal();
+		Date mostCommon = null;
+		Estimate mostCommonCount = Estimate.exact(0);
+		List<SpaceSaving.Counter<Long>> top = dates.top(1);
+		if (!top.isEmpty()) {
+			SpaceSaving.Counter<Long> counter = top.get(0);
+			mostCommon = counter.getValue() == null ? null : new Date(counter.getValue());
+			mostCommonCount = scaleCount(counter.getCount() - counter.getError(), counter.getCount());
+		}
+		Estimate letterE = mean(letterECounts);
+		return new ApproximateReport(rowCount, sampleFraction, sampledRows, mean(userNameLengths), mostCommon,
+				mostCommonCount, new Estimate(letterE.getValue() * rowCount, letterE.getLower() * rowCount, 
+						letterE.getUpper() * rowCount),
+				mean(numbers), distinct(distinctUserNames, rowCount), distinct(distinctDates, rowCount));
+	}
+	
+	/**
+	 * 
+	 * @param statistics
+	 * @return the mean with its confidence interval, exact if all rows were seen
+	 */
+	private Estimate mean(RunningStatistics statistics) {
+		double mean = statistics.getMean();
+		if (sampleFraction == 1) {
+			return Estimate.exact(mean);
+		}
+		double halfWidth = statistics.getConfidenceHalfWidth(Z);
+		return new Estimate(mean, mean - halfWidth, mean + halfWidth);
+	}
+	
+	/**
+	 * 
+	 * @param lower lower bound of the count in the sample
+	 * @param upper upper bound of the count in the sample
+	 * @return the count scaled to the table with the binomial sampling error added to the bounds
+	 */
+	private Estimate scaleCount(long lower, long upper) {
+		double p = sampleFraction;
+		double value = (lower + upper) / 2.0 / p;
+		double low = Math.max(0, (lower - Z * Math.sqrt(lower * (1 - p))) / p);
+		double high = (upper + Z * Math.sqrt(upper * (1 - p))) / p;
+		return new Estimate(value, Math.min(low, value), Math.max(high, value));
+	}
+	
+	/**
+	 * 
+	 * @param sketch
+	 * @param rowCount
+	 * @return the distinct values of the table. Sampling removes values, so the distinct values of
+	 * 			the sample are the lower bound. Values seen once in the sample stand for 1 / sampleFraction 
+	 * 			values, so the scaled count is the upper bound and the estimate for mostly unique columns.
+	 */
+	private Estimate distinct(HyperLogLog sketch, long rowCount) {
+		double sampled = sketch.estimate();
+		double error = Z * sketch.getStandardError();
+		double lower = sampled * (1 - error);
+		double upper = Math.min(rowCount, sampled / sampleFraction * (1 + error));
+		double value = Math.min(rowCount, sampled / sampleFraction);
+		return new Estimate(value, Math.min(lower, value), Math.max(upper, value));
+	}
+}
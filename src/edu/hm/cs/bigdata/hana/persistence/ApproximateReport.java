@@ -0,0 +1,142 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.Date;
+
+import edu.hm.cs.bigdata.hana.sketch.Estimate;
+
+/**
+ * 
+ * Immutable result of the approximate analyses on the table 'BIG_DATA'. Every value is an
+ * estimate with 95% bounds computed from a random sample of the rows.
+ *
+ */
+public final class ApproximateReport {
+	private final long rowCount;
+	private final double sampleFraction;
+	private final long sampledRows;
+	private final Estimate averageUserNameLength;
+	private final Date mostCommonCreatedAt;
+	private final Estimate mostCommonCreatedAtCount;
+	private final Estimate letterECount;
+	private final Estimate averageNumber;
+	private final Estimate distinctUserNames;
+	private final Estimate distinctCreatedAt;
+	
+	/**
+	 * 
+	 * @param rowCount
+	 * @param sampleFraction
+	 * @param sampledRows
+	 * @param averageUserNameLength
+	 * @param mostCommonCreatedAt
+	 * @param mostCommonCreatedAtCount
+	 * @param letterECount
+	 * @param averageNumber
+	 * @param distinctUserNames
+	 * @param distinctCreatedAt
+	 */
+	public ApproximateReport(long rowCount, double sampleFraction, long sampledRows, Estimate averageUserNameLength,
+			Date mostCommonCreatedAt, Estimate mostCommonCreatedAtCount, Estimate letterECount, 
+			Estimate averageNumber, Estimate distinctUserNames, Estimate distinctCreatedAt) {
+		this.rowCount = rowCount;
+		this.sampleFraction = sampleFraction;
+		this.sampledRows = sampledRows;
+		this.averageUserNameLength = averageUserNameLength;
+		this.mostCommonCreatedAt = mostCommonCreatedAt == null ? null : new Date(mostCommonCreatedAt.getTime());
+		this.mostCommonCreatedAtCount = mostCommonCreatedAtCount;
+		this.letterECount = letterECount;
+		this.averageNumber = averageNumber;
+		this.distinctUserNames = distinctUserNames;
+		this.distinctCreatedAt = distinctCreatedAt;
+	}
+
+	/**
+	 * 
+	 * @return the amount of dataset in the table 'BIG_DATA', estimated from the number of sampled rows
+	 * 			unless all rows were sampled or the incremental analytics know it
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * 
+	 * @return the fraction of the rows which were sampled, 1 for all rows
+	 */
+	public double getSampleFraction() {
+		return sampleFraction;
+	}
+
+	/**
+	 * 
+	 * @return the number of rows in the sample
+	 */
+	public long getSampledRows() {
+		return sampledRows;
+	}
+
+	/**
+	 * 
+	 * @return the estimated average length of the values in the column USER_NAME
+	 */
+	public Estimate getAverageUserNameLength() {
+		return averageUserNameLength;
+	}
+
+	/**
+	 * 
+	 * @return the date with the highest estimated frequency in the column CREATED_AT or null
+	 */
+	public Date getMostCommonCreatedAt() {
+		return mostCommonCreatedAt == null ? null : new Date(mostCommonCreatedAt.getTime());
+	}
+
+	/**
+	 * 
+	 * @return the estimated number of rows with the most common date
+	 */
+	public Estimate getMostCommonCreatedAtCount() {
+		return mostCommonCreatedAtCount;
+	}
+
+	/**
+	 * 
+	 * @return the estimated number of letter 'e' used in the column TEXT
+	 */
+	public Estimate getLetterECount() {
+		return letterECount;
+	}
+
+	/**
+	 * 
+	 * @return the estimated average of the values in column NUMBER
+	 */
+	public Estimate getAverageNumber() {
+		return averageNumber;
+	}
+
+	/**
+	 * 
+	 * @return the estimated number of distinct values in the column USER_NAME
+	 */
+	public Estimate getDistinctUserNames() {
+		return distinctUserNames;
+	}
+
+	/**
+	 * 
+	 * @return the estimated number of distinct values in the column CREATED_AT
+	 */
+	public Estimate getDistinctCreatedAt() {
+		return distinctCreatedAt;
+	}
+	
+	@Override
+	public String toString() {
+		return "ApproximateReport [rowCount=" + rowCount + ", sampleFraction=" + sampleFraction 
+				+ ", sampledRows=" + sampledRows + ", averageUserNameLength=" + averageUserNameLength
+				+ ", mostCommonCreatedAt=" + mostCommonCreatedAt + " (" + mostCommonCreatedAtCount + ")"
+				+ ", letterECount=" + letterECount + ", averageNumber=" + averageNumber 
+				+ ", distinctUserNames=" + distinctUserNames + ", distinctCreatedAt=" + distinctCreatedAt + "]";
+	}
+}
@@ -0,0 +1,69 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.SQLException;
+
+/**
+ * 
+ * Thrown when a JDBC batch written to the table 'BIG_DATA' fails. Carries the number of the 
+ * failed batch, the ID range of its rows and how many rows were committed before the failure, 
+ * so the caller knows where a load can be continued.
+ *
+ */
+public class BatchWriteException extends SQLException {
+	private static final long serialVersionUID = 1L;
+	
+	private final int batchNumber;
+	private final int firstId;
+	private final int lastId;
+	private final int committedRows;
+	
+	/**
+	 * 
+	 * @param batchNumber
+	 * @param firstId
+	 * @param lastId
+	 * @param committedRows
+	 * @param cause
+	 */
+	public BatchWriteException(int batchNumber, int firstId, int lastId, int committedRows, SQLException cause) {
+		super("Batch " + batchNumber + " (ID " + firstId + " - " + lastId + ") failed after " + committedRows
+				+ " committed rows: " + cause.getMessage(), cause.getSQLState(), cause.getErrorCode(), cause);
+		this.batchNumber = batchNumber;
+		this.firstId = firstId;
+		this.lastId = lastId;
+		this.committedRows = committedRows;
+	}
+
+	/**
+	 * 
+	 * @return the zero based number of the failed batch
+	 */
+	public int getBatchNumber() {
+		return batchNumber;
+	}
+
+	/**
+	 * 
+	 * @return the ID of the first row in the failed batch
+	 */
+	public int getFirstId() {
+		return firstId;
+	}
+
+	/**
+	 * 
+	 * @return the ID of the last row in the failed batch
+	 */
+	public int getLastId() {
+		return lastId;
+	}
+
+	/**
+	 * 
+	 * @return the number of rows committed before the batch failed
+	 */
+	public int getCommittedRows() {
+		return committedRows;
+	}
+	
+}
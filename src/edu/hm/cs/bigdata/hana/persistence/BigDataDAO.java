@@ -1,16 +1,39 @@
 package edu.hm.cs.bigdata.hana.persistence;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.sql.DataSource;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.hm.cs.bigdata.hana.metrics.BigDataMetrics;
+import edu.hm.cs.bigdata.hana.metrics.OperationMetrics;
+import edu.hm.cs.bigdata.hana.text.TextAnalyzer;
+import edu.hm.cs.bigdata.hana.text.TextHistogram;
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
 import edu.hm.cs.bigdata.hana.util.Util;
 
 /**
@@ -21,7 +44,85 @@ import edu.hm.cs.bigdata.hana.util.Util;
  *
  */
 public class BigDataDAO {
+	private static final Logger LOGGER = LoggerFactory.getLogger(BigDataDAO.class);
+	/** Default number of rows sent to the database in one JDBC batch */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+	/** Default number of rows written before the transaction is committed */
+	public static final int DEFAULT_COMMIT_INTERVAL = 5000;
+	/** Default number of rows the driver fetches per round trip when reading */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+	/** Maximum number of rows generated and written by one task of the parallel loader */
+	private static final int MAX_PARTITION_SIZE = 50000;
+	
+	private static final String BIG_DATA_COLUMNS = "(ID INTEGER PRIMARY KEY NOT NULL, USER_NAME VARCHAR (50), "
+			+ "CREATED_AT DATE, TEXT VARCHAR (280), NUMBER INTEGER)";
+	private static final String INSERT_QUERY = "INSERT INTO BIG_DATA (ID, USER_NAME, CREATED_AT, TEXT, NUMBER) VALUES (?, ?, ?, ?, ?)";
+	private static final String UPDATE_QUERY = "UPDATE BIG_DATA SET USER_NAME = ?, CREATED_AT = ?, TEXT = ?, NUMBER = ? WHERE ID = ?";
+	//local temporary table for staged updates, the quoted name with '#' is valid for HANA and H2
+	private static final String STAGE_TABLE = "\"#BIG_DATA_STAGE\"";
+	private static final String CREATE_STAGE_QUERY = "CREATE LOCAL TEMPORARY TABLE " + STAGE_TABLE + " " + BIG_DATA_COLUMNS;
+	private static final String INSERT_STAGE_QUERY = "INSERT INTO " + STAGE_TABLE 
+			+ " (ID, USER_NAME, CREATED_AT, TEXT, NUMBER) VALUES (?, ?, ?, ?, ?)";
+	private static final String MERGE_STAGE_QUERY = "MERGE INTO BIG_DATA T USING " + STAGE_TABLE + " S ON T.ID = S.ID "
+			+ "WHEN MATCHED THEN UPDATE SET T.USER_NAME = S.USER_NAME, T.CREATED_AT = S.CREATED_AT, "
+			+ "T.TEXT = S.TEXT, T.NUMBER = S.NUMBER";
+	private static final String DROP_STAGE_QUERY = "DROP TABLE " + STAGE_TABLE;
+	//progress of generations, updated after every committed chunk so an interrupted generation can be resumed
+	private static final String CHECKPOINT_TABLE = "BIG_DATA_CHECKPOINT";
+	private static final String CREATE_CHECKPOINT_QUERY = "CREATE TABLE " + CHECKPOINT_TABLE
+			+ " (SEED BIGINT PRIMARY KEY NOT NULL, TARGET_ROWS INTEGER NOT NULL, LAST_ID INTEGER NOT NULL, "
+			+ "UPDATED_AT TIMESTAMP)";
+	private static final String SELECT_CHECKPOINT_QUERY = "SELECT SEED, TARGET_ROWS, LAST_ID, UPDATED_AT FROM "
+			+ CHECKPOINT_TABLE + " WHERE SEED = ?";
+	private static final String SELECT_INCOMPLETE_CHECKPOINT_QUERY = "SELECT SEED, TARGET_ROWS, LAST_ID, UPDATED_AT FROM "
+			+ CHECKPOINT_TABLE + " WHERE LAST_ID < TARGET_ROWS ORDER BY UPDATED_AT DESC LIMIT 1";
+	private static final String UPDATE_CHECKPOINT_QUERY = "UPDATE " + CHECKPOINT_TABLE
+			+ " SET TARGET_ROWS = ?, LAST_ID = ?, UPDATED_AT = CURRENT_TIMESTAMP WHERE SEED = ?";
+	private static final String INSERT_CHECKPOINT_QUERY = "INSERT INTO " + CHECKPOINT_TABLE
+			+ " (SEED, TARGET_ROWS, LAST_ID, UPDATED_AT) VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
+	//rows committed after the last checkpoint was written, IDs are committed in ascending order
+	private static final String SELECT_LAST_COMMITTED_ID_QUERY = "SELECT MAX(ID) FROM BIG_DATA WHERE ID > ? AND ID <= ?";
+	private static final String SELECT_COLUMNS = "SELECT ID, USER_NAME, CREATED_AT, TEXT, NUMBER FROM BIG_DATA";
+	//Plain aggregates of all rows, a window over the grouped dates took twice as long as the separate queries
+	private static final String ANALYZE_ALL_QUERY = "SELECT COUNT(*), SUM(LENGTH(USER_NAME)), COUNT(USER_NAME), "
+			+ "SUM(LENGTH(TEXT) - LENGTH(REPLACE(TEXT, 'e', ''))), SUM(TO_DOUBLE(NUMBER)), COUNT(NUMBER) FROM BIG_DATA";
+	private static final String MOST_COMMON_CREATED_AT_QUERY = "SELECT CREATED_AT FROM BIG_DATA "
+			+ "GROUP BY CREATED_AT ORDER BY COUNT(*) DESC LIMIT 1";
+	private static final String SELECT_PAGE_QUERY = SELECT_COLUMNS + " WHERE ID > ? ORDER BY ID LIMIT ?";
+	private static final String SELECT_RANGE_QUERY = SELECT_COLUMNS + " WHERE ID BETWEEN ? AND ?";
+	//locks the old rows of an update until the commit, so concurrent updates of an ID read them one after another
+	private static final String SELECT_RANGE_FOR_UPDATE_QUERY = SELECT_RANGE_QUERY + " FOR UPDATE";
+	private static final String ANALYZE_BY_DATE_QUERY = "SELECT CREATED_AT, COUNT(*), SUM(LENGTH(USER_NAME)), "
+			+ "COUNT(USER_NAME), SUM(LENGTH(TEXT) - LENGTH(REPLACE(TEXT, 'e', ''))), SUM(NUMBER), COUNT(NUMBER) "
+			+ "FROM BIG_DATA GROUP BY CREATED_AT";
+	
     private DataSource dataSource;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private final AtomicLong dataVersion = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+    //row count and highest ID after the last check for writes outside of this object, kept up to date from
+    //the writes through it; the row count is -1 before the first check
+    private final Object knownStateLock = new Object();
+    private long knownRowCount = -1;
+    private long knownMaxId;
+    //set by a failed write, the next check counts as external write
+    private boolean knownStateLost;
+    //shared by the writes through this object, exclusive while the incremental analytics are built
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private volatile BigDataMetrics metrics = new BigDataMetrics();
+    private volatile AnalyticsCache analyticsCache;
+    private volatile IncrementalAnalytics incrementalAnalytics;
+    private volatile boolean columnarSnapshotEnabled;
+    private volatile TableLayout tableLayout;
+    private volatile SqlDialect sqlDialect = SqlDialect.HANA;
+    private volatile ColumnarSnapshot columnarSnapshot;
+    //one load of the columnar snapshot at a time, readers of a current snapshot do not wait
+    private final Object snapshotLoadLock = new Object();
+    private volatile AdaptiveBatchSizer batchSizer;
+    //threads of all text analyses, started on demand and kept across cache misses
+    private final ForkJoinPool textPool = new ForkJoinPool();
     
     /**
      * 
@@ -31,67 +132,496 @@ public class BigDataDAO {
      * @throws SQLException
      * 
      * Method for dynamically execute a SQL Query to the SAP HANA database. You can vary between INSERT and UPDATE.
-     * This methods creates a random data set which is either inserted or updated in the database 
+     * This methods creates a random data set which is either inserted or updated in the database.
+     * The rows are generated while they are written, so memory does not grow with amountDataset.
+     * Inserted rows get the IDs after the highest ID in the table, updated rows the IDs 1 to amountDataset.
      */
     private void executeInsertOrUpdate(String sqlQuery, boolean isInsert, int amountDataset) throws SQLException {
-    	 Connection connection = dataSource.getConnection();
-    	 Util utility = new Util();
-    	 //Create random data set
-         ArrayList<BigData> dataset = utility.createData(amountDataset);
-         try {
-        	if(isInsert) { //insert
-             	for(BigData bg : dataset) {
-           		  PreparedStatement pstmt = connection
-                             .prepareStatement(sqlQuery);
-           		  	 pstmt.setInt(1, bg.getId());
-                     pstmt.setString(2, bg.getUserName());
-                     pstmt.setDate(3, bg.getCreatedAt());
-                     pstmt.setString(4, bg.getText());
-                     pstmt.setInt(5, bg.getNumber());
-                     pstmt.executeUpdate();
-                     pstmt.close();
-             	}
-        	} else { //update
-             	for(BigData bg : dataset) {
-             		  PreparedStatement pstmt = connection
-                               .prepareStatement(sqlQuery + bg.getId());
-                       pstmt.setString(1, bg.getUserName());
-                       pstmt.setDate(2, bg.getCreatedAt());
-                       pstmt.setString(3, bg.getText());
-                       pstmt.setInt(4, bg.getNumber());
-                       pstmt.executeUpdate();
-                       pstmt.close();
-               	}
-           	}
-           
-         } finally {
-             if (connection != null) {
-                 connection.close();
-             }
-         }
+    	Util utility = new Util();
+    	int firstId = isInsert ? executeSQLQueryInt("maxId", "SELECT COALESCE(MAX(ID), 0) FROM BIG_DATA") + 1 : 1;
+    	//Create random data set
+    	BigDataGenerator dataset = utility.createDataStream(firstId, amountDataset);
+    	Connection connection = getConnection();
+    	try {
+    		executeBatched(connection, sqlQuery, isInsert, dataset);
+    	} finally {
+    		if (connection != null) {
+    			connection.close();
+    		}
+    	}
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @param sqlQuery
+     * @param isInsert
+     * @param dataset
+     * @return the number of rows written
+     * @throws BatchWriteException if a batch fails; all rows since the last commit are rolled back
+     * @throws SQLException
+     * 
+     * Writes the data set with a single prepared statement in JDBC batches of 'batchSize' rows.
+     * Auto commit is switched off and the transaction is committed every 'commitInterval' rows
+     * (rounded up to the next batch) and once at the end. With an AdaptiveBatchSizer both are
+     * taken from the sizer before every batch instead.
+     */
+    private int executeBatched(Connection connection, String sqlQuery, boolean isInsert, Iterator<BigData> dataset)
+    		throws SQLException {
+    	Lock lock = rebuildLock.readLock();
+    	lock.lock();
+    	try {
+    		return writeBatched(connection, sqlQuery, isInsert, dataset);
+    	} finally {
+    		lock.unlock();
+    	}
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @param sqlQuery
+     * @param isInsert
+     * @param dataset
+     * @return the number of rows written
+     * @throws SQLException
+     * 
+     * The write of executeBatched, called with the shared rebuild lock held
+     */
+    private int writeBatched(Connection connection, String sqlQuery, boolean isInsert, Iterator<BigData> dataset)
+    		throws SQLException {
+    	OperationMetrics operation = metrics.operation(isInsert ? "insertBigData" : "updateBigData");
+    	AdaptiveBatchSizer sizer = batchSizer;
+    	int currentBatchSize = sizer == null ? batchSize : sizer.getBatchSize();
+    	int currentCommitInterval = sizer == null ? commitInterval : sizer.getCommitInterval();
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	//rows of the current transaction, merged into the analytics after the commit
+    	IncrementalAnalytics uncommitted = analytics == null ? null : new IncrementalAnalytics();
+    	List<BigData> batchRows = analytics == null ? null : new ArrayList<BigData>(currentBatchSize);
+    	boolean autoCommit = connection.getAutoCommit();
+    	connection.setAutoCommit(false);
+    	PreparedStatement pstmt = null;
+    	int batchNumber = 0;
+    	int pendingRows = 0;
+    	int uncommittedRows = 0;
+    	int committedRows = 0;
+    	int firstId = 0;
+    	int lastId = 0;
+    	int highestId = 0;
+    	boolean succeeded = false;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement(sqlQuery);
+    		operation.recordPrepare(System.nanoTime() - start);
+    		while (dataset.hasNext()) {
+    			BigData bg = dataset.next();
+    			if (pendingRows == 0) {
+    				firstId = bg.getId();
+    			}
+    			lastId = bg.getId();
+    			highestId = Math.max(highestId, lastId);
+    			bindRow(pstmt, bg, isInsert);
+    			pstmt.addBatch();
+    			pendingRows++;
+    			if (batchRows != null) {
+    				batchRows.add(bg);
+    			}
+    			
+    			if (pendingRows >= currentBatchSize) {
+    				if (uncommitted != null) {
+    					recordBatch(connection, isInsert, batchRows, uncommitted);
+    				}
+    				executeBatch(pstmt, batchNumber++, firstId, lastId, committedRows, operation, pendingRows, sizer);
+    				uncommittedRows += pendingRows;
+    				pendingRows = 0;
+    				if (sizer != null) {
+    					currentBatchSize = sizer.getBatchSize();
+    					currentCommitInterval = sizer.getCommitInterval();
+    				}
+    				if (uncommittedRows >= currentCommitInterval) {
+    					commit(connection, operation);
+    					operation.addRows(uncommittedRows);
+    					committedRows += uncommittedRows;
+    					uncommittedRows = 0;
+    					if (uncommitted != null) {
+    						analytics.merge(uncommitted);
+    						uncommitted.reset();
+    					}
+    				}
+    			}
+    		}
+    		if (pendingRows > 0) {
+    			if (uncommitted != null) {
+    				recordBatch(connection, isInsert, batchRows, uncommitted);
+    			}
+    			executeBatch(pstmt, batchNumber, firstId, lastId, committedRows, operation, pendingRows, sizer);
+    			uncommittedRows += pendingRows;
+    		}
+    		commit(connection, operation);
+    		operation.addRows(uncommittedRows);
+    		committedRows += uncommittedRows;
+    		if (uncommitted != null) {
+    			analytics.merge(uncommitted);
+    		}
+    		succeeded = true;
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		recordWriteFailure(sizer, e);
+    		connection.rollback();
+    		throw e;
+    	} catch (RuntimeException e) {
+    		operation.recordError();
+    		connection.rollback();
+    		throw e;
+    	} finally {
+    		writeFinished(succeeded, isInsert ? committedRows : 0, highestId);
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		connection.setAutoCommit(autoCommit);
+    	}
+    	return committedRows;
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @param dataset
+     * @return the number of rows updated
+     * @throws BatchWriteException if staging a batch fails; nothing is committed
+     * @throws SQLException
+     * 
+     * Updates the rows with a set-based statement: the new values are inserted in batches of 'batchSize' 
+     * rows into a local temporary table and applied to the table 'BIG_DATA' with one MERGE. Everything 
+     * runs in one transaction, 'commitInterval' does not apply. IDs which do not exist are ignored.
+     * With an AdaptiveBatchSizer the batch size is taken from the sizer before every batch.
+     */
+    private int executeStaged(Connection connection, Iterator<BigData> dataset) throws SQLException {
+    	Lock lock = rebuildLock.readLock();
+    	lock.lock();
+    	try {
+    		return writeStaged(connection, dataset);
+    	} finally {
+    		lock.unlock();
+    	}
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @param dataset
+     * @return the number of rows updated
+     * @throws SQLException
+     * 
+     * The update of executeStaged, called with the shared rebuild lock held
+     */
+    private int writeStaged(Connection connection, Iterator<BigData> dataset) throws SQLException {
+    	OperationMetrics operation = metrics.operation("updateBigDataStaged");
+    	AdaptiveBatchSizer sizer = batchSizer;
+    	int currentBatchSize = sizer == null ? batchSize : sizer.getBatchSize();
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	IncrementalAnalytics uncommitted = analytics == null ? null : new IncrementalAnalytics();
+    	List<BigData> batchRows = analytics == null ? null : new ArrayList<BigData>(currentBatchSize);
+    	//DDL runs outside of the transaction of the rows
+    	createStageTable(connection);
+    	boolean autoCommit = connection.getAutoCommit();
+    	connection.setAutoCommit(false);
+    	PreparedStatement pstmt = null;
+    	PreparedStatement merge = null;
+    	int batchNumber = 0;
+    	int pendingRows = 0;
+    	int firstId = 0;
+    	int lastId = 0;
+    	boolean succeeded = false;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement(INSERT_STAGE_QUERY);
+    		merge = connection.prepareStatement(MERGE_STAGE_QUERY);
+    		operation.recordPrepare(System.nanoTime() - start);
+    		while (dataset.hasNext()) {
+    			BigData bg = dataset.next();
+    			if (pendingRows == 0) {
+    				firstId = bg.getId();
+    			}
+    			lastId = bg.getId();
+    			bindRow(pstmt, bg, true);
+    			pstmt.addBatch();
+    			pendingRows++;
+    			if (batchRows != null) {
+    				batchRows.add(bg);
+    			}
+    			
+    			if (pendingRows >= currentBatchSize || !dataset.hasNext()) {
+    				if (uncommitted != null) {
+    					recordBatch(connection, false, batchRows, uncommitted);
+    				}
+    				executeBatch(pstmt, batchNumber++, firstId, lastId, 0, operation, pendingRows, sizer);
+    				pendingRows = 0;
+    				if (sizer != null) {
+    					currentBatchSize = sizer.getBatchSize();
+    				}
+    			}
+    		}
+    		start = System.nanoTime();
+    		int updatedRows = merge.executeUpdate();
+    		operation.recordExecute(System.nanoTime() - start);
+    		commit(connection, operation);
+    		operation.addRows(updatedRows);
+    		if (uncommitted != null) {
+    			analytics.merge(uncommitted);
+    		}
+    		succeeded = true;
+    		return updatedRows;
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		recordWriteFailure(sizer, e);
+    		connection.rollback();
+    		throw e;
+    	} catch (RuntimeException e) {
+    		operation.recordError();
+    		connection.rollback();
+    		throw e;
+    	} finally {
+    		writeFinished(succeeded, 0, 0);
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		if (merge != null) {
+    			merge.close();
+    		}
+    		connection.setAutoCommit(autoCommit);
+    		dropStageTable(connection);
+    	}
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @throws SQLException
+     * 
+     * Create the stage table. A pooled connection may still have the table of an earlier staged update 
+     * whose drop failed, then that table is dropped and created again.
+     */
+    private void createStageTable(Connection connection) throws SQLException {
+    	try {
+    		executeStatement(connection, CREATE_STAGE_QUERY);
+    	} catch (SQLException e) {
+    		LOGGER.warn("Creating the stage table failed, dropping a leftover one: {}", e.getMessage());
+    		try {
+    			executeStatement(connection, DROP_STAGE_QUERY);
+    		} catch (SQLException dropException) {
+    			e.addSuppressed(dropException);
+    			throw e;
+    		}
+    		executeStatement(connection, CREATE_STAGE_QUERY);
+    	}
+    }
+    
+    /**
+     * 
+     * @param connection
+     * 
+     * Drop the stage table. A failure is only logged, so it does not hide the exception of the update; 
+     * the next staged update on the connection drops the leftover table.
+     */
+    private void dropStageTable(Connection connection) {
+    	try {
+    		executeStatement(connection, DROP_STAGE_QUERY);
+    	} catch (SQLException e) {
+    		LOGGER.warn("Dropping the stage table failed", e);
+    	}
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @param sqlQuery
+     * @throws SQLException
+     * 
+     * Execute a statement without parameters and result, e.g. DDL
+     */
+    private void executeStatement(Connection connection, String sqlQuery) throws SQLException {
+    	PreparedStatement pstmt = connection.prepareStatement(sqlQuery);
+    	try {
+    		pstmt.executeUpdate();
+    	} finally {
+    		pstmt.close();
+    	}
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @param isInsert
+     * @param batchRows
+     * @param delta
+     * @throws SQLException
+     * 
+     * Record the rows of a batch in the delta of the transaction before the batch is executed.
+     * For an update the current values of the rows are read and locked on the same connection first, 
+     * so their contribution can be subtracted. Without the lock two transactions updating the same ID
+     * would both subtract the same old row. IDs which do not exist are not updated and ignored.
+     */
+    private void recordBatch(Connection connection, boolean isInsert, List<BigData> batchRows, 
+    		final IncrementalAnalytics delta) throws SQLException {
+    	if (isInsert) {
+    		for (BigData bg : batchRows) {
+    			delta.add(bg);
+    		}
+    	} else {
+    		final Map<Integer, BigData> newRows = new HashMap<Integer, BigData>();
+    		int minId = Integer.MAX_VALUE;
+    		int maxId = Integer.MIN_VALUE;
+    		for (BigData bg : batchRows) {
+    			newRows.put(bg.getId(), bg);
+    			minId = Math.min(minId, bg.getId());
+    			maxId = Math.max(maxId, bg.getId());
+    		}
+    		readRows(connection, "selectUpdatedRows", SELECT_RANGE_FOR_UPDATE_QUERY, new BigDataHandler() {
+    			@Override
+    			public boolean handle(BigData oldRow) {
+    				BigData newRow = newRows.get(oldRow.getId());
+    				if (newRow != null) {
+    					delta.update(oldRow, newRow);
+    				}
+    				return true;
+    			}
+    		}, minId, maxId);
+    	}
+    	batchRows.clear();
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @param operation
+     * @throws SQLException
+     * 
+     * Commits the transaction, the commit is part of the execute time of the operation
+     */
+    private void commit(Connection connection, OperationMetrics operation) throws SQLException {
+    	long start = System.nanoTime();
+    	connection.commit();
+    	operation.recordExecute(System.nanoTime() - start);
+    }
+    
+    /**
+     * 
+     * @param pstmt
+     * @param batchNumber
+     * @param firstId
+     * @param lastId
+     * @param committedRows
+     * @param operation
+     * @param rows number of rows in the batch
+     * @param sizer the sizer the time of the batch is reported to or null
+     * @throws BatchWriteException
+     * 
+     * Executes the pending batch and reports a failure together with the affected ID range
+     */
+    private void executeBatch(PreparedStatement pstmt, int batchNumber, int firstId, int lastId, int committedRows,
+    		OperationMetrics operation, int rows, AdaptiveBatchSizer sizer) throws BatchWriteException {
+    	long start = System.nanoTime();
+    	try {
+    		pstmt.executeBatch();
+    		long nanos = System.nanoTime() - start;
+    		operation.recordExecute(nanos);
+    		if (sizer != null) {
+    			sizer.recordBatch(rows, nanos);
+    			recordWriteBatching(sizer);
+    		}
+    	} catch (SQLException e) {
+    		throw new BatchWriteException(batchNumber, firstId, lastId, committedRows, e);
+    	}
+    }
+    
+    /**
+     * 
+     * @param sizer the sizer of the failed write or null
+     * @param e
+     * 
+     * Let the sizer back off after a failed write
+     */
+    private void recordWriteFailure(AdaptiveBatchSizer sizer, SQLException e) {
+    	if (sizer != null) {
+    		sizer.recordFailure(e);
+    		recordWriteBatching(sizer);
+    	}
+    }
+    
+    /**
+     * 
+     * @param sizer
+     * 
+     * Publish the current batch size and commit interval to the metrics
+     */
+    private void recordWriteBatching(AdaptiveBatchSizer sizer) {
+    	metrics.recordWriteBatching(sizer.getBatchSize(), sizer.getCommitInterval(), sizer.getRowsPerSecond(), 
+    			sizer.getDecreases(), sizer.getLockConflicts());
+    }
+    
+    /**
+     * 
+     * @param pstmt
+     * @param bg
+     * @param isInsert
+     * @throws SQLException
+     * 
+     * Binds the values of one row to the INSERT or UPDATE statement
+     */
+    private void bindRow(PreparedStatement pstmt, BigData bg, boolean isInsert) throws SQLException {
+    	if (isInsert) { //insert
+    		pstmt.setInt(1, bg.getId());
+    		pstmt.setString(2, bg.getUserName());
+    		pstmt.setDate(3, bg.getCreatedAt());
+    		pstmt.setString(4, bg.getText());
+    		pstmt.setInt(5, bg.getNumber());
+    	} else { //update
+    		pstmt.setString(1, bg.getUserName());
+    		pstmt.setDate(2, bg.getCreatedAt());
+    		pstmt.setString(3, bg.getText());
+    		pstmt.setInt(4, bg.getNumber());
+    		pstmt.setInt(5, bg.getId());
+    	}
     }
     
     /**
      * 
+     * @param operationName
      * @param sqlQuery
      * @return a number in the first row of the returned result
      * @throws SQLException
      * 
      * Executes dynamically the SQL Query to the database
      */
-    private int executeSQLQueryInt(String sqlQuery) throws SQLException {
+    private int executeSQLQueryInt(String operationName, String sqlQuery) throws SQLException {
+    	OperationMetrics operation = metrics.operation(operationName);
     	int rowCount;
-    	Connection connection = dataSource.getConnection();
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	ResultSet rs = null;
     	
     	try {
-    		PreparedStatement pstmt = connection
+    		long start = System.nanoTime();
+    		pstmt = connection
         			.prepareStatement(sqlQuery);
-            ResultSet rs = pstmt.executeQuery();
+    		long prepared = System.nanoTime();
+    		operation.recordPrepare(prepared - start);
+            rs = pstmt.executeQuery();
             rs.next();
             rowCount = rs.getInt(1);
-            pstmt.close();
-            rs.close();
+            operation.recordExecute(System.nanoTime() - prepared);
+            operation.addRows(1);
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
     	} finally {
+    		if (rs != null) {
+    			rs.close();
+    		}
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
     		if (connection != null) {
     			connection.close();
     		}
@@ -102,25 +632,41 @@ public class BigDataDAO {
     
     /**
      * 
+     * @param operationName
      * @param sqlQuery
      * @return a date in the first row of the returned result
      * @throws SQLException
      * 
      * Executes dynamically the SQL Query to the database
      */
-    private Date executeSQLQueryDate(String sqlQuery) throws SQLException {
+    private Date executeSQLQueryDate(String operationName, String sqlQuery) throws SQLException {
+    	OperationMetrics operation = metrics.operation(operationName);
     	Date rowCount;
-    	Connection connection = dataSource.getConnection();
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	ResultSet rs = null;
     	
     	try {
-    		PreparedStatement pstmt = connection
+    		long start = System.nanoTime();
+    		pstmt = connection
         			.prepareStatement(sqlQuery);
-            ResultSet rs = pstmt.executeQuery();
+    		long prepared = System.nanoTime();
+    		operation.recordPrepare(prepared - start);
+            rs = pstmt.executeQuery();
             rs.next();
             rowCount = rs.getDate(1);
-            pstmt.close();
-            rs.close();
+            operation.recordExecute(System.nanoTime() - prepared);
+            operation.addRows(1);
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
     	} finally {
+    		if (rs != null) {
+    			rs.close();
+    		}
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
     		if (connection != null) {
     			connection.close();
     		}
@@ -131,19 +677,112 @@ public class BigDataDAO {
 
     /**
      * 
+     * @param operationName
      * @param sqlQuery
+     * @param parameters
      * @return a list of BigData objects according to the executed SQL statement
      * @throws SQLException
      * 
      * Executes dynamically the SQL Query to the database
      */
-    private List<BigData> executeSqLQueryList(String sqlQuery) throws SQLException {
-    	Connection connection = dataSource.getConnection();
+    private List<BigData> executeSqLQueryList(String operationName, String sqlQuery, int... parameters) 
+    		throws SQLException {
+    	final ArrayList<BigData> list = new ArrayList<BigData>();
+    	executeSQLQueryStream(operationName, sqlQuery, new BigDataHandler() {
+    		@Override
+    		public boolean handle(BigData bg) {
+    			list.add(bg);
+    			return true;
+    		}
+    	}, parameters);
+    	return list;
+    }
+    
+    /**
+     * 
+     * @param operationName
+     * @param sqlQuery
+     * @param handler
+     * @param parameters
+     * @return the number of rows handed to the handler
+     * @throws SQLException
+     * 
+     * Executes dynamically the SQL Query to the database and hands every row to the handler
+     * while the result set is read. The driver fetches 'fetchSize' rows per round trip.
+     */
+    private int executeSQLQueryStream(String operationName, String sqlQuery, BigDataHandler handler, 
+    		int... parameters) throws SQLException {
+    	Connection connection = getConnection();
+    	try {
+    		return readRows(connection, operationName, sqlQuery, handler, parameters);
+    	} finally {
+    		if (connection != null) {
+    			connection.close();
+    		}
+    	}
+    }
+    
+    /**
+     * 
+     * @param connection
+     * @param operationName
+     * @param sqlQuery
+     * @param handler
+     * @param parameters
+     * @return the number of rows handed to the handler
+     * @throws SQLException
+     * 
+     * Executes the SQL Query on the given connection and hands every row to the handler
+     */
+    private int readRows(Connection connection, String operationName, String sqlQuery, BigDataHandler handler, 
+    		int... parameters) throws SQLException {
+    	OperationMetrics operation = metrics.operation(operationName);
+    	PreparedStatement pstmt = null;
+    	ResultSet rs = null;
+    	int rows = 0;
         try {
-        	PreparedStatement pstmt = connection
-        			.prepareStatement(sqlQuery);
-            ResultSet rs = pstmt.executeQuery();
-            ArrayList<BigData> list = new ArrayList<BigData>();
+        	long start = System.nanoTime();
+        	pstmt = connection.prepareStatement(sqlQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        	long prepared = System.nanoTime();
+        	operation.recordPrepare(prepared - start);
+        	pstmt.setFetchSize(fetchSize);
+        	for (int i = 0; i < parameters.length; i++) {
+        		pstmt.setInt(i + 1, parameters[i]);
+        	}
+            rs = pstmt.executeQuery();
+            long executed = System.nanoTime();
+            operation.recordExecute(executed - prepared);
+            try {
+            	rows = fetchRows(rs, handler);
+            } finally {
+            	operation.recordFetch(System.nanoTime() - executed);
+            	operation.addRows(rows);
+            }
+            return rows;
+        } catch (SQLException e) {
+        	operation.recordError();
+        	throw e;
+        } finally {
+        	if (rs != null) {
+        		rs.close();
+        	}
+        	if (pstmt != null) {
+        		pstmt.close();
+        	}
+        }
+    }
+    
+    /**
+     * 
+     * @param rs
+     * @param handler
+     * @return the number of rows handed to the handler
+     * @throws SQLException
+     * 
+     * Hands every row of the result set to the handler until it asks to stop
+     */
+    private int fetchRows(ResultSet rs, BigDataHandler handler) throws SQLException {
+    	int rows = 0;
             while (rs.next()) {
             	BigData bg = new BigData();
                 bg.setId(rs.getInt(1));
@@ -151,33 +790,69 @@ public class BigDataDAO {
                 bg.setCreatedAt(rs.getDate(3));
                 bg.setText(rs.getString(4));
                 bg.setNumber(rs.getInt(5));
-                list.add(bg);
-            }
-            pstmt.close();
-            rs.close();
-            return list;
-        } finally {
-            if (connection != null) {
-                connection.close();
+                rows++;
+                //BigData has no null NUMBER, only the snapshot keeps apart a null from 0
+                boolean next = handler instanceof ColumnarSnapshot.Builder 
+                		? ((ColumnarSnapshot.Builder) handler).handle(bg, rs.wasNull()) : handler.handle(bg);
+                if (!next) {
+                	break;
+                }
             }
-        }
+            return rows;
+    }
+    
+    /**
+     * 
+     * @return a connection of the data source, the time to get it is recorded
+     * @throws SQLException
+     */
+    private Connection getConnection() throws SQLException {
+    	long start = System.nanoTime();
+    	try {
+    		Connection connection = dataSource.getConnection();
+    		metrics.recordConnectionAcquisition(System.nanoTime() - start);
+    		return connection;
+    	} catch (SQLException e) {
+    		metrics.recordConnectionError();
+    		throw e;
+    	}
+    }
+    
+    /**
+     * 
+     * @param key
+     * @param loader
+     * @return the result of the loader, served from the analytics cache if one is set 
+     * 			and nothing was written since the result was computed
+     * @throws SQLException
+     */
+    private <T> T cached(String key, AnalyticsCache.Loader<T> loader) throws SQLException {
+    	AnalyticsCache cache = analyticsCache;
+    	if (cache == null) {
+    		return loader.load();
+    	}
+    	return cache.get(key, dataVersion.get(), loader);
     }
     
     /**
      * 
      * @throws SQLException
      * 
-     * Checks if the database table 'BIG_DATA' exists. If not it
+     * Checks if the database tables 'BIG_DATA' and 'BIG_DATA_CHECKPOINT' exist. If not they
      * will be created.
      */
     private void checkTable() throws SQLException {
         Connection connection = null;
 
         try {
-            connection = dataSource.getConnection();
-            if (!tableExists(connection)) {
+            connection = getConnection();
+            sqlDialect = SqlDialect.of(connection);
+            if (!tableExists(connection, "BIG_DATA")) {
                 createTable(connection);
             }
+            if (!tableExists(connection, CHECKPOINT_TABLE)) {
+            	executeStatement(connection, CREATE_CHECKPOINT_QUERY);
+            }
         } finally {
             if (connection != null) {
                 connection.close();
@@ -188,20 +863,24 @@ public class BigDataDAO {
     /**
      * 
      * @param connection
-     * @return true if the database table 'BIG_DATA' exists.
+     * @param tableName
+     * @return true if the database table exists.
      * @throws SQLException
      */
-    private boolean tableExists(Connection connection) throws SQLException {
+    private boolean tableExists(Connection connection, String tableName) throws SQLException {
         DatabaseMetaData meta = connection.getMetaData();
-        ResultSet rs = meta.getTables(null, null, "BIG_DATA", null);
-        while (rs.next()) {
-            String name = rs.getString("TABLE_NAME");
-            if (name.equals("BIG_DATA")) {
-                return true;
-            }
+        ResultSet rs = meta.getTables(null, null, tableName, null);
+        try {
+        	while (rs.next()) {
+        		String name = rs.getString("TABLE_NAME");
+        		if (name.equals(tableName)) {
+        			return true;
+        		}
+        	}
+        	return false;
+        } finally {
+        	rs.close();
         }
-        rs.close();
-        return false;
     }
 
 
@@ -210,17 +889,16 @@ public class BigDataDAO {
      * @param connection
      * @throws SQLException
      * 
-     * Create the database table 'BIG_DATA'
+     * Create the database table 'BIG_DATA' with the table layout in the SQL dialect of the database
      */
     private void createTable(Connection connection) throws SQLException {
-    	PreparedStatement pstmt = connection
-                .prepareStatement("CREATE TABLE BIG_DATA "
-    			+ "(ID INTEGER PRIMARY KEY NOT NULL, "
-    			+ "USER_NAME VARCHAR (50),"
-    			+ "CREATED_AT DATE, "
-    			+ "TEXT VARCHAR (280), "
-    			+ "NUMBER INTEGER)");
-    	pstmt.executeUpdate();
+    	SqlDialect dialect = sqlDialect;
+    	if (!dialect.supports(tableLayout)) {
+    		LOGGER.warn("{} ignores the storage and partitions of the table layout {}", dialect, tableLayout);
+    	}
+    	for (String sqlQuery : dialect.createTable("BIG_DATA", BIG_DATA_COLUMNS, tableLayout)) {
+    		executeStatement(connection, sqlQuery);
+    	}
     }
     
     /**
@@ -232,6 +910,20 @@ public class BigDataDAO {
      * 'BIG_DATA' exists.
      */
     public BigDataDAO(DataSource newDataSource) throws SQLException {
+        this(newDataSource, new TableLayout());
+    }
+    
+    /**
+     * 
+     * @param newDataSource
+     * @param layout the layout of the table 'BIG_DATA' if it has to be created
+     * @throws SQLException
+     * 
+     * Constructor which sets the data source and creates the table 'BIG_DATA' 
+     * with the layout if it does not exist.
+     */
+    public BigDataDAO(DataSource newDataSource, TableLayout layout) throws SQLException {
+    	this.tableLayout = layout;
         setDataSource(newDataSource);
     }
 
@@ -259,75 +951,1147 @@ public class BigDataDAO {
     
     /**
      * 
-     * @param amountDataset
-     * @throws SQLException
-     * 
-     * Insert the amount of data specified.
+     * @return the number of rows sent to the database in one JDBC batch
      */
-    public void insertBigData(int amountDataset) throws SQLException {
-    	
-    	this.executeInsertOrUpdate("INSERT INTO BIG_DATA (ID, USER_NAME, CREATED_AT, TEXT, NUMBER) VALUES (?, ?, ?, ?, ?)", true, amountDataset);
+    public int getBatchSize() {
+    	return batchSize;
     }
     
     /**
      * 
-     * @param amountDataset
-     * @throws SQLException
+     * @param newBatchSize
      * 
-     * Update the amount of data specified.
+     * Set the number of rows sent to the database in one JDBC batch
      */
-    public void updateBigData(int amountDataset) throws SQLException {
-    	this.executeInsertOrUpdate("UPDATE BIG_DATA SET USER_NAME = ?, CREATED_AT = ?, TEXT = ?, NUMBER = ? WHERE ID = ", false, amountDataset);
+    public void setBatchSize(int newBatchSize) {
+    	if (newBatchSize < 1) {
+    		throw new IllegalArgumentException("Batch size must be at least 1: " + newBatchSize);
+    	}
+    	this.batchSize = newBatchSize;
     }
-
+    
     /**
-     * Delete all data in the table 'BIG_DATA'
+     * 
+     * @return the sizer which chooses batch size and commit interval of the writes or null if they are fixed
      */
-    public void clearTable() throws SQLException {
-    	String sqlQuery = "DELETE FROM BIG_DATA";
-    	Connection connection = dataSource.getConnection();
-    	try {
-    	 PreparedStatement pstmt = connection
-                 .prepareStatement(sqlQuery);
-         pstmt.executeUpdate();
-         pstmt.close();
-    	} finally {
-            if (connection != null) {
-            	connection.close();
-            }
-    	}
+    public AdaptiveBatchSizer getAdaptiveBatchSizer() {
+    	return batchSizer;
     }
-
+    
     /**
      * 
-     * @return all data in the table 'BIG_DATA'
-     * @throws SQLException
+     * @param newBatchSizer
+     * 
+     * Let the sizer choose batch size and commit interval of the writes instead of 'batchSize' and 
+     * 'commitInterval', null switches back to the fixed values
      */
-    public List<BigData> selectAllData() throws SQLException {
-    	String sqlQuery = "Select * FROM BIG_DATA";
-    	return this.executeSqLQueryList(sqlQuery);
+    public void setAdaptiveBatchSizer(AdaptiveBatchSizer newBatchSizer) {
+    	this.batchSizer = newBatchSizer;
+    	if (newBatchSizer != null) {
+    		recordWriteBatching(newBatchSizer);
+    	} else {
+    		metrics.recordWriteBatching(0, 0, 0, 0, 0);
+    	}
     }
     
     /**
      * 
-     * @return the amount of dataset in the table 'BIG_DATA'
-     * @throws SQLException
+     * @return the number of rows written before the transaction is committed
      */
-    public int getAmountDataset() throws SQLException {
-    	String sqlQuery = "SELECT COUNT(*) FROM BIG_DATA";
-    	return this.executeSQLQueryInt(sqlQuery);
+    public int getCommitInterval() {
+    	return commitInterval;
     }
- 
+    
     /**
      * 
-     * @return the average length of the values in the column USER_NAME 
+     * @param newCommitInterval
+     * 
+     * Set the number of rows written before the transaction is committed. 
+     * Commits happen after complete batches only, so the interval is rounded up to the batch size.
+     */
+    public void setCommitInterval(int newCommitInterval) {
+    	if (newCommitInterval < 1) {
+    		throw new IllegalArgumentException("Commit interval must be at least 1: " + newCommitInterval);
+    	}
+    	this.commitInterval = newCommitInterval;
+    }
+    
+    /**
+     * 
+     * @return the version of the data in the table 'BIG_DATA'. It changes with every 
+     * 			write through this object, also if the write failed after partial commits.
+     */
+    public long getDataVersion() {
+    	return dataVersion.get();
+    }
+    
+    /**
+     * 
+     * @return the time of the last change of the data version in ms since the epoch, 
+     * 			the creation of this object if nothing was written yet
+     */
+    public long getLastModified() {
+    	return lastModified;
+    }
+    
+    /**
+     * Start a new data version, called after every write
+     */
+    private void dataChanged() {
+    	lastModified = System.currentTimeMillis();
+    	dataVersion.incrementAndGet();
+    }
+    
+    /**
+     * 
+     * @param succeeded false if the write failed, the rows it committed are then unknown
+     * @param insertedRows number of rows the write inserted
+     * @param highestId highest ID of the inserted rows
+     * 
+     * Start a new data version after a write through this object and add the write to the known
+     * row count and highest ID without querying the table, so the write itself is not detected as 
+     * external write by the next check. After a failed write the next check counts as external write.
+     */
+    private void writeFinished(boolean succeeded, long insertedRows, int highestId) {
+    	dataChanged();
+    	synchronized (knownStateLock) {
+    		if (!succeeded) {
+    			knownStateLost = true;
+    		} else if (insertedRows > 0 && knownRowCount >= 0) {
+    			knownRowCount += insertedRows;
+    			knownMaxId = Math.max(knownMaxId, highestId);
+    		}
+    	}
+    }
+    
+    /**
+     * Record the empty table as known state after all rows were deleted through this object
+     */
+    private void tableEmptied() {
+    	synchronized (knownStateLock) {
+    		if (knownRowCount >= 0) {
+    			knownRowCount = 0;
+    			knownMaxId = 0;
+    		}
+    	}
+    }
+    
+    /**
+     * 
+     * @return true if the table changed since the last check and a new data version was started
+     * @throws SQLException
+     * 
+     * Detect writes to the table 'BIG_DATA' which did not go through this object by comparing 
+     * the row count and the highest ID with the last check plus the writes through this object, one cheap 
+     * aggregate query. Updates which keep both are not detected. The first check only records the state.
+     * While a write through this object runs the check is skipped, the write starts a new version anyway.
+     * If incremental analytics are enabled, they are built again from the table after a detected write.
+     */
+    public boolean detectExternalWrites() throws SQLException {
+    	Lock lock = rebuildLock.writeLock();
+    	if (!lock.tryLock()) {
+    		return false;
+    	}
+    	try {
+    		OperationMetrics operation = metrics.operation("detectExternalWrites");
+    		Connection connection = getConnection();
+    		Statement stmt = null;
+    		long rowCount;
+    		long maxId;
+    		try {
+    			long start = System.nanoTime();
+    			stmt = connection.createStatement();
+    			ResultSet rs = stmt.executeQuery("SELECT COUNT(*), MAX(ID) FROM BIG_DATA");
+    			rs.next();
+    			rowCount = rs.getLong(1);
+    			maxId = rs.getLong(2);
+    			operation.recordExecute(System.nanoTime() - start);
+    		} catch (SQLException e) {
+    			operation.recordError();
+    			throw e;
+    		} finally {
+    			if (stmt != null) {
+    				stmt.close();
+    			}
+    			connection.close();
+    		}
+    		boolean changed;
+    		synchronized (knownStateLock) {
+    			changed = knownRowCount >= 0 && (knownStateLost || knownRowCount != rowCount || knownMaxId != maxId);
+    			knownRowCount = rowCount;
+    			knownMaxId = maxId;
+    			knownStateLost = false;
+    		}
+    		if (changed) {
+    			if (incrementalAnalytics != null) {
+    				//starts the new data version as well
+    				buildIncrementalAnalytics();
+    			} else {
+    				dataChanged();
+    			}
+    		}
+    		return changed;
+    	} finally {
+    		lock.unlock();
+    	}
+    }
+    
+    /**
+     * 
+     * @return the timings of the connections and statements of this object
+     */
+    public BigDataMetrics getMetrics() {
+    	return metrics;
+    }
+    
+    /**
+     * 
+     * @param newMetrics
+     * 
+     * Set the metrics the timings are recorded to, e.g. to share them between several objects
+     */
+    public void setMetrics(BigDataMetrics newMetrics) {
+    	if (newMetrics == null) {
+    		throw new IllegalArgumentException("Metrics must not be null");
+    	}
+    	this.metrics = newMetrics;
+    }
+    
+    /**
+     * 
+     * @return the cache for the analyses or null if results are not cached
+     */
+    public AnalyticsCache getAnalyticsCache() {
+    	return analyticsCache;
+    }
+    
+    /**
+     * 
+     * @param newAnalyticsCache
+     * 
+     * Set the cache for getAmountDataset, analyzeAll and the analyze methods, null to disable caching
+     */
+    public void setAnalyticsCache(AnalyticsCache newAnalyticsCache) {
+    	this.analyticsCache = newAnalyticsCache;
+    }
+    
+    /**
+     * 
+     * @throws SQLException
+     * 
+     * Build the aggregates of all analyses from one GROUP BY scan of the table 'BIG_DATA' and
+     * keep them up to date from the rows written through this object afterwards. The analyses
+     * are then answered from memory. Writes through this object wait for the scan and the scan waits
+     * for running writes, so none of their rows are missing. Writes by other applications are only 
+     * seen after detectExternalWrites found them.
+     */
+    public void enableIncrementalAnalytics() throws SQLException {
+    	Lock lock = rebuildLock.writeLock();
+    	lock.lock();
+    	try {
+    		buildIncrementalAnalytics();
+    	} finally {
+    		lock.unlock();
+    	}
+    }
+    
+    /**
+     * 
+     * @throws SQLException
+     * 
+     * The scan of enableIncrementalAnalytics, called with the exclusive rebuild lock held
+     */
+    private void buildIncrementalAnalytics() throws SQLException {
+    	IncrementalAnalytics analytics = new IncrementalAnalytics();
+    	OperationMetrics operation = metrics.operation("enableIncrementalAnalytics");
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	ResultSet rs = null;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement(ANALYZE_BY_DATE_QUERY);
+    		long prepared = System.nanoTime();
+    		operation.recordPrepare(prepared - start);
+    		pstmt.setFetchSize(fetchSize);
+    		rs = pstmt.executeQuery();
+    		long executed = System.nanoTime();
+    		operation.recordExecute(executed - prepared);
+    		int groups = 0;
+    		while (rs.next()) {
+    			analytics.addGroup(rs.getDate(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6), 
+    					rs.getLong(7));
+    			groups++;
+    		}
+    		operation.recordFetch(System.nanoTime() - executed);
+    		operation.addRows(groups);
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
+    	} finally {
+    		if (rs != null) {
+    			rs.close();
+    		}
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		if (connection != null) {
+    			connection.close();
+    		}
+    	}
+    	this.incrementalAnalytics = analytics;
+    	dataChanged();
+    }
+    
+    /**
+     * Answer the analyses from the database again
+     */
+    public void disableIncrementalAnalytics() {
+    	this.incrementalAnalytics = null;
+    	dataChanged();
+    }
+    
+    /**
+     * 
+     * @return the incrementally maintained aggregates or null if they are not enabled
+     */
+    public IncrementalAnalytics getIncrementalAnalytics() {
+    	return incrementalAnalytics;
+    }
+    
+    /**
+     * 
+     * @param enabled
+     * 
+     * Enable or disable the in-memory columnar copy of the table 'BIG_DATA' returned by getColumnarSnapshot
+     */
+    public void setColumnarSnapshotEnabled(boolean enabled) {
+    	this.columnarSnapshotEnabled = enabled;
+    	if (!enabled) {
+    		this.columnarSnapshot = null;
+    	}
+    }
+    
+    /**
+     * 
+     * @return a columnar copy of the table 'BIG_DATA' which reflects all writes through this object
+     * 			or null if the snapshot is not enabled
+     * @throws SQLException
+     * 
+     * The copy is loaded by one streaming scan on first use and loaded again on the first call 
+     * after a write, so a series of reads between writes costs a single scan. A table which is 
+     * too large for the column arrays disables the snapshot, the callers then read the database.
+     */
+    public ColumnarSnapshot getColumnarSnapshot() throws SQLException {
+    	if (!columnarSnapshotEnabled) {
+    		return null;
+    	}
+    	ColumnarSnapshot snapshot = columnarSnapshot;
+    	if (snapshot != null && snapshot.getDataVersion() == dataVersion.get()) {
+    		return snapshot;
+    	}
+    	synchronized (snapshotLoadLock) {
+    		snapshot = columnarSnapshot;
+    		long version = dataVersion.get();
+    		if (snapshot != null && snapshot.getDataVersion() == version) {
+    			return snapshot;
+    		}
+    		ColumnarSnapshot.Builder builder = new ColumnarSnapshot.Builder();
+    		try {
+    			selectAllData(builder);
+    		} catch (IllegalStateException e) {
+    			LOGGER.warn("Columnar snapshot disabled: {}", e.getMessage());
+    			setColumnarSnapshotEnabled(false);
+    			return null;
+    		}
+    		snapshot = builder.build(version);
+    		if (columnarSnapshotEnabled) {
+    			columnarSnapshot = snapshot;
+    		}
+    		return snapshot;
+    	}
+    }
+    
+    /**
+     * 
+     * @return the number of rows the driver fetches per round trip when reading
+     */
+    public int getFetchSize() {
+    	return fetchSize;
+    }
+    
+    /**
+     * 
+     * @param newFetchSize
+     * 
+     * Set the number of rows the driver fetches per round trip when reading
+     */
+    public void setFetchSize(int newFetchSize) {
+    	if (newFetchSize < 1) {
+    		throw new IllegalArgumentException("Fetch size must be at least 1: " + newFetchSize);
+    	}
+    	this.fetchSize = newFetchSize;
+    }
+    
+    /**
+     * 
+     * @param amountDataset
+     * @throws SQLException
+     * 
+     * Insert the amount of data specified.
+     */
+    public void insertBigData(int amountDataset) throws SQLException {
+    	
+    	this.executeInsertOrUpdate(INSERT_QUERY, true, amountDataset);
+    }
+    
+    /**
+     * 
+     * @param amountDataset
+     * @param seed
+     * @return the summary of the load
+     * @throws SQLException
+     * 
+     * Insert the amount of data specified with the IDs 1 to amountDataset on a single connection in one thread.
+     * The rows only depend on the seed, so the result is identical to insertBigDataParallel with the same seed.
+     */
+    public LoadResult insertBigDataSequential(int amountDataset, long seed) throws SQLException {
+    	return insertBigDataRange(1, amountDataset, seed);
+    }
+    
+    /**
+     * 
+     * @param amountDataset
+     * @param workers
+     * @param seed
+     * @return the summary of the load
+     * @throws SQLException
+     * 
+     * Insert the amount of data specified with the IDs 1 to amountDataset. The ID space is split into 
+     * disjoint ranges which are generated and written by a pool of 'workers' threads, each range on its 
+     * own connection. The rows only depend on the seed and the ID, not on the number of workers.
+     */
+    public LoadResult insertBigDataParallel(int amountDataset, int workers, final long seed) throws SQLException {
+    	if (workers < 1) {
+    		throw new IllegalArgumentException("At least one worker is needed: " + workers);
+    	}
+    	long start = System.nanoTime();
+    	//long, so neither the rounding nor the last range wraps around near Integer.MAX_VALUE
+    	long partitions = Math.max(workers * 4L, (amountDataset + (long) MAX_PARTITION_SIZE - 1) / MAX_PARTITION_SIZE);
+    	long partitionSize = Math.max(1, (amountDataset + partitions - 1) / partitions);
+    	
+    	ExecutorService executor = Executors.newFixedThreadPool(workers);
+    	List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+    	try {
+    		for (long firstId = 1; firstId <= amountDataset; firstId += partitionSize) {
+    			final int rangeStart = (int) firstId;
+    			final int rangeSize = (int) Math.min(partitionSize, amountDataset - firstId + 1);
+    			results.add(executor.submit(new Callable<Integer>() {
+    				@Override
+    				public Integer call() throws SQLException {
+    					return writeRange(INSERT_QUERY, true, rangeStart, rangeSize, seed);
+    				}
+    			}));
+    		}
+    		
+    		long rows = 0;
+    		for (Future<Integer> result : results) {
+    			rows += result.get();
+    		}
+    		return new LoadResult(rows, workers, System.nanoTime() - start);
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new SQLException("Parallel load was interrupted", e);
+    	} catch (ExecutionException e) {
+    		if (e.getCause() instanceof SQLException) {
+    			throw (SQLException) e.getCause();
+    		}
+    		throw new SQLException("Parallel load failed", e.getCause());
+    	} finally {
+    		executor.shutdownNow();
+    	}
+    }
+    
+    /**
+     * 
+     * @param firstId
+     * @param amountDataset
+     * @param seed
+     * @return the summary of the load
+     * @throws SQLException
+     * 
+     * Insert the rows with the IDs firstId to firstId + amountDataset - 1 generated from the seed
+     */
+    public LoadResult insertBigDataRange(int firstId, int amountDataset, long seed) throws SQLException {
+    	long start = System.nanoTime();
+    	int rows = writeRange(INSERT_QUERY, true, firstId, amountDataset, seed);
+    	return new LoadResult(rows, 1, System.nanoTime() - start);
+    }
+    
+    /**
+     * 
+     * @param seed
+     * @return the checkpoint of the generation with the seed or null if there is none
+     * @throws SQLException
+     */
+    public GenerationCheckpoint readCheckpoint(long seed) throws SQLException {
+    	return queryCheckpoint("readCheckpoint", SELECT_CHECKPOINT_QUERY, Long.valueOf(seed));
+    }
+    
+    /**
+     * 
+     * @return the checkpoint of the generation which was interrupted last or null if all are complete
+     * @throws SQLException
+     */
+    public GenerationCheckpoint findIncompleteCheckpoint() throws SQLException {
+    	return queryCheckpoint("findIncompleteCheckpoint", SELECT_INCOMPLETE_CHECKPOINT_QUERY, null);
+    }
+    
+    /**
+     * 
+     * @param operationName
+     * @param sqlQuery
+     * @param seed the parameter of the query, null if it has none
+     * @return the first checkpoint of the query or null
+     * @throws SQLException
+     */
+    private GenerationCheckpoint queryCheckpoint(String operationName, String sqlQuery, Long seed) 
+    		throws SQLException {
+    	OperationMetrics operation = metrics.operation(operationName);
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	ResultSet rs = null;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement(sqlQuery);
+    		if (seed != null) {
+    			pstmt.setLong(1, seed.longValue());
+    		}
+    		rs = pstmt.executeQuery();
+    		GenerationCheckpoint checkpoint = null;
+    		if (rs.next()) {
+    			checkpoint = new GenerationCheckpoint(rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getTimestamp(4));
+    			operation.addRows(1);
+    		}
+    		operation.recordExecute(System.nanoTime() - start);
+    		return checkpoint;
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
+    	} finally {
+    		if (rs != null) {
+    			rs.close();
+    		}
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		connection.close();
+    	}
+    }
+    
+    /**
+     * 
+     * @param seed
+     * @param targetRows
+     * @return the checkpoint to continue the generation from
+     * @throws SQLException
+     * 
+     * Start or resume the generation of the rows with the IDs 1 to targetRows. The last committed ID of 
+     * the checkpoint is corrected by the rows which were committed after the checkpoint was written, so
+     * the generation never writes an ID twice. A new target extends or shortens the generation.
+     */
+    public GenerationCheckpoint startGeneration(long seed, int targetRows) throws SQLException {
+    	GenerationCheckpoint checkpoint = readCheckpoint(seed);
+    	int lastId = checkpoint == null ? 0 : checkpoint.getLastId();
+    	if (lastId < targetRows) {
+    		OperationMetrics operation = metrics.operation("findLastCommittedId");
+    		Connection connection = getConnection();
+    		PreparedStatement pstmt = null;
+    		ResultSet rs = null;
+    		try {
+    			long start = System.nanoTime();
+    			pstmt = connection.prepareStatement(SELECT_LAST_COMMITTED_ID_QUERY);
+    			pstmt.setInt(1, lastId);
+    			pstmt.setInt(2, targetRows);
+    			rs = pstmt.executeQuery();
+    			if (rs.next()) {
+    				int committedId = rs.getInt(1);
+    				if (!rs.wasNull()) {
+    					lastId = committedId;
+    				}
+    			}
+    			operation.recordExecute(System.nanoTime() - start);
+    		} catch (SQLException e) {
+    			operation.recordError();
+    			throw e;
+    		} finally {
+    			if (rs != null) {
+    				rs.close();
+    			}
+    			if (pstmt != null) {
+    				pstmt.close();
+    			}
+    			connection.close();
+    		}
+    	}
+    	saveCheckpoint(seed, targetRows, lastId);
+    	return readCheckpoint(seed);
+    }
+    
+    /**
+     * 
+     * @param seed
+     * @param targetRows
+     * @param lastId the highest committed ID
+     * @throws SQLException
+     * 
+     * Write the checkpoint of the generation with the seed in its own transaction
+     */
+    public void saveCheckpoint(long seed, int targetRows, int lastId) throws SQLException {
+    	OperationMetrics operation = metrics.operation("saveCheckpoint");
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement(UPDATE_CHECKPOINT_QUERY);
+    		pstmt.setInt(1, targetRows);
+    		pstmt.setInt(2, lastId);
+    		pstmt.setLong(3, seed);
+    		if (pstmt.executeUpdate() == 0) {
+    			pstmt.close();
+    			pstmt = connection.prepareStatement(INSERT_CHECKPOINT_QUERY);
+    			pstmt.setLong(1, seed);
+    			pstmt.setInt(2, targetRows);
+    			pstmt.setInt(3, lastId);
+    			pstmt.executeUpdate();
+    		}
+    		if (!connection.getAutoCommit()) {
+    			connection.commit();
+    		}
+    		operation.recordExecute(System.nanoTime() - start);
+    		operation.addRows(1);
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
+    	} finally {
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		connection.close();
+    	}
+    }
+    
+    /**
+     * 
+     * @param dataset
+     * @return the number of rows inserted
+     * @throws SQLException
+     * 
+     * Insert the given rows on one connection in batches of 'batchSize' rows, e.g. rows read from a file.
+     * Several calls may run in parallel, each on its own connection.
+     */
+    public int insertBigData(Iterator<BigData> dataset) throws SQLException {
+    	Connection connection = getConnection();
+    	try {
+    		return executeBatched(connection, INSERT_QUERY, true, dataset);
+    	} finally {
+    		connection.close();
+    	}
+    }
+    
+    /**
+     * 
+     * @param firstId
+     * @param amountDataset
+     * @param seed
+     * @return the summary of the update
+     * @throws SQLException
+     * 
+     * Update the rows with the IDs firstId to firstId + amountDataset - 1 with values generated from the seed
+     */
+    public LoadResult updateBigDataRange(int firstId, int amountDataset, long seed) throws SQLException {
+    	return updateBigDataRange(firstId, amountDataset, seed, UpdateStrategy.BATCHED);
+    }
+    
+    /**
+     * 
+     * @param firstId
+     * @param amountDataset
+     * @param seed
+     * @param strategy
+     * @return the summary of the update, its rows per second allow to compare the strategies
+     * @throws SQLException
+     * 
+     * Update the rows with the IDs firstId to firstId + amountDataset - 1 with values generated from the seed
+     * the way the strategy says
+     */
+    public LoadResult updateBigDataRange(int firstId, int amountDataset, long seed, UpdateStrategy strategy) 
+    		throws SQLException {
+    	long start = System.nanoTime();
+    	int rows;
+    	if (strategy == UpdateStrategy.STAGED) {
+    		BigDataGenerator dataset = new BigDataGenerator(seed, firstId, amountDataset);
+    		Connection connection = getConnection();
+    		try {
+    			rows = executeStaged(connection, dataset);
+    		} finally {
+    			connection.close();
+    		}
+    	} else {
+    		rows = writeRange(UPDATE_QUERY, false, firstId, amountDataset, seed);
+    	}
+    	return new LoadResult(rows, 1, System.nanoTime() - start);
+    }
+    
+    /**
+     * 
+     * @param sqlQuery
+     * @param isInsert
+     * @param firstId
+     * @param amountDataset
+     * @param seed
+     * @return the number of rows written
+     * @throws SQLException
+     * 
+     * Generate and write one ID range on its own connection
+     */
+    private int writeRange(String sqlQuery, boolean isInsert, int firstId, int amountDataset, long seed) 
+    		throws SQLException {
+    	BigDataGenerator dataset = new BigDataGenerator(seed, firstId, amountDataset);
+    	Connection connection = getConnection();
+    	try {
+    		return executeBatched(connection, sqlQuery, isInsert, dataset);
+    	} finally {
+    		if (connection != null) {
+    			connection.close();
+    		}
+    	}
+    }
+    
+    /**
+     * 
+     * @param amountDataset
+     * @throws SQLException
+     * 
+     * Update the amount of data specified.
+     */
+    public void updateBigData(int amountDataset) throws SQLException {
+    	this.executeInsertOrUpdate(UPDATE_QUERY, false, amountDataset);
+    }
+
+    /**
+     * Delete all data in the table 'BIG_DATA' and the checkpoints of the generations
+     */
+    public void clearTable() throws SQLException {
+    	String sqlQuery = "DELETE FROM BIG_DATA";
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	Lock lock = rebuildLock.readLock();
+    	lock.lock();
+    	boolean succeeded = false;
+    	try {
+    		pstmt = connection
+                 .prepareStatement(sqlQuery);
+    		pstmt.executeUpdate();
+    		executeStatement(connection, "DELETE FROM " + CHECKPOINT_TABLE);
+    		IncrementalAnalytics analytics = incrementalAnalytics;
+    		if (analytics != null) {
+    			analytics.reset();
+    		}
+    		tableEmptied();
+    		succeeded = true;
+    	} finally {
+    		writeFinished(succeeded, 0, 0);
+    		lock.unlock();
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+            if (connection != null) {
+            	connection.close();
+            }
+    	}
+    }
+
+    /**
+     * 
+     * @return the layout the table 'BIG_DATA' is created with
+     */
+    public TableLayout getTableLayout() {
+    	return tableLayout;
+    }
+    
+    /**
+     * 
+     * @param layout
+     * @throws SQLException
+     * 
+     * Drop the table 'BIG_DATA' with all rows and create it again with the layout,
+     * e.g. to compare layouts in benchmarks
+     */
+    public void recreateTable(TableLayout layout) throws SQLException {
+    	Connection connection = getConnection();
+    	Lock lock = rebuildLock.readLock();
+    	lock.lock();
+    	boolean succeeded = false;
+    	try {
+    		tableLayout = layout;
+    		executeStatement(connection, "DROP TABLE BIG_DATA");
+    		createTable(connection);
+    		executeStatement(connection, "DELETE FROM " + CHECKPOINT_TABLE);
+    		IncrementalAnalytics analytics = incrementalAnalytics;
+    		if (analytics != null) {
+    			analytics.reset();
+    		}
+    		tableEmptied();
+    		succeeded = true;
+    	} finally {
+    		writeFinished(succeeded, 0, 0);
+    		lock.unlock();
+    		connection.close();
+    	}
+    }
+    
+    /**
+     * 
+     * @return all data in the table 'BIG_DATA'
+     * @throws SQLException
+     */
+    public List<BigData> selectAllData() throws SQLException {
+    	String sqlQuery = "Select * FROM BIG_DATA";
+    	return this.executeSqLQueryList("selectAllData", sqlQuery);
+    }
+    
+    /**
+     * 
+     * @param handler
+     * @return the number of rows read
+     * @throws SQLException
+     * 
+     * Read all data in the table 'BIG_DATA' in one forward only scan and hand 
+     * every row to the handler without keeping it in memory
+     */
+    public int selectAllData(BigDataHandler handler) throws SQLException {
+    	return this.executeSQLQueryStream("selectAllData", SELECT_COLUMNS, handler);
+    }
+    
+    /**
+     * 
+     * @param handler
+     * @return the number of rows read
+     * @throws SQLException
+     * @throws IOException if the handler fails to write a row
+     * 
+     * Read all data in the table 'BIG_DATA' in one forward only scan and hand the columns
+     * of every row to the handler, no BigData objects are created
+     */
+    public long selectAllRows(BigDataRowHandler handler) throws SQLException, IOException {
+    	OperationMetrics operation = metrics.operation("selectAllRows");
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	ResultSet rs = null;
+    	long rows = 0;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement(SELECT_COLUMNS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    		long prepared = System.nanoTime();
+    		operation.recordPrepare(prepared - start);
+    		pstmt.setFetchSize(fetchSize);
+    		rs = pstmt.executeQuery();
+    		long executed = System.nanoTime();
+    		operation.recordExecute(executed - prepared);
+    		try {
+    			while (rs.next()) {
+    				rows++;
+    				if (!handler.handle(rs.getInt(1), rs.getString(2), rs.getDate(3), rs.getString(4), rs.getInt(5))) {
+    					break;
+    				}
+    			}
+    		} finally {
+    			operation.recordFetch(System.nanoTime() - executed);
+    			operation.addRows(rows);
+    		}
+    		return rows;
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
+    	} catch (IOException e) {
+    		operation.recordError();
+    		throw e;
+    	} finally {
+    		if (rs != null) {
+    			rs.close();
+    		}
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		if (connection != null) {
+    			connection.close();
+    		}
+    	}
+    }
+    
+    /**
+     * 
+     * @param afterId
+     * @param pageSize
+     * @return at most pageSize rows with an ID greater than afterId, ordered by ID
+     * @throws SQLException
+     * 
+     * Keyset pagination on the primary key: pass the ID of the last row of the 
+     * previous page (or 0 for the first page) to get the next page.
+     */
+    public List<BigData> selectPage(int afterId, int pageSize) throws SQLException {
+    	return this.executeSqLQueryList("selectPage", SELECT_PAGE_QUERY, afterId, pageSize);
+    }
+    
+    /**
+     * 
+     * @param afterId
+     * @param pageSize
+     * @param handler
+     * @return the number of rows read
+     * @throws SQLException
+     * 
+     * Keyset pagination on the primary key which hands the rows of the page to the handler
+     */
+    public int selectPage(int afterId, int pageSize, BigDataHandler handler) throws SQLException {
+    	return this.executeSQLQueryStream("selectPage", SELECT_PAGE_QUERY, handler, afterId, pageSize);
+    }
+    
+    /**
+     * 
+     * @param pageSize
+     * @param handler
+     * @return the number of rows read
+     * @throws SQLException
+     * 
+     * Walk the whole table 'BIG_DATA' in ID order page by page. Every page is a short
+     * index range query, so no cursor is held open between pages.
+     */
+    public int walkAllData(int pageSize, final BigDataHandler handler) throws SQLException {
+    	if (pageSize < 1) {
+    		throw new IllegalArgumentException("Page size must be at least 1: " + pageSize);
+    	}
+    	final int[] lastId = {0};
+    	final boolean[] stopped = {false};
+    	BigDataHandler pageHandler = new BigDataHandler() {
+    		@Override
+    		public boolean handle(BigData bg) throws SQLException {
+    			lastId[0] = bg.getId();
+    			stopped[0] = !handler.handle(bg);
+    			return !stopped[0];
+    		}
+    	};
+    	
+    	int rows = 0;
+    	int pageRows;
+    	do {
+    		pageRows = selectPage(lastId[0], pageSize, pageHandler);
+    		rows += pageRows;
+    	} while (pageRows == pageSize && !stopped[0]);
+    	return rows;
+    }
+    
+    /**
+     * 
+     * @return the amount of dataset in the table 'BIG_DATA'
+     * @throws SQLException
+     */
+    public int getAmountDataset() throws SQLException {
+    	final String operationName = "getAmountDataset";
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	if (analytics != null) {
+    		return (int) analytics.getRowCount();
+    	}
+    	final String sqlQuery = "SELECT COUNT(*) FROM BIG_DATA";
+    	return this.cached(operationName, new AnalyticsCache.Loader<Integer>() {
+    		@Override
+    		public Integer load() throws SQLException {
+    			return executeSQLQueryInt(operationName, sqlQuery);
+    		}
+    	});
+    }
+ 
+    /**
+     * 
+     * @return all analyses of the table 'BIG_DATA'
+     * @throws SQLException
+     * 
+     * Replaces calling getAmountDataset and every analyze method one after another,
+     * which opens five connections. Computed from the incremental analytics or the
+     * columnar snapshot instead of the database if enabled.
+     */
+    public AnalyticsReport analyzeAll() throws SQLException {
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	if (analytics != null) {
+    		return analytics.toReport();
+    	}
+    	return this.cached("analyzeAll", new AnalyticsCache.Loader<AnalyticsReport>() {
+    		@Override
+    		public AnalyticsReport load() throws SQLException {
+    			ColumnarSnapshot snapshot = getColumnarSnapshot();
+    			if (snapshot != null) {
+    				return snapshot.toReport();
+    			}
+    			return executeAnalyzeAll();
+    		}
+    	});
+    }
+    
+    /**
+     * 
+     * @return all analyses of the table 'BIG_DATA' read from the database
+     * @throws SQLException
+     * 
+     * Runs the aggregates and the most common date as two queries on one connection.
+     */
+    private AnalyticsReport executeAnalyzeAll() throws SQLException {
+    	OperationMetrics operation = metrics.operation("analyzeAll");
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	PreparedStatement datePstmt = null;
+    	ResultSet rs = null;
+    	ResultSet dateRs = null;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement(ANALYZE_ALL_QUERY);
+    		datePstmt = connection.prepareStatement(MOST_COMMON_CREATED_AT_QUERY);
+    		long prepared = System.nanoTime();
+    		operation.recordPrepare(prepared - start);
+    		rs = pstmt.executeQuery();
+    		rs.next();
+    		dateRs = datePstmt.executeQuery();
+    		Date mostCommonCreatedAt = dateRs.next() ? dateRs.getDate(1) : null;
+    		operation.recordExecute(System.nanoTime() - prepared);
+    		operation.addRows(2);
+    		long rowCount = rs.getLong(1);
+    		long nameLength = rs.getLong(2);
+    		long nameCount = rs.getLong(3);
+    		long letterECount = rs.getLong(4);
+    		double numberSum = rs.getDouble(5);
+    		long numberCount = rs.getLong(6);
+    		return new AnalyticsReport(rowCount, nameCount == 0 ? 0 : (double) nameLength / nameCount, 
+    				mostCommonCreatedAt, letterECount, numberCount == 0 ? 0 : numberSum / numberCount);
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
+    	} finally {
+    		if (dateRs != null) {
+    			dateRs.close();
+    		}
+    		if (rs != null) {
+    			rs.close();
+    		}
+    		if (datePstmt != null) {
+    			datePstmt.close();
+    		}
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		if (connection != null) {
+    			connection.close();
+    		}
+    	}
+    }
+    
+    /**
+     * 
+     * @param samplePercent percentage of the rows in the sample, 100 for all rows
+     * @return the approximate analyses with error bounds from one scan of a random sample
+     * @throws SQLException
+     * 
+     * Cheaper than analyzeAll on large tables: the database only samples the rows instead of 
+     * grouping all of them, the sketches of the sample need constant memory. The report is cached
+     * like the exact analyses until the table is written.
+     */
+    public ApproximateReport analyzeApproximately(final double samplePercent) throws SQLException {
+    	if (!(samplePercent > 0 && samplePercent <= 100)) {
+    		throw new IllegalArgumentException("Sample percent must be in (0, 100]: " + samplePercent);
+    	}
+    	return this.cached("analyzeApproximately:" + samplePercent, new AnalyticsCache.Loader<ApproximateReport>() {
+    		@Override
+    		public ApproximateReport load() throws SQLException {
+    			return sampleAnalytics(samplePercent);
+    		}
+    	});
+    }
+    
+    /**
+     * 
+     * @param samplePercent
+     * @return the approximate analyses of one sampled scan
+     * @throws SQLException
+     */
+    private ApproximateReport sampleAnalytics(double samplePercent) throws SQLException {
+    	OperationMetrics operation = metrics.operation("analyzeApproximately");
+    	ApproximateAnalytics analytics = new ApproximateAnalytics(samplePercent / 100);
+    	String sqlQuery = sqlDialect.sampleQuery("USER_NAME, CREATED_AT, LENGTH(TEXT) - LENGTH(REPLACE(TEXT, 'e', '')), "
+    			+ "NUMBER", "BIG_DATA", samplePercent);
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	ResultSet rs = null;
+    	long rows = 0;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement(sqlQuery);
+    		pstmt.setFetchSize(fetchSize);
+    		long prepared = System.nanoTime();
+    		operation.recordPrepare(prepared - start);
+    		rs = pstmt.executeQuery();
+    		while (rs.next()) {
+    			analytics.add(rs.getString(1), rs.getDate(2), rs.getLong(3), rs.getInt(4));
+    			rows++;
+    		}
+    		operation.recordExecute(System.nanoTime() - prepared);
+    		operation.addRows(rows);
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
+    	} finally {
+    		if (rs != null) {
+    			rs.close();
+    		}
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		connection.close();
+    	}
+    	return analytics.toReport(estimateRowCount(rows, samplePercent));
+    }
+    
+    /**
+     * 
+     * @param sampledRows
+     * @param samplePercent
+     * @return the amount of dataset, exact from the incremental analytics if enabled, 
+     * 			otherwise scaled up from the sample without counting all rows
+     */
+    private long estimateRowCount(long sampledRows, double samplePercent) {
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	if (analytics != null) {
+    		return analytics.getRowCount();
+    	}
+    	return samplePercent >= 100 ? sampledRows : Math.round(sampledRows * 100 / samplePercent);
+    }
+    
+    /**
+     * 
+     * @return the average length of the values in the column USER_NAME 
      * 			of the table 'BIG_DATA'
      * @throws SQLException
      */
     public int analyzeUsername() throws SQLException {
-    	String sqlQuery = "SELECT AVG(LENGTH(USER_NAME)) FROM BIG_DATA";
-    	return this.executeSQLQueryInt(sqlQuery);
-    	
+    	final String operationName = "analyzeUsername";
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	if (analytics != null) {
+    		return (int) analytics.getAverageUserNameLength();
+    	}
+    	final String sqlQuery = "SELECT AVG(LENGTH(USER_NAME)) FROM BIG_DATA";
+    	return this.cached(operationName, new AnalyticsCache.Loader<Integer>() {
+    		@Override
+    		public Integer load() throws SQLException {
+    			return executeSQLQueryInt(operationName, sqlQuery);
+    		}
+    	});
     }
     
     /**
@@ -337,8 +2101,19 @@ public class BigDataDAO {
      * @throws SQLException
      */
     public Date analyzeCreatedAt() throws SQLException {
-    	String sqlQuery = "SELECT CREATED_AT FROM BIG_DATA GROUP BY CREATED_AT ORDER BY COUNT(*) DESC LIMIT 1;";
-    	return this.executeSQLQueryDate(sqlQuery);
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	if (analytics != null) {
+    		return analytics.getMostCommonCreatedAt();
+    	}
+    	final String sqlQuery = "SELECT CREATED_AT FROM BIG_DATA GROUP BY CREATED_AT ORDER BY COUNT(*) DESC LIMIT 1;";
+    	Date mostCommon = this.cached("analyzeCreatedAt", new AnalyticsCache.Loader<Date>() {
+    		@Override
+    		public Date load() throws SQLException {
+    			return executeSQLQueryDate("analyzeCreatedAt", sqlQuery);
+    		}
+    	});
+    	//java.sql.Date is mutable, never hand out the cached instance
+    	return mostCommon == null ? null : new Date(mostCommon.getTime());
     }
     
     /**
@@ -348,8 +2123,96 @@ public class BigDataDAO {
      * @throws SQLException
      */
     public int analyzeText() throws SQLException {
-    	String sqlQuery = "SELECT SUM(LENGTH(TEXT) - LENGTH(REPLACE(TEXT, 'e', ''))) FROM BIG_DATA";
-    	return this.executeSQLQueryInt(sqlQuery);
+    	final String operationName = "analyzeText";
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	if (analytics != null) {
+    		return (int) analytics.getLetterECount();
+    	}
+    	final String sqlQuery = "SELECT SUM(LENGTH(TEXT) - LENGTH(REPLACE(TEXT, 'e', ''))) FROM BIG_DATA";
+    	return this.cached(operationName, new AnalyticsCache.Loader<Integer>() {
+    		@Override
+    		public Integer load() throws SQLException {
+    			return executeSQLQueryInt(operationName, sqlQuery);
+    		}
+    	});
+    }
+    
+    /**
+     * 
+     * @param countTokens true to count the tokens separated by white space as well
+     * @param countWords true to count the words made of letters and digits as well
+     * @return the frequency of every character in the column TEXT of the table 'BIG_DATA'
+     * @throws SQLException
+     * 
+     * Answers the question of analyzeText for every character at once: the column is read in 
+     * one streaming scan, or taken from the columnar snapshot if it is enabled, and counted in 
+     * parallel chunks by a TextAnalyzer on the threads this DAO keeps for all text analyses. The count 
+     * of 'e' equals the result of analyzeText.
+     */
+    public TextHistogram analyzeTextHistogram(final boolean countTokens, final boolean countWords) 
+    		throws SQLException {
+    	return this.cached("analyzeTextHistogram:" + countTokens + ":" + countWords, 
+    			new AnalyticsCache.Loader<TextHistogram>() {
+    		@Override
+    		public TextHistogram load() throws SQLException {
+    			TextAnalyzer analyzer = new TextAnalyzer(textPool, countTokens, countWords, 
+    					TextAnalyzer.DEFAULT_TOP_CAPACITY);
+    			ColumnarSnapshot snapshot = getColumnarSnapshot();
+    			if (snapshot != null) {
+    				return snapshot.analyzeText(analyzer);
+    			}
+    			return scanText(analyzer);
+    		}
+    	});
+    }
+    
+    /**
+     * 
+     * @param analyzer
+     * @return the histogram of the column TEXT counted while it is streamed from the database
+     * @throws SQLException
+     */
+    private TextHistogram scanText(TextAnalyzer analyzer) throws SQLException {
+    	OperationMetrics operation = metrics.operation("analyzeTextHistogram");
+    	Connection connection = getConnection();
+    	PreparedStatement pstmt = null;
+    	ResultSet rs = null;
+    	long rows = 0;
+    	try {
+    		long start = System.nanoTime();
+    		pstmt = connection.prepareStatement("SELECT TEXT FROM BIG_DATA", ResultSet.TYPE_FORWARD_ONLY, 
+    				ResultSet.CONCUR_READ_ONLY);
+    		long prepared = System.nanoTime();
+    		operation.recordPrepare(prepared - start);
+    		pstmt.setFetchSize(fetchSize);
+    		rs = pstmt.executeQuery();
+    		long executed = System.nanoTime();
+    		operation.recordExecute(executed - prepared);
+    		try {
+    			TextAnalyzer.Pass pass = analyzer.startPass();
+    			while (rs.next()) {
+    				rows++;
+    				pass.add(rs.getString(1));
+    			}
+    			return pass.finish();
+    		} finally {
+    			operation.recordFetch(System.nanoTime() - executed);
+    			operation.addRows(rows);
+    		}
+    	} catch (SQLException e) {
+    		operation.recordError();
+    		throw e;
+    	} finally {
+    		if (rs != null) {
+    			rs.close();
+    		}
+    		if (pstmt != null) {
+    			pstmt.close();
+    		}
+    		if (connection != null) {
+    			connection.close();
+    		}
+    	}
     }
     
     /**
@@ -359,7 +2222,17 @@ public class BigDataDAO {
      * @throws SQLException
      */
     public int analyzeNumber() throws SQLException {
-    	String sqlQuery = "SELECT AVG(TO_DOUBLE(NUMBER)) FROM BIG_DATA";
-    	return this.executeSQLQueryInt(sqlQuery);
+    	final String operationName = "analyzeNumber";
+    	IncrementalAnalytics analytics = incrementalAnalytics;
+    	if (analytics != null) {
+    		return (int) analytics.getAverageNumber();
+    	}
+    	final String sqlQuery = "SELECT AVG(TO_DOUBLE(NUMBER)) FROM BIG_DATA";
+    	return this.cached(operationName, new AnalyticsCache.Loader<Integer>() {
+    		@Override
+    		public Integer load() throws SQLException {
+    			return executeSQLQueryInt(operationName, sqlQuery);
+    		}
+    	});
     }
 }
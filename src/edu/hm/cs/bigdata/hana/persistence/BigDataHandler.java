@@ -0,0 +1,20 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.SQLException;
+
+/**
+ * 
+ * Callback for reading the table 'BIG_DATA' row by row. The rows are handed over while
+ * the result set is read, so the table never has to fit into memory.
+ *
+ */
+public interface BigDataHandler {
+	
+	/**
+	 * 
+	 * @param bg
+	 * @return true to continue with the next row, false to stop reading
+	 * @throws SQLException
+	 */
+	boolean handle(BigData bg) throws SQLException;
+}
@@ -0,0 +1,25 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.io.IOException;
+import java.sql.Date;
+
+/**
+ * 
+ * Callback for reading the columns of the table 'BIG_DATA' row by row without creating
+ * a BigData object per row, e.g. to write the rows to a stream
+ *
+ */
+public interface BigDataRowHandler {
+	
+	/**
+	 * 
+	 * @param id
+	 * @param userName
+	 * @param createdAt
+	 * @param text
+	 * @param number
+	 * @return true to continue with the next row, false to stop reading
+	 * @throws IOException
+	 */
+	boolean handle(int id, String userName, Date createdAt, String text, int number) throws IOException;
+}
@@ -0,0 +1,402 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.nio.charset.Charset;
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.TimeZone;
+
+import edu.hm.cs.bigdata.hana.text.TextAnalyzer;
+import edu.hm.cs.bigdata.hana.text.TextHistogram;
+
+/**
+ * 
+ * In-memory copy of the table 'BIG_DATA' stored column by column in primitive arrays.
+ * ID and NUMBER are int columns with a bit per row for a null NUMBER, CREATED_AT is stored as days since 1970-01-01 and
+ * USER_NAME and TEXT are packed as UTF-8 bytes into one array per column with an 
+ * offset array and a bit per row for null. A row costs about 20 bytes plus its text instead
+ * of a BigData object with a Date and two Strings, and analyses run as plain loops over
+ * contiguous arrays. Nulls are skipped by the averages like by AVG in SQL and the rows
+ * without CREATED_AT are one group for the most common date like in GROUP BY.
+ * A column of packed strings holds at most about 2 GB, a larger table cannot be copied.
+ * 
+ * A snapshot is immutable once it is built and can be read by many threads.
+ *
+ */
+public class ColumnarSnapshot {
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final long MILLIS_PER_DAY = 86400000L;
+	//largest date range for which the most common date is counted in an array instead of sorting
+	private static final int MAX_COUNTING_RANGE = 1 << 24;
+	private static final int NULL_DAY = Integer.MIN_VALUE;
+	//some virtual machines reserve header words in an array
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+	
+	private final long dataVersion;
+	private final int size;
+	private final int[] ids;
+	private final int[] numbers;
+	private final BitSet numberNulls;
+	private final int[] createdAtDays;
+	private final byte[] userNames;
+	private final int[] userNameOffsets;
+	private final BitSet userNameNulls;
+	private final byte[] texts;
+	private final int[] textOffsets;
+	private final BitSet textNulls;
+	
+	/**
+	 * 
+	 * Collects the rows of one scan into growing column arrays
+	 *
+	 */
+	static final class Builder implements BigDataHandler {
+		private final TimeZone timeZone = TimeZone.getDefault();
+		private int size;
+		private int[] ids = new int[1024];
+		private int[] numbers = new int[1024];
+		private final BitSet numberNulls = new BitSet();
+		private int[] createdAtDays = new int[1024];
+		private ByteColumn userNames = new ByteColumn();
+		private ByteColumn texts = new ByteColumn();
+		
+		@Override
+		public boolean handle(BigData bg) {
+			return handle(bg, false);
+		}
+		
+		/**
+		 * 
+		 * @param bg
+		 * @param numberNull true if NUMBER of the row is null, BigData cannot tell
+		 * @return true to continue with the next row
+		 */
+		boolean handle(BigData bg, boolean numberNull) {
+			if (size == ids.length) {
+				int capacity = newCapacity(size, size + 1L, "ID");
+				ids = Arrays.copyOf(ids, capacity);
+				numbers = Arrays.copyOf(numbers, capacity);
+				createdAtDays = Arrays.copyOf(createdAtDays, capacity);
+			}
+			ids[size] = bg.getId();
+			numbers[size] = bg.getNumber();
+			if (numberNull) {
+				numberNulls.set(size);
+			}
+			createdAtDays[size] = bg.getCreatedAt() == null ? NULL_DAY : toEpochDay(bg.getCreatedAt(), timeZone);
+			userNames.add(bg.getUserName());
+			texts.add(bg.getText());
+			size++;
+			return true;
+		}
+		
+		/**
+		 * 
+		 * @param dataVersion
+		 * @return the snapshot of all collected rows
+		 */
+		ColumnarSnapshot build(long dataVersion) {
+			return new ColumnarSnapshot(dataVersion, size, Arrays.copyOf(ids, size), Arrays.copyOf(numbers, size),
+					numberNulls, Arrays.copyOf(createdAtDays, size), userNames.bytes(), userNames.offsets(), userNames.nulls, 
+					texts.bytes(), texts.offsets(), texts.nulls);
+		}
+	}
+	
+	/**
+	 * 
+	 * Strings of one column packed as UTF-8 bytes, row i is stored from offsets[i] to offsets[i + 1].
+	 * A null is stored as empty string with its bit set in nulls.
+	 *
+	 */
+	private static final class ByteColumn {
+		private static final byte[] EMPTY = new byte[0];
+		private byte[] bytes = new byte[16384];
+		private int length;
+		private int[] offsets = new int[1025];
+		private final BitSet nulls = new BitSet();
+		private int rows;
+		
+		private void add(String value) {
+			if (value == null) {
+				nulls.set(rows);
+			}
+			byte[] encoded = value == null ? EMPTY : value.getBytes(UTF8);
+			if ((long) length + encoded.length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, newCapacity(bytes.length, (long) length + encoded.length, 
+						"USER_NAME or TEXT"));
+			}
+			System.arraycopy(encoded, 0, bytes, length, encoded.length);
+			length += encoded.length;
+			if (rows + 2L > offsets.length) {
+				offsets = Arrays.copyOf(offsets, newCapacity(offsets.length, rows + 2L, "ID"));
+			}
+			offsets[++rows] = length;
+		}
+		
+		private byte[] bytes() {
+			return Arrays.copyOf(bytes, length);
+		}
+		
+		private int[] offsets() {
+			return Arrays.copyOf(offsets, rows + 1);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param capacity the current length of the array
+	 * @param required the length the array needs
+	 * @param column the column the array belongs to, for the message
+	 * @return the new length of the array, about 1.5 times the current one
+	 * @throws IllegalStateException if the required length exceeds the largest array
+	 */
+	static int newCapacity(int capacity, long required, String column) {
+		if (required > MAX_ARRAY_SIZE) {
+			throw new IllegalStateException("Column " + column + " needs more than " + MAX_ARRAY_SIZE 
+					+ " array elements, the table is too large for a columnar snapshot");
+		}
+		return (int) Math.min(MAX_ARRAY_SIZE, Math.max(required, capacity + (long) (capacity >> 1)));
+	}
+	
+	private ColumnarSnapshot(long dataVersion, int size, int[] ids, int[] numbers, BitSet numberNulls, 
+			int[] createdAtDays, byte[] userNames, int[] userNameOffsets, BitSet userNameNulls, byte[] texts, 
+			int[] textOffsets, BitSet textNulls) {
+		this.dataVersion = dataVersion;
+		this.size = size;
+		this.ids = ids;
+		this.numbers = numbers;
+		this.numberNulls = numberNulls;
+		this.createdAtDays = createdAtDays;
+		this.userNames = userNames;
+		this.userNameOffsets = userNameOffsets;
+		this.userNameNulls = userNameNulls;
+		this.texts = texts;
+		this.textOffsets = textOffsets;
+		this.textNulls = textNulls;
+	}
+	
+	/**
+	 * 
+	 * @param date
+	 * @param timeZone
+	 * @return the days since 1970-01-01 of the local date
+	 */
+	private static int toEpochDay(Date date, TimeZone timeZone) {
+		long localMillis = date.getTime() + timeZone.getOffset(date.getTime());
+		long day = localMillis / MILLIS_PER_DAY;
+		if (localMillis % MILLIS_PER_DAY < 0) {
+			day--;
+		}
+		return (int) day;
+	}
+	
+	/**
+	 * 
+	 * @param epochDay
+	 * @return the date at local midnight of the day
+	 */
+	private static Date toDate(int epochDay) {
+		if (epochDay == NULL_DAY) {
+			return null;
+		}
+		TimeZone timeZone = TimeZone.getDefault();
+		long utcMillis = epochDay * MILLIS_PER_DAY;
+		return new Date(utcMillis - timeZone.getOffset(utcMillis - timeZone.getOffset(utcMillis)));
+	}
+	
+	/**
+	 * 
+	 * @param bytes
+	 * @param from
+	 * @param to
+	 * @return the number of characters of the UTF-8 bytes, continuation bytes are not counted
+	 */
+	private static int countCharacters(byte[] bytes, int from, int to) {
+		int characters = 0;
+		for (int i = from; i < to; i++) {
+			characters += (bytes[i] & 0xC0) != 0x80 ? 1 : 0;
+		}
+		return characters;
+	}
+	
+	/**
+	 * 
+	 * @return the data version of the BigDataDAO when the scan started
+	 */
+	public long getDataVersion() {
+		return dataVersion;
+	}
+	
+	/**
+	 * 
+	 * @return the number of rows in the snapshot
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * 
+	 * @param index
+	 * @return the row at the index as object
+	 */
+	public BigData getRow(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+		}
+		BigData bg = new BigData();
+		bg.setId(ids[index]);
+		bg.setUserName(userNameNulls.get(index) ? null : new String(userNames, userNameOffsets[index], 
+				userNameOffsets[index + 1] - userNameOffsets[index], UTF8));
+		bg.setCreatedAt(toDate(createdAtDays[index]));
+		bg.setText(textNulls.get(index) ? null : new String(texts, textOffsets[index], 
+				textOffsets[index + 1] - textOffsets[index], UTF8));
+		bg.setNumber(numbers[index]);
+		return bg;
+	}
+	
+	/**
+	 * 
+	 * @return the average length of the values in the column USER_NAME which are not null
+	 */
+	public double getAverageUserNameLength() {
+		int values = size - userNameNulls.cardinality();
+		return values == 0 ? 0 : (double) countCharacters(userNames, 0, userNames.length) / values;
+	}
+	
+	/**
+	 * 
+	 * @return the number of letter 'e' used in the column TEXT
+	 */
+	public long getLetterECount() {
+		long count = 0;
+		for (int i = 0; i < texts.length; i++) {
+			count += texts[i] == 'e' ? 1 : 0;
+		}
+		return count;
+	}
+	
+	/**
+	 * 
+	 * @param analyzer
+	 * @return the character histogram of the column TEXT, counted in parallel over the packed bytes
+	 */
+	public TextHistogram analyzeText(TextAnalyzer analyzer) {
+		return analyzer.analyze(texts, textOffsets, size);
+	}
+	
+	/**
+	 * 
+	 * @return the average of the values in column NUMBER which are not null
+	 */
+	public double getAverageNumber() {
+		//a null NUMBER is stored as 0 and adds nothing to the sum
+		long sum = 0;
+		for (int i = 0; i < size; i++) {
+			sum += numbers[i];
+		}
+		int values = size - numberNulls.cardinality();
+		return values == 0 ? 0 : (double) sum / values;
+	}
+	
+	/**
+	 * 
+	 * @return the most common date in the column CREATED_AT or null if the snapshot is empty
+	 * 			or the rows without a date are the most common group
+	 * 
+	 * Counts in an array over the range of days if it is small enough, otherwise sorts a copy of the column
+	 */
+	public Date getMostCommonCreatedAt() {
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		int nullCount = 0;
+		for (int i = 0; i < size; i++) {
+			if (createdAtDays[i] != NULL_DAY) {
+				min = Math.min(min, createdAtDays[i]);
+				max = Math.max(max, createdAtDays[i]);
+			} else {
+				nullCount++;
+			}
+		}
+		if (min > max) {
+			return null;
+		}
+		
+		int mostCommonDay = min;
+		int mostCommonCount = 0;
+		if ((long) max - min < MAX_COUNTING_RANGE) {
+			int[] counts = new int[max - min + 1];
+			for (int i = 0; i < size; i++) {
+				if (createdAtDays[i] != NULL_DAY) {
+					counts[createdAtDays[i] - min]++;
+				}
+			}
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > mostCommonCount) {
+					mostCommonCount = counts[i];
+					mostCommonDay = min + i;
+				}
+			}
+			if (nullCount > mostCommonCount) {
+				mostCommonDay = NULL_DAY;
+			}
+		} else {
+			int[] sorted = Arrays.copyOf(createdAtDays, size);
+			Arrays.sort(sorted);
+			int runStart = 0;
+			for (int i = 1; i <= size; i++) {
+				if (i == size || sorted[i] != sorted[runStart]) {
+					if (i - runStart > mostCommonCount) {
+						mostCommonCount = i - runStart;
+						mostCommonDay = sorted[runStart];
+					}
+					runStart = i;
+				}
+			}
+		}
+		return toDate(mostCommonDay);
+	}
+	
+	/**
+	 * 
+	 * @param min
+	 * @param max
+	 * @return the number of rows with a value in column NUMBER between min and max, both included
+	 */
+	public int countNumberBetween(int min, int max) {
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			count += numbers[i] >= min && numbers[i] <= max && !numberNulls.get(i) ? 1 : 0;
+		}
+		return count;
+	}
+	
+	/**
+	 * 
+	 * @param date
+	 * @return the IDs of all rows created at the date, null for the rows without a date
+	 */
+	public int[] selectIdsCreatedAt(Date date) {
+		int day = date == null ? NULL_DAY : toEpochDay(date, TimeZone.getDefault());
+		int[] result = new int[16];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (createdAtDays[i] == day) {
+				if (count == result.length) {
+					result = Arrays.copyOf(result, newCapacity(count, count + 1L, "ID"));
+				}
+				result[count++] = ids[i];
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+	
+	/**
+	 * 
+	 * @return all analyses computed from the snapshot
+	 */
+	public AnalyticsReport toReport() {
+		return new AnalyticsReport(size, getAverageUserNameLength(), getMostCommonCreatedAt(), getLetterECount(),
+				getAverageNumber());
+	}
+}
@@ -0,0 +1,206 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Frequencies of the values of CREATED_AT with the most common value at hand. The dates are kept
+ * as primitive longs in an open addressing table and the entries in a max-heap ordered by count,
+ * so changing a count costs O(log n) of the distinct dates, finding the most common date O(1),
+ * and no date is boxed. A date whose count goes back to 0 keeps its entry until clear.
+ * Counts may be negative, e.g. in the delta of a transaction.
+ *
+ */
+final class DateHistogram {
+	/** Key of the rows without a date */
+	static final long NULL_DATE = Long.MIN_VALUE;
+	private static final int INITIAL_CAPACITY = 64;
+
+	//entry i: the date, its count and its position in the heap
+	private long[] dates = new long[INITIAL_CAPACITY];
+	private long[] counts = new long[INITIAL_CAPACITY];
+	private int[] heapPositions = new int[INITIAL_CAPACITY];
+	//entry indices ordered as max-heap by count
+	private int[] heap = new int[INITIAL_CAPACITY];
+	//entry index + 1 per hash slot, 0 for a free slot; at most half full
+	private int[] table = new int[2 * INITIAL_CAPACITY];
+	private int size;
+
+	/**
+	 *
+	 * @param date ms since the epoch or NULL_DATE
+	 * @param count added to the frequency of the date, may be negative
+	 */
+	void add(long date, long count) {
+		if (count == 0) {
+			return;
+		}
+		int entry = entryOf(date);
+		counts[entry] += count;
+		if (count > 0) {
+			siftUp(heapPositions[entry]);
+		} else {
+			siftDown(heapPositions[entry]);
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of distinct dates, including dates whose count went back to 0
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 *
+	 * @param entry between 0 and size - 1
+	 * @return the date of the entry
+	 */
+	long getDate(int entry) {
+		return dates[entry];
+	}
+
+	/**
+	 *
+	 * @param entry between 0 and size - 1
+	 * @return the count of the entry
+	 */
+	long getCount(int entry) {
+		return counts[entry];
+	}
+
+	/**
+	 *
+	 * @return the highest count, 0 if there is no date with a positive count
+	 */
+	long getMostCommonCount() {
+		return size == 0 ? 0 : Math.max(0, counts[heap[0]]);
+	}
+
+	/**
+	 *
+	 * @return the date with the highest count, only meaningful if getMostCommonCount is positive
+	 */
+	long getMostCommonDate() {
+		return size == 0 ? NULL_DATE : dates[heap[0]];
+	}
+
+	/**
+	 * Remove all dates
+	 */
+	void clear() {
+		Arrays.fill(table, 0);
+		size = 0;
+	}
+
+	/**
+	 *
+	 * @param date
+	 * @return the index of the entry of the date, a new entry with count 0 if there was none
+	 */
+	private int entryOf(long date) {
+		int mask = table.length - 1;
+		int slot = hash(date) & mask;
+		while (table[slot] != 0) {
+			int entry = table[slot] - 1;
+			if (dates[entry] == date) {
+				return entry;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (size == dates.length) {
+			grow();
+			return entryOf(date);
+		}
+		int entry = size++;
+		dates[entry] = date;
+		counts[entry] = 0;
+		heap[entry] = entry;
+		heapPositions[entry] = entry;
+		table[slot] = entry + 1;
+		//a count of 0 may be above negative counts
+		siftUp(entry);
+		return entry;
+	}
+
+	/**
+	 *
+	 * @param date
+	 * @return the hash of the date, spread over all bits
+	 */
+	private static int hash(long date) {
+		long h = date * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Double the capacity and insert the dates into the larger table again
+	 */
+	private void grow() {
+		int capacity = dates.length * 2;
+		dates = Arrays.copyOf(dates, capacity);
+		counts = Arrays.copyOf(counts, capacity);
+		heapPositions = Arrays.copyOf(heapPositions, capacity);
+		heap = Arrays.copyOf(heap, capacity);
+		table = new int[2 * capacity];
+		int mask = table.length - 1;
+		for (int entry = 0; entry < size; entry++) {
+			int slot = hash(dates[entry]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = entry + 1;
+		}
+	}
+
+	/**
+	 *
+	 * @param position
+	 *
+	 * Move the entry at the position of the heap up while its count is higher than its parent's
+	 */
+	private void siftUp(int position) {
+		int entry = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (counts[heap[parent]] >= counts[entry]) {
+				break;
+			}
+			place(heap[parent], position);
+			position = parent;
+		}
+		place(entry, position);
+	}
+
+	/**
+	 *
+	 * @param position
+	 *
+	 * Move the entry at the position of the heap down while a child has a higher count
+	 */
+	private void siftDown(int position) {
+		int entry = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && counts[heap[child + 1]] > counts[heap[child]]) {
+				child++;
+			}
+			if (counts[heap[child]] <= counts[entry]) {
+				break;
+			}
+			place(heap[child], position);
+			position = child;
+		}
+		place(entry, position);
+	}
+
+	//put the entry at the position and remember the position
+	private void place(int entry, int position) {
+		heap[position] = entry;
+		heapPositions[entry] = position;
+	}
+}
@@ -0,0 +1,60 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.Timestamp;
+
+/**
+ *
+ * Progress of a generation into the table 'BIG_DATA' as stored in the table 'BIG_DATA_CHECKPOINT'.
+ * The generator is counter based: the values of a row only depend on the seed and the ID, so
+ * the seed and the last committed ID are the complete state needed to continue a generation.
+ *
+ */
+public class GenerationCheckpoint {
+	private final long seed;
+	private final int targetRows;
+	private final int lastId;
+	private final Timestamp updatedAt;
+
+	/**
+	 *
+	 * @param seed
+	 * @param targetRows the rows with the IDs 1 to targetRows are generated
+	 * @param lastId the highest ID committed, all IDs below are committed as well
+	 * @param updatedAt
+	 */
+	public GenerationCheckpoint(long seed, int targetRows, int lastId, Timestamp updatedAt) {
+		this.seed = seed;
+		this.targetRows = targetRows;
+		this.lastId = lastId;
+		this.updatedAt = updatedAt;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getTargetRows() {
+		return targetRows;
+	}
+
+	public int getLastId() {
+		return lastId;
+	}
+
+	public Timestamp getUpdatedAt() {
+		return updatedAt;
+	}
+
+	/**
+	 *
+	 * @return true if all rows up to the target are committed
+	 */
+	public boolean isComplete() {
+		return lastId >= targetRows;
+	}
+
+	@Override
+	public String toString() {
+		return "seed=" + seed + " lastId=" + lastId + "/" + targetRows + " updatedAt=" + updatedAt;
+	}
+}
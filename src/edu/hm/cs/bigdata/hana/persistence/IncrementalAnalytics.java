@@ -0,0 +1,217 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.Date;
+
+/**
+ * 
+ * Aggregates behind the analyses of the table 'BIG_DATA' which are kept up to date from
+ * the rows written through the BigDataDAO instead of scanning the table for every request.
+ * Holds sums and counts for the averages and the 'e' frequency and a histogram of CREATED_AT.
+ * 
+ * An instance is also used as delta of one transaction: the DAO records the rows of a 
+ * transaction in a separate instance and merges it after the commit. Counts in a delta
+ * may therefore be negative.
+ *
+ */
+public class IncrementalAnalytics {
+	
+	private long rowCount;
+	private long nameLengthSum;
+	private long nameCount;
+	private long letterECount;
+	private long numberSum;
+	private long numberCount;
+	private final DateHistogram dateHistogram = new DateHistogram();
+	
+	/**
+	 * 
+	 * @param text
+	 * @return the number of letter 'e' in text
+	 */
+	private static long countLetterE(String text) {
+		if (text == null) {
+			return 0;
+		}
+		long count = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == 'e') {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * 
+	 * @param bg
+	 * 
+	 * Add the contribution of an inserted row
+	 */
+	public synchronized void add(BigData bg) {
+		apply(bg, 1);
+	}
+	
+	/**
+	 * 
+	 * @param bg
+	 * 
+	 * Subtract the contribution of a deleted row
+	 */
+	public synchronized void remove(BigData bg) {
+		apply(bg, -1);
+	}
+	
+	/**
+	 * 
+	 * @param oldRow
+	 * @param newRow
+	 * 
+	 * Replace the contribution of an updated row
+	 */
+	public synchronized void update(BigData oldRow, BigData newRow) {
+		apply(oldRow, -1);
+		apply(newRow, 1);
+	}
+	
+	/**
+	 * 
+	 * @param bg
+	 * @param sign 1 to add, -1 to subtract the row
+	 */
+	private void apply(BigData bg, int sign) {
+		rowCount += sign;
+		if (bg.getUserName() != null) {
+			nameLengthSum += sign * bg.getUserName().length();
+			nameCount += sign;
+		}
+		letterECount += sign * countLetterE(bg.getText());
+		//BigData always has a NUMBER
+		numberSum += sign * (long) bg.getNumber();
+		numberCount += sign;
+		dateHistogram.add(dateKey(bg.getCreatedAt()), sign);
+	}
+	
+	/**
+	 * 
+	 * @param date
+	 * @return the key of the date in the histogram
+	 */
+	private static long dateKey(Date date) {
+		return date == null ? DateHistogram.NULL_DATE : date.getTime();
+	}
+	
+	/**
+	 * 
+	 * @param createdAt
+	 * @param rows
+	 * @param userNameLength
+	 * @param userNameCount
+	 * @param letterE
+	 * @param numbers
+	 * @param numberCount the number of values in column NUMBER which are not null
+	 * 
+	 * Add the aggregates of all rows with the same CREATED_AT, used when the
+	 * aggregates are rebuilt from a GROUP BY scan of the table
+	 */
+	public synchronized void addGroup(Date createdAt, long rows, long userNameLength, long userNameCount, 
+			long letterE, long numbers, long numberCount) {
+		rowCount += rows;
+		nameLengthSum += userNameLength;
+		nameCount += userNameCount;
+		letterECount += letterE;
+		numberSum += numbers;
+		this.numberCount += numberCount;
+		dateHistogram.add(dateKey(createdAt), rows);
+	}
+	
+	/**
+	 * 
+	 * @param delta
+	 * 
+	 * Add all changes recorded in delta, typically the rows of a committed transaction
+	 */
+	public void merge(IncrementalAnalytics delta) {
+		synchronized (delta) {
+			synchronized (this) {
+				rowCount += delta.rowCount;
+				nameLengthSum += delta.nameLengthSum;
+				nameCount += delta.nameCount;
+				letterECount += delta.letterECount;
+				numberSum += delta.numberSum;
+				numberCount += delta.numberCount;
+				DateHistogram dates = delta.dateHistogram;
+				for (int entry = 0; entry < dates.size(); entry++) {
+					dateHistogram.add(dates.getDate(entry), dates.getCount(entry));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Remove all aggregates, as after deleting all rows
+	 */
+	public synchronized void reset() {
+		rowCount = 0;
+		nameLengthSum = 0;
+		nameCount = 0;
+		letterECount = 0;
+		numberSum = 0;
+		numberCount = 0;
+		dateHistogram.clear();
+	}
+	
+	/**
+	 * 
+	 * @return the amount of dataset
+	 */
+	public synchronized long getRowCount() {
+		return rowCount;
+	}
+	
+	/**
+	 * 
+	 * @return the average length of the values in the column USER_NAME
+	 */
+	public synchronized double getAverageUserNameLength() {
+		return nameCount == 0 ? 0 : (double) nameLengthSum / nameCount;
+	}
+	
+	/**
+	 * 
+	 * @return the number of letter 'e' used in the column TEXT
+	 */
+	public synchronized long getLetterECount() {
+		return letterECount;
+	}
+	
+	/**
+	 * 
+	 * @return the average of the values in column NUMBER which are not null
+	 */
+	public synchronized double getAverageNumber() {
+		return numberCount == 0 ? 0 : (double) numberSum / numberCount;
+	}
+	
+	/**
+	 * 
+	 * @return the most common date in the column CREATED_AT or null if there is none
+	 * 			or the rows without a date are the most common group
+	 * 
+	 * Constant time, the histogram keeps its most common date at hand
+	 */
+	public synchronized Date getMostCommonCreatedAt() {
+		if (dateHistogram.getMostCommonCount() == 0 || dateHistogram.getMostCommonDate() == DateHistogram.NULL_DATE) {
+			return null;
+		}
+		return new Date(dateHistogram.getMostCommonDate());
+	}
+	
+	/**
+	 * 
+	 * @return all analyses as one consistent report
+	 */
+	public synchronized AnalyticsReport toReport() {
+		return new AnalyticsReport(rowCount, getAverageUserNameLength(), getMostCommonCreatedAt(), 
+				letterECount, getAverageNumber());
+	}
+}
@@ -0,0 +1,63 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+/**
+ * 
+ * Summary of a bulk load into the table 'BIG_DATA': how many rows were written
+ * by how many workers and how long it took.
+ *
+ */
+public class LoadResult {
+	private final long rows;
+	private final int workers;
+	private final long elapsedNanos;
+	
+	/**
+	 * 
+	 * @param rows
+	 * @param workers
+	 * @param elapsedNanos
+	 */
+	public LoadResult(long rows, int workers, long elapsedNanos) {
+		this.rows = rows;
+		this.workers = workers;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * 
+	 * @return the number of rows written
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * 
+	 * @return the number of workers which wrote in parallel
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * 
+	 * @return the wall clock time of the load in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000L;
+	}
+
+	/**
+	 * 
+	 * @return the aggregate throughput of all workers in rows per second
+	 */
+	public double getRowsPerSecond() {
+		return elapsedNanos == 0 ? 0 : rows * 1000000000.0 / elapsedNanos;
+	}
+	
+	@Override
+	public String toString() {
+		return rows + " rows by " + workers + " workers in " + getElapsedMillis() + " ms ("
+				+ Math.round(getRowsPerSecond()) + " rows/s)";
+	}
+}
@@ -0,0 +1,427 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *
+ * Physical connection of a PooledDataSource together with its prepared statements.
+ * Every borrow hands out a new proxy, so a handle which was closed and is used again
+ * cannot reach the connection of the next borrower. Closing the proxy returns the
+ * connection to the pool, closing a cached statement keeps it open for the next
+ * prepareStatement call with the same SQL. Only queries and DML are cached, statements
+ * on local temporary tables and DDL are prepared for each call. Every statement which is
+ * not cached is closed when the connection is returned, also if the borrower did not close it.
+ *
+ */
+class PooledConnection {
+	//statements of a borrow are checked for closed ones when the list reaches this size
+	private static final int OPENED_STATEMENTS_CHECK = 64;
+	
+	private final PooledDataSource pool;
+	private final Connection connection;
+	private final int statementCacheSize;
+	//least recently used statement first, only for the plain prepareStatement variants
+	private final LinkedHashMap<String, PreparedStatement> statements;
+	private final Set<String> statementsInUse = new HashSet<String>();
+	//statements of the current borrow which are not cached
+	private final List<Statement> openedStatements = new ArrayList<Statement>();
+	private volatile long lastUsed = System.currentTimeMillis();
+	private volatile long borrowedAt;
+	private volatile Throwable borrowedBy;
+	private volatile boolean leakReported;
+
+	/**
+	 *
+	 * @param pool
+	 * @param connection
+	 * @param statementCacheSize
+	 */
+	PooledConnection(PooledDataSource pool, Connection connection, int statementCacheSize) {
+		this.pool = pool;
+		this.connection = connection;
+		this.statementCacheSize = statementCacheSize;
+		this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+	}
+
+	/**
+	 *
+	 * @param recordStack
+	 * @return a new handle for the borrower
+	 *
+	 * Mark the connection as borrowed, with the stack of the borrower for leak reports if requested
+	 */
+	Connection borrow(boolean recordStack) {
+		borrowedAt = System.currentTimeMillis();
+		borrowedBy = recordStack ? new Throwable("Connection borrowed here") : null;
+		leakReported = false;
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandle());
+	}
+
+	/**
+	 *
+	 * @throws SQLException
+	 *
+	 * Close the statements of the borrow which are not cached and the cached ones the borrower 
+	 * did not close, then roll back an open transaction, so the next borrower gets the connection
+	 * in its initial state
+	 */
+	void reset() throws SQLException {
+		lastUsed = System.currentTimeMillis();
+		borrowedBy = null;
+		SQLException failure = null;
+		synchronized (this) {
+			for (Statement statement : openedStatements) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					failure = e;
+				}
+			}
+			openedStatements.clear();
+			for (String key : statementsInUse) {
+				PreparedStatement statement = statements.remove(key);
+				if (statement != null) {
+					try {
+						statement.close();
+					} catch (SQLException e) {
+						failure = e;
+					}
+				}
+			}
+			statementsInUse.clear();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		if (!connection.getAutoCommit()) {
+			connection.rollback();
+			connection.setAutoCommit(true);
+		}
+		connection.clearWarnings();
+	}
+	
+	/**
+	 * 
+	 * @param statement a statement of the current borrow which is not cached
+	 * 
+	 * Remember the statement to close it when the connection is returned. Statements the 
+	 * borrower closed already are dropped from time to time, so a long borrow does not 
+	 * keep them all.
+	 */
+	private synchronized void trackStatement(Statement statement) {
+		if (openedStatements.size() >= OPENED_STATEMENTS_CHECK) {
+			Iterator<Statement> it = openedStatements.iterator();
+			while (it.hasNext()) {
+				try {
+					if (it.next().isClosed()) {
+						it.remove();
+					}
+				} catch (SQLException e) {
+					//closed again on reset
+				}
+			}
+		}
+		openedStatements.add(statement);
+	}
+	
+	/**
+	 * 
+	 * @param sqlQuery
+	 * @return true if a prepared statement for the SQL may be cached: a query or DML which does not
+	 * 			use a local temporary table, whose name starts with '#'. The table may be dropped and 
+	 * 			created again between two borrows, DDL is not executed often enough to be worth it.
+	 */
+	static boolean isCacheable(String sqlQuery) {
+		String sql = sqlQuery.trim();
+		int end = 0;
+		while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+			end++;
+		}
+		String keyword = sql.substring(0, end).toUpperCase(Locale.ROOT);
+		return (keyword.equals("SELECT") || keyword.equals("WITH") || keyword.equals("INSERT") 
+				|| keyword.equals("UPDATE") || keyword.equals("DELETE") || keyword.equals("MERGE")
+				|| keyword.equals("UPSERT")) && sql.indexOf('#') < 0;
+	}
+
+	/**
+	 *
+	 * @param validationTimeoutSeconds
+	 * @return true if the connection still works
+	 */
+	boolean isValid(int validationTimeoutSeconds) {
+		try {
+			return connection.isValid(validationTimeoutSeconds);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Close the statements and the physical connection, failures are ignored
+	 */
+	void destroy() {
+		synchronized (this) {
+			for (PreparedStatement statement : statements.values()) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					//the connection is closed anyway
+				}
+			}
+			statements.clear();
+			statementsInUse.clear();
+			openedStatements.clear();
+		}
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			//nothing left to clean up
+		}
+	}
+
+	long getLastUsed() {
+		return lastUsed;
+	}
+
+	long getBorrowedAt() {
+		return borrowedAt;
+	}
+
+	Throwable getBorrowedBy() {
+		return borrowedBy;
+	}
+
+	/**
+	 *
+	 * @return true if the leak was not reported before
+	 */
+	boolean markLeakReported() {
+		if (leakReported) {
+			return false;
+		}
+		leakReported = true;
+		return true;
+	}
+
+	/**
+	 *
+	 * @param handle
+	 * @param sqlQuery
+	 * @param resultSetType
+	 * @param resultSetConcurrency
+	 * @return the cached statement for the SQL or a new one
+	 * @throws SQLException
+	 *
+	 * A statement which is still open by the same borrower is not handed out twice,
+	 * a second uncached statement is prepared instead. Statements which are not cached 
+	 * are closed when the connection is returned.
+	 */
+	private PreparedStatement prepareStatement(Connection handle, String sqlQuery, int resultSetType,
+			int resultSetConcurrency) throws SQLException {
+		String key = resultSetType + "," + resultSetConcurrency + ":" + sqlQuery;
+		PreparedStatement statement = null;
+		boolean cached = false;
+		synchronized (this) {
+			if (statementCacheSize > 0 && !statementsInUse.contains(key) && isCacheable(sqlQuery)) {
+				statement = statements.get(key);
+				cached = true;
+				statementsInUse.add(key);
+			}
+		}
+		if (statement != null) {
+			pool.recordStatementCacheHit();
+		} else {
+			pool.recordStatementCacheMiss();
+			try {
+				statement = connection.prepareStatement(sqlQuery, resultSetType, resultSetConcurrency);
+			} catch (SQLException e) {
+				if (cached) {
+					releaseStatement(key, null);
+				}
+				throw e;
+			}
+			if (cached) {
+				synchronized (this) {
+					statements.put(key, statement);
+					evictStatements();
+				}
+			} else {
+				trackStatement(statement);
+			}
+		}
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new StatementHandle(handle, statement, cached ? key : null));
+	}
+
+	/**
+	 * Close the least recently used statements which are not in use above the cache size
+	 */
+	private void evictStatements() {
+		Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+		while (statements.size() > statementCacheSize && it.hasNext()) {
+			Map.Entry<String, PreparedStatement> entry = it.next();
+			if (!statementsInUse.contains(entry.getKey())) {
+				it.remove();
+				try {
+					entry.getValue().close();
+				} catch (SQLException e) {
+					//the statement is not used any more
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param key
+	 * @param statement the statement to close because it is broken, null to keep it
+	 */
+	private synchronized void releaseStatement(String key, PreparedStatement statement) {
+		statementsInUse.remove(key);
+		if (statement != null && statements.get(key) == statement) {
+			statements.remove(key);
+		}
+	}
+
+	/**
+	 *
+	 * @param method
+	 * @param target
+	 * @param args
+	 * @return the result of the method on the target
+	 * @throws Throwable the exception thrown by the method itself
+	 */
+	private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 *
+	 * Connection as seen by one borrower
+	 *
+	 */
+	private class ConnectionHandle implements InvocationHandler {
+		private boolean closed;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (!closed) {
+					closed = true;
+					pool.release(PooledConnection.this);
+				}
+				return null;
+			} else if (name.equals("isClosed")) {
+				return closed || connection.isClosed();
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (name.equals("toString")) {
+				return "Pooled" + connection;
+			} else if (closed) {
+				throw new SQLException("Connection was returned to the pool");
+			} else if (name.equals("prepareStatement") && args.length == 1) {
+				return prepareStatement((Connection) proxy, (String) args[0], ResultSet.TYPE_FORWARD_ONLY,
+						ResultSet.CONCUR_READ_ONLY);
+			} else if (name.equals("prepareStatement") && args.length == 3
+					&& method.getParameterTypes()[1] == int.class) {
+				return prepareStatement((Connection) proxy, (String) args[0], (Integer) args[1], (Integer) args[2]);
+			}
+			Object result = PooledConnection.invoke(method, connection, args);
+			if (result instanceof Statement) {
+				trackStatement((Statement) result);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 *
+	 * Prepared statement as seen by one borrower, closing a cached statement only
+	 * clears its parameters
+	 *
+	 */
+	private class StatementHandle implements InvocationHandler {
+		private final Connection handle;
+		private final PreparedStatement statement;
+		private final String key;
+		private boolean closed;
+
+		/**
+		 *
+		 * @param handle
+		 * @param statement
+		 * @param key the key in the statement cache or null if the statement is not cached
+		 */
+		StatementHandle(Connection handle, PreparedStatement statement, String key) {
+			this.handle = handle;
+			this.statement = statement;
+			this.key = key;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (!closed) {
+					closed = true;
+					close();
+				}
+				return null;
+			} else if (name.equals("isClosed")) {
+				return closed || statement.isClosed();
+			} else if (name.equals("getConnection")) {
+				return handle;
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (closed) {
+				throw new SQLException("Statement is closed");
+			}
+			return PooledConnection.invoke(method, statement, args);
+		}
+
+		/**
+		 *
+		 * @throws SQLException
+		 */
+		private void close() throws SQLException {
+			if (key == null) {
+				statement.close();
+				return;
+			}
+			try {
+				statement.clearParameters();
+				statement.clearBatch();
+				releaseStatement(key, null);
+			} catch (SQLException e) {
+				releaseStatement(key, statement);
+				statement.close();
+			}
+		}
+	}
+}
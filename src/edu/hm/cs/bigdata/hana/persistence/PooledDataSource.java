@@ -0,0 +1,409 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * Connection pool around another data source, e.g. the one from JNDI which may or may not
+ * pool itself. Borrow and return do not lock: a semaphore bounds the number of connections
+ * and the idle connections wait in a lock-free queue. Idle connections are validated before
+ * they are handed out again, connections which are not returned in time are reported, with
+ * the stack of the borrower if requested, and every connection caches its prepared statements by SQL.
+ *
+ */
+public class PooledDataSource implements DataSource {
+	private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(PooledDataSource.class);
+	/** Default maximum number of connections */
+	public static final int DEFAULT_MAX_SIZE = 10;
+	/** Default time to wait for a connection in ms */
+	public static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 30000;
+	/** Default idle time in ms after which a connection is validated before it is handed out */
+	public static final long DEFAULT_VALIDATION_INTERVAL_MILLIS = 30000;
+	/** Default number of cached prepared statements per connection */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	private final DataSource dataSource;
+	private final int maxSize;
+	private final Semaphore permits;
+	private final ConcurrentLinkedQueue<PooledConnection> idle = new ConcurrentLinkedQueue<PooledConnection>();
+	private final Set<PooledConnection> borrowed =
+			Collections.newSetFromMap(new ConcurrentHashMap<PooledConnection, Boolean>());
+	private volatile long borrowTimeoutMillis = DEFAULT_BORROW_TIMEOUT_MILLIS;
+	private volatile long validationIntervalMillis = DEFAULT_VALIDATION_INTERVAL_MILLIS;
+	private volatile long leakThresholdMillis;
+	private volatile boolean recordBorrowStacks;
+	private volatile int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	private volatile boolean closed;
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong destroyed = new AtomicLong();
+	private final AtomicLong borrowTimeouts = new AtomicLong();
+	private final AtomicLong leaks = new AtomicLong();
+	private final AtomicLong statementCacheHits = new AtomicLong();
+	private final AtomicLong statementCacheMisses = new AtomicLong();
+
+	/**
+	 *
+	 * @param dataSource
+	 */
+	public PooledDataSource(DataSource dataSource) {
+		this(dataSource, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 *
+	 * @param dataSource the data source the physical connections come from
+	 * @param maxSize maximum number of connections
+	 */
+	public PooledDataSource(DataSource dataSource, int maxSize) {
+		if (dataSource == null) {
+			throw new IllegalArgumentException("Data source must not be null");
+		}
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Pool needs at least one connection: " + maxSize);
+		}
+		this.dataSource = dataSource;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize);
+	}
+
+	/**
+	 *
+	 * @return a connection of the pool, closing it returns it to the pool
+	 * @throws SQLException if no connection was available within the borrow timeout
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (closed) {
+			throw new SQLException("Connection pool is closed");
+		}
+		long leakThreshold = leakThresholdMillis;
+		if (leakThreshold > 0) {
+			checkLeaks();
+		}
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				borrowTimeouts.incrementAndGet();
+				throw new SQLException("No connection available within " + borrowTimeoutMillis + " ms, "
+						+ borrowed.size() + " of " + maxSize + " borrowed");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", e);
+		}
+		try {
+			PooledConnection connection = takeConnection();
+			borrowed.add(connection);
+			return connection.borrow(leakThreshold > 0 && recordBorrowStacks);
+		} catch (SQLException e) {
+			permits.release();
+			throw e;
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 *
+	 * @return an idle connection which is still valid or a new one
+	 * @throws SQLException
+	 */
+	private PooledConnection takeConnection() throws SQLException {
+		PooledConnection connection;
+		while ((connection = idle.poll()) != null) {
+			if (System.currentTimeMillis() - connection.getLastUsed() < validationIntervalMillis
+					|| connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+				return connection;
+			}
+			destroy(connection);
+		}
+		connection = new PooledConnection(this, dataSource.getConnection(), statementCacheSize);
+		created.incrementAndGet();
+		return connection;
+	}
+
+	/**
+	 *
+	 * @param connection
+	 *
+	 * Take back a connection whose handle was closed. Connections which cannot be reset
+	 * are closed, a new one is created on demand.
+	 */
+	void release(PooledConnection connection) {
+		if (!borrowed.remove(connection)) {
+			return;
+		}
+		try {
+			if (closed) {
+				destroy(connection);
+				return;
+			}
+			try {
+				connection.reset();
+				idle.offer(connection);
+			} catch (SQLException e) {
+				LOGGER.debug("Connection could not be reset and is closed", e);
+				destroy(connection);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 *
+	 * @param connection
+	 */
+	private void destroy(PooledConnection connection) {
+		connection.destroy();
+		destroyed.incrementAndGet();
+	}
+
+	/**
+	 *
+	 * @return the number of connections which are borrowed longer than the leak threshold
+	 *
+	 * Log every connection the first time it is found borrowed longer than the leak threshold
+	 */
+	public int checkLeaks() {
+		long leakThreshold = leakThresholdMillis;
+		if (leakThreshold <= 0) {
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		int count = 0;
+		for (PooledConnection connection : borrowed) {
+			long borrowedMillis = now - connection.getBorrowedAt();
+			if (borrowedMillis > leakThreshold) {
+				count++;
+				if (connection.markLeakReported()) {
+					leaks.incrementAndGet();
+					LOGGER.warn("Connection borrowed for " + borrowedMillis + " ms was not returned to the pool",
+							connection.getBorrowedBy());
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Close all idle connections and every borrowed connection when it is returned
+	 */
+	public void close() {
+		closed = true;
+		PooledConnection connection;
+		while ((connection = idle.poll()) != null) {
+			destroy(connection);
+		}
+	}
+
+	void recordStatementCacheHit() {
+		statementCacheHits.incrementAndGet();
+	}
+
+	void recordStatementCacheMiss() {
+		statementCacheMisses.incrementAndGet();
+	}
+
+	/**
+	 *
+	 * @return the data source the physical connections come from
+	 */
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getBorrowTimeoutMillis() {
+		return borrowTimeoutMillis;
+	}
+
+	/**
+	 *
+	 * @param newBorrowTimeoutMillis
+	 *
+	 * Set the time getConnection waits for a connection if all are borrowed
+	 */
+	public void setBorrowTimeoutMillis(long newBorrowTimeoutMillis) {
+		if (newBorrowTimeoutMillis < 0) {
+			throw new IllegalArgumentException("Borrow timeout must not be negative: " + newBorrowTimeoutMillis);
+		}
+		this.borrowTimeoutMillis = newBorrowTimeoutMillis;
+	}
+
+	public long getValidationIntervalMillis() {
+		return validationIntervalMillis;
+	}
+
+	/**
+	 *
+	 * @param newValidationIntervalMillis
+	 *
+	 * Set the idle time after which a connection is validated before it is handed out, 0 to validate always
+	 */
+	public void setValidationIntervalMillis(long newValidationIntervalMillis) {
+		if (newValidationIntervalMillis < 0) {
+			throw new IllegalArgumentException("Validation interval must not be negative: "
+					+ newValidationIntervalMillis);
+		}
+		this.validationIntervalMillis = newValidationIntervalMillis;
+	}
+
+	public long getLeakThresholdMillis() {
+		return leakThresholdMillis;
+	}
+
+	/**
+	 *
+	 * @param newLeakThresholdMillis
+	 *
+	 * Set the time after which a borrowed connection is reported as leak, 0 to disable leak detection
+	 */
+	public void setLeakThresholdMillis(long newLeakThresholdMillis) {
+		if (newLeakThresholdMillis < 0) {
+			throw new IllegalArgumentException("Leak threshold must not be negative: " + newLeakThresholdMillis);
+		}
+		this.leakThresholdMillis = newLeakThresholdMillis;
+	}
+
+	public boolean isRecordBorrowStacks() {
+		return recordBorrowStacks;
+	}
+
+	/**
+	 *
+	 * @param newRecordBorrowStacks
+	 *
+	 * Record the stack of every borrower while leak detection is enabled, so a leak report shows
+	 * where the connection was borrowed. Filling in a stack trace on every borrow is expensive,
+	 * so it is meant for debugging a leak.
+	 */
+	public void setRecordBorrowStacks(boolean newRecordBorrowStacks) {
+		this.recordBorrowStacks = newRecordBorrowStacks;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 *
+	 * @param newStatementCacheSize
+	 *
+	 * Set the number of cached prepared statements for connections created afterwards, 0 to disable caching
+	 */
+	public void setStatementCacheSize(int newStatementCacheSize) {
+		if (newStatementCacheSize < 0) {
+			throw new IllegalArgumentException("Statement cache size must not be negative: "
+					+ newStatementCacheSize);
+		}
+		this.statementCacheSize = newStatementCacheSize;
+	}
+
+	public int getIdleCount() {
+		return idle.size();
+	}
+
+	public int getBorrowedCount() {
+		return borrowed.size();
+	}
+
+	public long getCreatedCount() {
+		return created.get();
+	}
+
+	public long getDestroyedCount() {
+		return destroyed.get();
+	}
+
+	public long getBorrowTimeouts() {
+		return borrowTimeouts.get();
+	}
+
+	public long getLeakCount() {
+		return leaks.get();
+	}
+
+	public long getStatementCacheHits() {
+		return statementCacheHits.get();
+	}
+
+	public long getStatementCacheMisses() {
+		return statementCacheMisses.get();
+	}
+
+	@Override
+	public String toString() {
+		return "borrowed=" + getBorrowedCount() + " idle=" + getIdleCount() + " max=" + maxSize
+				+ " created=" + getCreatedCount() + " destroyed=" + getDestroyedCount()
+				+ " timeouts=" + getBorrowTimeouts() + " leaks=" + getLeakCount()
+				+ " statementHits=" + getStatementCacheHits() + " statementMisses=" + getStatementCacheMisses();
+	}
+
+	/**
+	 *
+	 * @return a connection of the underlying data source which is not pooled
+	 * @throws SQLException
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return dataSource.getConnection(username, password);
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return dataSource.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		dataSource.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		dataSource.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return dataSource.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return dataSource.getParentLogger();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return dataSource.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+	}
+}
@@ -0,0 +1,177 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
+
+/**
+ *
+ * SQL which differs between SAP HANA and the embedded H2 database standing in for it in local
+ * tests and benchmarks. H2 has neither a column store nor partitions, so it only creates the
+ * index of a table layout.
+ *
+ */
+public enum SqlDialect {
+	HANA, H2;
+
+	/**
+	 *
+	 * @param connection
+	 * @return the dialect of the database of the connection, HANA unless it is H2
+	 * @throws SQLException
+	 */
+	public static SqlDialect of(Connection connection) throws SQLException {
+		String product = connection.getMetaData().getDatabaseProductName();
+		return product != null && product.toUpperCase().contains("H2") ? H2 : HANA;
+	}
+
+	/**
+	 *
+	 * @param layout
+	 * @return true if the database creates the layout as described, false if options are ignored
+	 */
+	public boolean supports(TableLayout layout) {
+		return this == HANA
+				|| (layout.getStorage() == TableLayout.Storage.DEFAULT && layout.getPartitioning() == TableLayout.Partitioning.NONE);
+	}
+
+	/**
+	 *
+	 * @param table
+	 * @param columns the column definitions in parentheses
+	 * @param layout
+	 * @return the statements creating the table and its index
+	 */
+	public List<String> createTable(String table, String columns, TableLayout layout) {
+		StringBuilder create = new StringBuilder("CREATE ");
+		if (this == HANA && layout.getStorage() != TableLayout.Storage.DEFAULT) {
+			create.append(layout.getStorage().name()).append(' ');
+		}
+		create.append("TABLE ").append(table).append(' ').append(columns);
+		if (this == HANA) {
+			appendPartitions(create, layout);
+		}
+		List<String> statements = new ArrayList<String>();
+		statements.add(create.toString());
+		if (layout.hasCreatedAtIndex()) {
+			statements.add("CREATE INDEX " + table + "_CREATED_AT ON " + table + " (CREATED_AT)");
+		}
+		return statements;
+	}
+
+	/**
+	 *
+	 * @param columns
+	 * @param table
+	 * @param percent percentage of the rows every row is sampled with, 100 or more for all rows
+	 * @return a query of the columns of a Bernoulli sample of the table, by TABLESAMPLE in HANA
+	 * 			and by a random filter in H2 which has no TABLESAMPLE
+	 */
+	public String sampleQuery(String columns, String table, double percent) {
+		String query = "SELECT " + columns + " FROM " + table;
+		if (percent >= 100) {
+			return query;
+		}
+		return this == HANA ? query + " TABLESAMPLE BERNOULLI (" + percent + ")" : query + " WHERE RAND() < " + percent / 100;
+	}
+
+	/**
+	 *
+	 * @param connection
+	 * @param sqlQuery
+	 * @param statementName name of the plan in the EXPLAIN_PLAN_TABLE of HANA, unique among concurrent calls
+	 * @return the plan of the query, one operator per line
+	 * @throws SQLException e.g. if the database cannot explain the statement
+	 *
+	 * HANA writes the plan to the EXPLAIN_PLAN_TABLE, where it is read from and removed again.
+	 * H2 returns it as the result of EXPLAIN.
+	 */
+	public String explainPlan(Connection connection, String sqlQuery, String statementName) throws SQLException {
+		StringBuilder plan = new StringBuilder();
+		Statement statement = connection.createStatement();
+		try {
+			if (this == H2) {
+				ResultSet rs = statement.executeQuery("EXPLAIN " + sqlQuery);
+				while (rs.next()) {
+					plan.append(rs.getString(1)).append('\n');
+				}
+				rs.close();
+				return plan.toString();
+			}
+			String name = "'" + statementName.replace("'", "''") + "'";
+			statement.execute("EXPLAIN PLAN SET STATEMENT_NAME = " + name + " FOR " + sqlQuery);
+			try {
+				ResultSet rs = statement.executeQuery("SELECT LEVEL, OPERATOR_NAME, OPERATOR_DETAILS, TABLE_NAME, "
+						+ "EXECUTION_ENGINE, OUTPUT_SIZE, SUBTREE_COST FROM EXPLAIN_PLAN_TABLE WHERE STATEMENT_NAME = "
+						+ name + " ORDER BY OPERATOR_ID");
+				while (rs.next()) {
+					for (int level = rs.getInt(1); level > 1; level--) {
+						plan.append("  ");
+					}
+					plan.append(rs.getString(2)).append(' ').append(rs.getString(3)).append(" table=")
+							.append(rs.getString(4)).append(" engine=").append(rs.getString(5)).append(" rows=")
+							.append(rs.getDouble(6)).append(" cost=").append(rs.getDouble(7)).append('\n');
+				}
+				rs.close();
+			} finally {
+				statement.execute("DELETE FROM EXPLAIN_PLAN_TABLE WHERE STATEMENT_NAME = " + name);
+			}
+			return plan.toString();
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param create
+	 * @param layout
+	 *
+	 * Append the HANA partition clause: hash partitions or ranges with a last partition for all other rows.
+	 * HANA only partitions by columns of the primary key on the first level, so CREATED_AT becomes the
+	 * second level below a single hash partition by ID.
+	 */
+	private static void appendPartitions(StringBuilder create, TableLayout layout) {
+		if (layout.getPartitioning() == TableLayout.Partitioning.NONE) {
+			return;
+		}
+		String column = layout.getPartitionColumn().name();
+		int partitions = layout.getPartitions();
+		create.append(" PARTITION BY ");
+		if (layout.getPartitionColumn() != TableLayout.PartitionColumn.ID) {
+			create.append("HASH (ID) PARTITIONS 1, ");
+		}
+		if (layout.getPartitioning() == TableLayout.Partitioning.HASH) {
+			create.append("HASH (").append(column).append(") PARTITIONS ").append(partitions);
+		} else {
+			create.append("RANGE (").append(column).append(") (");
+			for (int i = 0; i < partitions; i++) {
+				if (layout.getPartitionColumn() == TableLayout.PartitionColumn.ID) {
+					long size = layout.getIdRangeSize();
+					create.append("PARTITION ").append(1 + i * size).append(" <= VALUES < ").append(1 + (i + 1) * size);
+				} else {
+					create.append("PARTITION '").append(year(i, partitions)).append("-01-01' <= VALUES < '")
+							.append(year(i + 1, partitions)).append("-01-01'");
+				}
+				create.append(", ");
+			}
+			create.append("PARTITION OTHERS)");
+		}
+	}
+
+	/**
+	 *
+	 * @param boundary
+	 * @param partitions
+	 * @return the year at the boundary when the years of the generated dates are split into partitions
+	 */
+	private static int year(int boundary, int partitions) {
+		int years = BigDataGenerator.LAST_YEAR + 1 - BigDataGenerator.FIRST_YEAR;
+		return BigDataGenerator.FIRST_YEAR + (int) ((long) years * boundary / partitions);
+	}
+}
@@ -0,0 +1,128 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * Normalizes SQL to the fingerprint under which a TracingDataSource counts its executions:
+ * string and number literals become '?', comments are removed, whitespace is collapsed,
+ * everything outside of quoted identifiers is upper case and lists of parameters like
+ * IN (?, ?, ?) become (?...). Statements which only differ in their values, e.g. built by
+ * concatenation, thus share one fingerprint.
+ *
+ */
+final class SqlFingerprint {
+	//fingerprints of recently seen SQL, cleared when full because concatenated SQL never repeats
+	private static final int CACHE_SIZE = 1024;
+	private static final ConcurrentMap<String, String> CACHE = new ConcurrentHashMap<String, String>();
+	private static final Pattern PARAMETER_LIST = Pattern.compile("\\( ?\\?(?: ?, ?\\?)+ ?\\)");
+
+	private SqlFingerprint() {
+	}
+
+	/**
+	 *
+	 * @param sql
+	 * @return the fingerprint of the SQL
+	 */
+	static String of(String sql) {
+		String fingerprint = CACHE.get(sql);
+		if (fingerprint == null) {
+			fingerprint = normalize(sql);
+			if (CACHE.size() >= CACHE_SIZE) {
+				CACHE.clear();
+			}
+			CACHE.put(sql, fingerprint);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 *
+	 * @param sql
+	 * @return the fingerprint of the SQL, computed without the cache
+	 */
+	static String normalize(String sql) {
+		StringBuilder fingerprint = new StringBuilder(sql.length());
+		int length = sql.length();
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (c == '\'') {
+				//string literal, '' is an escaped quote
+				i++;
+				while (i < length) {
+					if (sql.charAt(i) == '\'') {
+						if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				fingerprint.append('?');
+				i++;
+			} else if (c == '"') {
+				//quoted identifier, kept as it is
+				int end = sql.indexOf('"', i + 1);
+				end = end < 0 ? length : end + 1;
+				fingerprint.append(sql, i, end);
+				i = end;
+			} else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				int end = sql.indexOf('\n', i);
+				i = end < 0 ? length : end;
+				appendSpace(fingerprint);
+			} else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				int end = sql.indexOf("*/", i + 2);
+				i = end < 0 ? length : end + 2;
+				appendSpace(fingerprint);
+			} else if (Character.isWhitespace(c)) {
+				appendSpace(fingerprint);
+				i++;
+			} else if (Character.isDigit(c) && !isIdentifierPart(fingerprint)) {
+				while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+					i++;
+				}
+				fingerprint.append('?');
+			} else {
+				fingerprint.append(Character.toUpperCase(c));
+				i++;
+			}
+		}
+		int end = fingerprint.length();
+		if (end > 0 && fingerprint.charAt(end - 1) == ' ') {
+			fingerprint.setLength(end - 1);
+		}
+		return PARAMETER_LIST.matcher(fingerprint).replaceAll("(?...)");
+	}
+
+	/**
+	 *
+	 * @param fingerprint
+	 *
+	 * Append one space unless the fingerprint is empty or ends with a space
+	 */
+	private static void appendSpace(StringBuilder fingerprint) {
+		int end = fingerprint.length();
+		if (end > 0 && fingerprint.charAt(end - 1) != ' ') {
+			fingerprint.append(' ');
+		}
+	}
+
+	/**
+	 *
+	 * @param fingerprint
+	 * @return true if a digit appended now would continue a name like T1 instead of starting a number
+	 */
+	private static boolean isIdentifierPart(StringBuilder fingerprint) {
+		int end = fingerprint.length();
+		if (end == 0) {
+			return false;
+		}
+		char last = fingerprint.charAt(end - 1);
+		return Character.isLetterOrDigit(last) || last == '_' || last == '$' || last == '#';
+	}
+}
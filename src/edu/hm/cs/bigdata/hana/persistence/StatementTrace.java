@@ -0,0 +1,115 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.hm.cs.bigdata.hana.util.LatencyHistogram;
+
+/**
+ *
+ * Executions of all statements with the same fingerprint recorded by a TracingDataSource:
+ * the distribution of the execution times, the rows read or written, failures, executions
+ * above the slow query threshold and the plan captured for the first slow execution.
+ *
+ */
+public class StatementTrace {
+	private final String fingerprint;
+	private final LatencyHistogram executions = new LatencyHistogram();
+	private final AtomicLong rows = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong slowExecutions = new AtomicLong();
+	private final AtomicBoolean planRequested = new AtomicBoolean();
+	private volatile String plan;
+
+	/**
+	 *
+	 * @param fingerprint
+	 */
+	StatementTrace(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 *
+	 * @param nanos
+	 */
+	void recordExecution(long nanos) {
+		executions.record(nanos);
+	}
+
+	/**
+	 *
+	 * @param count rows read from a result or affected by an update
+	 */
+	void addRows(long count) {
+		rows.addAndGet(count);
+	}
+
+	void recordError() {
+		errors.incrementAndGet();
+	}
+
+	void recordSlowExecution() {
+		slowExecutions.incrementAndGet();
+	}
+
+	/**
+	 *
+	 * @return true for the first caller only, who captures the plan
+	 */
+	boolean requestPlan() {
+		return planRequested.compareAndSet(false, true);
+	}
+
+	void setPlan(String newPlan) {
+		this.plan = newPlan;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 *
+	 * @return the histogram of the execution times, a query until its result set was closed
+	 */
+	public LatencyHistogram getExecutions() {
+		return executions;
+	}
+
+	public long getRows() {
+		return rows.get();
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public long getSlowExecutions() {
+		return slowExecutions.get();
+	}
+
+	/**
+	 *
+	 * @return the plan of the first slow execution or null if none was captured
+	 */
+	public String getPlan() {
+		return plan;
+	}
+
+	/**
+	 * Remove all recorded values, a captured plan is kept
+	 */
+	void reset() {
+		executions.reset();
+		rows.set(0);
+		errors.set(0);
+		slowExecutions.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return executions.summary() + " total=" + LatencyHistogram.toMillis(executions.getSum()) + "ms rows="
+				+ rows.get() + " errors=" + errors.get() + " slow=" + slowExecutions.get() + " sql=" + fingerprint;
+	}
+}
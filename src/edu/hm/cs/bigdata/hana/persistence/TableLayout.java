@@ -0,0 +1,152 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+/**
+ *
+ * Physical layout of the table 'BIG_DATA': the store, the partitioning and the secondary index
+ * on CREATED_AT. A layout only describes the table, the SqlDialect turns it into statements.
+ *
+ */
+public class TableLayout {
+	/** Default number of IDs per partition when the table is partitioned by ranges of ID */
+	public static final int DEFAULT_ID_RANGE_SIZE = 10000000;
+
+	/**
+	 *
+	 * Store of the table
+	 *
+	 */
+	public enum Storage {
+		/** Whatever the database creates for a plain CREATE TABLE */
+		DEFAULT,
+		/** Column store, best for aggregates over few columns of many rows */
+		COLUMN,
+		/** Row store, best for reading and writing whole rows by key */
+		ROW
+	}
+
+	/**
+	 *
+	 * How the rows are distributed to partitions
+	 *
+	 */
+	public enum Partitioning {
+		/** All rows in one partition */
+		NONE,
+		/** Rows spread evenly by the hash of the partition column */
+		HASH,
+		/** Rows split by ranges of the partition column */
+		RANGE
+	}
+
+	/**
+	 *
+	 * Column the rows are partitioned by
+	 *
+	 */
+	public enum PartitionColumn {
+		ID, CREATED_AT
+	}
+
+	private final Storage storage;
+	private final Partitioning partitioning;
+	private final PartitionColumn partitionColumn;
+	private final int partitions;
+	private final int idRangeSize;
+	private final boolean createdAtIndex;
+
+	/**
+	 * Creates the layout of a plain CREATE TABLE without partitions and index
+	 */
+	public TableLayout() {
+		this(Storage.DEFAULT, Partitioning.NONE, PartitionColumn.ID, 1, DEFAULT_ID_RANGE_SIZE, false);
+	}
+
+	/**
+	 *
+	 * @param storage
+	 * @param partitioning
+	 * @param partitionColumn
+	 * @param partitions number of hash partitions or bounded ranges, rows beyond the last range
+	 * 			go to an additional partition
+	 * @param idRangeSize number of IDs per range when the table is partitioned by ranges of ID,
+	 * 			ranges of CREATED_AT split the years of the generated dates evenly
+	 * @param createdAtIndex true to create an index on CREATED_AT
+	 * @throws IllegalArgumentException if the options do not fit together
+	 */
+	public TableLayout(Storage storage, Partitioning partitioning, PartitionColumn partitionColumn, int partitions,
+			int idRangeSize, boolean createdAtIndex) {
+		if (partitions < 1) {
+			throw new IllegalArgumentException("Partitions must be at least 1: " + partitions);
+		}
+		if (idRangeSize < 1) {
+			throw new IllegalArgumentException("ID range size must be at least 1: " + idRangeSize);
+		}
+		if (storage == Storage.ROW && partitioning != Partitioning.NONE) {
+			throw new IllegalArgumentException("Row tables can not be partitioned");
+		}
+		this.storage = storage;
+		this.partitioning = partitioning;
+		this.partitionColumn = partitionColumn;
+		this.partitions = partitions;
+		this.idRangeSize = idRangeSize;
+		this.createdAtIndex = createdAtIndex;
+	}
+
+	/**
+	 *
+	 * @return the store of the table
+	 */
+	public Storage getStorage() {
+		return storage;
+	}
+
+	/**
+	 *
+	 * @return how the rows are distributed to partitions
+	 */
+	public Partitioning getPartitioning() {
+		return partitioning;
+	}
+
+	/**
+	 *
+	 * @return the column the rows are partitioned by, ignored without partitioning
+	 */
+	public PartitionColumn getPartitionColumn() {
+		return partitionColumn;
+	}
+
+	/**
+	 *
+	 * @return the number of hash partitions or bounded ranges
+	 */
+	public int getPartitions() {
+		return partitions;
+	}
+
+	/**
+	 *
+	 * @return the number of IDs per range when the table is partitioned by ranges of ID
+	 */
+	public int getIdRangeSize() {
+		return idRangeSize;
+	}
+
+	/**
+	 *
+	 * @return true if an index on CREATED_AT is created
+	 */
+	public boolean hasCreatedAtIndex() {
+		return createdAtIndex;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append("storage=").append(storage).append(" partitioning=").append(partitioning);
+		if (partitioning != Partitioning.NONE) {
+			text.append(" by ").append(partitionColumn).append(" partitions=").append(partitions);
+		}
+		return text.append(" createdAtIndex=").append(createdAtIndex).toString();
+	}
+}
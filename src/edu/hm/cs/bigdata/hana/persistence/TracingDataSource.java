@@ -0,0 +1,662 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.LoggerFactory;
+
+import edu.hm.cs.bigdata.hana.util.LatencyHistogram;
+
+/**
+ *
+ * Data source which traces every statement executed on its connections, e.g. around a
+ * PooledDataSource. Statements are grouped by their SqlFingerprint, so SQL built by
+ * concatenation is counted once per shape. For every fingerprint the execution times,
+ * the rows read or written and the failures are recorded. The time of a query lasts until
+ * its result set is closed, so slow fetches count as well. Executions above the slow
+ * query threshold are logged and the plan of the first slow execution of a query can
+ * be captured with EXPLAIN PLAN. The plan is explained on a separate connection after
+ * the caller has closed its own, so it neither runs in the caller's transaction nor adds
+ * to its time. Queries with parameter markers may not be explainable without their values,
+ * then the reason is kept as plan.
+ *
+ */
+public class TracingDataSource implements DataSource {
+	private static final org.slf4j.Logger LOGGER = LoggerFactory.getLogger(TracingDataSource.class);
+	/** Default execution time in ms above which a statement is logged as slow */
+	public static final long DEFAULT_SLOW_QUERY_MILLIS = 1000;
+	/** Default number of fingerprints traced separately */
+	public static final int DEFAULT_MAX_STATEMENTS = 1000;
+	//fingerprint of all statements beyond the maximum number
+	private static final String OTHER_STATEMENTS = "(other statements)";
+	//longest SQL written to the slow query log
+	private static final int MAX_LOGGED_SQL_LENGTH = 2000;
+
+	private final DataSource dataSource;
+	private final int maxStatements;
+	private final ConcurrentMap<String, StatementTrace> traces = new ConcurrentHashMap<String, StatementTrace>();
+	private final AtomicLong planNumber = new AtomicLong();
+	private volatile long slowQueryNanos = DEFAULT_SLOW_QUERY_MILLIS * 1000000L;
+	private volatile boolean capturePlans;
+	private volatile SqlDialect sqlDialect;
+
+	/**
+	 *
+	 * @param dataSource
+	 */
+	public TracingDataSource(DataSource dataSource) {
+		this(dataSource, DEFAULT_MAX_STATEMENTS);
+	}
+
+	/**
+	 *
+	 * @param dataSource the data source whose connections are traced
+	 * @param maxStatements number of fingerprints traced separately, further ones are counted together
+	 */
+	public TracingDataSource(DataSource dataSource, int maxStatements) {
+		if (dataSource == null) {
+			throw new IllegalArgumentException("Data source must not be null");
+		}
+		if (maxStatements < 1) {
+			throw new IllegalArgumentException("At least one statement must be traced: " + maxStatements);
+		}
+		this.dataSource = dataSource;
+		this.maxStatements = maxStatements;
+	}
+
+	/**
+	 *
+	 * @return a traced connection of the underlying data source
+	 * @throws SQLException
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		return trace(dataSource.getConnection());
+	}
+
+	/**
+	 *
+	 * @return a traced connection of the underlying data source
+	 * @throws SQLException
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return trace(dataSource.getConnection(username, password));
+	}
+
+	/**
+	 *
+	 * @param connection
+	 * @return the connection with traced statements
+	 */
+	private Connection trace(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandle(connection));
+	}
+
+	/**
+	 *
+	 * @param sqlQuery
+	 * @return the trace of the fingerprint of the SQL, created on first use
+	 */
+	private StatementTrace getTrace(String sqlQuery) {
+		String fingerprint = SqlFingerprint.of(sqlQuery);
+		StatementTrace trace = traces.get(fingerprint);
+		if (trace == null) {
+			if (traces.size() >= maxStatements) {
+				fingerprint = OTHER_STATEMENTS;
+				trace = traces.get(fingerprint);
+			}
+			if (trace == null) {
+				StatementTrace created = new StatementTrace(fingerprint);
+				trace = traces.putIfAbsent(fingerprint, created);
+				if (trace == null) {
+					trace = created;
+				}
+			}
+		}
+		return trace;
+	}
+
+	/**
+	 *
+	 * @param owner the connection the statement ran on
+	 * @param trace
+	 * @param sqlQuery
+	 * @param nanos
+	 *
+	 * Record the execution, log it if it is slow and request the plan if it is the first slow query
+	 * of its fingerprint, the plan is captured when the connection is closed
+	 */
+	private void recordExecution(ConnectionHandle owner, StatementTrace trace, String sqlQuery, long nanos) {
+		trace.recordExecution(nanos);
+		if (nanos < slowQueryNanos) {
+			return;
+		}
+		trace.recordSlowExecution();
+		String logged = sqlQuery.length() > MAX_LOGGED_SQL_LENGTH ? sqlQuery.substring(0, MAX_LOGGED_SQL_LENGTH) + "..."
+				: sqlQuery;
+		LOGGER.warn("Slow SQL took {} ms: {}", LatencyHistogram.toMillis(nanos), logged);
+		String fingerprint = trace.getFingerprint();
+		if (capturePlans && (fingerprint.startsWith("SELECT") || fingerprint.startsWith("WITH"))
+				&& trace.requestPlan()) {
+			owner.explainOnClose(trace, sqlQuery);
+		}
+	}
+
+	/**
+	 *
+	 * @param trace
+	 * @param sqlQuery
+	 *
+	 * Capture the plan of the query on a connection of its own
+	 */
+	private void capturePlan(StatementTrace trace, String sqlQuery) {
+		String plan;
+		try {
+			Connection connection = dataSource.getConnection();
+			try {
+				SqlDialect dialect = sqlDialect;
+				if (dialect == null) {
+					dialect = SqlDialect.of(connection);
+					sqlDialect = dialect;
+				}
+				plan = dialect.explainPlan(connection, sqlQuery, "BIG_DATA_TRACE_" + planNumber.incrementAndGet());
+			} finally {
+				connection.close();
+			}
+		} catch (SQLException e) {
+			plan = "not available: " + e.getMessage();
+		}
+		trace.setPlan(plan);
+		LOGGER.warn("Plan of slow SQL {}:\n{}", trace.getFingerprint(), plan);
+	}
+
+	/**
+	 *
+	 * @return the traces of all fingerprints, the most total execution time first
+	 */
+	public List<StatementTrace> getTraces() {
+		List<StatementTrace> sorted = new ArrayList<StatementTrace>(traces.values());
+		//the times keep growing while sorting, so they are compared as they were at the start
+		final Map<StatementTrace, Long> totals = new IdentityHashMap<StatementTrace, Long>();
+		for (StatementTrace trace : sorted) {
+			totals.put(trace, trace.getExecutions().getSum());
+		}
+		Collections.sort(sorted, new Comparator<StatementTrace>() {
+			@Override
+			public int compare(StatementTrace a, StatementTrace b) {
+				return totals.get(b).compareTo(totals.get(a));
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 *
+	 * @param limit maximum number of fingerprints
+	 * @return the hottest fingerprints as plain text with their share of the total execution time
+	 * 			and captured plans
+	 */
+	public String dump(int limit) {
+		List<StatementTrace> sorted = getTraces();
+		long executions = 0;
+		long total = 0;
+		for (StatementTrace trace : sorted) {
+			executions += trace.getExecutions().getCount();
+			total += trace.getExecutions().getSum();
+		}
+		StringBuilder dump = new StringBuilder();
+		dump.append("statements=").append(sorted.size()).append(" executions=").append(executions).append(" total=")
+				.append(LatencyHistogram.toMillis(total)).append("ms slowThreshold=")
+				.append(LatencyHistogram.toMillis(slowQueryNanos)).append("ms\n");
+		for (StatementTrace trace : sorted.subList(0, Math.min(limit, sorted.size()))) {
+			double share = total == 0 ? 0 : 100.0 * trace.getExecutions().getSum() / total;
+			dump.append(String.format("%5.1f%% ", share)).append(trace).append('\n');
+			String plan = trace.getPlan();
+			if (plan != null) {
+				for (String line : plan.split("\n")) {
+					dump.append("    plan: ").append(line).append('\n');
+				}
+			}
+		}
+		return dump.toString();
+	}
+
+	/**
+	 * Remove all recorded values, captured plans are kept
+	 */
+	public void reset() {
+		for (StatementTrace trace : traces.values()) {
+			trace.reset();
+		}
+	}
+
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	public long getSlowQueryMillis() {
+		return slowQueryNanos / 1000000L;
+	}
+
+	/**
+	 *
+	 * @param newSlowQueryMillis execution time in ms above which a statement is logged, 0 logs every statement
+	 */
+	public void setSlowQueryMillis(long newSlowQueryMillis) {
+		if (newSlowQueryMillis < 0) {
+			throw new IllegalArgumentException("Slow query threshold must not be negative: " + newSlowQueryMillis);
+		}
+		this.slowQueryNanos = newSlowQueryMillis * 1000000L;
+	}
+
+	public boolean isCapturePlans() {
+		return capturePlans;
+	}
+
+	/**
+	 *
+	 * @param newCapturePlans
+	 *
+	 * Capture the plan of the first slow execution of every query
+	 */
+	public void setCapturePlans(boolean newCapturePlans) {
+		this.capturePlans = newCapturePlans;
+	}
+
+	@Override
+	public String toString() {
+		return "statements=" + traces.size() + " slowQueryMillis=" + getSlowQueryMillis() + " capturePlans="
+				+ capturePlans;
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return dataSource.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		dataSource.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		dataSource.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return dataSource.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return dataSource.getParentLogger();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return dataSource.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || dataSource.isWrapperFor(iface);
+	}
+
+	/**
+	 *
+	 * @param method
+	 * @param target
+	 * @param args
+	 * @return the result of the method on the target
+	 * @throws Throwable the exception thrown by the method itself
+	 */
+	private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 *
+	 * Connection which hands out traced statements and captures the requested plans when it is closed
+	 *
+	 */
+	private class ConnectionHandle implements InvocationHandler {
+		private final Connection connection;
+		//trace and SQL of the queries to explain
+		private final List<Object[]> pendingPlans = new ArrayList<Object[]>(1);
+
+		/**
+		 *
+		 * @param connection
+		 */
+		ConnectionHandle(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			} else if (name.equals("toString")) {
+				return "Tracing" + connection;
+			} else if (name.equals("close")) {
+				try {
+					return TracingDataSource.invoke(method, connection, args);
+				} finally {
+					capturePendingPlans();
+				}
+			}
+			Object result = TracingDataSource.invoke(method, connection, args);
+			if (name.equals("prepareStatement") && result != null) {
+				return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+						new Class<?>[] { PreparedStatement.class },
+						new StatementHandle((Connection) proxy, this, (Statement) result, (String) args[0]));
+			} else if (name.equals("createStatement") && result != null) {
+				return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { Statement.class },
+						new StatementHandle((Connection) proxy, this, (Statement) result, null));
+			}
+			return result;
+		}
+
+		/**
+		 *
+		 * @param trace
+		 * @param sqlQuery
+		 */
+		synchronized void explainOnClose(StatementTrace trace, String sqlQuery) {
+			pendingPlans.add(new Object[] { trace, sqlQuery });
+		}
+
+		/**
+		 * Capture the plans requested while the connection was in use, its own connection is returned already
+		 */
+		private void capturePendingPlans() {
+			List<Object[]> plans;
+			synchronized (this) {
+				if (pendingPlans.isEmpty()) {
+					return;
+				}
+				plans = new ArrayList<Object[]>(pendingPlans);
+				pendingPlans.clear();
+			}
+			for (Object[] plan : plans) {
+				capturePlan((StatementTrace) plan[0], (String) plan[1]);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * Statement which records its executions at the trace of its SQL. A plain statement
+	 * is traced by the SQL passed to execute, its batches by the first SQL added. The
+	 * execution of executeQuery is recorded when its result set is closed, also implicitly
+	 * by closing or executing the statement again.
+	 *
+	 */
+	private class StatementHandle implements InvocationHandler {
+		private final Connection handle;
+		private final ConnectionHandle owner;
+		private final Statement statement;
+		private final String preparedQuery;
+		private String batchQuery;
+		private StatementTrace lastTrace;
+		private ResultSetHandle openResult;
+
+		/**
+		 *
+		 * @param handle the traced connection handed out to the caller
+		 * @param owner the connection the statement belongs to
+		 * @param statement
+		 * @param preparedQuery the SQL of a prepared statement, null for a plain statement
+		 */
+		StatementHandle(Connection handle, ConnectionHandle owner, Statement statement, String preparedQuery) {
+			this.handle = handle;
+			this.owner = owner;
+			this.statement = statement;
+			this.preparedQuery = preparedQuery;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.startsWith("execute")) {
+				finishResult();
+				return execute((Statement) proxy, method, args);
+			} else if (name.equals("close")) {
+				finishResult();
+			} else if (name.equals("getResultSet")) {
+				ResultSet rs = (ResultSet) TracingDataSource.invoke(method, statement, args);
+				return rs == null || lastTrace == null ? rs : trace(rs, (Statement) proxy, lastTrace, null, 0);
+			} else if (name.equals("getConnection")) {
+				return handle;
+			} else if (name.equals("addBatch") && args != null && args.length == 1 && batchQuery == null) {
+				batchQuery = (String) args[0];
+			} else if (name.equals("clearBatch")) {
+				batchQuery = null;
+			} else if (name.equals("equals")) {
+				return proxy == args[0];
+			} else if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			return TracingDataSource.invoke(method, statement, args);
+		}
+
+		/**
+		 *
+		 * @param proxy
+		 * @param method one of the execute methods
+		 * @param args
+		 * @return the result of the method, a result set is traced as well
+		 * @throws Throwable
+		 */
+		private Object execute(Statement proxy, Method method, Object[] args) throws Throwable {
+			boolean batch = method.getName().endsWith("Batch");
+			String sqlQuery;
+			if (args != null && args.length > 0 && args[0] instanceof String) {
+				sqlQuery = (String) args[0];
+			} else {
+				sqlQuery = preparedQuery != null ? preparedQuery : batch ? batchQuery : null;
+			}
+			if (batch) {
+				batchQuery = null;
+			}
+			if (sqlQuery == null) {
+				return TracingDataSource.invoke(method, statement, args);
+			}
+			StatementTrace trace = getTrace(sqlQuery);
+			lastTrace = trace;
+			long start = System.nanoTime();
+			Object result;
+			try {
+				result = TracingDataSource.invoke(method, statement, args);
+			} catch (Throwable e) {
+				trace.recordExecution(System.nanoTime() - start);
+				trace.recordError();
+				throw e;
+			}
+			if (result instanceof ResultSet) {
+				//recorded with the time of the fetch when the result set is closed
+				ResultSetHandle rs = new ResultSetHandle((ResultSet) result, proxy, trace, sqlQuery, start);
+				openResult = rs;
+				return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, 
+						rs);
+			}
+			recordExecution(owner, trace, sqlQuery, System.nanoTime() - start);
+			if (result instanceof Number) {
+				trace.addRows(Math.max(0, ((Number) result).longValue()));
+			} else if (result instanceof int[]) {
+				trace.addRows(batchRows((int[]) result));
+			} else if (result instanceof long[]) {
+				trace.addRows(batchRows((long[]) result));
+			}
+			return result;
+		}
+
+		/**
+		 * Record the execution of the last query if its result set was not closed yet
+		 */
+		private void finishResult() {
+			if (openResult != null) {
+				openResult.finish();
+				openResult = null;
+			}
+		}
+
+		/**
+		 *
+		 * @param rs
+		 * @param statement the traced statement the result belongs to
+		 * @param trace
+		 * @param sqlQuery the SQL whose execution is recorded when the result is closed, null to count rows only
+		 * @param start of the execution
+		 * @return the result set which counts its rows at the trace
+		 */
+		private ResultSet trace(ResultSet rs, Statement statement, StatementTrace trace, String sqlQuery, long start) {
+			return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), 
+					new Class<?>[] { ResultSet.class }, new ResultSetHandle(rs, statement, trace, sqlQuery, start));
+		}
+
+		/**
+		 *
+		 * Result set which counts the rows read, they are added to the trace at the end of the result.
+		 * A result of executeQuery records the execution until it is closed.
+		 *
+		 */
+		private class ResultSetHandle implements InvocationHandler {
+			private final ResultSet rs;
+			private final Statement statement;
+			private final StatementTrace trace;
+			private final String sqlQuery;
+			private final long start;
+			private long rows;
+			private boolean finished;
+
+			/**
+			 *
+			 * @param rs
+			 * @param statement
+			 * @param trace
+			 * @param sqlQuery
+			 * @param start
+			 */
+			ResultSetHandle(ResultSet rs, Statement statement, StatementTrace trace, String sqlQuery, long start) {
+				this.rs = rs;
+				this.statement = statement;
+				this.trace = trace;
+				this.sqlQuery = sqlQuery;
+				this.start = start;
+			}
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if (name.equals("next")) {
+					Boolean hasNext;
+					try {
+						hasNext = (Boolean) TracingDataSource.invoke(method, rs, args);
+					} catch (Throwable e) {
+						trace.recordError();
+						throw e;
+					}
+					if (hasNext) {
+						rows++;
+					} else {
+						addRows();
+					}
+					return hasNext;
+				} else if (name.equals("close")) {
+					try {
+						return TracingDataSource.invoke(method, rs, args);
+					} finally {
+						finish();
+					}
+				} else if (name.equals("getStatement")) {
+					return statement;
+				} else if (name.equals("equals")) {
+					return proxy == args[0];
+				} else if (name.equals("hashCode")) {
+					return System.identityHashCode(proxy);
+				}
+				return TracingDataSource.invoke(method, rs, args);
+			}
+
+			private void addRows() {
+				if (rows > 0) {
+					trace.addRows(rows);
+					rows = 0;
+				}
+			}
+
+			/**
+			 * Add the rows and record the execution once
+			 */
+			void finish() {
+				addRows();
+				if (!finished && sqlQuery != null) {
+					finished = true;
+					recordExecution(owner, trace, sqlQuery, System.nanoTime() - start);
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param counts the update counts of a batch
+	 * @return the rows of the batch, an entry without count like from HANA is one row
+	 */
+	private static long batchRows(int[] counts) {
+		long rows = 0;
+		for (int count : counts) {
+			rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+		}
+		return rows;
+	}
+
+	/**
+	 *
+	 * @param counts the update counts of a large batch
+	 * @return the rows of the batch, an entry without count is one row
+	 */
+	private static long batchRows(long[] counts) {
+		long rows = 0;
+		for (long count : counts) {
+			rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+		}
+		return rows;
+	}
+}
@@ -0,0 +1,19 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+/**
+ *
+ * How updateBigData writes the new values to the table 'BIG_DATA'
+ *
+ */
+public enum UpdateStrategy {
+	/**
+	 * One parameterized UPDATE per row, sent in JDBC batches of 'batchSize' rows and
+	 * committed every 'commitInterval' rows
+	 */
+	BATCHED,
+	/**
+	 * The new values are inserted in JDBC batches into a local temporary table and applied
+	 * with a single MERGE. The database sees one set-based statement and one transaction.
+	 */
+	STAGED
+}
@@ -0,0 +1,426 @@
+package edu.hm.cs.bigdata.hana.persistence;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ *
+ * Write-behind buffer in front of the BigDataDAO for many small writers. Producers put rows into
+ * a bounded lock-free ring and return at once; background flushers take the rows out in batches of
+ * up to 'maxBatchSize' rows and insert every batch with insertBigData, so one transaction commits
+ * the rows of many producers (group commit). A batch is started when it is full or its oldest row
+ * waited 'maxLatencyMillis'. Producers wait while the ring is full.
+ *
+ * The ring is a sequence numbered array: a producer claims a position by a CAS on the tail and
+ * publishes the row by advancing the sequence of its slot. One flusher at a time takes a batch,
+ * the others write theirs meanwhile. flush() waits until every row added before is written.
+ *
+ */
+public class WriteBehindBuffer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindBuffer.class);
+	/** Default number of rows the ring holds */
+	public static final int DEFAULT_CAPACITY = 65536;
+	/** Default maximum number of rows written in one batch */
+	public static final int DEFAULT_MAX_BATCH_SIZE = BigDataDAO.DEFAULT_COMMIT_INTERVAL;
+	/** Default time in ms a row waits for more rows before its batch is written */
+	public static final long DEFAULT_MAX_LATENCY_MILLIS = 50;
+	//longest park of a waiting producer or an idle flusher before it looks again
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+	private final BigDataDAO bigDataDAO;
+	private final int capacity;
+	private final int mask;
+	private final AtomicReferenceArray<BigData> slots;
+	//slot i is free for position p if its sequence is p, it holds the row of position p if it is p + 1
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	//position of the next row to take, only advanced by the flusher holding the drain lock
+	private volatile long head;
+	private final ReentrantLock drainLock = new ReentrantLock();
+	private volatile Thread collector;
+	private final AtomicLong flushTarget = new AtomicLong();
+	private final int maxBatchSize;
+	private final long maxLatencyNanos;
+	private final ExecutorService flushers;
+	private volatile boolean closed;
+
+	//first positions of the batches being written and the end of the taken rows, guarded by progress
+	private final Object progress = new Object();
+	private final TreeSet<Long> inFlight = new TreeSet<Long>();
+	private long taken;
+
+	private final AtomicLong committedRows = new AtomicLong();
+	private final AtomicLong failedRows = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicReference<SQLException> failure = new AtomicReference<SQLException>();
+
+	/**
+	 *
+	 * @param bigDataDAO
+	 * @param capacity number of rows the ring holds, rounded up to a power of two
+	 * @param maxBatchSize maximum number of rows written in one batch
+	 * @param maxLatencyMillis time a row waits for more rows before its batch is written
+	 * @param flusherThreads number of threads writing batches in parallel
+	 */
+	public WriteBehindBuffer(BigDataDAO bigDataDAO, int capacity, int maxBatchSize, long maxLatencyMillis,
+			int flusherThreads) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+		}
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Maximum batch size must be at least 1: " + maxBatchSize);
+		}
+		if (maxLatencyMillis < 0) {
+			throw new IllegalArgumentException("Maximum latency must not be negative: " + maxLatencyMillis);
+		}
+		if (flusherThreads < 1) {
+			throw new IllegalArgumentException("At least one flusher thread is needed: " + flusherThreads);
+		}
+		this.bigDataDAO = bigDataDAO;
+		this.capacity = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+		this.mask = this.capacity - 1;
+		this.slots = new AtomicReferenceArray<BigData>(this.capacity);
+		this.sequences = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; i++) {
+			sequences.set(i, i);
+		}
+		//a full ring must be able to start a batch
+		this.maxBatchSize = Math.min(maxBatchSize, this.capacity);
+		this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+		this.flushers = Executors.newFixedThreadPool(flusherThreads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "bigdata-write-behind-" + THREAD_NUMBER.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		for (int i = 0; i < flusherThreads; i++) {
+			flushers.execute(new Runnable() {
+				@Override
+				public void run() {
+					runFlusher();
+				}
+			});
+		}
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @throws InterruptedException if the thread was interrupted while the ring was full
+	 * @throws IllegalStateException if the buffer is closed
+	 *
+	 * Add the row, waits while the ring is full
+	 */
+	public void add(BigData row) throws InterruptedException {
+		offer(row, -1);
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param timeout
+	 * @param unit
+	 * @return false if the ring stayed full for the timeout and the row was not added
+	 * @throws InterruptedException if the thread was interrupted while the ring was full
+	 * @throws IllegalStateException if the buffer is closed
+	 */
+	public boolean offer(BigData row, long timeout, TimeUnit unit) throws InterruptedException {
+		return offer(row, Math.max(0, unit.toNanos(timeout)));
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param timeoutNanos time to wait while the ring is full, negative to wait without limit
+	 * @return true if the row was added
+	 * @throws InterruptedException
+	 */
+	private boolean offer(BigData row, long timeoutNanos) throws InterruptedException {
+		if (row == null) {
+			throw new IllegalArgumentException("Row must not be null");
+		}
+		long start = System.nanoTime();
+		while (true) {
+			if (closed) {
+				throw new IllegalStateException("Write-behind buffer is closed");
+			}
+			long position = tryAdd(row);
+			if (position >= 0) {
+				if (position == head) {
+					//the ring was empty, so the collecting flusher is parked and starts the latency now
+					wakeCollector();
+				}
+				return true;
+			}
+			wakeCollector();
+			long remaining = timeoutNanos < 0 ? MAX_PARK_NANOS : timeoutNanos - (System.nanoTime() - start);
+			if (remaining <= 0) {
+				return false;
+			}
+			if (Thread.interrupted()) {
+				throw new InterruptedException("Interrupted while the write-behind buffer was full");
+			}
+			LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS / 10));
+		}
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @return the position of the row or -1 if the ring is full
+	 */
+	private long tryAdd(BigData row) {
+		while (true) {
+			long position = tail.get();
+			int index = (int) position & mask;
+			long sequence = sequences.get(index);
+			if (sequence == position) {
+				if (tail.compareAndSet(position, position + 1)) {
+					slots.set(index, row);
+					sequences.set(index, position + 1);
+					return position;
+				}
+			} else if (sequence < position) {
+				return -1;
+			}
+		}
+	}
+
+	private void wakeCollector() {
+		Thread thread = collector;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	/**
+	 * Take batches and write them until the buffer is closed and empty
+	 */
+	private void runFlusher() {
+		while (true) {
+			List<BigData> batch;
+			long first;
+			drainLock.lock();
+			try {
+				collector = Thread.currentThread();
+				batch = collect();
+				if (batch == null) {
+					return;
+				}
+				first = head - batch.size();
+				synchronized (progress) {
+					inFlight.add(first);
+					taken = head;
+				}
+			} finally {
+				collector = null;
+				drainLock.unlock();
+			}
+			write(batch, first);
+		}
+	}
+
+	/**
+	 *
+	 * @return the next batch, null if the buffer is closed and empty
+	 *
+	 * Wait until a batch is full, its oldest row waited the maximum latency, a flush asks for
+	 * the rows or the buffer is closed, then take the batch out of the ring
+	 */
+	private List<BigData> collect() {
+		long waitingSince = 0;
+		boolean waiting = false;
+		while (true) {
+			long available = tail.get() - head;
+			if (available == 0) {
+				if (closed) {
+					return null;
+				}
+				waiting = false;
+				LockSupport.parkNanos(this, MAX_PARK_NANOS);
+				continue;
+			}
+			long now = System.nanoTime();
+			if (!waiting) {
+				waiting = true;
+				waitingSince = now;
+			}
+			long waited = now - waitingSince;
+			if (available >= maxBatchSize || waited >= maxLatencyNanos || closed || head < flushTarget.get()) {
+				List<BigData> batch = take();
+				if (!batch.isEmpty()) {
+					return batch;
+				}
+				//the next position is claimed but its row is not published yet
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(this, Math.min(MAX_PARK_NANOS, maxLatencyNanos - waited));
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return up to maxBatchSize published rows from the head of the ring
+	 */
+	private List<BigData> take() {
+		List<BigData> batch = new ArrayList<BigData>((int) Math.min(maxBatchSize, tail.get() - head));
+		long position = head;
+		while (batch.size() < maxBatchSize) {
+			int index = (int) position & mask;
+			if (sequences.get(index) != position + 1) {
+				break;
+			}
+			batch.add(slots.get(index));
+			slots.set(index, null);
+			sequences.set(index, position + capacity);
+			position++;
+		}
+		head = position;
+		return batch;
+	}
+
+	/**
+	 *
+	 * @param batch
+	 * @param first position of the first row of the batch
+	 */
+	private void write(List<BigData> batch, long first) {
+		try {
+			committedRows.addAndGet(bigDataDAO.insertBigData(batch.iterator()));
+		} catch (BatchWriteException e) {
+			committedRows.addAndGet(e.getCommittedRows());
+			failed(batch.size() - e.getCommittedRows(), e);
+		} catch (SQLException e) {
+			failed(batch.size(), e);
+		} catch (RuntimeException e) {
+			failed(batch.size(), new SQLException("Write-behind batch failed", e));
+		} finally {
+			batches.incrementAndGet();
+			synchronized (progress) {
+				inFlight.remove(first);
+				progress.notifyAll();
+			}
+		}
+	}
+
+	private void failed(long rows, SQLException e) {
+		failedRows.addAndGet(rows);
+		failure.compareAndSet(null, e);
+		LOGGER.error("Write-behind batch lost " + rows + " rows", e);
+	}
+
+	/**
+	 *
+	 * @throws InterruptedException
+	 * @throws SQLException the first failure of a batch since the last flush, its rows are lost
+	 *
+	 * Durability point: wait until every row added before the call is committed or failed
+	 */
+	public void flush() throws InterruptedException, SQLException {
+		long target = tail.get();
+		long current;
+		while ((current = flushTarget.get()) < target && !flushTarget.compareAndSet(current, target)) {
+			//another flush raised the target meanwhile
+		}
+		wakeCollector();
+		synchronized (progress) {
+			while ((inFlight.isEmpty() ? taken : inFlight.first()) < target) {
+				if (flushers.isTerminated()) {
+					throw new IllegalStateException("Write-behind buffer was closed before the rows were written");
+				}
+				progress.wait(MAX_PARK_NANOS / 1000000);
+			}
+		}
+		SQLException firstFailure = failure.getAndSet(null);
+		if (firstFailure != null) {
+			throw firstFailure;
+		}
+	}
+
+	/**
+	 *
+	 * @param timeoutMillis
+	 * @return true if all rows were written within the timeout
+	 * @throws InterruptedException
+	 *
+	 * Reject new rows, write the rows in the ring and stop the flushers. Failures are logged,
+	 * call flush before to get them.
+	 */
+	public boolean close(long timeoutMillis) throws InterruptedException {
+		closed = true;
+		wakeCollector();
+		flushers.shutdown();
+		//a row added while the buffer was closed may be left behind
+		boolean drained = flushers.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS) && getPendingRows() == 0;
+		if (!drained) {
+			LOGGER.warn("Write-behind buffer not drained after {} ms, {} rows pending", timeoutMillis, getPendingRows());
+		}
+		return drained;
+	}
+
+	/**
+	 *
+	 * @return the number of rows added
+	 */
+	public long getAddedRows() {
+		return tail.get();
+	}
+
+	/**
+	 *
+	 * @return the number of rows in the ring which are not taken by a flusher yet
+	 */
+	public long getPendingRows() {
+		return tail.get() - head;
+	}
+
+	/**
+	 *
+	 * @return the number of rows committed to the database
+	 */
+	public long getCommittedRows() {
+		return committedRows.get();
+	}
+
+	/**
+	 *
+	 * @return the number of rows lost by failed batches
+	 */
+	public long getFailedRows() {
+		return failedRows.get();
+	}
+
+	/**
+	 *
+	 * @return the number of batches written
+	 */
+	public long getBatches() {
+		return batches.get();
+	}
+
+	@Override
+	public String toString() {
+		return "added=" + getAddedRows() + " pending=" + getPendingRows() + " committed=" + getCommittedRows()
+				+ " failed=" + getFailedRows() + " batches=" + getBatches();
+	}
+}
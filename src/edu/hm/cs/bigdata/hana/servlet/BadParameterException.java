@@ -0,0 +1,30 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import javax.servlet.ServletException;
+
+/**
+ * 
+ * A parameter has a value which cannot be used. Servlets answer it with 400 if the value came 
+ * with the request, a context parameter fails the start of the servlet as any ServletException.
+ *
+ */
+class BadParameterException extends ServletException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 
+	 * @param message names the parameter and the value
+	 */
+	BadParameterException(String message) {
+		super(message);
+	}
+
+	/**
+	 * 
+	 * @param message names the parameter and the value
+	 * @param cause
+	 */
+	BadParameterException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
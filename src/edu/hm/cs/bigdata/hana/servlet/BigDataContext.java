@@ -0,0 +1,329 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import java.sql.SQLException;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.sql.DataSource;
+
+import edu.hm.cs.bigdata.hana.job.JobManager;
+import edu.hm.cs.bigdata.hana.persistence.AdaptiveBatchSizer;
+import edu.hm.cs.bigdata.hana.persistence.AnalyticsCache;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.PooledDataSource;
+import edu.hm.cs.bigdata.hana.persistence.TableLayout;
+import edu.hm.cs.bigdata.hana.persistence.TracingDataSource;
+import edu.hm.cs.bigdata.hana.persistence.WriteBehindBuffer;
+
+/**
+ * 
+ * Holds the BigDataDAO which is shared by all servlets of the application. 
+ * Caches, incremental analytics and the data version live in the DAO, so every 
+ * servlet must write through the same instance to keep them consistent.
+ *
+ */
+public final class BigDataContext {
+	private static final String DAO_ATTRIBUTE = BigDataDAO.class.getName();
+	private static final String JOB_MANAGER_ATTRIBUTE = JobManager.class.getName();
+	private static final String WRITE_BEHIND_ATTRIBUTE = WriteBehindBuffer.class.getName();
+	//time running jobs get to stop when the application stops
+	private static final long JOB_SHUTDOWN_MILLIS = 10000;
+	//time the write-behind buffer gets to write its rows when the application stops
+	private static final long WRITE_BEHIND_DRAIN_MILLIS = 30000;
+	private static final Object LOCK = new Object();
+	
+	private BigDataContext() {
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * @return the DAO of the application, created on first use
+	 * @throws ServletException
+	 */
+	public static BigDataDAO getBigDataDAO(ServletContext context) throws ServletException {
+		synchronized (LOCK) {
+			BigDataDAO bigDataDAO = (BigDataDAO) context.getAttribute(DAO_ATTRIBUTE);
+			if (bigDataDAO == null) {
+				bigDataDAO = createBigDataDAO(context);
+				context.setAttribute(DAO_ATTRIBUTE, bigDataDAO);
+			}
+			return bigDataDAO;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * @return the manager of the generation and analysis jobs of the application, created on first use
+	 * @throws ServletException
+	 */
+	public static JobManager getJobManager(ServletContext context) throws ServletException {
+		synchronized (LOCK) {
+			JobManager jobManager = (JobManager) context.getAttribute(JOB_MANAGER_ATTRIBUTE);
+			if (jobManager == null) {
+				jobManager = new JobManager((int) getLongParameter(context, "jobThreads", JobManager.DEFAULT_THREADS),
+						JobManager.DEFAULT_MAX_RETAINED_JOBS);
+				context.setAttribute(JOB_MANAGER_ATTRIBUTE, jobManager);
+			}
+			return jobManager;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * @return the tracing of the SQL of the DAO or null if the context parameter 'sqlTracing' is not true
+	 * @throws ServletException
+	 */
+	public static TracingDataSource getTracingDataSource(ServletContext context) throws ServletException {
+		DataSource ds = getBigDataDAO(context).getDataSource();
+		return ds instanceof TracingDataSource ? (TracingDataSource) ds : null;
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * @return the write-behind buffer of the application, created on first use, 
+	 * 			or null if the context parameter 'writeBehindCapacity' is 0
+	 * @throws ServletException
+	 */
+	public static WriteBehindBuffer getWriteBehindBuffer(ServletContext context) throws ServletException {
+		BigDataDAO bigDataDAO = getBigDataDAO(context);
+		synchronized (LOCK) {
+			WriteBehindBuffer buffer = (WriteBehindBuffer) context.getAttribute(WRITE_BEHIND_ATTRIBUTE);
+			if (buffer == null) {
+				int capacity = (int) getLongParameter(context, "writeBehindCapacity", 0);
+				if (capacity <= 0) {
+					return null;
+				}
+				try {
+					buffer = new WriteBehindBuffer(bigDataDAO, capacity, 
+							(int) getLongParameter(context, "writeBehindMaxBatchSize", WriteBehindBuffer.DEFAULT_MAX_BATCH_SIZE),
+							getLongParameter(context, "writeBehindMaxLatencyMillis", WriteBehindBuffer.DEFAULT_MAX_LATENCY_MILLIS),
+							(int) getLongParameter(context, "writeBehindFlushers", 1));
+				} catch (IllegalArgumentException e) {
+					throw new ServletException(e.getMessage(), e);
+				}
+				context.setAttribute(WRITE_BEHIND_ATTRIBUTE, buffer);
+			}
+			return buffer;
+		}
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * 
+	 * Write the rows of the write-behind buffer and stop its flushers, a later 
+	 * getWriteBehindBuffer creates a new one
+	 */
+	public static void closeWriteBehindBuffer(ServletContext context) {
+		synchronized (LOCK) {
+			WriteBehindBuffer buffer = (WriteBehindBuffer) context.getAttribute(WRITE_BEHIND_ATTRIBUTE);
+			if (buffer == null) {
+				return;
+			}
+			context.removeAttribute(WRITE_BEHIND_ATTRIBUTE);
+			try {
+				buffer.close(WRITE_BEHIND_DRAIN_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * 
+	 * Release the resources of the DAO when the application stops, e.g. the connection pool.
+	 * Running jobs are cancelled and the write-behind buffer is drained first because they still use the DAO.
+	 */
+	public static void close(ServletContext context) {
+		synchronized (LOCK) {
+			JobManager jobManager = (JobManager) context.getAttribute(JOB_MANAGER_ATTRIBUTE);
+			if (jobManager != null) {
+				context.removeAttribute(JOB_MANAGER_ATTRIBUTE);
+				try {
+					jobManager.shutdown(JOB_SHUTDOWN_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			closeWriteBehindBuffer(context);
+			BigDataDAO bigDataDAO = (BigDataDAO) context.getAttribute(DAO_ATTRIBUTE);
+			if (bigDataDAO == null) {
+				return;
+			}
+			context.removeAttribute(DAO_ATTRIBUTE);
+			DataSource ds = bigDataDAO.getDataSource();
+			if (ds instanceof TracingDataSource) {
+				ds = ((TracingDataSource) ds).getDataSource();
+			}
+			if (ds instanceof PooledDataSource) {
+				((PooledDataSource) ds).close();
+			}
+		}
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * @return a DAO for the data source 'jdbc/DefaultDB' configured by the context parameters
+	 * @throws ServletException
+	 * 
+	 * Set the connection between the SAP HANA database
+	 */
+	private static BigDataDAO createBigDataDAO(ServletContext context) throws ServletException {
+		try {
+			InitialContext ctx = new InitialContext();
+			DataSource ds = (DataSource) ctx.lookup("java:comp/env/jdbc/DefaultDB");
+			int poolSize = (int) getLongParameter(context, "connectionPoolSize", 0);
+			if (poolSize > 0) {
+				PooledDataSource pool = new PooledDataSource(ds, poolSize);
+				pool.setLeakThresholdMillis(getLongParameter(context, "connectionLeakThresholdMillis", 0));
+				pool.setRecordBorrowStacks(Boolean.parseBoolean(context.getInitParameter("connectionLeakStacks")));
+				ds = pool;
+			}
+			if (Boolean.parseBoolean(context.getInitParameter("sqlTracing"))) {
+				TracingDataSource tracing = new TracingDataSource(ds);
+				tracing.setSlowQueryMillis(getLongParameter(context, "slowQueryMillis", 
+						TracingDataSource.DEFAULT_SLOW_QUERY_MILLIS));
+				tracing.setCapturePlans(Boolean.parseBoolean(context.getInitParameter("explainSlowQueries")));
+				ds = tracing;
+			}
+			BigDataDAO bigDataDAO = new BigDataDAO(ds, getTableLayout(context));
+			bigDataDAO.setAnalyticsCache(new AnalyticsCache(getLongParameter(context, "analyticsCacheTtlMillis", 0),
+					AnalyticsCache.DEFAULT_MAX_ENTRIES));
+			if (Boolean.parseBoolean(context.getInitParameter("incrementalAnalytics"))) {
+				bigDataDAO.enableIncrementalAnalytics();
+			}
+			bigDataDAO.setColumnarSnapshotEnabled(Boolean.parseBoolean(context.getInitParameter("columnarSnapshot")));
+			if (Boolean.parseBoolean(context.getInitParameter("adaptiveBatching"))) {
+				bigDataDAO.setAdaptiveBatchSizer(getAdaptiveBatchSizer(context));
+			}
+			return bigDataDAO;
+		} catch (SQLException e) {
+			throw new ServletException(e);
+		} catch (NamingException e) {
+			throw new ServletException(e);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * @return the sizer of the write batches configured by the context parameters minBatchSize, 
+	 * 			maxBatchSize and maxBatchMillis, starting at the fixed batch size and commit interval of the DAO
+	 * @throws ServletException if a parameter is invalid
+	 */
+	private static AdaptiveBatchSizer getAdaptiveBatchSizer(ServletContext context) throws ServletException {
+		try {
+			return new AdaptiveBatchSizer(
+					(int) getLongParameter(context, "minBatchSize", AdaptiveBatchSizer.DEFAULT_MIN_BATCH_SIZE),
+					(int) getLongParameter(context, "maxBatchSize", AdaptiveBatchSizer.DEFAULT_MAX_BATCH_SIZE),
+					BigDataDAO.DEFAULT_BATCH_SIZE, BigDataDAO.DEFAULT_COMMIT_INTERVAL / BigDataDAO.DEFAULT_BATCH_SIZE,
+					getLongParameter(context, "maxBatchMillis", AdaptiveBatchSizer.DEFAULT_MAX_BATCH_MILLIS));
+		} catch (IllegalArgumentException e) {
+			throw new ServletException("Invalid adaptive batching: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * @return the layout of the table 'BIG_DATA' configured by the context parameters tableStorage,
+	 * 			tablePartitioning, tablePartitionColumn, tablePartitions, tableIdRangeSize and tableCreatedAtIndex
+	 * @throws ServletException if a parameter is invalid
+	 */
+	private static TableLayout getTableLayout(ServletContext context) throws ServletException {
+		try {
+			return new TableLayout(
+					parseEnum(TableLayout.Storage.class, "tableStorage", context.getInitParameter("tableStorage"),
+							TableLayout.Storage.DEFAULT),
+					parseEnum(TableLayout.Partitioning.class, "tablePartitioning",
+							context.getInitParameter("tablePartitioning"), TableLayout.Partitioning.NONE),
+					parseEnum(TableLayout.PartitionColumn.class, "tablePartitionColumn",
+							context.getInitParameter("tablePartitionColumn"), TableLayout.PartitionColumn.ID),
+					(int) getLongParameter(context, "tablePartitions", 1),
+					(int) getLongParameter(context, "tableIdRangeSize", TableLayout.DEFAULT_ID_RANGE_SIZE),
+					Boolean.parseBoolean(context.getInitParameter("tableCreatedAtIndex")));
+		} catch (IllegalArgumentException e) {
+			throw new ServletException("Invalid table layout: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param type
+	 * @param name
+	 * @param value
+	 * @param defaultValue
+	 * @return the constant of the value ignoring the case or the default value if it is not set
+	 * @throws BadParameterException if there is no such constant
+	 */
+	public static <E extends Enum<E>> E parseEnum(Class<E> type, String name, String value, E defaultValue) 
+			throws BadParameterException {
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Enum.valueOf(type, value.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new BadParameterException("Parameter " + name + " is invalid: " + value, e);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param context
+	 * @param name
+	 * @param defaultValue
+	 * @return the value of the context parameter or the default value if it is not set
+	 * @throws ServletException if the value is not a number
+	 */
+	public static long getLongParameter(ServletContext context, String name, long defaultValue) throws ServletException {
+		return parseLong(name, context.getInitParameter(name), defaultValue);
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 * @param value
+	 * @param defaultValue
+	 * @return the value as number or the default value if it is not set
+	 * @throws BadParameterException if the value is not a number
+	 */
+	public static long parseLong(String name, String value, long defaultValue) throws BadParameterException {
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new BadParameterException("Parameter " + name + " is not a number: " + value, e);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param name
+	 * @param value
+	 * @param defaultValue
+	 * @return the value as number or the default value if it is not set
+	 * @throws BadParameterException if the value is not a number
+	 */
+	public static double parseDouble(String name, String value, double defaultValue) throws BadParameterException {
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value.trim());
+		} catch (NumberFormatException e) {
+			throw new BadParameterException("Parameter " + name + " is not a number: " + value, e);
+		}
+	}
+}
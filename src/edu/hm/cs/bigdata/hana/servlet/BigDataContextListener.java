@@ -0,0 +1,22 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * 
+ * Releases the shared BigDataDAO when the application is stopped
+ *
+ */
+public class BigDataContextListener implements ServletContextListener {
+	
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		//the DAO is created by the first servlet which needs it
+	}
+	
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		BigDataContext.close(event.getServletContext());
+	}
+}
@@ -2,24 +2,30 @@ package edu.hm.cs.bigdata.hana.servlet;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 
-import javax.naming.InitialContext;
-import javax.naming.NamingException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.sap.security.core.server.csi.IXSSEncoder;
-import com.sap.security.core.server.csi.XSSEncoder;
-
+import edu.hm.cs.bigdata.hana.job.GenerationTask;
+import edu.hm.cs.bigdata.hana.job.Job;
+import edu.hm.cs.bigdata.hana.job.JobManager;
+import edu.hm.cs.bigdata.hana.metrics.BigDataMetrics;
+import edu.hm.cs.bigdata.hana.persistence.AnalyticsReport;
+import edu.hm.cs.bigdata.hana.persistence.ApproximateReport;
 import edu.hm.cs.bigdata.hana.persistence.BigData;
 import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.BigDataHandler;
+import edu.hm.cs.bigdata.hana.persistence.UpdateStrategy;
 
 /**
  * 
@@ -32,9 +38,21 @@ import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
 public class BigDataServlet extends HttpServlet {
 	private static final Logger LOGGER = LoggerFactory.getLogger(BigDataServlet.class);
     private static final long serialVersionUID = 1L;
+    private static final String JOB_ATTRIBUTE = Job.class.getName();
+    private static final int DEFAULT_GENERATED_ROWS = 1000;
+    private static final double DEFAULT_SAMPLE_PERCENT = 1;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    //the page is rendered with the progress of the job if it takes longer
+    private static final long GENERATION_WAIT_MILLIS = 30000;
     
 
     private BigDataDAO bigDataDAO;
+    private JobManager jobManager;
+    //part of the ETag, so versions of an earlier run of the application never match
+    private String instanceId;
+    private long externalWriteCheckMillis;
+    private volatile long lastExternalWriteCheck;
 
     /**
      * Manage resources that are needed for the life of the servlet.
@@ -42,135 +60,441 @@ public class BigDataServlet extends HttpServlet {
      */
     @Override
     public void init() throws ServletException {
-        try {
-            InitialContext ctx = new InitialContext();
-            DataSource ds = (DataSource) ctx.lookup("java:comp/env/jdbc/DefaultDB");
-            bigDataDAO = new BigDataDAO(ds);
-        } catch (SQLException e) {
-            throw new ServletException(e);
-        } catch (NamingException e) {
-            throw new ServletException(e);
-        }
+        bigDataDAO = BigDataContext.getBigDataDAO(getServletContext());
+        jobManager = BigDataContext.getJobManager(getServletContext());
+        instanceId = Long.toHexString(System.currentTimeMillis());
+        externalWriteCheckMillis = BigDataContext.getLongParameter(getServletContext(), "externalWriteCheckMillis", 0);
     }
     
     /**
      * Handle HTTP POST requests
-     * Generate a random data set and save it to the database
-     * Refresh the user interface with the current data
+     * Generate a random data set of the parameter 'rows' and save it to the database as a job.
+     * Without the parameter 'seed' an interrupted generation is resumed.
+     * Refresh the user interface with the current data when the job is done
      */
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
             IOException {
-        try {
-        	generateData(1000);
-            doGet(request, response);
-        } catch (Exception e) {
-            response.getWriter().println("Persistence operation failed with reason: " + e.getMessage());
-            LOGGER.error("Persistence operation failed", e);
-        }
+    	Job job = (Job) request.getAttribute(JOB_ATTRIBUTE);
+    	if (job == null) {
+    		long rows;
+    		long seed;
+    		try {
+    			rows = BigDataContext.parseLong("rows", request.getParameter("rows"), DEFAULT_GENERATED_ROWS);
+    			if (rows < 1 || rows > Integer.MAX_VALUE) {
+    				throw new BadParameterException("rows must be between 1 and " + Integer.MAX_VALUE);
+    			}
+    			String seedValue = request.getParameter("seed");
+    			seed = seedValue == null || seedValue.trim().isEmpty() ? GenerationTask.resumableSeed(bigDataDAO) 
+    					: BigDataContext.parseLong("seed", seedValue, 0);
+    		} catch (BadParameterException e) {
+    			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+    			return;
+    		} catch (SQLException e) {
+    			throw new ServletException("Checkpoints could not be read", e);
+    		}
+    		job = jobManager.submit("generate", rows, new GenerationTask(bigDataDAO, (int) rows, seed, 
+    				UpdateStrategy.BATCHED));
+    		request.setAttribute(JOB_ATTRIBUTE, job);
+    		if (request.isAsyncSupported()) {
+    			//the request thread is free while the job runs, the page is rendered after a dispatch
+    			dispatchWhenDone(request, job);
+    			return;
+    		}
+    	}
+    	
+    	long start = System.nanoTime();
+    	long[] databaseNanos = new long[1];
+    	boolean failed = true;
+    	try {
+    		HtmlBuffer page = HtmlBuffer.forPage();
+    		boolean rendered = renderPage(page, databaseNanos, 0, 0, DEFAULT_PAGE_SIZE);
+    		if (!rendered) {
+    			response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    		}
+    		addJobToHTML(page, job);
+    		page.writeTo(response.getWriter());
+    		failed = !rendered || job.getStatus() == Job.Status.FAILED;
+    	} finally {
+    		getMetrics().request("post").record(System.nanoTime() - start, databaseNanos[0], failed);
+    	}
+    }
+    
+    /**
+     * 
+     * @param request
+     * @param job
+     * 
+     * Dispatch the request to the servlet again when the job is done or after GENERATION_WAIT_MILLIS
+     */
+    private void dispatchWhenDone(HttpServletRequest request, final Job job) {
+    	final AsyncContext async = request.startAsync();
+    	async.setTimeout(GENERATION_WAIT_MILLIS);
+    	final AtomicBoolean dispatched = new AtomicBoolean();
+    	final Runnable dispatch = new Runnable() {
+    		@Override
+    		public void run() {
+    			if (dispatched.compareAndSet(false, true)) {
+    				async.dispatch();
+    			}
+    		}
+    	};
+    	async.addListener(new AsyncListener() {
+    		@Override
+    		public void onTimeout(AsyncEvent event) {
+    			job.removeDoneListener(dispatch);
+    			dispatch.run();
+    		}
+    		
+    		@Override
+    		public void onComplete(AsyncEvent event) {
+    			job.removeDoneListener(dispatch);
+    		}
+    		
+    		@Override
+    		public void onError(AsyncEvent event) {
+    			job.removeDoneListener(dispatch);
+    		}
+    		
+    		@Override
+    		public void onStartAsync(AsyncEvent event) {
+    			//not restarted
+    		}
+    	});
+    	job.addDoneListener(dispatch);
     }
 
 	/**
 	 * Handle  HTTP GET requests
-	 * Add the title, button and table as HTML to the user interface
+	 * Add the title, button and one page of the table as HTML to the user interface.
+	 * The page holds 'pageSize' rows with an ID greater than 'after', the ID of the last row of the previous page.
+	 * With mode=approximate the analyses are estimated from a sample of 'samplePercent' percent of the rows.
+	 * A complete page carries the data version as ETag, a poll with a matching If-None-Match is answered 
+	 * with 304 without reading any data. A page which failed is sent with 500 and without validators.
 	 */
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-        response.getWriter().println("<h1 align='center'>Big Data with SAP HANA!</h1>");
+    	long start = System.nanoTime();
+    	boolean checked = checkExternalWrites();
+    	//read before the data, so a write during the render only makes the next poll a full request
+    	long lastModified = bigDataDAO.getLastModified();
+    	String eTag = "W/\"" + instanceId + "-" + bigDataDAO.getDataVersion() + "\"";
+    	response.setHeader("Cache-Control", "no-cache");
+    	if (checked && isNotModified(request, eTag)) {
+    		response.setHeader("ETag", eTag);
+    		response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    		getMetrics().request("notModified").record(System.nanoTime() - start, 0, false);
+    		return;
+    	}
+    	long[] databaseNanos = new long[1];
+    	boolean failed = true;
+    	double samplePercent = 0;
+    	long afterId;
+    	long pageSize;
+    	try {
+    		if ("approximate".equals(request.getParameter("mode"))) {
+    			samplePercent = BigDataContext.parseDouble("samplePercent", request.getParameter("samplePercent"), 
+    					DEFAULT_SAMPLE_PERCENT);
+    			if (!(samplePercent > 0 && samplePercent <= 100)) {
+    				throw new BadParameterException("samplePercent must be in (0, 100]");
+    			}
+    		}
+    		afterId = BigDataContext.parseLong("after", request.getParameter("after"), 0);
+    		pageSize = BigDataContext.parseLong("pageSize", request.getParameter("pageSize"), DEFAULT_PAGE_SIZE);
+    		if (afterId < 0 || afterId > Integer.MAX_VALUE || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+    			throw new BadParameterException("after must not be negative and pageSize must be between 1 and " 
+    					+ MAX_PAGE_SIZE);
+    		}
+    	} catch (BadParameterException e) {
+    		response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+    		return;
+    	}
+    	try {
+    		HtmlBuffer page = HtmlBuffer.forPage();
+    		failed = !renderPage(page, databaseNanos, samplePercent, (int) afterId, (int) pageSize);
+    		if (failed) {
+    			response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    		} else {
+    			response.setHeader("ETag", eTag);
+    			response.setDateHeader("Last-Modified", lastModified);
+    		}
+    		page.writeTo(response.getWriter());
+    	} finally {
+    		getMetrics().request("get").record(System.nanoTime() - start, databaseNanos[0], failed);
+    	}
+    }
+    
+    /**
+     * 
+     * @return false if the check failed, the page is then rendered, which reports the failure
+     * 
+     * Check for writes outside of this application at most every 'externalWriteCheckMillis' ms
+     */
+    private boolean checkExternalWrites() {
+    	if (externalWriteCheckMillis > 0) {
+    		long now = System.currentTimeMillis();
+    		if (now - lastExternalWriteCheck >= externalWriteCheckMillis) {
+    			lastExternalWriteCheck = now;
+    			try {
+    				bigDataDAO.detectExternalWrites();
+    			} catch (SQLException e) {
+    				LOGGER.warn("Check for external writes failed", e);
+    				return false;
+    			}
+    		}
+    	}
+    	return true;
+    }
+    
+    /**
+     * 
+     * @param request
+     * @param eTag of the current data version
+     * @return true if the client has the current page
+     * 
+     * Only If-None-Match is compared. If-Modified-Since is not answered with 304, HTTP dates have
+     * a resolution of one second and a write in the same second as the last page would be missed.
+     */
+    private static boolean isNotModified(HttpServletRequest request, String eTag) {
+    	String ifNoneMatch = request.getHeader("If-None-Match");
+    	return ifNoneMatch != null && matches(ifNoneMatch, eTag);
+    }
+    
+    /**
+     * 
+     * @param ifNoneMatch
+     * @param eTag
+     * @return true if the header lists the ETag or is '*', compared weakly
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+    	String opaque = eTag.substring(2);
+    	for (String candidate : ifNoneMatch.split(",")) {
+    		candidate = candidate.trim();
+    		if (candidate.startsWith("W/")) {
+    			candidate = candidate.substring(2);
+    		}
+    		if (candidate.equals("*") || candidate.equals(opaque)) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+    
+    /**
+     * 
+     * @param html the page buffer of the thread
+     * @param databaseNanos
+     * @param samplePercent percentage of the rows the analyses are estimated from, 0 for exact analyses
+     * @param afterId the rows of the page have a greater ID
+     * @param pageSize maximum number of rows of the page
+     * @return true if the page was complete, false if a persistence operation failed
+     * 
+     * Add the title, button and table as HTML and add the time spent in the database to 'databaseNanos'.
+     * The page is rendered into the buffer before anything is sent, so the status and validators of the 
+     * response can still follow the outcome. A page has at most MAX_PAGE_SIZE rows.
+     */
+    private boolean renderPage(HtmlBuffer html, long[] databaseNanos, double samplePercent, 
+    		int afterId, int pageSize) {
+    	html.append("<h1 align='center'>Big Data with SAP HANA!</h1>\n");
         try {
-        	addButtonToHTML(response);
-            addDataToHTML(response);
-            
+        	addButtonToHTML(html);
+            addDataToHTML(html, databaseNanos, samplePercent, afterId, pageSize);
+            return true;
         } catch (Exception e) {
-            response.getWriter().println("Persistence operation failed with reason: " + e.getMessage());
+        	html.append("Persistence operation failed with reason: ").appendEncoded(e.getMessage()).append('\n');
             LOGGER.error("Persistence operation failed", e);
+            return false;
         }
     }
     
     /**
      * 
-     * @param response
-     * @throws SQLException
-     * @throws IOException
+     * @return the metrics the DAO and the requests are recorded to
+     */
+    private BigDataMetrics getMetrics() {
+    	return bigDataDAO.getMetrics();
+    }
+    
+    /**
+     * 
+     * @param html
+     * @param report
      * 
      * Add as HTML the average length of the values in the column USER_NAME
      */
-    private void addAnalyzedUserNameToHTML(HttpServletResponse response) throws SQLException, IOException {
-    	String htmlToAdd = "<p align='center'>Average lenght of User_Name: "+ bigDataDAO.analyzeUsername() +"</p>";
-    	response.getWriter().println(htmlToAdd);
+    private void addAnalyzedUserNameToHTML(HtmlBuffer html, AnalyticsReport report) {
+    	html.append("<p align='center'>Average lenght of User_Name: ").append((int) report.getAverageUserNameLength())
+    			.append("</p>\n");
     }
     
     /**
      * 
-     * @param response
-     * @throws SQLException
-     * @throws IOException
+     * @param html
+     * @param report
      * 
      * Add as HTML the most frequently used date in the column CREATED_AT
      */
-    private void addAnalyzedCreatedAtToHTML(HttpServletResponse response) throws SQLException, IOException {
-    	String htmlToAdd = "<p align='center'>Date with highest frequency: " + bigDataDAO.analyzeCreatedAt() + "</p>";
-    	response.getWriter().println(htmlToAdd);
+    private void addAnalyzedCreatedAtToHTML(HtmlBuffer html, AnalyticsReport report) {
+    	html.append("<p align='center'>Date with highest frequency: ").appendDate(report.getMostCommonCreatedAt())
+    			.append("</p>\n");
     }
 
     /**
      * 
-     * @param response
-     * @throws SQLException
-     * @throws IOException
+     * @param html
+     * @param report
      * 
      * Add as HTML the frequency of the letter 'e' used in the column TEXT
      */
-    private void addAnalyzedTextToHTML(HttpServletResponse response) throws SQLException, IOException {
-    	String htmlToAdd = "<p align='center'>Frequency of letter 'e': " + bigDataDAO.analyzeText() + "</p>";
-    	response.getWriter().println(htmlToAdd);
+    private void addAnalyzedTextToHTML(HtmlBuffer html, AnalyticsReport report) {
+    	html.append("<p align='center'>Frequency of letter 'e': ").append(report.getLetterECount()).append("</p>\n");
     }
     
     /**
      * 
-     * @param response
-     * @throws SQLException
-     * @throws IOException
+     * @param html
+     * @param report
+     * 
+     * Add as HTML the estimated analyses with their 95% bounds in brackets
+     */
+    private void addApproximateAnalysesToHTML(HtmlBuffer html, ApproximateReport report) {
+    	html.append("<p align='center'>Estimated from ").append(report.getSampledRows()).append(" sampled rows (")
+    			.append(String.valueOf(report.getSampleFraction() * 100)).append("%), 95% bounds in brackets</p>\n");
+    	html.append("<p align='center'>Average lenght of User_Name: ")
+    			.append(report.getAverageUserNameLength().toString()).append("</p>\n");
+    	html.append("<p align='center'>Date with highest frequency: ").appendDate(report.getMostCommonCreatedAt())
+    			.append(" with ").append(report.getMostCommonCreatedAtCount().toString()).append(" rows</p>\n");
+    	html.append("<p align='center'>Frequency of letter 'e': ").append(report.getLetterECount().toString())
+    			.append("</p>\n");
+    	html.append("<p align='center'>Average of numbers: ").append(report.getAverageNumber().toString())
+    			.append("</p>\n");
+    	html.append("<p align='center'>Distinct user names: ").append(report.getDistinctUserNames().toString())
+    			.append(", distinct dates: ").append(report.getDistinctCreatedAt().toString()).append("</p>\n");
+    }
+    
+    /**
+     * 
+     * @param html
+     * @param report
      * 
      * Add as HTML the average of the numbers in column NUMBER
      */
-    private void addAnalyzedNumberToHTML(HttpServletResponse response) throws SQLException, IOException {
-    	String htmlToAdd = "<p align='center'>Average of numbers: " + bigDataDAO.analyzeNumber() + "</p>";
-    	response.getWriter().println(htmlToAdd);
+    private void addAnalyzedNumberToHTML(HtmlBuffer html, AnalyticsReport report) {
+    	html.append("<p align='center'>Average of numbers: ").append((int) report.getAverageNumber()).append("</p>\n");
     }
     
     /**
      * 
-     * @param response
+     * @param html
+     * @param databaseNanos
+     * @param samplePercent percentage of the rows the analyses are estimated from, 0 for exact analyses
+     * @param afterId the rows of the page have a greater ID
+     * @param pageSize maximum number of rows of the page
      * @throws SQLException
-     * @throws IOException
      * 
-     * Add the analyzed data and the data in the table 'BIG_DATA' if possible
+     * Add the analyzed data and one page of the data in the table 'BIG_DATA' if possible.
+     * The analyses come from one aggregate or sampled scan, the page is read by a keyset query on the ID,
+     * so the work per request does not grow with the table.
+     * The time spent in the database is added to 'databaseNanos', writing the rows is not counted.
      */
-    private void addDataToHTML(HttpServletResponse response) throws SQLException, IOException {
-        List<BigData> dataset = bigDataDAO.selectAllData();
-        
-        response.getWriter().println(
-                "<table width='100%' style='margin: auto; border-collapse:collapse;' border=\"1\"><tr><th colspan=\"5\">" + (dataset.isEmpty() ? "" : dataset.size() + " ")
-                        + "Entries in the Database</th></tr>");
-        if (dataset.isEmpty()) {
-            response.getWriter().println("<tr><td colspan=\"5\">No Dataset found in the database</td></tr>");
+    private void addDataToHTML(final HtmlBuffer html, long[] databaseNanos, double samplePercent, int afterId, 
+    		final int pageSize) throws SQLException {
+    	long start = System.nanoTime();
+        AnalyticsReport report = null;
+        ApproximateReport approximateReport = null;
+        long rowCount;
+        if (samplePercent > 0) {
+        	approximateReport = bigDataDAO.analyzeApproximately(samplePercent);
+        	rowCount = approximateReport.getRowCount();
         } else {
-    		this.addAnalyzedUserNameToHTML(response);
-    		this.addAnalyzedCreatedAtToHTML(response);
-    		this.addAnalyzedTextToHTML(response);
-    		this.addAnalyzedNumberToHTML(response);
-            response.getWriter().println("<tr><th>ID</th><th>User name</th><th>Created at</th><th>Text</th><th>Number</th></tr>");
-            IXSSEncoder xssEncoder = XSSEncoder.getInstance();
-            for (BigData bg : dataset) {
-                response.getWriter().println(
-                        "<tr><td>" + xssEncoder.encodeHTML(Integer.toString(bg.getId())) + "</td><td>"
-                                + xssEncoder.encodeHTML(bg.getUserName()) + "</td><td>" + bg.getCreatedAt() + "</td><td style='word-wrap: break-all'>" + bg.getText()+ "</td><td>" + bg.getNumber() + "</td></tr>");
-            }
-            response.getWriter().println("</table>");
+        	report = bigDataDAO.analyzeAll();
+        	rowCount = report.getRowCount();
         }
+        databaseNanos[0] += System.nanoTime() - start;
         
-        
+        html.append("<table width='100%' style='margin: auto; border-collapse:collapse;' border=\"1\"><tr><th colspan=\"5\">");
+        if (rowCount != 0) {
+        	html.append(rowCount).append(' ');
+        }
+        html.append("Entries in the Database</th></tr>\n");
+        if (rowCount == 0) {
+            html.append("<tr><td colspan=\"5\">No Dataset found in the database</td></tr>\n");
+        } else {
+        	if (approximateReport != null) {
+        		this.addApproximateAnalysesToHTML(html, approximateReport);
+        	} else {
+        		this.addAnalyzedUserNameToHTML(html, report);
+        		this.addAnalyzedCreatedAtToHTML(html, report);
+        		this.addAnalyzedTextToHTML(html, report);
+        		this.addAnalyzedNumberToHTML(html, report);
+        	}
+            html.append("<tr><th>ID</th><th>User name</th><th>Created at</th><th>Text</th><th>Number</th></tr>\n");
+            final long[] renderNanos = new long[1];
+            //one row more than the page is read to know if there is a next page
+            final int[] rendered = {0};
+            final int[] lastId = {afterId};
+            long scanStart = System.nanoTime();
+            bigDataDAO.selectPage(afterId, pageSize + 1, new BigDataHandler() {
+            	@Override
+            	public boolean handle(BigData bg) {
+            		if (rendered[0] == pageSize) {
+            			return false;
+            		}
+            		long rowStart = System.nanoTime();
+            		html.append("<tr><td>").append(bg.getId())
+            				.append("</td><td>").appendEncoded(bg.getUserName())
+            				.append("</td><td>").appendDate(bg.getCreatedAt())
+            				.append("</td><td style='word-wrap: break-all'>").appendEncoded(bg.getText())
+            				.append("</td><td>").append(bg.getNumber()).append("</td></tr>\n");
+            		rendered[0]++;
+            		lastId[0] = bg.getId();
+            		renderNanos[0] += System.nanoTime() - rowStart;
+            		return true;
+            	}
+            });
+            databaseNanos[0] += System.nanoTime() - scanStart - renderNanos[0];
+            html.append("</table>\n");
+            addPageLinksToHTML(html, samplePercent, afterId, lastId[0], pageSize, rendered[0] == pageSize);
+        }
+    }
+    
+    /**
+     * 
+     * @param html
+     * @param samplePercent
+     * @param afterId the cursor of the current page
+     * @param lastId the ID of the last row of the current page
+     * @param pageSize
+     * @param hasNext true if there are rows after the current page
+     * 
+     * Add as HTML the links to the first and the next page, keeping the mode and page size
+     */
+    private void addPageLinksToHTML(HtmlBuffer html, double samplePercent, int afterId, int lastId, int pageSize, 
+    		boolean hasNext) {
+    	html.append("<p align='center'>");
+    	if (afterId > 0) {
+    		appendPageLink(html, samplePercent, 0, pageSize).append("First page</a> ");
+    	}
+    	if (hasNext) {
+    		appendPageLink(html, samplePercent, lastId, pageSize).append("Next page</a>");
+    	}
+    	html.append("</p>\n");
+    }
+    
+    /**
+     * 
+     * @param html
+     * @param samplePercent
+     * @param afterId
+     * @param pageSize
+     * @return the buffer with the opening tag of a link to the page after the ID
+     */
+    private HtmlBuffer appendPageLink(HtmlBuffer html, double samplePercent, int afterId, int pageSize) {
+    	html.append("<a href=\"?after=").append(afterId).append("&amp;pageSize=").append(pageSize);
+    	if (samplePercent > 0) {
+    		html.append("&amp;mode=approximate&amp;samplePercent=").append(String.valueOf(samplePercent));
+    	}
+    	return html.append("\">");
     }
     
     /**
@@ -186,33 +510,32 @@ public class BigDataServlet extends HttpServlet {
     
     /**
      * 
-     * @param amountDataset
-     * @throws SQLException
+     * @param html
+     * @param job
      * 
-     * Either insert or update the create data set into the database
+     * Add as HTML the state of the generation job, with the reason if it failed
      */
-    private void generateData(int amountDataset) throws SQLException {
-    	int amountData = bigDataDAO.getAmountDataset();
-    	if(amountData == 0) {
-    		bigDataDAO.insertBigData(amountDataset);
-    	} else {
-    		bigDataDAO.updateBigData(amountDataset);
+    private void addJobToHTML(HtmlBuffer html, Job job) {
+    	html.append("<p align='center'>Generation job ").append(job.getId()).append(": ")
+    			.append(job.getStatus().toString()).append(", ").append(job.getRowsDone()).append(" of ")
+    			.append(job.getTotalRows()).append(" rows");
+    	if (job.getError() != null) {
+    		html.append(", failed with reason: ").appendEncoded(job.getError());
     	}
-        
-        
+    	html.append("</p>\n");
     }
 
     /**
      * 
-     * @param response
-     * @throws IOException
+     * @param html
      * 
-     * Add as HTML the form with the submit button
+     * Add as HTML the form with the number of rows, the optional seed and the submit button
      */
-    private void addButtonToHTML(HttpServletResponse response) throws IOException {
-        response.getWriter().println(
-                "<p align='center'><form align='center' action=\"\" method=\"post\">" + "<input type=\"submit\" value=\"Generate & Analyse Big Data\">" + "</form></p>");
+    private void addButtonToHTML(HtmlBuffer html) {
+        html.append("<p align='center'><form align='center' action=\"\" method=\"post\">" 
+                + "Rows <input type=\"number\" name=\"rows\" min=\"1\" value=\"" + DEFAULT_GENERATED_ROWS + "\"> "
+                + "Seed <input type=\"number\" name=\"seed\" placeholder=\"resume or random\"> "
+                + "<input type=\"submit\" value=\"Generate & Analyse Big Data\">" + "</form></p>\n");
     }
     
 }
-
@@ -0,0 +1,73 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.hm.cs.bigdata.hana.export.BigDataExporter;
+import edu.hm.cs.bigdata.hana.export.ExportFormat;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+
+/**
+ * 
+ * Streams the table 'BIG_DATA' as download for offline processing. The request parameter
+ * format is csv (default), ndjson or binary, gzip=true compresses the download. The rows 
+ * are written to the response while they are read from the database.
+ *
+ */
+public class ExportServlet extends HttpServlet {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExportServlet.class);
+	private static final long serialVersionUID = 1L;
+	
+	private BigDataDAO bigDataDAO;
+	
+	@Override
+	public void init() throws ServletException {
+		bigDataDAO = BigDataContext.getBigDataDAO(getServletContext());
+	}
+	
+	/**
+	 * Handle HTTP GET requests
+	 * Write all rows in the requested format
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, 
+			IOException {
+		ExportFormat format;
+		String value = request.getParameter("format");
+		try {
+			format = value == null ? ExportFormat.CSV : ExportFormat.valueOf(value.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be csv, ndjson or binary");
+			return;
+		}
+		boolean gzip = Boolean.parseBoolean(request.getParameter("gzip"));
+		
+		String fileName = "big_data." + format.getFileExtension() + (gzip ? ".gz" : "");
+		response.setContentType(gzip ? "application/gzip" : format.getContentType());
+		if (format != ExportFormat.BINARY) {
+			response.setCharacterEncoding("UTF-8");
+		}
+		response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+		try {
+			long start = System.nanoTime();
+			long rows = BigDataExporter.export(bigDataDAO, response.getOutputStream(), format, gzip);
+			LOGGER.info("Exported {} rows as {} in {} ms", rows, fileName, (System.nanoTime() - start) / 1000000);
+		} catch (SQLException e) {
+			//the download is cut off, the status can not be changed any more once rows were sent
+			LOGGER.error("Export failed", e);
+			if (!response.isCommitted()) {
+				response.reset();
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 
+						"Export failed with reason: " + e.getMessage());
+			}
+		}
+	}
+}
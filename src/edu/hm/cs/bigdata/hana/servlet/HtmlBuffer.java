@@ -0,0 +1,263 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ *
+ * Pre-sized character buffer in front of the writer of a response. HTML is appended piece by
+ * piece and handed to the writer in one call whenever the buffer is full, so rendering a row
+ * creates no Strings: numbers and dates are formatted into the buffer and user data is
+ * HTML-encoded while it is copied. A page buffer collects the whole page before it is sent,
+ * every thread reuses its page buffer for all its pages, see forPage.
+ *
+ */
+final class HtmlBuffer {
+	/** Default size of the buffer in characters */
+	static final int DEFAULT_CAPACITY = 16384;
+	//longest replacement of one encoded character
+	private static final int MAX_ENCODED_LENGTH = 6;
+	private static final char[] AMP = "&amp;".toCharArray();
+	private static final char[] LT = "&lt;".toCharArray();
+	private static final char[] GT = "&gt;".toCharArray();
+	private static final char[] QUOT = "&quot;".toCharArray();
+	private static final char[] APOS = "&#39;".toCharArray();
+	//a page which grew beyond this is not kept for the next page of the thread
+	private static final int MAX_RETAINED_PAGE = 1024 * 1024;
+	private static final ThreadLocal<HtmlBuffer> PAGES = new ThreadLocal<HtmlBuffer>();
+
+	private final CharArrayWriter page;
+	private final PrintWriter writer;
+	private final char[] buffer;
+	private final char[] digits = new char[20];
+	private final Calendar calendar = Calendar.getInstance();
+	private int length;
+
+	/**
+	 *
+	 * @param writer
+	 */
+	HtmlBuffer(PrintWriter writer) {
+		this(writer, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 *
+	 * @param writer
+	 * @param capacity size of the buffer in characters
+	 */
+	HtmlBuffer(PrintWriter writer, int capacity) {
+		this(null, writer, capacity);
+	}
+
+	/**
+	 *
+	 * @param page the page the writer writes to or null
+	 * @param writer
+	 * @param capacity
+	 */
+	private HtmlBuffer(CharArrayWriter page, PrintWriter writer, int capacity) {
+		if (capacity < 64) {
+			throw new IllegalArgumentException("Capacity must be at least 64: " + capacity);
+		}
+		this.page = page;
+		this.writer = writer;
+		this.buffer = new char[capacity];
+	}
+
+	/**
+	 *
+	 * @return the empty page buffer of the current thread
+	 *
+	 * The buffer and its page are reused by the next call of the thread, so the page must be
+	 * written before the thread renders another one
+	 */
+	static HtmlBuffer forPage() {
+		HtmlBuffer html = PAGES.get();
+		if (html == null || html.page.size() > MAX_RETAINED_PAGE) {
+			CharArrayWriter page = new CharArrayWriter(DEFAULT_CAPACITY);
+			html = new HtmlBuffer(page, new PrintWriter(page), DEFAULT_CAPACITY);
+			PAGES.set(html);
+		}
+		html.clear();
+		return html;
+	}
+
+	/**
+	 *
+	 * @param html markup which is written as it is
+	 * @return this buffer
+	 */
+	HtmlBuffer append(String html) {
+		int from = 0;
+		int end = html.length();
+		while (from < end) {
+			if (length == buffer.length) {
+				flush();
+			}
+			int to = Math.min(end, from + buffer.length - length);
+			html.getChars(from, to, buffer, length);
+			length += to - from;
+			from = to;
+		}
+		return this;
+	}
+
+	/**
+	 *
+	 * @param c
+	 * @return this buffer
+	 */
+	HtmlBuffer append(char c) {
+		if (length == buffer.length) {
+			flush();
+		}
+		buffer[length++] = c;
+		return this;
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return this buffer
+	 */
+	HtmlBuffer append(long value) {
+		if (value == Long.MIN_VALUE) {
+			return append(Long.toString(value));
+		}
+		long rest = Math.abs(value);
+		int start = digits.length;
+		do {
+			digits[--start] = (char) ('0' + rest % 10);
+			rest /= 10;
+		} while (rest != 0);
+		if (value < 0) {
+			digits[--start] = '-';
+		}
+		if (length + digits.length - start > buffer.length) {
+			flush();
+		}
+		System.arraycopy(digits, start, buffer, length, digits.length - start);
+		length += digits.length - start;
+		return this;
+	}
+
+	/**
+	 *
+	 * @param date
+	 * @return this buffer
+	 *
+	 * Append the date as yyyy-mm-dd like java.sql.Date.toString, or 'null'
+	 */
+	HtmlBuffer appendDate(Date date) {
+		if (date == null) {
+			return append("null");
+		}
+		calendar.setTime(date);
+		appendPadded(calendar.get(Calendar.YEAR), 4);
+		append('-');
+		appendPadded(calendar.get(Calendar.MONTH) + 1, 2);
+		append('-');
+		return appendPadded(calendar.get(Calendar.DAY_OF_MONTH), 2);
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @param width
+	 * @return this buffer
+	 */
+	private HtmlBuffer appendPadded(int value, int width) {
+		for (int limit = 10; width > 1; width--, limit *= 10) {
+			if (value < limit) {
+				append('0');
+			}
+		}
+		return append(value);
+	}
+
+	/**
+	 *
+	 * @param text user data, null is written as 'null'
+	 * @return this buffer
+	 *
+	 * Append the text with the characters &amp;, &lt;, &gt;, &quot; and ' replaced by entities,
+	 * so it is safe in element content and in quoted attribute values
+	 */
+	HtmlBuffer appendEncoded(CharSequence text) {
+		if (text == null) {
+			return append("null");
+		}
+		for (int i = 0; i < text.length(); i++) {
+			if (length + MAX_ENCODED_LENGTH > buffer.length) {
+				flush();
+			}
+			char c = text.charAt(i);
+			switch (c) {
+				case '&':
+					put(AMP);
+					break;
+				case '<':
+					put(LT);
+					break;
+				case '>':
+					put(GT);
+					break;
+				case '"':
+					put(QUOT);
+					break;
+				case '\'':
+					put(APOS);
+					break;
+				default:
+					buffer[length++] = c;
+			}
+		}
+		return this;
+	}
+
+	//the caller has made room for the characters
+	private void put(char[] characters) {
+		System.arraycopy(characters, 0, buffer, length, characters.length);
+		length += characters.length;
+	}
+
+	/**
+	 * Hand the buffered characters to the writer
+	 */
+	void flush() {
+		if (length > 0) {
+			writer.write(buffer, 0, length);
+			length = 0;
+		}
+	}
+
+	/**
+	 * Drop the buffered characters and the page rendered so far
+	 */
+	void clear() {
+		length = 0;
+		if (page != null) {
+			page.reset();
+		}
+	}
+
+	/**
+	 *
+	 * @param out
+	 * @throws IOException
+	 *
+	 * Write the whole page of a page buffer
+	 */
+	void writeTo(Writer out) throws IOException {
+		if (page == null) {
+			throw new IllegalStateException("Only a page buffer collects a page");
+		}
+		flush();
+		page.writeTo(out);
+	}
+}
@@ -0,0 +1,350 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.hm.cs.bigdata.hana.export.ExportFormat;
+import edu.hm.cs.bigdata.hana.ingest.BigDataImporter;
+import edu.hm.cs.bigdata.hana.job.GenerationTask;
+import edu.hm.cs.bigdata.hana.job.ImportTask;
+import edu.hm.cs.bigdata.hana.job.Job;
+import edu.hm.cs.bigdata.hana.job.JobManager;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.UpdateStrategy;
+
+/**
+ *
+ * Admin servlet for generation, import and analysis jobs, answers as plain text with one line per job.
+ * POST /jobs?type=generate&rows=n[&seed=s][&strategy=batched|staged] (without seed an interrupted
+ * generation is resumed), POST /jobs?type=analyze, POST /jobs?type=textAnalysis[&tokens=true][&words=true] or
+ * POST /jobs?type=import&file=name[&format=csv|binary] starts a job; imported files must be in the
+ * directory of the context parameter 'importDirectory'. GET /jobs lists the jobs, GET /jobs/{id}[?waitMillis=n] polls one job and waits
+ * asynchronously until it is done or the time is over, DELETE /jobs/{id} or POST /jobs/{id}/cancel
+ * cancels it. No request thread is blocked while a job runs.
+ *
+ */
+public class JobServlet extends HttpServlet {
+	private static final Logger LOGGER = LoggerFactory.getLogger(JobServlet.class);
+	private static final long serialVersionUID = 1L;
+	//polls must not hold connections of clients for ever
+	private static final long MAX_WAIT_MILLIS = 60000;
+
+	private BigDataDAO bigDataDAO;
+	private JobManager jobManager;
+	private BigDataImporter importer;
+	private File importDirectory;
+
+	@Override
+	public void init() throws ServletException {
+		bigDataDAO = BigDataContext.getBigDataDAO(getServletContext());
+		jobManager = BigDataContext.getJobManager(getServletContext());
+		importer = new BigDataImporter(bigDataDAO);
+		importer.setWriterThreads((int) BigDataContext.getLongParameter(getServletContext(), "importWriterThreads",
+				importer.getWriterThreads()));
+		String directory = getServletContext().getInitParameter("importDirectory");
+		if (directory != null && !directory.trim().isEmpty()) {
+			try {
+				importDirectory = new File(directory.trim()).getCanonicalFile();
+			} catch (IOException e) {
+				throw new ServletException("Invalid import directory: " + directory, e);
+			}
+		}
+	}
+
+	/**
+	 * Handle HTTP GET requests
+	 * Print all jobs or the job of the path, optionally after waiting until it is done
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		response.setContentType("text/plain");
+		String path = request.getPathInfo();
+		if (path == null || path.equals("/")) {
+			PrintWriter writer = response.getWriter();
+			for (Job job : jobManager.getJobs()) {
+				writer.println(job);
+			}
+			return;
+		}
+		Job job = findJob(path, response);
+		if (job == null) {
+			return;
+		}
+		long waitMillis;
+		try {
+			waitMillis = Math.min(MAX_WAIT_MILLIS,
+					BigDataContext.parseLong("waitMillis", request.getParameter("waitMillis"), 0));
+		} catch (BadParameterException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		if (waitMillis <= 0 || job.getStatus().isDone() || !request.isAsyncSupported()) {
+			response.getWriter().println(job);
+		} else {
+			waitForJob(request, job, waitMillis);
+		}
+	}
+
+	/**
+	 * Handle HTTP POST requests
+	 * Start a job or cancel the job of the path /{id}/cancel
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		response.setContentType("text/plain");
+		String path = request.getPathInfo();
+		if (path != null && path.endsWith("/cancel")) {
+			cancelJob(path.substring(0, path.length() - "/cancel".length()), response);
+			return;
+		}
+
+		Job job;
+		String type = request.getParameter("type");
+		if ("generate".equals(type)) {
+			long rows;
+			long seed;
+			try {
+				rows = BigDataContext.parseLong("rows", request.getParameter("rows"), 1000);
+				if (rows < 1 || rows > Integer.MAX_VALUE) {
+					throw new BadParameterException("rows must be between 1 and " + Integer.MAX_VALUE);
+				}
+				String seedValue = request.getParameter("seed");
+				seed = seedValue == null || seedValue.trim().isEmpty() ? GenerationTask.resumableSeed(bigDataDAO)
+						: BigDataContext.parseLong("seed", seedValue, 0);
+			} catch (BadParameterException e) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+				return;
+			} catch (SQLException e) {
+				throw new ServletException("Checkpoints could not be read", e);
+			}
+			UpdateStrategy strategy = parseStrategy(request.getParameter("strategy"));
+			if (strategy == null) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "strategy must be one of "
+						+ Arrays.toString(UpdateStrategy.values()));
+				return;
+			}
+			job = jobManager.submit("generate", rows, new GenerationTask(bigDataDAO, (int) rows, seed, strategy));
+		} else if ("analyze".equals(type)) {
+			job = jobManager.submit("analyze", 0, new Job.Task() {
+				@Override
+				public String run(Job analysis) throws Exception {
+					return bigDataDAO.analyzeAll().toString();
+				}
+			});
+		} else if ("textAnalysis".equals(type)) {
+			final boolean countTokens = Boolean.parseBoolean(request.getParameter("tokens"));
+			final boolean countWords = Boolean.parseBoolean(request.getParameter("words"));
+			job = jobManager.submit("textAnalysis", 0, new Job.Task() {
+				@Override
+				public String run(Job analysis) throws Exception {
+					return bigDataDAO.analyzeTextHistogram(countTokens, countWords).toString();
+				}
+			});
+		} else if ("import".equals(type)) {
+			File file = resolveImportFile(request.getParameter("file"), response);
+			if (file == null) {
+				return;
+			}
+			ExportFormat format = parseImportFormat(request.getParameter("format"), file);
+			if (format == null) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format must be csv or binary");
+				return;
+			}
+			job = jobManager.submit("import", 0, new ImportTask(importer, file, format));
+		} else {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "type must be generate, import, analyze or textAnalysis");
+			return;
+		}
+		LOGGER.info("Started job {}", job);
+		response.setStatus(HttpServletResponse.SC_ACCEPTED);
+		response.setHeader("Location", request.getContextPath() + request.getServletPath() + "/" + job.getId());
+		response.getWriter().println(job);
+	}
+
+	/**
+	 * Handle HTTP DELETE requests
+	 * Cancel the job of the path
+	 */
+	@Override
+	protected void doDelete(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		response.setContentType("text/plain");
+		cancelJob(request.getPathInfo(), response);
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @param response
+	 * @throws IOException
+	 */
+	private void cancelJob(String path, HttpServletResponse response) throws IOException {
+		Job job = findJob(path, response);
+		if (job != null) {
+			job.cancel();
+			response.getWriter().println(job);
+		}
+	}
+
+	/**
+	 *
+	 * @param path
+	 * @param response
+	 * @return the job with the ID of the path /{id} or null if an error was sent
+	 * @throws IOException
+	 */
+	private Job findJob(String path, HttpServletResponse response) throws IOException {
+		Job job = null;
+		if (path != null && path.length() > 1) {
+			try {
+				job = jobManager.getJob(Long.parseLong(path.substring(1)));
+			} catch (NumberFormatException e) {
+				//answered as unknown job
+			}
+		}
+		if (job == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown job " + path);
+		}
+		return job;
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return the update strategy, batched if no strategy is given, null if the strategy is unknown
+	 */
+	private static UpdateStrategy parseStrategy(String value) {
+		if (value == null || value.trim().isEmpty()) {
+			return UpdateStrategy.BATCHED;
+		}
+		try {
+			return UpdateStrategy.valueOf(value.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 *
+	 * @param name
+	 * @param response
+	 * @return the readable file of the name within the import directory or null if an error was sent
+	 * @throws IOException
+	 */
+	private File resolveImportFile(String name, HttpServletResponse response) throws IOException {
+		if (importDirectory == null) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN, "No importDirectory is configured");
+			return null;
+		}
+		if (name == null || name.trim().isEmpty()) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "file is missing");
+			return null;
+		}
+		File file = new File(importDirectory, name.trim()).getCanonicalFile();
+		//names like ../secret must not leave the directory
+		if (!file.getPath().startsWith(importDirectory.getPath() + File.separator)) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN, "file must be within the import directory");
+			return null;
+		}
+		if (!file.isFile() || !file.canRead()) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown file " + name);
+			return null;
+		}
+		return file;
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @param file
+	 * @return the format of the parameter or of the file extension, null if it can not be imported
+	 */
+	private static ExportFormat parseImportFormat(String value, File file) {
+		if (value == null || value.trim().isEmpty()) {
+			return file.getName().endsWith("." + ExportFormat.BINARY.getFileExtension()) ? ExportFormat.BINARY
+					: ExportFormat.CSV;
+		}
+		if ("csv".equalsIgnoreCase(value.trim())) {
+			return ExportFormat.CSV;
+		} else if ("binary".equalsIgnoreCase(value.trim())) {
+			return ExportFormat.BINARY;
+		}
+		return null;
+	}
+
+	/**
+	 *
+	 * @param request
+	 * @param job
+	 * @param waitMillis
+	 *
+	 * Release the request thread and answer when the job is done or the time is over
+	 */
+	private void waitForJob(HttpServletRequest request, final Job job, long waitMillis) {
+		final AsyncContext async = request.startAsync();
+		async.setTimeout(waitMillis);
+		final AtomicBoolean answered = new AtomicBoolean();
+		final Runnable answer = new Runnable() {
+			@Override
+			public void run() {
+				if (answered.compareAndSet(false, true)) {
+					try {
+						async.getResponse().getWriter().println(job);
+					} catch (IOException e) {
+						LOGGER.debug("Job status could not be sent", e);
+					} finally {
+						async.complete();
+					}
+				}
+			}
+		};
+		final Runnable done = new Runnable() {
+			@Override
+			public void run() {
+				//write on a container thread, not on the thread of the job
+				async.start(answer);
+			}
+		};
+		async.addListener(new AsyncListener() {
+			@Override
+			public void onTimeout(AsyncEvent event) {
+				job.removeDoneListener(done);
+				answer.run();
+			}
+
+			@Override
+			public void onComplete(AsyncEvent event) {
+				job.removeDoneListener(done);
+			}
+
+			@Override
+			public void onError(AsyncEvent event) {
+				job.removeDoneListener(done);
+				answered.set(true);
+			}
+
+			@Override
+			public void onStartAsync(AsyncEvent event) {
+				//not restarted
+			}
+		});
+		job.addDoneListener(done);
+	}
+}
@@ -0,0 +1,71 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import java.io.IOException;
+
+import javax.management.JMException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.hm.cs.bigdata.hana.metrics.BigDataMetrics;
+
+/**
+ * 
+ * Admin servlet which prints the metrics of the DAO and the requests as plain text,
+ * one line per stage with count, mean and percentiles in ms. The same metrics are 
+ * registered as MBean for JMX clients while the servlet is loaded.
+ *
+ */
+public class MetricsServlet extends HttpServlet {
+	private static final Logger LOGGER = LoggerFactory.getLogger(MetricsServlet.class);
+	private static final long serialVersionUID = 1L;
+	
+	private BigDataMetrics metrics;
+	
+	@Override
+	public void init() throws ServletException {
+		metrics = BigDataContext.getBigDataDAO(getServletContext()).getMetrics();
+		try {
+			metrics.registerMBean();
+		} catch (JMException e) {
+			//the metrics are still available over HTTP
+			LOGGER.warn("Metrics could not be registered as MBean", e);
+		}
+	}
+	
+	@Override
+	public void destroy() {
+		try {
+			metrics.unregisterMBean();
+		} catch (JMException e) {
+			LOGGER.warn("Metrics could not be unregistered as MBean", e);
+		}
+	}
+	
+	/**
+	 * Handle HTTP GET requests
+	 * Print all metrics
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, 
+			IOException {
+		response.setContentType("text/plain");
+		response.getWriter().print(metrics.dump());
+	}
+	
+	/**
+	 * Handle HTTP POST requests
+	 * Remove all recorded values, e.g. before a measurement starts
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, 
+			IOException {
+		metrics.reset();
+		response.setContentType("text/plain");
+		response.getWriter().println("Metrics were reset");
+	}
+}
@@ -0,0 +1,72 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import edu.hm.cs.bigdata.hana.persistence.TracingDataSource;
+
+/**
+ *
+ * Admin servlet which prints the SQL traced by the TracingDataSource as plain text: one line
+ * per statement fingerprint with its share of the total execution time, count, mean and
+ * percentiles in ms, rows, errors, slow executions and the captured plan, the hottest first.
+ * The request parameter limit (default 20) is the number of statements printed.
+ *
+ */
+public class TraceServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	private static final int DEFAULT_LIMIT = 20;
+
+	private TracingDataSource tracing;
+
+	@Override
+	public void init() throws ServletException {
+		tracing = BigDataContext.getTracingDataSource(getServletContext());
+	}
+
+	/**
+	 * Handle HTTP GET requests
+	 * Print the hottest statements
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		if (tracing == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "SQL tracing needs the context parameter sqlTracing");
+			return;
+		}
+		long limit;
+		try {
+			limit = BigDataContext.parseLong("limit", request.getParameter("limit"), DEFAULT_LIMIT);
+		} catch (BadParameterException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		if (limit < 1) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Parameter limit must be at least 1: " + limit);
+			return;
+		}
+		response.setContentType("text/plain");
+		response.getWriter().print(tracing.dump((int) Math.min(limit, Integer.MAX_VALUE)));
+	}
+
+	/**
+	 * Handle HTTP POST requests
+	 * Remove all recorded values, e.g. before a measurement starts
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+			IOException {
+		if (tracing == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "SQL tracing needs the context parameter sqlTracing");
+			return;
+		}
+		tracing.reset();
+		response.setContentType("text/plain");
+		response.getWriter().println("Traces were reset");
+	}
+}
@@ -0,0 +1,164 @@
+package edu.hm.cs.bigdata.hana.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import edu.hm.cs.bigdata.hana.job.Job;
+import edu.hm.cs.bigdata.hana.job.JobManager;
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.LoadResult;
+import edu.hm.cs.bigdata.hana.persistence.WriteBehindBuffer;
+import edu.hm.cs.bigdata.hana.workload.Workload;
+import edu.hm.cs.bigdata.hana.workload.WorkloadDriver;
+import edu.hm.cs.bigdata.hana.workload.WorkloadReport;
+
+/**
+ * 
+ * Admin servlet which starts a workload against the table 'BIG_DATA' as job and answers with
+ * 202 and the location of the job under /jobs, whose result is the throughput and latency report.
+ * The workload is configured by the request parameters read, insert, update, analyze (proportions),
+ * distribution (uniform or zipfian), zipfianConstant, threads, durationMillis, operations, records,
+ * seed, load (the table is cleared and records rows are loaded first, only allowed with the init
+ * parameter 'allowLoad' set to true) and writeBehind (inserts go through the write-behind buffer,
+ * which needs the context parameter 'writeBehindCapacity').
+ *
+ */
+public class WorkloadServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+	//runs must not occupy a job thread for ever
+	private static final long MAX_DURATION_MILLIS = 600000;
+	
+	private BigDataDAO bigDataDAO;
+	private JobManager jobManager;
+	private boolean allowLoad;
+	
+	@Override
+	public void init() throws ServletException {
+		bigDataDAO = BigDataContext.getBigDataDAO(getServletContext());
+		jobManager = BigDataContext.getJobManager(getServletContext());
+		allowLoad = Boolean.parseBoolean(getInitParameter("allowLoad"));
+	}
+	
+	/**
+	 * Write the rows still in the write-behind buffer before the servlet is taken out of service
+	 */
+	@Override
+	public void destroy() {
+		BigDataContext.closeWriteBehindBuffer(getServletContext());
+	}
+	
+	/**
+	 * Handle HTTP POST requests
+	 * Start the workload described by the request parameters as job and print the job
+	 */
+	@Override
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, 
+			IOException {
+		final Workload workload;
+		try {
+			workload = parseWorkload(request);
+		} catch (BadParameterException e) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+			return;
+		}
+		final boolean load = Boolean.parseBoolean(request.getParameter("load"));
+		if (load && !allowLoad) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN, 
+					"load clears the table and needs the init parameter allowLoad");
+			return;
+		}
+		WriteBehindBuffer buffer = null;
+		if (workload.isWriteBehind()) {
+			buffer = BigDataContext.getWriteBehindBuffer(getServletContext());
+			if (buffer == null) {
+				response.sendError(HttpServletResponse.SC_BAD_REQUEST, 
+						"writeBehind needs the context parameter writeBehindCapacity");
+				return;
+			}
+		}
+		final WriteBehindBuffer writeBehindBuffer = buffer;
+		Job job = jobManager.submit("workload", 0, new Job.Task() {
+			@Override
+			public String run(Job run) throws Exception {
+				StringBuilder result = new StringBuilder();
+				if (load) {
+					bigDataDAO.clearTable();
+					run.checkCancelled();
+					LoadResult loadResult = bigDataDAO.insertBigDataParallel(workload.getRecordCount(), 
+							workload.getThreads(), workload.getSeed());
+					result.append("load: ").append(loadResult).append(System.lineSeparator());
+				}
+				run.checkCancelled();
+				WorkloadReport report = new WorkloadDriver(bigDataDAO, workload, writeBehindBuffer).run();
+				result.append(report);
+				if (writeBehindBuffer != null) {
+					result.append("writeBehind: ").append(writeBehindBuffer);
+				}
+				return result.toString();
+			}
+		});
+		response.setContentType("text/plain");
+		response.setStatus(HttpServletResponse.SC_ACCEPTED);
+		response.setHeader("Location", request.getContextPath() + "/jobs/" + job.getId());
+		response.getWriter().println(job);
+	}
+	
+	/**
+	 * Handle HTTP GET requests
+	 * Print how a workload is started
+	 */
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, 
+			IOException {
+		response.setContentType("text/plain");
+		response.getWriter().println("POST to start a workload job with the parameters read, insert, update, analyze, "
+				+ "distribution=uniform|zipfian, zipfianConstant, threads, durationMillis, operations, records, seed, load, "
+				+ "writeBehind; poll the job under /jobs/{id} for the report");
+		if (!allowLoad) {
+			response.getWriter().println("load is disabled, it needs the init parameter allowLoad");
+		}
+	}
+	
+	/**
+	 * 
+	 * @param request
+	 * @return the workload described by the request parameters
+	 * @throws BadParameterException if a parameter is invalid
+	 */
+	private Workload parseWorkload(HttpServletRequest request) throws BadParameterException {
+		Workload workload = new Workload();
+		workload.setReadProportion(BigDataContext.parseDouble("read", request.getParameter("read"), 
+				workload.getReadProportion()));
+		workload.setInsertProportion(BigDataContext.parseDouble("insert", request.getParameter("insert"), 
+				workload.getInsertProportion()));
+		workload.setUpdateProportion(BigDataContext.parseDouble("update", request.getParameter("update"), 
+				workload.getUpdateProportion()));
+		workload.setAnalyzeProportion(BigDataContext.parseDouble("analyze", request.getParameter("analyze"), 
+				workload.getAnalyzeProportion()));
+		if ("zipfian".equalsIgnoreCase(request.getParameter("distribution"))) {
+			workload.setKeyDistribution(Workload.KeyDistribution.ZIPFIAN);
+		}
+		workload.setZipfianConstant(BigDataContext.parseDouble("zipfianConstant", 
+				request.getParameter("zipfianConstant"), workload.getZipfianConstant()));
+		workload.setThreads((int) BigDataContext.parseLong("threads", request.getParameter("threads"), 
+				workload.getThreads()));
+		workload.setDurationMillis(Math.min(MAX_DURATION_MILLIS, BigDataContext.parseLong("durationMillis", 
+				request.getParameter("durationMillis"), workload.getDurationMillis())));
+		workload.setOperationCount(BigDataContext.parseLong("operations", request.getParameter("operations"), 
+				workload.getOperationCount()));
+		workload.setRecordCount((int) BigDataContext.parseLong("records", request.getParameter("records"), 
+				workload.getRecordCount()));
+		workload.setSeed(BigDataContext.parseLong("seed", request.getParameter("seed"), workload.getSeed()));
+		workload.setWriteBehind(Boolean.parseBoolean(request.getParameter("writeBehind")));
+		try {
+			workload.validate();
+		} catch (IllegalArgumentException e) {
+			throw new BadParameterException(e.getMessage(), e);
+		}
+		return workload;
+	}
+}
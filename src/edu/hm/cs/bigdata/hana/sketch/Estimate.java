@@ -0,0 +1,68 @@
+package edu.hm.cs.bigdata.hana.sketch;
+
+import java.util.Locale;
+
+/**
+ *
+ * Approximate value with the bounds it lies in with high confidence
+ *
+ */
+public final class Estimate {
+	private final double value;
+	private final double lower;
+	private final double upper;
+
+	/**
+	 *
+	 * @param value
+	 * @param lower
+	 * @param upper
+	 */
+	public Estimate(double value, double lower, double upper) {
+		this.value = value;
+		this.lower = lower;
+		this.upper = upper;
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return an estimate without error
+	 */
+	public static Estimate exact(double value) {
+		return new Estimate(value, value, value);
+	}
+
+	public double getValue() {
+		return value;
+	}
+
+	public double getLower() {
+		return lower;
+	}
+
+	public double getUpper() {
+		return upper;
+	}
+
+	/**
+	 *
+	 * @return true if the bounds are equal to the value
+	 */
+	public boolean isExact() {
+		return lower == value && upper == value;
+	}
+
+	@Override
+	public String toString() {
+		if (isExact()) {
+			return format(value);
+		}
+		return format(value) + " [" + format(lower) + ", " + format(upper) + "]";
+	}
+
+	private static String format(double number) {
+		return number == Math.rint(number) && Math.abs(number) < 1e15 ? Long.toString((long) number)
+				: String.format(Locale.ROOT, "%.2f", number);
+	}
+}
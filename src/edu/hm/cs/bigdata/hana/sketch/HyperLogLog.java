@@ -0,0 +1,133 @@
+package edu.hm.cs.bigdata.hana.sketch;
+
+/**
+ *
+ * HyperLogLog sketch estimating the number of distinct values with a fixed number of
+ * one byte registers. The relative standard error is about 1.04 / sqrt(registers), e.g.
+ * 1.6% with the default precision of 12 bits (4096 registers, 4 KB).
+ *
+ */
+public class HyperLogLog {
+	/** Default number of bits of the hash choosing the register */
+	public static final int DEFAULT_PRECISION = 12;
+
+	private final int precision;
+	private final byte[] registers;
+
+	/**
+	 * Creates a sketch with the default precision
+	 */
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+
+	/**
+	 *
+	 * @param precision 4 to 18 bits, the sketch has 2^precision registers
+	 */
+	public HyperLogLog(int precision) {
+		if (precision < 4 || precision > 18) {
+			throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	/**
+	 *
+	 * @param z
+	 * @return the SplitMix64 finalizer of z, spreads similar values over all bits
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return a 64 bit hash of the characters of value, 0 for null
+	 */
+	public static long hash(CharSequence value) {
+		if (value == null) {
+			return 0;
+		}
+		//FNV-1a over the characters, finalized because FNV alone leaves the high bits weak
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+		}
+		return mix64(hash);
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @return a 64 bit hash of value
+	 */
+	public static long hash(long value) {
+		return mix64(value + 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 *
+	 * @param hash a 64 bit hash of the value, see the hash methods
+	 */
+	public void add(long hash) {
+		int index = (int) (hash >>> (64 - precision));
+		//position of the first 1 bit of the remaining bits, a sentinel bit bounds it
+		int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+		if (rank > registers[index]) {
+			registers[index] = (byte) rank;
+		}
+	}
+
+	/**
+	 *
+	 * @param other sketch with the same precision
+	 *
+	 * Add all values of the other sketch, the result is the sketch of the union
+	 */
+	public void merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Precisions differ: " + precision + " and " + other.precision);
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return the estimated number of distinct values
+	 */
+	public long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte register : registers) {
+			sum += 1.0 / (1L << register);
+			if (register == 0) {
+				zeros++;
+			}
+		}
+		double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			//linear counting is more accurate while many registers are empty
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 *
+	 * @return the relative standard error of the estimate
+	 */
+	public double getStandardError() {
+		return 1.04 / Math.sqrt(registers.length);
+	}
+}
@@ -0,0 +1,50 @@
+package edu.hm.cs.bigdata.hana.sketch;
+
+/**
+ *
+ * Mean and variance of a stream of values in constant memory (Welford's algorithm), the base
+ * of confidence intervals for means estimated from a random sample.
+ *
+ */
+public class RunningStatistics {
+	private long count;
+	private double mean;
+	//sum of the squared differences from the mean
+	private double m2;
+
+	/**
+	 *
+	 * @param value
+	 */
+	public void add(double value) {
+		count++;
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 *
+	 * @return the sample variance, 0 for less than two values
+	 */
+	public double getVariance() {
+		return count < 2 ? 0 : m2 / (count - 1);
+	}
+
+	/**
+	 *
+	 * @param z quantile of the normal distribution, 1.96 for 95%
+	 * @return the half width of the confidence interval of the mean
+	 */
+	public double getConfidenceHalfWidth(double z) {
+		return count == 0 ? 0 : z * Math.sqrt(getVariance() / count);
+	}
+}
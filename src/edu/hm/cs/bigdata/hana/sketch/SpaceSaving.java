@@ -0,0 +1,261 @@
+package edu.hm.cs.bigdata.hana.sketch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * Space-Saving sketch of the most frequent values of a stream with a fixed number of counters.
+ * A value without counter takes over the counter with the smallest count and inherits it as
+ * possible error. Every count overestimates the true frequency by at most its error, and every
+ * value more frequent than total / capacity is guaranteed to have a counter.
+ *
+ * @param <T> type of the values, null is a value as well
+ */
+public class SpaceSaving<T> {
+
+	/**
+	 *
+	 * Counter of one value
+	 *
+	 * @param <T>
+	 */
+	public static final class Counter<T> {
+		private final T value;
+		private final long count;
+		private final long error;
+
+		Counter(T value, long count, long error) {
+			this.value = value;
+			this.count = count;
+			this.error = error;
+		}
+
+		public T getValue() {
+			return value;
+		}
+
+		/**
+		 *
+		 * @return the upper bound of the frequency
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 *
+		 * @return the maximum overestimation, count - error is the lower bound of the frequency
+		 */
+		public long getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return value + "=" + count + (error == 0 ? "" : " (-" + error + ")");
+		}
+	}
+
+	//mutable counter of a value with its position in the heap
+	private static final class Count<T> {
+		private T value;
+		private long count;
+		private long error;
+		private int index;
+	}
+
+	private final Map<T, Count<T>> counters;
+	//min-heap on the counts, so the counter to take over is found in constant time
+	private final Count<T>[] heap;
+	private int size;
+	private long total;
+
+	/**
+	 *
+	 * @param capacity number of counters
+	 */
+	@SuppressWarnings("unchecked")
+	public SpaceSaving(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+		}
+		this.counters = new HashMap<T, Count<T>>(capacity * 2);
+		this.heap = (Count<T>[]) new Count<?>[capacity];
+	}
+
+	/**
+	 *
+	 * @param value
+	 */
+	public void add(T value) {
+		add(value, 1);
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @param weight number of times the value occurred
+	 */
+	public void add(T value, long weight) {
+		if (weight < 1) {
+			throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+		}
+		total += weight;
+		offer(value, weight);
+	}
+
+	/**
+	 *
+	 * @param other
+	 *
+	 * Add the counters of another sketch, e.g. of another part of the stream. A value without
+	 * counter in one sketch occurred at most as often as the smallest count of that sketch, so
+	 * this count is added to its count and error. The highest combined counts are kept, the
+	 * counts stay upper bounds of the frequencies.
+	 */
+	public void merge(SpaceSaving<T> other) {
+		long minCount = minCount();
+		long otherMinCount = other.minCount();
+		List<Count<T>> merged = new ArrayList<Count<T>>(size + other.size);
+		for (int i = 0; i < size; i++) {
+			Count<T> count = heap[i];
+			Count<T> otherCount = other.counters.get(count.value);
+			count.count += otherCount == null ? otherMinCount : otherCount.count;
+			count.error += otherCount == null ? otherMinCount : otherCount.error;
+			merged.add(count);
+		}
+		for (int i = 0; i < other.size; i++) {
+			Count<T> otherCount = other.heap[i];
+			if (!counters.containsKey(otherCount.value)) {
+				Count<T> count = new Count<T>();
+				count.value = otherCount.value;
+				count.count = otherCount.count + minCount;
+				count.error = otherCount.error + minCount;
+				merged.add(count);
+			}
+		}
+		Collections.sort(merged, new Comparator<Count<T>>() {
+			@Override
+			public int compare(Count<T> a, Count<T> b) {
+				return a.count < b.count ? 1 : a.count > b.count ? -1 : 0;
+			}
+		});
+		total += other.total;
+		counters.clear();
+		size = 0;
+		for (int i = 0; i < merged.size() && size < heap.length; i++) {
+			Count<T> count = merged.get(i);
+			count.index = size;
+			heap[size++] = count;
+			counters.put(count.value, count);
+			siftUp(count);
+		}
+	}
+
+	/**
+	 *
+	 * @return the upper bound of the frequency of a value without counter, 0 while counters are free
+	 */
+	private long minCount() {
+		return size < heap.length ? 0 : heap[0].count;
+	}
+
+	/**
+	 *
+	 * @param value
+	 * @param weight
+	 */
+	private void offer(T value, long weight) {
+		Count<T> count = counters.get(value);
+		boolean appended = false;
+		if (count == null) {
+			if (size < heap.length) {
+				count = new Count<T>();
+				count.index = size;
+				heap[size++] = count;
+				appended = true;
+			} else {
+				count = heap[0];
+				counters.remove(count.value);
+				count.error = count.count;
+			}
+			count.value = value;
+			counters.put(value, count);
+		}
+		count.count += weight;
+		if (appended) {
+			siftUp(count);
+		} else {
+			siftDown(count);
+		}
+	}
+
+	private void siftUp(Count<T> count) {
+		int index = count.index;
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (heap[parent].count <= count.count) {
+				break;
+			}
+			place(heap[parent], index);
+			index = parent;
+		}
+		place(count, index);
+	}
+
+	private void siftDown(Count<T> count) {
+		int index = count.index;
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+				child++;
+			}
+			if (count.count <= heap[child].count) {
+				break;
+			}
+			place(heap[child], index);
+			index = child;
+		}
+		place(count, index);
+	}
+
+	private void place(Count<T> count, int index) {
+		heap[index] = count;
+		count.index = index;
+	}
+
+	/**
+	 *
+	 * @return the number of values added
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 *
+	 * @param n
+	 * @return the counters with the n highest counts, the highest first
+	 */
+	public List<Counter<T>> top(int n) {
+		List<Counter<T>> top = new ArrayList<Counter<T>>(size);
+		for (int i = 0; i < size; i++) {
+			top.add(new Counter<T>(heap[i].value, heap[i].count, heap[i].error));
+		}
+		Collections.sort(top, new Comparator<Counter<T>>() {
+			@Override
+			public int compare(Counter<T> a, Counter<T> b) {
+				return a.count < b.count ? 1 : a.count > b.count ? -1 : 0;
+			}
+		});
+		return top.size() > n ? new ArrayList<Counter<T>>(top.subList(0, n)) : top;
+	}
+}
@@ -0,0 +1,309 @@
+package edu.hm.cs.bigdata.hana.text;
+
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ *
+ * Computes the TextHistogram of a text column in one pass. The texts are packed as UTF-8 bytes
+ * into chunks, row i of a chunk is stored from offsets[i] to offsets[i + 1], and every chunk is
+ * counted by fork/join tasks which split it by rows until a part is small enough for one core.
+ * While a streamed pass fills the next chunk the previous ones are counted, a bounded number of
+ * chunks is in flight so the memory does not grow with the table.
+ *
+ * An analyzer created with a parallelism owns its ForkJoinPool, call shutdown when it is no longer
+ * used. Analyzers created on a given pool share its threads and leave the pool running.
+ *
+ */
+public class TextAnalyzer {
+	/** Default number of counters of the token and word sketches */
+	public static final int DEFAULT_TOP_CAPACITY = 1024;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	//bytes of text collected before a streamed chunk is submitted
+	private static final int CHUNK_BYTES = 4 << 20;
+	//a part of a chunk with less bytes is counted by one task without splitting further
+	private static final int LEAF_BYTES = 64 << 10;
+
+	private final ForkJoinPool pool;
+	private final boolean ownsPool;
+	private final int parallelism;
+	private final boolean countTokens;
+	private final boolean countWords;
+	private final int topCapacity;
+
+	/**
+	 *
+	 * @param countTokens
+	 * @param countWords
+	 *
+	 * Creates an analyzer using all processors
+	 */
+	public TextAnalyzer(boolean countTokens, boolean countWords) {
+		this(Runtime.getRuntime().availableProcessors(), countTokens, countWords, DEFAULT_TOP_CAPACITY);
+	}
+
+	/**
+	 *
+	 * @param parallelism number of threads counting
+	 * @param countTokens true to count the tokens separated by white space
+	 * @param countWords true to count the words made of letters and digits
+	 * @param topCapacity number of counters of the token and word sketches
+	 */
+	public TextAnalyzer(int parallelism, boolean countTokens, boolean countWords, int topCapacity) {
+		this(newPool(parallelism, topCapacity), true, countTokens, countWords, topCapacity);
+	}
+
+	/**
+	 *
+	 * @param pool the threads counting, shared with other users and not shut down by this analyzer
+	 * @param countTokens true to count the tokens separated by white space
+	 * @param countWords true to count the words made of letters and digits
+	 * @param topCapacity number of counters of the token and word sketches
+	 */
+	public TextAnalyzer(ForkJoinPool pool, boolean countTokens, boolean countWords, int topCapacity) {
+		this(pool, false, countTokens, countWords, topCapacity);
+	}
+
+	private TextAnalyzer(ForkJoinPool pool, boolean ownsPool, boolean countTokens, boolean countWords,
+			int topCapacity) {
+		checkTopCapacity(topCapacity);
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+		this.parallelism = pool.getParallelism();
+		this.countTokens = countTokens;
+		this.countWords = countWords;
+		this.topCapacity = topCapacity;
+	}
+
+	/**
+	 *
+	 * @param parallelism
+	 * @param topCapacity
+	 * @return a new pool with the parallelism, the arguments are checked before it is created
+	 */
+	private static ForkJoinPool newPool(int parallelism, int topCapacity) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+		}
+		checkTopCapacity(topCapacity);
+		return new ForkJoinPool(parallelism);
+	}
+
+	private static void checkTopCapacity(int topCapacity) {
+		if (topCapacity < 1) {
+			throw new IllegalArgumentException("Top capacity must be at least 1: " + topCapacity);
+		}
+	}
+
+	/**
+	 *
+	 * Counts the rows from 'from' to 'to' of a chunk, splitting them in halves while they are large
+	 *
+	 */
+	private final class CountTask extends RecursiveTask<TextHistogram> {
+		private static final long serialVersionUID = 1L;
+		private final byte[] bytes;
+		private final int[] offsets;
+		private final int from;
+		private final int to;
+
+		private CountTask(byte[] bytes, int[] offsets, int from, int to) {
+			this.bytes = bytes;
+			this.offsets = offsets;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected TextHistogram compute() {
+			if (to - from < 2 || offsets[to] - offsets[from] <= LEAF_BYTES) {
+				TextHistogram histogram = newHistogram();
+				for (int row = from; row < to; row++) {
+					count(bytes, offsets[row], offsets[row + 1], histogram);
+				}
+				return histogram;
+			}
+			int middle = (from + to) >>> 1;
+			CountTask right = new CountTask(bytes, offsets, middle, to);
+			right.fork();
+			TextHistogram histogram = new CountTask(bytes, offsets, from, middle).compute();
+			histogram.merge(right.join());
+			return histogram;
+		}
+	}
+
+	/**
+	 *
+	 * One streamed pass, the texts are added one by one and counted chunk by chunk
+	 *
+	 */
+	public final class Pass {
+		private final Deque<ForkJoinTask<TextHistogram>> pending = new ArrayDeque<ForkJoinTask<TextHistogram>>();
+		private final TextHistogram total = newHistogram();
+		private byte[] bytes = new byte[CHUNK_BYTES];
+		private int[] offsets = new int[1025];
+		private int rows;
+
+		private Pass() {
+		}
+
+		/**
+		 *
+		 * @param text the value of one row, null counts as a row without characters
+		 */
+		public void add(String text) {
+			byte[] encoded = text == null ? new byte[0] : text.getBytes(UTF8);
+			int length = offsets[rows];
+			if (length + encoded.length > bytes.length) {
+				if (rows > 0) {
+					submit();
+					length = 0;
+				}
+				if (encoded.length > bytes.length) {
+					bytes = new byte[encoded.length];
+				}
+			}
+			System.arraycopy(encoded, 0, bytes, length, encoded.length);
+			if (rows + 2 > offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length + (offsets.length >> 1));
+			}
+			offsets[++rows] = length + encoded.length;
+		}
+
+		/**
+		 *
+		 * Count the collected rows in the background and start a new chunk, waits for the
+		 * oldest chunk first if too many are in flight
+		 */
+		private void submit() {
+			if (pending.size() >= 2 * parallelism) {
+				total.merge(pending.removeFirst().join());
+			}
+			pending.addLast(pool.submit(new CountTask(bytes, offsets, 0, rows)));
+			bytes = new byte[bytes.length];
+			offsets = new int[offsets.length];
+			rows = 0;
+		}
+
+		/**
+		 *
+		 * @return the histogram of all added texts
+		 */
+		public TextHistogram finish() {
+			if (rows > 0) {
+				submit();
+			}
+			while (!pending.isEmpty()) {
+				total.merge(pending.removeFirst().join());
+			}
+			return total;
+		}
+	}
+
+	/**
+	 *
+	 * @return a new streamed pass
+	 */
+	public Pass startPass() {
+		return new Pass();
+	}
+
+	/**
+	 *
+	 * @param bytes UTF-8 bytes of all rows
+	 * @param offsets row i is stored from offsets[i] to offsets[i + 1]
+	 * @param rows number of rows
+	 * @return the histogram of the rows
+	 */
+	public TextHistogram analyze(byte[] bytes, int[] offsets, int rows) {
+		if (rows == 0) {
+			return newHistogram();
+		}
+		return pool.invoke(new CountTask(bytes, offsets, 0, rows));
+	}
+
+	/**
+	 * Stop the threads of the analyzer if it owns its pool, running passes fail
+	 */
+	public void shutdown() {
+		if (ownsPool) {
+			pool.shutdownNow();
+		}
+	}
+
+	private TextHistogram newHistogram() {
+		return new TextHistogram(countTokens, countWords, topCapacity);
+	}
+
+	/**
+	 *
+	 * @param bytes
+	 * @param from
+	 * @param to
+	 * @param histogram
+	 *
+	 * Count the characters, tokens and words of one row. The bytes are decoded to code points
+	 * in place; strings are only created for tokens and words if they are counted.
+	 */
+	private static void count(byte[] bytes, int from, int to, TextHistogram histogram) {
+		boolean tokens = histogram.isCountingTokens();
+		boolean words = histogram.isCountingWords();
+		int tokenStart = -1;
+		int wordStart = -1;
+		histogram.addRow();
+		int i = from;
+		while (i < to) {
+			int b = bytes[i] & 0xFF;
+			int codePoint;
+			int next;
+			if (b < 0x80) {
+				codePoint = b;
+				next = i + 1;
+			} else if (b < 0xE0) {
+				codePoint = (b & 0x1F) << 6 | bytes[i + 1] & 0x3F;
+				next = i + 2;
+			} else if (b < 0xF0) {
+				codePoint = (b & 0x0F) << 12 | (bytes[i + 1] & 0x3F) << 6 | bytes[i + 2] & 0x3F;
+				next = i + 3;
+			} else {
+				codePoint = (b & 0x07) << 18 | (bytes[i + 1] & 0x3F) << 12 | (bytes[i + 2] & 0x3F) << 6
+						| bytes[i + 3] & 0x3F;
+				next = i + 4;
+			}
+			histogram.addCharacter(codePoint);
+			if (tokens) {
+				if (Character.isWhitespace(codePoint)) {
+					if (tokenStart >= 0) {
+						histogram.addToken(new String(bytes, tokenStart, i - tokenStart, UTF8));
+						tokenStart = -1;
+					}
+				} else if (tokenStart < 0) {
+					tokenStart = i;
+				}
+			}
+			if (words) {
+				if (Character.isLetterOrDigit(codePoint)) {
+					if (wordStart < 0) {
+						wordStart = i;
+					}
+				} else if (wordStart >= 0) {
+					histogram.addWord(new String(bytes, wordStart, i - wordStart, UTF8).toLowerCase(Locale.ROOT));
+					wordStart = -1;
+				}
+			}
+			i = next;
+		}
+		if (tokenStart >= 0) {
+			histogram.addToken(new String(bytes, tokenStart, to - tokenStart, UTF8));
+		}
+		if (wordStart >= 0) {
+			histogram.addWord(new String(bytes, wordStart, to - wordStart, UTF8).toLowerCase(Locale.ROOT));
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package edu.hm.cs.bigdata.hana.text;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import edu.hm.cs.bigdata.hana.sketch.SpaceSaving;
+
+/**
+ *
+ * Frequencies of all characters of a text column and optionally of its tokens and words, as
+ * computed by the TextAnalyzer. Characters are counted exactly per Unicode code point, so the
+ * count of a character equals SUM(LENGTH(TEXT) - LENGTH(REPLACE(TEXT, c, ''))) of the database.
+ * Tokens (separated by white space) and words (runs of letters and digits, in lower case) are
+ * counted by Space-Saving sketches, their counts are upper bounds within the reported error.
+ *
+ * A histogram is only changed while the analyzer builds it.
+ *
+ */
+public class TextHistogram {
+	//code points below this are counted in an array, all others in a map
+	private static final int DIRECT_CODE_POINTS = 256;
+
+	private final long[] directCounts = new long[DIRECT_CODE_POINTS];
+	private final Map<Integer, long[]> otherCounts = new HashMap<Integer, long[]>();
+	private final SpaceSaving<String> tokens;
+	private final SpaceSaving<String> words;
+	private long rowCount;
+	private long characterCount;
+
+	/**
+	 *
+	 * @param countTokens
+	 * @param countWords
+	 * @param topCapacity number of counters of the token and word sketches
+	 */
+	TextHistogram(boolean countTokens, boolean countWords, int topCapacity) {
+		this.tokens = countTokens ? new SpaceSaving<String>(topCapacity) : null;
+		this.words = countWords ? new SpaceSaving<String>(topCapacity) : null;
+	}
+
+	void addRow() {
+		rowCount++;
+	}
+
+	/**
+	 *
+	 * @param codePoint
+	 */
+	void addCharacter(int codePoint) {
+		characterCount++;
+		if (codePoint < DIRECT_CODE_POINTS) {
+			directCounts[codePoint]++;
+		} else {
+			long[] count = otherCounts.get(codePoint);
+			if (count == null) {
+				count = new long[1];
+				otherCounts.put(codePoint, count);
+			}
+			count[0]++;
+		}
+	}
+
+	void addToken(String token) {
+		tokens.add(token);
+	}
+
+	void addWord(String word) {
+		words.add(word);
+	}
+
+	boolean isCountingTokens() {
+		return tokens != null;
+	}
+
+	boolean isCountingWords() {
+		return words != null;
+	}
+
+	/**
+	 *
+	 * @param other histogram of other rows built with the same options
+	 */
+	void merge(TextHistogram other) {
+		rowCount += other.rowCount;
+		characterCount += other.characterCount;
+		for (int i = 0; i < DIRECT_CODE_POINTS; i++) {
+			directCounts[i] += other.directCounts[i];
+		}
+		for (Map.Entry<Integer, long[]> entry : other.otherCounts.entrySet()) {
+			long[] count = otherCounts.get(entry.getKey());
+			if (count == null) {
+				otherCounts.put(entry.getKey(), new long[] { entry.getValue()[0] });
+			} else {
+				count[0] += entry.getValue()[0];
+			}
+		}
+		if (tokens != null) {
+			tokens.merge(other.tokens);
+		}
+		if (words != null) {
+			words.merge(other.words);
+		}
+	}
+
+	/**
+	 *
+	 * @return the number of analyzed rows, NULL values included
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 *
+	 * @return the number of characters of all rows, the sum of LENGTH(TEXT)
+	 */
+	public long getCharacterCount() {
+		return characterCount;
+	}
+
+	/**
+	 *
+	 * @param codePoint
+	 * @return how often the character occurs
+	 */
+	public long getCount(int codePoint) {
+		if (codePoint >= 0 && codePoint < DIRECT_CODE_POINTS) {
+			return directCounts[codePoint];
+		}
+		long[] count = otherCounts.get(codePoint);
+		return count == null ? 0 : count[0];
+	}
+
+	/**
+	 *
+	 * @return the count of every character which occurs, ordered by code point
+	 */
+	public SortedMap<Integer, Long> getCounts() {
+		SortedMap<Integer, Long> counts = new TreeMap<Integer, Long>();
+		for (int i = 0; i < DIRECT_CODE_POINTS; i++) {
+			if (directCounts[i] != 0) {
+				counts.put(i, directCounts[i]);
+			}
+		}
+		for (Map.Entry<Integer, long[]> entry : otherCounts.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue()[0]);
+		}
+		return counts;
+	}
+
+	/**
+	 *
+	 * @return the number of tokens of all rows, 0 if tokens were not counted
+	 */
+	public long getTokenCount() {
+		return tokens == null ? 0 : tokens.getTotal();
+	}
+
+	/**
+	 *
+	 * @param n
+	 * @return the n most frequent tokens, empty if tokens were not counted
+	 */
+	public List<SpaceSaving.Counter<String>> getTopTokens(int n) {
+		return tokens == null ? Collections.<SpaceSaving.Counter<String>>emptyList() : tokens.top(n);
+	}
+
+	/**
+	 *
+	 * @return the number of words of all rows, 0 if words were not counted
+	 */
+	public long getWordCount() {
+		return words == null ? 0 : words.getTotal();
+	}
+
+	/**
+	 *
+	 * @param n
+	 * @return the n most frequent words, empty if words were not counted
+	 */
+	public List<SpaceSaving.Counter<String>> getTopWords(int n) {
+		return words == null ? Collections.<SpaceSaving.Counter<String>>emptyList() : words.top(n);
+	}
+
+	@Override
+	public String toString() {
+		List<Map.Entry<Integer, Long>> characters = new ArrayList<Map.Entry<Integer, Long>>(getCounts().entrySet());
+		StringBuilder text = new StringBuilder();
+		text.append("rows=").append(rowCount).append(" characters=").append(characterCount).append(" histogram={");
+		for (int i = 0; i < characters.size(); i++) {
+			if (i > 0) {
+				text.append(", ");
+			}
+			text.appendCodePoint(characters.get(i).getKey()).append('=').append(characters.get(i).getValue());
+		}
+		text.append('}');
+		if (tokens != null) {
+			text.append(" tokens=").append(tokens.getTotal()).append(" topTokens=").append(tokens.top(10));
+		}
+		if (words != null) {
+			text.append(" words=").append(words.getTotal()).append(" topWords=").append(words.top(10));
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,180 @@
+package edu.hm.cs.bigdata.hana.util;
+
+import java.sql.Date;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.hm.cs.bigdata.hana.persistence.BigData;
+
+/**
+ * 
+ * Streaming generator for random data sets. Rows are created one at a time while the
+ * caller iterates, so any amount of data can be produced with constant memory.
+ * 
+ * Every row draws its values from its own SplitMix64 sequence which is derived from the
+ * seed and the ID of the row. A generator can therefore be split into independent 
+ * generators for parallel use and still produces exactly the same rows as a single one.
+ * A generator itself is not thread safe; every thread uses its own instance.
+ *
+ */
+public class BigDataGenerator implements Iterator<BigData> {
+	/** By default is the maximum length of the created user name 50 */
+	public static final int MAX_LENGTH_USER_NAME = 50;
+	/** By default is the maximum length of the created text 280 */
+	public static final int MAX_LENGTH_TEXT = 280;
+	/** The random dates are not before this year, see createRandomDate */
+	public static final int FIRST_YEAR = 2900;
+	/** The random dates are not after January of this year, see createRandomDate */
+	public static final int LAST_YEAR = 6900;
+	
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	//64 characters, so every character takes exactly 6 random bits
+	private static final char[] CHARACTERS_AND_DIGITS = 
+			"ABCDEFGHIJKLMNOPQRSTUVWXYZ abcdefghijklmnopqrstuvwxyz 1234567890".toCharArray();
+	
+	private final long seed;
+	//long, so the ID after Integer.MAX_VALUE does not wrap around
+	private long nextId;
+	private long endId;
+	private long state;
+	private final char[] buffer = new char[MAX_LENGTH_TEXT];
+	private final Calendar calendar = Calendar.getInstance();
+	
+	/**
+	 * 
+	 * @param seed
+	 * @param firstId
+	 * @param amountDataset
+	 * 
+	 * Creates a generator for the rows with the IDs firstId to firstId + amountDataset - 1,
+	 * the last ID must not be above Integer.MAX_VALUE
+	 */
+	public BigDataGenerator(long seed, int firstId, int amountDataset) {
+		if (amountDataset < 0) {
+			throw new IllegalArgumentException("Amount of data must not be negative: " + amountDataset);
+		}
+		if ((long) firstId + amountDataset - 1 > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("IDs from " + firstId + " for " + amountDataset 
+					+ " rows exceed " + Integer.MAX_VALUE);
+		}
+		this.seed = seed;
+		this.nextId = firstId;
+		this.endId = (long) firstId + amountDataset;
+	}
+	
+	/**
+	 * 
+	 * @param z
+	 * @return the SplitMix64 finalizer of z
+	 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * 
+	 * @return the next 64 random bits of the current row
+	 */
+	private long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+	
+	/**
+	 * 
+	 * @param bound
+	 * @return a random number between 0 and bound - 1
+	 */
+	private int nextInt(int bound) {
+		return (int) (((nextLong() >>> 33) * bound) >>> 31);
+	}
+	
+	/**
+	 * 
+	 * @param maxLengthWord
+	 * @return a random String which can contain upper, lower letters and digits
+	 */
+	private String createRandomText(int maxLengthWord) {
+		int length = nextInt(maxLengthWord);
+		long bits = 0;
+		for (int i = 0; i < length; i++) {
+			if (i % 10 == 0) {
+				bits = nextLong();
+			}
+			buffer[i] = CHARACTERS_AND_DIGITS[(int) (bits & 63)];
+			bits >>>= 6;
+		}
+		return new String(buffer, 0, length);
+	}
+	
+	/**
+	 * 
+	 * @return a random date
+	 * 
+	 * Same range as the former java.sql.Date(year, month, day) based generator, 
+	 * but computed with a reused calendar instead of a deprecated constructor per row.
+	 */
+	private Date createRandomDate() {
+		int randomYear = nextInt(4000) + 1000; //Range: 1000 - 5000
+		int randomMonth = nextInt(12) + 1; //Range: 1 - 12
+		int randomDay = nextInt(28) + 1; // Range: 1 - 28
+		
+		calendar.clear();
+		calendar.set(1900 + randomYear, randomMonth, randomDay);
+		return new Date(calendar.getTimeInMillis());
+	}
+	
+	/**
+	 * 
+	 * @return the number of rows which are still to be generated
+	 */
+	public long remaining() {
+		return endId - nextId;
+	}
+	
+	/**
+	 * 
+	 * @return a generator for the upper half of the remaining rows or null if 
+	 * 			there are less than two rows left. This generator keeps the lower half.
+	 */
+	public BigDataGenerator split() {
+		long remaining = remaining();
+		if (remaining < 2) {
+			return null;
+		}
+		int middle = (int) (nextId + remaining / 2);
+		BigDataGenerator upperHalf = new BigDataGenerator(seed, middle, (int) (endId - middle));
+		endId = middle;
+		return upperHalf;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return nextId < endId;
+	}
+
+	@Override
+	public BigData next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		int id = (int) nextId++;
+		state = mix64(seed + id * GOLDEN_GAMMA);
+		
+		BigData bigData = new BigData();
+		bigData.setId(id);
+		bigData.setUserName(this.createRandomText(MAX_LENGTH_USER_NAME));
+		bigData.setCreatedAt(this.createRandomDate());
+		bigData.setText(this.createRandomText(MAX_LENGTH_TEXT));
+		bigData.setNumber(nextInt(Integer.MAX_VALUE));
+		return bigData;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Generated rows cannot be removed");
+	}
+}
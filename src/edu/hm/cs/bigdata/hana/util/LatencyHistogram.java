@@ -0,0 +1,177 @@
+package edu.hm.cs.bigdata.hana.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 
+ * Lock free histogram of durations in nanoseconds. Values are counted in log-linear buckets:
+ * every power of two is split into 32 buckets, so a percentile is exact to about 3 percent
+ * while the histogram always has the same fixed size. Many threads may record at the same time.
+ *
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = 2 * SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * 
+	 * @param value
+	 * @return the index of the bucket which counts the value
+	 */
+	private static int bucketIndex(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+	}
+	
+	/**
+	 * 
+	 * @param index
+	 * @return the largest value counted in the bucket
+	 */
+	private static long bucketUpperBound(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+		long mantissa = (index - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((mantissa + 1) << shift) - 1;
+	}
+	
+	/**
+	 * 
+	 * @param nanos
+	 * 
+	 * Count one duration, negative durations are counted as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketIndex(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax = max.get();
+		while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+			currentMax = max.get();
+		}
+	}
+	
+	/**
+	 * 
+	 * @param other
+	 * 
+	 * Add all durations counted by the other histogram
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			long bucketCount = other.counts.get(i);
+			if (bucketCount != 0) {
+				counts.addAndGet(i, bucketCount);
+			}
+		}
+		count.addAndGet(other.count.get());
+		sum.addAndGet(other.sum.get());
+		long otherMax = other.max.get();
+		long currentMax = max.get();
+		while (otherMax > currentMax && !max.compareAndSet(currentMax, otherMax)) {
+			currentMax = max.get();
+		}
+	}
+	
+	/**
+	 * Remove all counted durations
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+	}
+	
+	/**
+	 * 
+	 * @return the number of counted durations
+	 */
+	public long getCount() {
+		return count.get();
+	}
+	
+	/**
+	 * 
+	 * @return the sum of all durations in nanoseconds
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+	
+	/**
+	 * 
+	 * @return the average duration in nanoseconds
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+	
+	/**
+	 * 
+	 * @return the longest duration in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+	
+	/**
+	 * 
+	 * @param percentile between 0.0 and 100.0
+	 * @return the duration in nanoseconds which percentile percent of all durations do not exceed
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, percentile) / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(bucketUpperBound(i), max.get());
+			}
+		}
+		return max.get();
+	}
+	
+	/**
+	 * 
+	 * @param nanos
+	 * @return the duration in milliseconds with three decimals
+	 */
+	public static String toMillis(double nanos) {
+		return String.format("%.3f", nanos / TimeUnit.MILLISECONDS.toNanos(1));
+	}
+	
+	/**
+	 * 
+	 * @return count, mean, percentiles and maximum in milliseconds in one line
+	 */
+	public String summary() {
+		return "count=" + getCount() + " mean=" + toMillis(getMean()) + "ms p50=" + toMillis(getValueAtPercentile(50)) 
+				+ "ms p99=" + toMillis(getValueAtPercentile(99)) + "ms p99.9=" + toMillis(getValueAtPercentile(99.9)) 
+				+ "ms max=" + toMillis(getMax()) + "ms";
+	}
+}
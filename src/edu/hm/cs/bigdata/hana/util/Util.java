@@ -1,7 +1,7 @@
 package edu.hm.cs.bigdata.hana.util;
 
-import java.sql.Date;
 import java.util.ArrayList;
+import java.util.Random;
 
 import edu.hm.cs.bigdata.hana.persistence.BigData;
 
@@ -15,45 +15,49 @@ import edu.hm.cs.bigdata.hana.persistence.BigData;
 public class Util {
 	
 	private int id = 0;
+	private final long seed;
 	
 	/**
+	 * Creates a utility with a new random seed
+	 */
+	public Util() {
+		this(new Random().nextLong());
+	}
+	
+	/**
+	 * 
+	 * @param seed
 	 * 
-	 * @return a random number between 0 and Integer.MAX_VALUE (2^31 - 1)
+	 * Creates a utility with reproducible values. The values of a row only depend on
+	 * the seed and the ID of the row, so any ID range always produces the same rows
+	 * no matter how the ranges are split between threads.
 	 */
-	private int createRandomInt() {
-		return (int) (Math.random() *Integer.MAX_VALUE);
+	public Util(long seed) {
+		this.seed = seed;
 	}
 	
 	/**
 	 * 
-	 * @param maxLengthWord
-	 * @return a random String which can contain upper, lower letters and digits
+	 * @param amountDataset
+	 * @return a generator which creates the next amountDataset rows while it is iterated
+	 * 
+	 * Prefer this to createData for large amounts, the rows are never held in memory together.
 	 */
-	private String createRandomText(int maxLengthWord) {
-			
-		String charactersAndDigits = "ABCDEFGHIJKLMNOPQRSTUVWXYZ abcdefghijklmnopqrstuvwxyz 1234567890";
-        StringBuilder randomString = new StringBuilder();
-        int randomLenghtWord = (int) (Math.random() * maxLengthWord);
-        while (randomString.length() < randomLenghtWord) {
-            int index = (int) (Math.random() * charactersAndDigits.length());
-            randomString.append(charactersAndDigits.charAt(index));
-        }
-        String saltStr = randomString.toString();
-        return saltStr;
-		}
+	public BigDataGenerator createDataStream(int amountDataset) {
+		BigDataGenerator generator = new BigDataGenerator(seed, id + 1, amountDataset);
+		id += amountDataset;
+		return generator;
+	}
 	
 	/**
 	 * 
-	 * @return a random date
+	 * @param firstId
+	 * @param amountDataset
+	 * @return a generator which creates the rows with the IDs firstId to firstId + amountDataset - 1
 	 */
-	@SuppressWarnings("deprecation") //need to use java.sql.Date because of PreparedStatement
-	private Date createRandomDate() {
-		int randomYear = (int) (Math.random() * 4000) + 1000; //Range: 1000 - 5000
-		int randomMonth = (int) (Math.random() * 12) + 1; //Range: 1 - 12
-		
-		int randomDay = (int) (Math.random() * 28) + 1; // Range: 1 - 28
-		
-		return new Date(randomYear, randomMonth, randomDay);
+	public BigDataGenerator createDataStream(int firstId, int amountDataset) {
+		id = firstId - 1;
+		return createDataStream(amountDataset);
 	}
 	
 	/**
@@ -66,22 +70,24 @@ public class Util {
 	 */
 	public ArrayList<BigData> createData(int amountDataset) {
 		
-		ArrayList<BigData> dataset = new ArrayList<BigData>();
-		int maxLengthUserName = 50;
-		int maxLengthText = 280;
-		
-		for(int i = 0; i<amountDataset; i++) {
-			BigData bigData = new BigData();
-			id++;
-			bigData.setId(id);
-			bigData.setUserName(this.createRandomText(maxLengthUserName));
-			bigData.setCreatedAt(this.createRandomDate());
-			bigData.setText(this.createRandomText(maxLengthText));
-			bigData.setNumber(this.createRandomInt());
-			dataset.add(bigData);
+		ArrayList<BigData> dataset = new ArrayList<BigData>(amountDataset);
+		BigDataGenerator generator = createDataStream(amountDataset);
+		while (generator.hasNext()) {
+			dataset.add(generator.next());
 		}
 		
 		return dataset;
 	}
+	
+	/**
+	 * 
+	 * @param firstId
+	 * @param amountDataset
+	 * @return the list of created objects with the IDs firstId to firstId + amountDataset - 1
+	 */
+	public ArrayList<BigData> createData(int firstId, int amountDataset) {
+		id = firstId - 1;
+		return createData(amountDataset);
+	}
 
 }
@@ -0,0 +1,90 @@
+package edu.hm.cs.bigdata.hana.util;
+
+import java.util.Random;
+
+/**
+ * 
+ * Draws numbers between 0 and itemCount - 1 from a Zipfian distribution, so a few small 
+ * numbers are drawn very often and most numbers rarely. Uses the algorithm of Gray et al., 
+ * "Quickly Generating Billion-Record Synthetic Databases", as also used by YCSB. 
+ * The constant is computed once in O(itemCount); drawing a number is O(1) and thread safe.
+ *
+ */
+public class ZipfianGenerator {
+	/** Zipfian constant used by YCSB */
+	public static final double DEFAULT_ZIPFIAN_CONSTANT = 0.99;
+	
+	private final long itemCount;
+	private final double theta;
+	private final double zetan;
+	private final double alpha;
+	private final double eta;
+	
+	/**
+	 * 
+	 * @param itemCount
+	 */
+	public ZipfianGenerator(long itemCount) {
+		this(itemCount, DEFAULT_ZIPFIAN_CONSTANT);
+	}
+	
+	/**
+	 * 
+	 * @param itemCount
+	 * @param zipfianConstant skew between 0 (exclusive) and 1 (exclusive), larger is more skewed
+	 */
+	public ZipfianGenerator(long itemCount, double zipfianConstant) {
+		if (itemCount < 1) {
+			throw new IllegalArgumentException("At least one item is needed: " + itemCount);
+		}
+		if (zipfianConstant <= 0 || zipfianConstant >= 1) {
+			throw new IllegalArgumentException("Zipfian constant must be between 0 and 1: " + zipfianConstant);
+		}
+		this.itemCount = itemCount;
+		this.theta = zipfianConstant;
+		this.zetan = zeta(itemCount, theta);
+		this.alpha = 1.0 / (1.0 - theta);
+		double zeta2 = zeta(2, theta);
+		this.eta = (1 - Math.pow(2.0 / itemCount, 1 - theta)) / (1 - zeta2 / zetan);
+	}
+	
+	/**
+	 * 
+	 * @param n
+	 * @param theta
+	 * @return the sum of 1 / i^theta for i from 1 to n
+	 */
+	private static double zeta(long n, double theta) {
+		double sum = 0;
+		for (long i = 1; i <= n; i++) {
+			sum += 1 / Math.pow(i, theta);
+		}
+		return sum;
+	}
+	
+	/**
+	 * 
+	 * @param random
+	 * @return the next number between 0 and itemCount - 1, 0 is the most frequent one
+	 */
+	public long next(Random random) {
+		double u = random.nextDouble();
+		double uz = u * zetan;
+		if (uz < 1.0) {
+			return 0;
+		}
+		if (uz < 1.0 + Math.pow(0.5, theta)) {
+			return Math.min(1, itemCount - 1);
+		}
+		long value = (long) (itemCount * Math.pow(eta * u - eta + 1, alpha));
+		return Math.min(value, itemCount - 1);
+	}
+	
+	/**
+	 * 
+	 * @return the number of items
+	 */
+	public long getItemCount() {
+		return itemCount;
+	}
+}
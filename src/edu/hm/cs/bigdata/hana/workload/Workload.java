@@ -0,0 +1,234 @@
+package edu.hm.cs.bigdata.hana.workload;
+
+/**
+ * 
+ * Configuration of a workload run by the WorkloadDriver: the mix of operations, 
+ * the key distribution, the number of threads and when to stop.
+ *
+ */
+public class Workload {
+	
+	/**
+	 * 
+	 * Distribution of the IDs which are read and updated
+	 *
+	 */
+	public enum KeyDistribution {
+		/** Every existing ID is equally likely */
+		UNIFORM,
+		/** Small IDs are hot, see ZipfianGenerator */
+		ZIPFIAN
+	}
+	
+	private double readProportion = 0.5;
+	private double insertProportion = 0.1;
+	private double updateProportion = 0.35;
+	private double analyzeProportion = 0.05;
+	private KeyDistribution keyDistribution = KeyDistribution.UNIFORM;
+	private double zipfianConstant = 0.99;
+	private int threads = 4;
+	private long durationMillis = 10000;
+	private long operationCount = 0;
+	private int recordCount = 0;
+	private long seed = 1;
+	private boolean writeBehind;
+	
+	/**
+	 * 
+	 * @throws IllegalArgumentException if the configuration cannot be run
+	 */
+	public void validate() {
+		if (readProportion < 0 || insertProportion < 0 || updateProportion < 0 || analyzeProportion < 0) {
+			throw new IllegalArgumentException("Proportions must not be negative");
+		}
+		if (getTotalProportion() <= 0) {
+			throw new IllegalArgumentException("At least one proportion must be positive");
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed: " + threads);
+		}
+		if (durationMillis <= 0 && operationCount <= 0) {
+			throw new IllegalArgumentException("Either a duration or an operation count is needed");
+		}
+		if (recordCount < 0) {
+			throw new IllegalArgumentException("Record count must not be negative: " + recordCount);
+		}
+	}
+	
+	/**
+	 * 
+	 * @return the sum of all proportions, they do not need to add up to 1
+	 */
+	public double getTotalProportion() {
+		return readProportion + insertProportion + updateProportion + analyzeProportion;
+	}
+	
+	/**
+	 * 
+	 * @return the share of reads by ID
+	 */
+	public double getReadProportion() {
+		return readProportion;
+	}
+	/**
+	 * 
+	 * @param readProportion share of reads by ID, not negative
+	 */
+	public void setReadProportion(double readProportion) {
+		this.readProportion = readProportion;
+	}
+	/**
+	 * 
+	 * @return the share of inserts of new rows
+	 */
+	public double getInsertProportion() {
+		return insertProportion;
+	}
+	/**
+	 * 
+	 * @param insertProportion share of inserts of new rows, not negative
+	 */
+	public void setInsertProportion(double insertProportion) {
+		this.insertProportion = insertProportion;
+	}
+	/**
+	 * 
+	 * @return the share of updates by ID
+	 */
+	public double getUpdateProportion() {
+		return updateProportion;
+	}
+	/**
+	 * 
+	 * @param updateProportion share of updates by ID, not negative
+	 */
+	public void setUpdateProportion(double updateProportion) {
+		this.updateProportion = updateProportion;
+	}
+	/**
+	 * 
+	 * @return the share of analyses of the whole table
+	 */
+	public double getAnalyzeProportion() {
+		return analyzeProportion;
+	}
+	/**
+	 * 
+	 * @param analyzeProportion share of analyses of the whole table, not negative
+	 */
+	public void setAnalyzeProportion(double analyzeProportion) {
+		this.analyzeProportion = analyzeProportion;
+	}
+	/**
+	 * 
+	 * @return the distribution of the IDs which are read and updated
+	 */
+	public KeyDistribution getKeyDistribution() {
+		return keyDistribution;
+	}
+	/**
+	 * 
+	 * @param keyDistribution distribution of the IDs which are read and updated
+	 */
+	public void setKeyDistribution(KeyDistribution keyDistribution) {
+		this.keyDistribution = keyDistribution;
+	}
+	/**
+	 * 
+	 * @return the skew of the zipfian distribution, higher values make small IDs hotter
+	 */
+	public double getZipfianConstant() {
+		return zipfianConstant;
+	}
+	/**
+	 * 
+	 * @param zipfianConstant skew of the zipfian distribution, only used with ZIPFIAN
+	 */
+	public void setZipfianConstant(double zipfianConstant) {
+		this.zipfianConstant = zipfianConstant;
+	}
+	/**
+	 * 
+	 * @return the number of threads running operations
+	 */
+	public int getThreads() {
+		return threads;
+	}
+	/**
+	 * 
+	 * @param threads number of threads running operations, at least 1
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+	/**
+	 * 
+	 * @return the maximum run time in milliseconds, 0 for no limit
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+	/**
+	 * 
+	 * @param durationMillis maximum run time in milliseconds, 0 for no limit
+	 */
+	public void setDurationMillis(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+	/**
+	 * 
+	 * @return the maximum number of operations of all threads together, 0 for no limit
+	 */
+	public long getOperationCount() {
+		return operationCount;
+	}
+	/**
+	 * 
+	 * @param operationCount maximum number of operations of all threads together, 0 for no limit
+	 */
+	public void setOperationCount(long operationCount) {
+		this.operationCount = operationCount;
+	}
+	/**
+	 * 
+	 * @return the number of existing rows with the IDs 1 to recordCount, 0 to count the table
+	 */
+	public int getRecordCount() {
+		return recordCount;
+	}
+	/**
+	 * 
+	 * @param recordCount number of existing rows with the IDs 1 to recordCount, 0 to count the table
+	 */
+	public void setRecordCount(int recordCount) {
+		this.recordCount = recordCount;
+	}
+	/**
+	 * 
+	 * @return the seed of the random operations and keys
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	/**
+	 * 
+	 * @param seed seed of the random operations and keys, the same seed runs the same operations
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	/**
+	 * 
+	 * @return true if inserts go into the write-behind buffer instead of the database directly
+	 */
+	public boolean isWriteBehind() {
+		return writeBehind;
+	}
+	/**
+	 * 
+	 * @param writeBehind true to send inserts through the write-behind buffer
+	 */
+	public void setWriteBehind(boolean writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+}
@@ -0,0 +1,186 @@
+package edu.hm.cs.bigdata.hana.workload;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.hm.cs.bigdata.hana.persistence.BigDataDAO;
+import edu.hm.cs.bigdata.hana.persistence.WriteBehindBuffer;
+import edu.hm.cs.bigdata.hana.util.BigDataGenerator;
+import edu.hm.cs.bigdata.hana.util.ZipfianGenerator;
+import edu.hm.cs.bigdata.hana.workload.Workload.KeyDistribution;
+import edu.hm.cs.bigdata.hana.workload.WorkloadReport.Operation;
+
+/**
+ * 
+ * YCSB style driver which runs a mix of reads, inserts, updates and analyses against the 
+ * BigDataDAO from several threads and records the latency of every operation. 
+ * Reads and updates pick existing IDs uniformly or Zipfian distributed, inserts append 
+ * new IDs after the existing rows.
+ *
+ */
+public class WorkloadDriver {
+	private final BigDataDAO bigDataDAO;
+	private final Workload workload;
+	private final WriteBehindBuffer writeBehindBuffer;
+	
+	/**
+	 * 
+	 * @param bigDataDAO
+	 * @param workload
+	 */
+	public WorkloadDriver(BigDataDAO bigDataDAO, Workload workload) {
+		this(bigDataDAO, workload, null);
+	}
+	
+	/**
+	 * 
+	 * @param bigDataDAO
+	 * @param workload
+	 * @param writeBehindBuffer the buffer inserts go into if the workload writes behind, may be null otherwise
+	 */
+	public WorkloadDriver(BigDataDAO bigDataDAO, Workload workload, WriteBehindBuffer writeBehindBuffer) {
+		workload.validate();
+		if (workload.isWriteBehind() && writeBehindBuffer == null) {
+			throw new IllegalArgumentException("Write-behind workload without write-behind buffer");
+		}
+		this.bigDataDAO = bigDataDAO;
+		this.workload = workload;
+		this.writeBehindBuffer = workload.isWriteBehind() ? writeBehindBuffer : null;
+	}
+	
+	/**
+	 * 
+	 * @return the report of the run
+	 * @throws SQLException if the table cannot be counted
+	 * @throws InterruptedException
+	 * 
+	 * Run the workload until the duration is over or the operation count is reached.
+	 * Failing operations are counted as errors and do not stop the run. With write-behind 
+	 * the run ends with a flush, so the elapsed time includes writing the buffered inserts.
+	 */
+	public WorkloadReport run() throws SQLException, InterruptedException {
+		int recordCount = workload.getRecordCount() > 0 ? workload.getRecordCount() : bigDataDAO.getAmountDataset();
+		final ZipfianGenerator zipfian = workload.getKeyDistribution() == KeyDistribution.ZIPFIAN && recordCount > 0
+				? new ZipfianGenerator(recordCount, workload.getZipfianConstant()) : null;
+		final AtomicInteger nextInsertId = new AtomicInteger(recordCount + 1);
+		final AtomicLong remainingOperations = new AtomicLong(
+				workload.getOperationCount() > 0 ? workload.getOperationCount() : Long.MAX_VALUE);
+		final WorkloadReport report = new WorkloadReport(workload.getThreads());
+		
+		long start = System.nanoTime();
+		final long deadline = workload.getDurationMillis() > 0 
+				? start + workload.getDurationMillis() * 1000000L : Long.MAX_VALUE;
+		ExecutorService executor = Executors.newFixedThreadPool(workload.getThreads());
+		List<Future<?>> workers = new ArrayList<Future<?>>();
+		try {
+			for (int i = 0; i < workload.getThreads(); i++) {
+				final Random random = new Random(workload.getSeed() * 31 + i);
+				workers.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						while (!Thread.currentThread().isInterrupted() && System.nanoTime() < deadline
+								&& remainingOperations.decrementAndGet() >= 0) {
+							runOperation(random, zipfian, nextInsertId, report);
+						}
+					}
+				}));
+			}
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+			if (writeBehindBuffer != null) {
+				writeBehindBuffer.flush();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Workload thread failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+			report.setElapsedNanos(System.nanoTime() - start);
+		}
+		return report;
+	}
+	
+	/**
+	 * 
+	 * @param random
+	 * @param zipfian
+	 * @param nextInsertId
+	 * @param report
+	 * 
+	 * Pick the next operation from the mix, run it and record its latency
+	 */
+	private void runOperation(Random random, ZipfianGenerator zipfian, AtomicInteger nextInsertId, 
+			WorkloadReport report) {
+		Operation operation = chooseOperation(random);
+		long start = System.nanoTime();
+		boolean failed = false;
+		try {
+			switch (operation) {
+			case READ:
+				bigDataDAO.selectPage(chooseId(random, zipfian, nextInsertId) - 1, 1);
+				break;
+			case INSERT:
+				if (writeBehindBuffer != null) {
+					writeBehindBuffer.add(new BigDataGenerator(random.nextLong(), nextInsertId.getAndIncrement(), 1).next());
+				} else {
+					bigDataDAO.insertBigDataRange(nextInsertId.getAndIncrement(), 1, random.nextLong());
+				}
+				break;
+			case UPDATE:
+				bigDataDAO.updateBigDataRange(chooseId(random, zipfian, nextInsertId), 1, random.nextLong());
+				break;
+			case ANALYZE:
+				bigDataDAO.analyzeAll();
+				break;
+			}
+		} catch (SQLException e) {
+			failed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failed = true;
+		}
+		report.record(operation, System.nanoTime() - start, failed);
+	}
+	
+	/**
+	 * 
+	 * @param random
+	 * @return an operation chosen with the proportions of the workload
+	 */
+	private Operation chooseOperation(Random random) {
+		double choice = random.nextDouble() * workload.getTotalProportion();
+		if ((choice -= workload.getReadProportion()) < 0) {
+			return Operation.READ;
+		}
+		if ((choice -= workload.getInsertProportion()) < 0) {
+			return Operation.INSERT;
+		}
+		if ((choice -= workload.getUpdateProportion()) < 0) {
+			return Operation.UPDATE;
+		}
+		return workload.getAnalyzeProportion() > 0 ? Operation.ANALYZE : Operation.UPDATE;
+	}
+	
+	/**
+	 * 
+	 * @param random
+	 * @param zipfian
+	 * @param nextInsertId
+	 * @return an existing ID, Zipfian distributed over the initial rows or uniform over all rows
+	 */
+	private int chooseId(Random random, ZipfianGenerator zipfian, AtomicInteger nextInsertId) {
+		if (zipfian != null) {
+			return (int) zipfian.next(random) + 1;
+		}
+		int maxId = Math.max(1, nextInsertId.get() - 1);
+		return random.nextInt(maxId) + 1;
+	}
+}
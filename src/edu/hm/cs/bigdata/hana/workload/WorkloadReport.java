@@ -0,0 +1,132 @@
+package edu.hm.cs.bigdata.hana.workload;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.hm.cs.bigdata.hana.util.LatencyHistogram;
+
+/**
+ * 
+ * Latency histograms, error counts and throughput of every operation of a workload run
+ *
+ */
+public class WorkloadReport {
+	
+	/**
+	 * 
+	 * Operations of the workload mix
+	 *
+	 */
+	public enum Operation {
+		/** Read one row by ID */
+		READ,
+		/** Insert one row with a new ID */
+		INSERT,
+		/** Update one existing row */
+		UPDATE,
+		/** Compute all analyses */
+		ANALYZE
+	}
+	
+	private final Map<Operation, LatencyHistogram> latencies = new EnumMap<Operation, LatencyHistogram>(Operation.class);
+	private final Map<Operation, AtomicLong> errors = new EnumMap<Operation, AtomicLong>(Operation.class);
+	private final int threads;
+	private volatile long elapsedNanos;
+	
+	/**
+	 * 
+	 * @param threads
+	 */
+	public WorkloadReport(int threads) {
+		this.threads = threads;
+		for (Operation operation : Operation.values()) {
+			latencies.put(operation, new LatencyHistogram());
+			errors.put(operation, new AtomicLong());
+		}
+	}
+	
+	/**
+	 * 
+	 * @param operation
+	 * @param nanos
+	 * @param failed
+	 * 
+	 * Count one finished operation
+	 */
+	void record(Operation operation, long nanos, boolean failed) {
+		latencies.get(operation).record(nanos);
+		if (failed) {
+			errors.get(operation).incrementAndGet();
+		}
+	}
+	
+	/**
+	 * 
+	 * @param nanos
+	 */
+	void setElapsedNanos(long nanos) {
+		this.elapsedNanos = nanos;
+	}
+	
+	/**
+	 * 
+	 * @param operation
+	 * @return the latencies of the operation, failed operations included
+	 */
+	public LatencyHistogram getLatencies(Operation operation) {
+		return latencies.get(operation);
+	}
+	
+	/**
+	 * 
+	 * @param operation
+	 * @return the number of failed operations
+	 */
+	public long getErrors(Operation operation) {
+		return errors.get(operation).get();
+	}
+	
+	/**
+	 * 
+	 * @return the number of operations of all types
+	 */
+	public long getTotalOperations() {
+		long total = 0;
+		for (LatencyHistogram histogram : latencies.values()) {
+			total += histogram.getCount();
+		}
+		return total;
+	}
+	
+	/**
+	 * 
+	 * @return the wall clock time of the run in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000L;
+	}
+	
+	/**
+	 * 
+	 * @return the operations of all types per second
+	 */
+	public double getThroughput() {
+		return elapsedNanos == 0 ? 0 : getTotalOperations() * 1000000000.0 / elapsedNanos;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append("threads=").append(threads).append(" runtime=").append(getElapsedMillis()).append("ms operations=")
+				.append(getTotalOperations()).append(" throughput=").append(Math.round(getThroughput())).append("ops/s\n");
+		for (Operation operation : Operation.values()) {
+			LatencyHistogram histogram = latencies.get(operation);
+			if (histogram.getCount() > 0) {
+				report.append(operation).append(": ").append(histogram.summary()).append(" errors=")
+						.append(getErrors(operation)).append('\n');
+			}
+		}
+		return report.toString();
+	}
+}